@@ -0,0 +1,505 @@
+/*
+ * utils.graph - AbstractGraph.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Abstract base implementation of a {@link Graph}. This implementation
+ * manages the {@link GraphListener}s, {@link EdgeValidator}s, and
+ * {@link PropertyIndex property indexes} of a graph.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public abstract class AbstractGraph implements Graph {
+
+	/** The graph listeners. */
+	private final List<GraphListener> graphListeners = new CopyOnWriteArrayList<GraphListener>();
+
+	/** The edge validators. */
+	private final List<EdgeValidator> edgeValidators = new CopyOnWriteArrayList<EdgeValidator>();
+
+	/** The property indexes, by property key. */
+	private final ConcurrentMap<String, PropertyIndex> propertyIndexes = new ConcurrentHashMap<String, PropertyIndex>();
+
+	//
+	// INTERFACE Graph
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Node> findNodes(String key, Object value) throws GraphException {
+		Validation.begin().isNotNull("Key", key).isNotNull("Value", value).check();
+		Set<Node> nodes = new HashSet<Node>();
+		PropertyIndex propertyIndex = propertyIndexes.get(key);
+		if (propertyIndex != null) {
+			for (long nodeId : propertyIndex.getNodeIds(value)) {
+				Node node = getNode(nodeId);
+				if (node != null) {
+					nodes.add(node);
+				}
+			}
+			return nodes;
+		}
+		try {
+			for (Iterator<Node> allNodes = getNodes(); allNodes.hasNext();) {
+				Node node = allNodes.next();
+				if (value.equals(node.get(key))) {
+					nodes.add(node);
+				}
+			}
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		}
+		return nodes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The graph should not be modified while the index is created.
+	 */
+	@Override
+	public void createIndex(String key) throws GraphException {
+		Validation.begin().isNotNull("Key", key).check();
+		if (propertyIndexes.containsKey(key)) {
+			return;
+		}
+		PropertyIndex propertyIndex = createPropertyIndex(key);
+		try {
+			for (Iterator<Node> nodes = getNodes(); nodes.hasNext();) {
+				Node node = nodes.next();
+				propertyIndex.update(node.getId(), null, node.get(key));
+			}
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		}
+		addPropertyIndex(propertyIndex);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void dropIndex(String key) throws GraphException {
+		Validation.begin().isNotNull("Key", key).check();
+		PropertyIndex propertyIndex = propertyIndexes.remove(key);
+		if (propertyIndex != null) {
+			propertyIndex.dropped();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<String> getIndexedKeys() {
+		return new HashSet<String>(propertyIndexes.keySet());
+	}
+
+	//
+	// LISTENER MANAGEMENT
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addGraphListener(GraphListener graphListener) {
+		graphListeners.add(graphListener);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeGraphListener(GraphListener graphListener) {
+		graphListeners.remove(graphListener);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addEdgeValidator(EdgeValidator edgeValidator) {
+		edgeValidators.add(edgeValidator);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeEdgeValidator(EdgeValidator edgeValidator) {
+		edgeValidators.remove(edgeValidator);
+	}
+
+	/**
+	 * Returns whether any listeners are registered. Implementations can use
+	 * this to skip work that is only necessary to create events.
+	 *
+	 * @return {@code true} if at least one listener is registered,
+	 *         {@code false} otherwise
+	 */
+	protected boolean hasGraphListeners() {
+		return !graphListeners.isEmpty();
+	}
+
+	/**
+	 * Notifies all listeners that a node was created.
+	 *
+	 * @param node
+	 *            The created node
+	 */
+	protected void fireNodeCreated(Node node) {
+		for (GraphListener graphListener : graphListeners) {
+			graphListener.nodeCreated(node);
+		}
+	}
+
+	/**
+	 * Notifies all listeners that a node was removed.
+	 *
+	 * @param node
+	 *            The removed node
+	 */
+	protected void fireNodeRemoved(Node node) {
+		for (GraphListener graphListener : graphListeners) {
+			graphListener.nodeRemoved(node);
+		}
+	}
+
+	/**
+	 * Notifies all listeners that an edge was created.
+	 *
+	 * @param edge
+	 *            The created edge
+	 */
+	protected void fireEdgeCreated(Edge edge) {
+		for (GraphListener graphListener : graphListeners) {
+			graphListener.edgeCreated(edge);
+		}
+	}
+
+	/**
+	 * Notifies all listeners that an edge was removed.
+	 *
+	 * @param edge
+	 *            The removed edge
+	 */
+	protected void fireEdgeRemoved(Edge edge) {
+		for (GraphListener graphListener : graphListeners) {
+			graphListener.edgeRemoved(edge);
+		}
+	}
+
+	/**
+	 * Notifies all listeners that the given edges were removed.
+	 *
+	 * @param edges
+	 *            The removed edges
+	 */
+	protected void fireEdgesRemoved(Set<Edge> edges) {
+		for (Edge edge : edges) {
+			fireEdgeRemoved(edge);
+		}
+	}
+
+	/**
+	 * Returns whether any edge validators are registered. Implementations can
+	 * use this to skip creating the nodes that are handed to the validators.
+	 *
+	 * @return {@code true} if at least one validator is registered,
+	 *         {@code false} otherwise
+	 */
+	protected boolean hasEdgeValidators() {
+		return !edgeValidators.isEmpty();
+	}
+
+	/**
+	 * Asks all validators whether an edge between the given nodes may be
+	 * created. Implementations have to call this method before they create an
+	 * edge, and they have to call
+	 * {@link #fireEdgeNotCreated(Node, Node, Relationship)} if they do not
+	 * create the edge after it has been validated. If a validator rejects the
+	 * edge, the validators that have already accepted it are notified here.
+	 *
+	 * @param startNode
+	 *            The start node of the edge
+	 * @param endNode
+	 *            The end node of the edge
+	 * @param relationship
+	 *            The relationship of the edge
+	 * @throws GraphException
+	 *             if a validator rejects the edge
+	 */
+	protected void validateEdge(Node startNode, Node endNode, Relationship relationship) throws GraphException {
+		if (edgeValidators.isEmpty()) {
+			return;
+		}
+		EdgeValidator[] validators = edgeValidators.toArray(new EdgeValidator[0]);
+		int acceptingValidators = 0;
+		try {
+			while (acceptingValidators < validators.length) {
+				validators[acceptingValidators].validateEdge(startNode, endNode, relationship);
+				++acceptingValidators;
+			}
+		} finally {
+			if (acceptingValidators < validators.length) {
+				for (int index = 0; index < acceptingValidators; ++index) {
+					validators[index].edgeNotCreated(startNode, endNode, relationship);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notifies all validators that a validated edge was not created.
+	 *
+	 * @param startNode
+	 *            The start node of the edge
+	 * @param endNode
+	 *            The end node of the edge
+	 * @param relationship
+	 *            The relationship of the edge
+	 */
+	protected void fireEdgeNotCreated(Node startNode, Node endNode, Relationship relationship) {
+		for (EdgeValidator edgeValidator : edgeValidators) {
+			edgeValidator.edgeNotCreated(startNode, endNode, relationship);
+		}
+	}
+
+	/**
+	 * Notifies all listeners that a property of a node was changed.
+	 *
+	 * @param node
+	 *            The node whose property was changed
+	 * @param key
+	 *            The key of the property
+	 * @param oldValue
+	 *            The old value of the property
+	 * @param newValue
+	 *            The new value of the property
+	 */
+	protected void firePropertyChanged(Node node, String key, Object oldValue, Object newValue) {
+		for (GraphListener graphListener : graphListeners) {
+			graphListener.propertyChanged(node, key, oldValue, newValue);
+		}
+	}
+
+	//
+	// PROTECTED METHODS
+	//
+
+	/**
+	 * Returns the node with the given ID. This is used to return the nodes
+	 * that were found in a property index.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The node with the given ID, or {@code null} if there is no such
+	 *         node
+	 * @throws GraphException
+	 *             if the node can not be loaded
+	 */
+	protected abstract Node getNode(long nodeId) throws GraphException;
+
+	/**
+	 * Creates a new, empty property index for the given key. Implementations
+	 * that persist their indexes can return a subclass of {@link PropertyIndex}.
+	 *
+	 * @param key
+	 *            The property key to index
+	 * @return The new property index
+	 * @throws GraphException
+	 *             if the index can not be created
+	 */
+	protected PropertyIndex createPropertyIndex(String key) throws GraphException {
+		return new PropertyIndex(key);
+	}
+
+	/**
+	 * Adds the given property index, e.g. after it was loaded from persistent
+	 * storage.
+	 *
+	 * @param propertyIndex
+	 *            The property index to add
+	 */
+	protected void addPropertyIndex(PropertyIndex propertyIndex) {
+		propertyIndexes.put(propertyIndex.getKey(), propertyIndex);
+	}
+
+	/**
+	 * Updates the index of the given key and notifies all listeners.
+	 * Implementations have to call this method after a property of a node was
+	 * changed.
+	 *
+	 * @param node
+	 *            The node whose property was changed
+	 * @param key
+	 *            The key of the property
+	 * @param oldValue
+	 *            The old value of the property
+	 * @param newValue
+	 *            The new value of the property
+	 * @throws GraphException
+	 *             if the index can not be updated
+	 */
+	protected void propertyChanged(Node node, String key, Object oldValue, Object newValue) throws GraphException {
+		updatePropertyIndex(node, key, oldValue, newValue);
+		firePropertyChanged(node, key, oldValue, newValue);
+	}
+
+	/**
+	 * Updates the index of the given key without notifying any listeners.
+	 * Implementations that notify their listeners only after releasing their
+	 * locks can call this method while the lock is still held and
+	 * {@link #firePropertyChanged(Node, String, Object, Object)} afterwards.
+	 *
+	 * @param node
+	 *            The node whose property was changed
+	 * @param key
+	 *            The key of the property
+	 * @param oldValue
+	 *            The old value of the property
+	 * @param newValue
+	 *            The new value of the property
+	 * @throws GraphException
+	 *             if the index can not be updated
+	 */
+	protected void updatePropertyIndex(Node node, String key, Object oldValue, Object newValue) throws GraphException {
+		PropertyIndex propertyIndex = propertyIndexes.get(key);
+		if (propertyIndex != null) {
+			propertyIndex.update(node.getId(), oldValue, newValue);
+		}
+	}
+
+	/**
+	 * Returns the properties of the given node that have to be reported when
+	 * the node is removed: all properties if listeners are registered,
+	 * otherwise only the indexed properties. This can be used to remember the
+	 * properties of a node that is about to be removed.
+	 *
+	 * @param node
+	 *            The node
+	 * @return The values of the properties, by key
+	 * @throws GraphException
+	 *             if the properties can not be loaded
+	 */
+	protected Map<String, Object> getRemovedProperties(Node node) throws GraphException {
+		Map<String, Object> removedProperties = new HashMap<String, Object>();
+		for (String key : hasGraphListeners() ? node.getPropertyKeys() : propertyIndexes.keySet()) {
+			Object value = node.get(key);
+			if (value != null) {
+				removedProperties.put(key, value);
+			}
+		}
+		return removedProperties;
+	}
+
+	/**
+	 * Removes the given properties of a removed node from all property indexes
+	 * and notifies all listeners that the properties were removed.
+	 * Implementations have to call this method after a node was removed, before
+	 * {@link #fireNodeRemoved(Node)}.
+	 *
+	 * @param node
+	 *            The removed node
+	 * @param removedProperties
+	 *            The properties of the node, as returned by
+	 *            {@link #getRemovedProperties(Node)}
+	 * @throws GraphException
+	 *             if an index can not be updated
+	 */
+	protected void propertiesRemoved(Node node, Map<String, Object> removedProperties) throws GraphException {
+		removeFromPropertyIndexes(node, removedProperties);
+		firePropertiesRemoved(node, removedProperties);
+	}
+
+	/**
+	 * Removes the given properties of a removed node from all property indexes
+	 * without notifying any listeners, like
+	 * {@link #updatePropertyIndex(Node, String, Object, Object)}.
+	 *
+	 * @param node
+	 *            The removed node
+	 * @param removedProperties
+	 *            The properties of the node, as returned by
+	 *            {@link #getRemovedProperties(Node)}
+	 * @throws GraphException
+	 *             if an index can not be updated
+	 */
+	protected void removeFromPropertyIndexes(Node node, Map<String, Object> removedProperties) throws GraphException {
+		for (Map.Entry<String, Object> removedProperty : removedProperties.entrySet()) {
+			updatePropertyIndex(node, removedProperty.getKey(), removedProperty.getValue(), null);
+		}
+	}
+
+	/**
+	 * Notifies all listeners that the given properties of a removed node were
+	 * removed.
+	 *
+	 * @param node
+	 *            The removed node
+	 * @param removedProperties
+	 *            The properties of the node, as returned by
+	 *            {@link #getRemovedProperties(Node)}
+	 */
+	protected void firePropertiesRemoved(Node node, Map<String, Object> removedProperties) {
+		for (Map.Entry<String, Object> removedProperty : removedProperties.entrySet()) {
+			firePropertyChanged(node, removedProperty.getKey(), removedProperty.getValue(), null);
+		}
+	}
+
+	/**
+	 * Returns all incoming and outgoing edges of the given node. This can be
+	 * used to report the edges of a node that is about to be removed.
+	 *
+	 * @param node
+	 *            The node
+	 * @return All edges of the node
+	 * @throws GraphException
+	 *             if the edges can not be loaded
+	 */
+	protected Set<Edge> getEdges(Node node) throws GraphException {
+		Set<Edge> edges = new HashSet<Edge>();
+		for (Relationship relationship : getRelationships()) {
+			edges.addAll(node.getOutgoingLinks(relationship));
+			edges.addAll(node.getIncomingLinks(relationship));
+		}
+		return edges;
+	}
+
+}
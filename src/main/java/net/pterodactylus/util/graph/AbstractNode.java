@@ -18,6 +18,7 @@
 package net.pterodactylus.util.graph;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -73,6 +74,14 @@ public abstract class AbstractNode implements Node {
 		return properties.get(key);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<String> getPropertyKeys() {
+		return new HashSet<String>(properties.keySet());
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,66 @@
+/*
+ * utils.graph - EdgeValidator.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph;
+
+import java.util.EventListener;
+
+/**
+ * Interface for objects that can prevent the creation of edges, e.g. to keep
+ * a relationship free of cycles. Validators are asked synchronously by the
+ * thread that links two nodes, before the edge is created, and possibly
+ * while the graph holds internal locks; they must not modify the graph. An
+ * edge that already exists may be validated again when it is linked again.
+ * If an accepted edge is not created after all, because another validator
+ * rejected it, because it already existed, or because the graph could not
+ * store it, the validator is notified with
+ * {@link #edgeNotCreated(Node, Node, Relationship)}.
+ *
+ * @see Graph#addEdgeValidator(EdgeValidator)
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public interface EdgeValidator extends EventListener {
+
+	/**
+	 * Checks whether an edge between the given nodes may be created.
+	 *
+	 * @param startNode
+	 *            The start node of the edge
+	 * @param endNode
+	 *            The end node of the edge
+	 * @param relationship
+	 *            The relationship of the edge
+	 * @throws GraphException
+	 *             if the edge must not be created
+	 */
+	public void validateEdge(Node startNode, Node endNode, Relationship relationship) throws GraphException;
+
+	/**
+	 * Notifies this validator that an edge it has accepted was not created.
+	 * A validator that was added after the edge was validated may be
+	 * notified about an edge it has never seen.
+	 *
+	 * @param startNode
+	 *            The start node of the edge
+	 * @param endNode
+	 *            The end node of the edge
+	 * @param relationship
+	 *            The relationship of the edge
+	 */
+	public void edgeNotCreated(Node startNode, Node endNode, Relationship relationship);
+
+}
@@ -17,6 +17,9 @@
 
 package net.pterodactylus.util.graph;
 
+import java.util.Iterator;
+import java.util.Set;
+
 /**
  * A graph contains the root {@link Node} of the graph which is used to access
  * all other nodes.
@@ -65,4 +68,108 @@ public interface Graph {
 	 */
 	public Relationship getRelationship(String name) throws GraphException;
 
+	/**
+	 * Returns all relationships of this graph.
+	 *
+	 * @return All relationships of this graph
+	 * @throws GraphException
+	 *             if the relationships can not be loaded
+	 */
+	public Set<Relationship> getRelationships() throws GraphException;
+
+	/**
+	 * Returns an iterator over all nodes of this graph, including the root
+	 * node. Nodes are loaded while iterating so that iterating over large
+	 * graphs does not require memory for all nodes. If a node can not be
+	 * loaded, the iterator throws an {@link IllegalStateException} whose cause
+	 * is a {@link GraphException}. The iterator does not support
+	 * {@link Iterator#remove()}; use {@link #removeNode(Node)} instead.
+	 *
+	 * @return An iterator over all nodes of this graph
+	 * @throws GraphException
+	 *             if the nodes can not be loaded
+	 */
+	public Iterator<Node> getNodes() throws GraphException;
+
+	/**
+	 * Returns all nodes that have the given value for the given property key.
+	 * If an index was {@link #createIndex(String) created} for the key, the
+	 * nodes are looked up in the index; otherwise all nodes of the graph are
+	 * scanned.
+	 *
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 * @return All nodes with the given value
+	 * @throws GraphException
+	 *             if the nodes can not be loaded
+	 */
+	public Set<Node> findNodes(String key, Object value) throws GraphException;
+
+	/**
+	 * Creates a hash index for the given property key, so that
+	 * {@link #findNodes(String, Object)} does not have to scan the graph. The
+	 * index is filled with the current values of all nodes and is kept up to
+	 * date when properties are changed. Nothing happens if an index for the
+	 * key already exists.
+	 *
+	 * @param key
+	 *            The property key to index
+	 * @throws GraphException
+	 *             if the index can not be created
+	 */
+	public void createIndex(String key) throws GraphException;
+
+	/**
+	 * Removes the index for the given property key.
+	 *
+	 * @param key
+	 *            The indexed property key
+	 * @throws GraphException
+	 *             if the index can not be removed
+	 */
+	public void dropIndex(String key) throws GraphException;
+
+	/**
+	 * Returns all property keys that have an index.
+	 *
+	 * @return The indexed property keys
+	 */
+	public Set<String> getIndexedKeys();
+
+	/**
+	 * Adds the given listener to the list of registered listeners.
+	 *
+	 * @param graphListener
+	 *            The listener to add
+	 */
+	public void addGraphListener(GraphListener graphListener);
+
+	/**
+	 * Removes the given listener from the list of registered listeners.
+	 *
+	 * @param graphListener
+	 *            The listener to remove
+	 */
+	public void removeGraphListener(GraphListener graphListener);
+
+	/**
+	 * Adds the given validator to the list of registered validators. Every
+	 * validator is asked before an edge is created, and can prevent its
+	 * creation by throwing an exception.
+	 *
+	 * @param edgeValidator
+	 *            The validator to add
+	 */
+	public void addEdgeValidator(EdgeValidator edgeValidator);
+
+	/**
+	 * Removes the given validator from the list of registered validators.
+	 *
+	 * @param edgeValidator
+	 *            The validator to remove
+	 */
+	public void removeEdgeValidator(EdgeValidator edgeValidator);
+
 }
@@ -0,0 +1,67 @@
+/*
+ * utils.graph - GraphAdapter.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph;
+
+/**
+ * Adapter for {@link GraphListener} whose methods do nothing.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class GraphAdapter implements GraphListener {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void nodeCreated(Node node) {
+		/* do nothing. */
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void nodeRemoved(Node node) {
+		/* do nothing. */
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void edgeCreated(Edge edge) {
+		/* do nothing. */
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void edgeRemoved(Edge edge) {
+		/* do nothing. */
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void propertyChanged(Node node, String key, Object oldValue, Object newValue) {
+		/* do nothing. */
+	}
+
+}
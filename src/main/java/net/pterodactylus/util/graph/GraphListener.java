@@ -0,0 +1,83 @@
+/*
+ * utils.graph - GraphListener.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph;
+
+import java.util.EventListener;
+
+/**
+ * Interface for objects that want to be notified about changes of a
+ * {@link Graph}. Listeners are notified synchronously by the thread that
+ * changed the graph, after the change has been made, and possibly while the
+ * graph holds internal locks; they should return quickly and must not modify
+ * the graph. When a node is removed, the removal of each of its edges is
+ * reported before the removal of the node.
+ *
+ * @see Graph#addGraphListener(GraphListener)
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public interface GraphListener extends EventListener {
+
+	/**
+	 * Notifies a listener that a node was created.
+	 *
+	 * @param node
+	 *            The created node
+	 */
+	public void nodeCreated(Node node);
+
+	/**
+	 * Notifies a listener that a node was removed.
+	 *
+	 * @param node
+	 *            The removed node
+	 */
+	public void nodeRemoved(Node node);
+
+	/**
+	 * Notifies a listener that an edge was created.
+	 *
+	 * @param edge
+	 *            The created edge
+	 */
+	public void edgeCreated(Edge edge);
+
+	/**
+	 * Notifies a listener that an edge was removed.
+	 *
+	 * @param edge
+	 *            The removed edge
+	 */
+	public void edgeRemoved(Edge edge);
+
+	/**
+	 * Notifies a listener that a property of a node was changed. When a node
+	 * is removed, the removal of each of its properties is reported before the
+	 * node itself is reported as removed.
+	 *
+	 * @param node
+	 *            The node whose property was changed
+	 * @param key
+	 *            The key of the property
+	 * @param oldValue
+	 *            The old value of the property (may be {@code null})
+	 * @param newValue
+	 *            The new value of the property (may be {@code null})
+	 */
+	public void propertyChanged(Node node, String key, Object oldValue, Object newValue);
+
+}
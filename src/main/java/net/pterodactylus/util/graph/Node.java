@@ -35,6 +35,14 @@ public interface Node {
 	 */
 	public Graph getGraph();
 
+	/**
+	 * Returns the ID of this node. The ID of a node is unique within its graph
+	 * and does not change.
+	 *
+	 * @return The ID of this node
+	 */
+	public long getId();
+
 	/**
 	 * Sets a property on this node.
 	 *
@@ -59,6 +67,15 @@ public interface Node {
 	 */
 	public Object get(String key) throws GraphException;
 
+	/**
+	 * Returns the keys of all properties of this node.
+	 *
+	 * @return The keys of all properties of this node
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public Set<String> getPropertyKeys() throws GraphException;
+
 	/**
 	 * Links this node to the given node with the given relationship. If such a
 	 * link does already exist no new link is created.
@@ -0,0 +1,199 @@
+/*
+ * utils.graph - PropertyIndex.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hash index that maps the values of a single property key to the IDs of the
+ * nodes that have the value. Values are compared using
+ * {@link Object#equals(Object)} and {@link Object#hashCode()}; {@code null}
+ * values are not indexed.
+ * <p>
+ * Indexes are created and maintained by {@link AbstractGraph}. Stores that
+ * persist their indexes can extend this class and override
+ * {@link #nodeUpdated(long, Object, Object)}.
+ * <p>
+ * All methods of this index are synchronized.
+ *
+ * @see Graph#createIndex(String)
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class PropertyIndex {
+
+	/** The indexed property key. */
+	private final String key;
+
+	/** The IDs of the nodes, by property value. */
+	private final Map<Object, Set<Long>> nodeIds = new HashMap<Object, Set<Long>>();
+
+	/**
+	 * Creates a new, empty property index.
+	 *
+	 * @param key
+	 *            The indexed property key
+	 */
+	public PropertyIndex(String key) {
+		this.key = key;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the indexed property key.
+	 *
+	 * @return The indexed property key
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns the IDs of all nodes that have the given value.
+	 *
+	 * @param value
+	 *            The value of the property
+	 * @return The IDs of all nodes with the given value
+	 */
+	public synchronized Set<Long> getNodeIds(Object value) {
+		Set<Long> valueNodeIds = nodeIds.get(value);
+		return (valueNodeIds == null) ? Collections.<Long> emptySet() : new HashSet<Long>(valueNodeIds);
+	}
+
+	/**
+	 * Returns the number of distinct values in this index.
+	 *
+	 * @return The number of distinct values
+	 */
+	public synchronized int getValueCount() {
+		return nodeIds.size();
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Records that the indexed property of the node with the given ID changed
+	 * from the given old value to the given new value.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param oldValue
+	 *            The old value of the property ({@code null} if the node did
+	 *            not have the property)
+	 * @param newValue
+	 *            The new value of the property ({@code null} if the node does
+	 *            not have the property anymore)
+	 * @throws GraphException
+	 *             if the index can not be updated
+	 */
+	public synchronized void update(long nodeId, Object oldValue, Object newValue) throws GraphException {
+		if ((oldValue == null) ? (newValue == null) : oldValue.equals(newValue)) {
+			return;
+		}
+		nodeUpdated(nodeId, oldValue, newValue);
+		restore(nodeId, oldValue, newValue);
+	}
+
+	//
+	// PROTECTED METHODS
+	//
+
+	/**
+	 * Changes the in-memory index without calling
+	 * {@link #nodeUpdated(long, Object, Object)}. Subclasses can use this to
+	 * restore a persisted index.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param oldValue
+	 *            The old value of the property ({@code null} if the node did
+	 *            not have the property)
+	 * @param newValue
+	 *            The new value of the property ({@code null} if the node does
+	 *            not have the property anymore)
+	 */
+	protected synchronized void restore(long nodeId, Object oldValue, Object newValue) {
+		if (oldValue != null) {
+			Set<Long> valueNodeIds = nodeIds.get(oldValue);
+			if ((valueNodeIds != null) && valueNodeIds.remove(nodeId) && valueNodeIds.isEmpty()) {
+				nodeIds.remove(oldValue);
+			}
+		}
+		if (newValue != null) {
+			Set<Long> valueNodeIds = nodeIds.get(newValue);
+			if (valueNodeIds == null) {
+				valueNodeIds = new HashSet<Long>();
+				nodeIds.put(newValue, valueNodeIds);
+			}
+			valueNodeIds.add(nodeId);
+		}
+	}
+
+	/**
+	 * Called before the in-memory index is updated. This implementation does
+	 * nothing.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param oldValue
+	 *            The old value of the property ({@code null} if the node did
+	 *            not have the property)
+	 * @param newValue
+	 *            The new value of the property ({@code null} if the node does
+	 *            not have the property anymore)
+	 * @throws GraphException
+	 *             if the change can not be persisted
+	 */
+	protected void nodeUpdated(long nodeId, Object oldValue, Object newValue) throws GraphException {
+		/* do nothing. */
+	}
+
+	/**
+	 * Called after the index was dropped. This implementation does nothing.
+	 *
+	 * @throws GraphException
+	 *             if the index can not be removed from persistent storage
+	 */
+	protected void dropped() throws GraphException {
+		/* do nothing. */
+	}
+
+	/**
+	 * Returns the IDs of all indexed nodes with their values.
+	 *
+	 * @return The values of all indexed nodes, by node ID
+	 */
+	protected synchronized Map<Long, Object> getValues() {
+		Map<Long, Object> values = new HashMap<Long, Object>();
+		for (Map.Entry<Object, Set<Long>> valueNodeIds : nodeIds.entrySet()) {
+			for (long nodeId : valueNodeIds.getValue()) {
+				values.put(nodeId, valueNodeIds.getKey());
+			}
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * utils.graph - RandomAccessGraph.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph;
+
+import java.util.Collection;
+
+/**
+ * Optional interface for {@link Graph} implementations that can return a node
+ * by its ID and return the IDs of linked nodes without creating {@link Edge}
+ * objects. Algorithms that work on node IDs check for this interface and fall
+ * back to following the edges of the {@link Node}s otherwise.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public interface RandomAccessGraph extends Graph {
+
+	/**
+	 * Returns the node with the given ID.
+	 *
+	 * @see Node#getId()
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The node with the given ID, or {@code null} if there is no such
+	 *         node
+	 * @throws GraphException
+	 *             if the node can not be loaded
+	 */
+	public Node getNode(long nodeId) throws GraphException;
+
+	/**
+	 * Returns the IDs of the nodes that are linked to the given nodes with any
+	 * of the given relationships. Implementations may reorder the reads for
+	 * the given nodes so that requesting the linked nodes of many nodes at once
+	 * is cheaper than requesting them one by one.
+	 *
+	 * @param nodeIds
+	 *            The IDs of the nodes
+	 * @param relationships
+	 *            The relationships of the edges to follow
+	 * @param outgoing
+	 *            {@code true} to return the end nodes of outgoing edges,
+	 *            {@code false} to return the start nodes of incoming edges
+	 * @return The IDs of the linked nodes, in the same order as the given node
+	 *         IDs (an empty array for nodes that do not exist)
+	 * @throws GraphException
+	 *             if the edges can not be loaded
+	 */
+	public long[][] getLinkedNodeIds(long[] nodeIds, Collection<? extends Relationship> relationships, boolean outgoing) throws GraphException;
+
+}
@@ -0,0 +1,312 @@
+/*
+ * utils.graph - AdjacencySnapshot.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.graph.collection.LongIntHashMap;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Immutable copy of the structure of a {@link Graph} in compressed sparse row
+ * (CSR) form. Every node is assigned a dense index between {@code 0} and
+ * {@link #getNodeCount()}; the outgoing and the incoming neighbours of all
+ * nodes are stored in two {@code int} arrays, with an offset array each that
+ * points to the first neighbour of every node. Graph algorithms that work on
+ * a snapshot do not need to go through the {@link Node} API and can share the
+ * arrays between threads.
+ * <p>
+ * Edges of different relationships between the same nodes are stored as
+ * separate edges. Changes to the graph after the snapshot was created are not
+ * reflected in the snapshot.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class AdjacencySnapshot {
+
+	/** The IDs of the nodes, by index. */
+	private final long[] nodeIds;
+
+	/** The indexes of the nodes, by ID. */
+	private final LongIntHashMap nodeIndexes;
+
+	/** The offsets of the outgoing neighbours of every node. */
+	final int[] outgoingOffsets;
+
+	/** The outgoing neighbours of all nodes. */
+	final int[] outgoingNeighbours;
+
+	/** The offsets of the incoming neighbours of every node. */
+	final int[] incomingOffsets;
+
+	/** The incoming neighbours of all nodes. */
+	final int[] incomingNeighbours;
+
+	/**
+	 * Creates a new adjacency snapshot.
+	 *
+	 * @param nodeIds
+	 *            The IDs of the nodes, by index
+	 * @param nodeIndexes
+	 *            The indexes of the nodes, by ID
+	 * @param outgoingOffsets
+	 *            The offsets of the outgoing neighbours of every node (with
+	 *            one additional element that contains the number of edges)
+	 * @param outgoingNeighbours
+	 *            The outgoing neighbours of all nodes
+	 */
+	AdjacencySnapshot(long[] nodeIds, LongIntHashMap nodeIndexes, int[] outgoingOffsets, int[] outgoingNeighbours) {
+		this.nodeIds = nodeIds;
+		this.nodeIndexes = nodeIndexes;
+		this.outgoingOffsets = outgoingOffsets;
+		this.outgoingNeighbours = outgoingNeighbours;
+		int nodeCount = nodeIds.length;
+		incomingOffsets = new int[nodeCount + 1];
+		for (int edge = 0; edge < outgoingNeighbours.length; ++edge) {
+			++incomingOffsets[outgoingNeighbours[edge] + 1];
+		}
+		for (int node = 0; node < nodeCount; ++node) {
+			incomingOffsets[node + 1] += incomingOffsets[node];
+		}
+		incomingNeighbours = new int[outgoingNeighbours.length];
+		int[] positions = new int[nodeCount];
+		System.arraycopy(incomingOffsets, 0, positions, 0, nodeCount);
+		for (int node = 0; node < nodeCount; ++node) {
+			for (int edge = outgoingOffsets[node]; edge < outgoingOffsets[node + 1]; ++edge) {
+				incomingNeighbours[positions[outgoingNeighbours[edge]]++] = node;
+			}
+		}
+	}
+
+	/**
+	 * Creates a snapshot of the edges of all relationships of the given graph.
+	 *
+	 * @param graph
+	 *            The graph
+	 * @return The snapshot of the graph
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public static AdjacencySnapshot create(Graph graph) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).check();
+		return create(graph, graph.getRelationships());
+	}
+
+	/**
+	 * Creates a snapshot of the edges of the given relationship of the given
+	 * graph.
+	 *
+	 * @param graph
+	 *            The graph
+	 * @param relationship
+	 *            The name of the relationship whose edges to include
+	 * @return The snapshot of the graph
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public static AdjacencySnapshot create(Graph graph, String relationship) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).isNotNull("Relationship", relationship).check();
+		return create(graph, Collections.singleton(graph.getRelationship(relationship)));
+	}
+
+	/**
+	 * Creates a snapshot of the edges of the given relationships of the given
+	 * graph. The graph is read once, node by node, using
+	 * {@link Graph#getNodes()}.
+	 *
+	 * @param graph
+	 *            The graph
+	 * @param relationships
+	 *            The relationships whose edges to include
+	 * @return The snapshot of the graph
+	 * @throws GraphException
+	 *             if the graph can not be read, or it has more than
+	 *             {@link Integer#MAX_VALUE} edges
+	 */
+	public static AdjacencySnapshot create(Graph graph, Collection<? extends Relationship> relationships) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).isNotNull("Relationships", relationships).check();
+		LongIntHashMap nodeIndexes = new LongIntHashMap();
+		long[] nodeIds = new long[1024];
+		int[] outgoingOffsets = new int[1025];
+		long[] neighbourIds = new long[1024];
+		int nodeCount = 0;
+		int edgeCount = 0;
+		try {
+			for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+				Node node = nodes.next();
+				if (nodeCount == nodeIds.length) {
+					nodeIds = grow(nodeIds);
+					int[] newOutgoingOffsets = new int[nodeIds.length + 1];
+					System.arraycopy(outgoingOffsets, 0, newOutgoingOffsets, 0, nodeCount + 1);
+					outgoingOffsets = newOutgoingOffsets;
+				}
+				nodeIndexes.put(node.getId(), nodeCount);
+				nodeIds[nodeCount++] = node.getId();
+				for (Relationship relationship : relationships) {
+					for (Edge edge : node.getOutgoingLinks(relationship)) {
+						if (edgeCount == Integer.MAX_VALUE) {
+							throw new GraphException("Graph has too many edges for a snapshot.");
+						}
+						if (edgeCount == neighbourIds.length) {
+							neighbourIds = grow(neighbourIds);
+						}
+						neighbourIds[edgeCount++] = edge.getEndNode().getId();
+					}
+				}
+				outgoingOffsets[nodeCount] = edgeCount;
+			}
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		}
+		long[] compactNodeIds = new long[nodeCount];
+		System.arraycopy(nodeIds, 0, compactNodeIds, 0, nodeCount);
+		int[] compactOutgoingOffsets = new int[nodeCount + 1];
+		System.arraycopy(outgoingOffsets, 0, compactOutgoingOffsets, 0, nodeCount + 1);
+		int[] outgoingNeighbours = new int[edgeCount];
+		for (int edge = 0; edge < edgeCount; ++edge) {
+			outgoingNeighbours[edge] = nodeIndexes.get(neighbourIds[edge]);
+			if (outgoingNeighbours[edge] == -1) {
+				throw new GraphException("Edge to unknown node " + neighbourIds[edge] + ".");
+			}
+		}
+		return new AdjacencySnapshot(compactNodeIds, nodeIndexes, compactOutgoingOffsets, outgoingNeighbours);
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the number of nodes in this snapshot.
+	 *
+	 * @return The number of nodes
+	 */
+	public int getNodeCount() {
+		return nodeIds.length;
+	}
+
+	/**
+	 * Returns the number of edges in this snapshot.
+	 *
+	 * @return The number of edges
+	 */
+	public int getEdgeCount() {
+		return outgoingNeighbours.length;
+	}
+
+	/**
+	 * Returns the ID of the node with the given index.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @return The ID of the node
+	 */
+	public long getNodeId(int index) {
+		return nodeIds[index];
+	}
+
+	/**
+	 * Returns the index of the node with the given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The index of the node, or {@code -1} if the node is not
+	 *         contained in this snapshot
+	 */
+	public int getIndex(long nodeId) {
+		return nodeIndexes.get(nodeId);
+	}
+
+	/**
+	 * Returns the number of outgoing edges of the node with the given index.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @return The number of outgoing edges
+	 */
+	public int getOutDegree(int index) {
+		return outgoingOffsets[index + 1] - outgoingOffsets[index];
+	}
+
+	/**
+	 * Returns the number of incoming edges of the node with the given index.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @return The number of incoming edges
+	 */
+	public int getInDegree(int index) {
+		return incomingOffsets[index + 1] - incomingOffsets[index];
+	}
+
+	/**
+	 * Returns an outgoing neighbour of the node with the given index.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @param position
+	 *            The position of the neighbour (between {@code 0} and the
+	 *            out-degree of the node)
+	 * @return The index of the neighbour
+	 */
+	public int getOutgoingNeighbour(int index, int position) {
+		return outgoingNeighbours[outgoingOffsets[index] + position];
+	}
+
+	/**
+	 * Returns an incoming neighbour of the node with the given index.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @param position
+	 *            The position of the neighbour (between {@code 0} and the
+	 *            in-degree of the node)
+	 * @return The index of the neighbour
+	 */
+	public int getIncomingNeighbour(int index, int position) {
+		return incomingNeighbours[incomingOffsets[index] + position];
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns a copy of the given array with twice the length.
+	 *
+	 * @param array
+	 *            The array to grow
+	 * @return The grown array
+	 */
+	private static long[] grow(long[] array) {
+		long[] grownArray = new long[array.length * 2];
+		System.arraycopy(array, 0, grownArray, 0, array.length);
+		return grownArray;
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * utils.graph - BreadthFirstSearchResult.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+/**
+ * The result of a {@link ParallelBreadthFirstSearch}: the distance of every
+ * node of an {@link AdjacencySnapshot} from the start node, and the number of
+ * nodes on every level.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class BreadthFirstSearchResult {
+
+	/** The snapshot that was searched. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The distances of the nodes, by index. */
+	private final int[] distances;
+
+	/** The number of nodes on every level. */
+	private final int[] levelSizes;
+
+	/** The number of levels that were processed bottom-up. */
+	private final int bottomUpLevels;
+
+	/**
+	 * Creates a new breadth-first search result.
+	 *
+	 * @param snapshot
+	 *            The snapshot that was searched
+	 * @param distances
+	 *            The distances of the nodes, by index
+	 * @param levelSizes
+	 *            The number of nodes on every level
+	 * @param bottomUpLevels
+	 *            The number of levels that were processed bottom-up
+	 */
+	BreadthFirstSearchResult(AdjacencySnapshot snapshot, int[] distances, int[] levelSizes, int bottomUpLevels) {
+		this.snapshot = snapshot;
+		this.distances = distances;
+		this.levelSizes = levelSizes;
+		this.bottomUpLevels = bottomUpLevels;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the snapshot that was searched.
+	 *
+	 * @return The searched snapshot
+	 */
+	public AdjacencySnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns the distances of all nodes from the start node, by node index.
+	 * Nodes that can not be reached have a distance of {@code -1}. The
+	 * returned array is not copied and must not be modified.
+	 *
+	 * @return The distances of all nodes
+	 */
+	public int[] getDistances() {
+		return distances;
+	}
+
+	/**
+	 * Returns the distance of the node with the given index.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @return The distance of the node, or {@code -1} if the node can not be
+	 *         reached
+	 */
+	public int getDistance(int index) {
+		return distances[index];
+	}
+
+	/**
+	 * Returns the distance of the node with the given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The distance of the node, or {@code -1} if the node can not be
+	 *         reached or is not contained in the snapshot
+	 */
+	public int getDistanceById(long nodeId) {
+		int index = snapshot.getIndex(nodeId);
+		return (index == -1) ? -1 : distances[index];
+	}
+
+	/**
+	 * Returns the number of levels, including the level of the start node.
+	 *
+	 * @return The number of levels
+	 */
+	public int getLevelCount() {
+		return levelSizes.length;
+	}
+
+	/**
+	 * Returns the number of nodes on the given level.
+	 *
+	 * @param level
+	 *            The level
+	 * @return The number of nodes with the given distance
+	 */
+	public int getLevelSize(int level) {
+		return levelSizes[level];
+	}
+
+	/**
+	 * Returns the number of nodes that can be reached from the start node,
+	 * including the start node.
+	 *
+	 * @return The number of reached nodes
+	 */
+	public int getReachedNodeCount() {
+		int reachedNodeCount = 0;
+		for (int levelSize : levelSizes) {
+			reachedNodeCount += levelSize;
+		}
+		return reachedNodeCount;
+	}
+
+	/**
+	 * Returns the number of levels that were discovered by a bottom-up step.
+	 *
+	 * @return The number of bottom-up levels
+	 */
+	public int getBottomUpLevelCount() {
+		return bottomUpLevels;
+	}
+
+}
@@ -0,0 +1,475 @@
+/*
+ * utils.graph - ComponentTracker.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.GraphListener;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.collection.LongIntHashMap;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Keeps track of the weakly connected components of a graph over the edges
+ * of a set of relationships while the graph changes.
+ * <p>
+ * The components are kept in a union-find structure with union by size and
+ * path halving, so that finding the component of a node takes practically
+ * constant time. The tracker registers itself as {@link GraphListener} of
+ * its graph; a new edge merges the components of its nodes. The tracker
+ * also remembers every connected pair of nodes and whether the edge between
+ * them was used to merge two components, which makes these edges a spanning
+ * forest of the graph. Removing an edge that is not part of the forest, or
+ * one of several edges between the same nodes, does not change any
+ * component. Removing the last edge of a forest pair may split a component;
+ * as union-find can not split sets, the components are then rebuilt from
+ * the remembered pairs on the next query, without reading the graph.
+ * <p>
+ * The tracker is initialized by reading the graph, which should not be
+ * modified while the tracker is created: the graph is read before the
+ * tracker registers itself, so modifications made in the meantime are
+ * missed.
+ * <p>
+ * Component IDs are only stable until a component is merged or rebuilt; use
+ * {@link #isConnected(long, long)} to compare nodes. Use {@link #close()}
+ * to unregister the tracker.
+ * <p>
+ * All methods of this tracker are synchronized.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class ComponentTracker implements GraphListener {
+
+	/** The graph. */
+	private final Graph graph;
+
+	/** The names of the tracked relationships. */
+	private final Set<String> relationships;
+
+	/** The indexes of all tracked nodes, by node ID. */
+	private final LongIntHashMap indexes = new LongIntHashMap();
+
+	/**
+	 * The number of edges between every pair of nodes, times two, plus one
+	 * if the pair is part of the spanning forest; by pair key.
+	 */
+	private final LongIntHashMap pairs = new LongIntHashMap();
+
+	/** The parent of every node index ({@code -1} for removed nodes). */
+	private int[] parents = new int[16];
+
+	/** The size of the component of every root index. */
+	private int[] sizes = new int[16];
+
+	/** The number of node indexes. */
+	private int nodeCount;
+
+	/** The number of components. */
+	private int componentCount;
+
+	/** Whether the components have to be rebuilt before the next query. */
+	private boolean stale;
+
+	/** The number of times the components were rebuilt. */
+	private int rebuildCount;
+
+	/**
+	 * Creates a new component tracker.
+	 *
+	 * @param graph
+	 *            The graph
+	 * @param relationships
+	 *            The names of the tracked relationships
+	 */
+	private ComponentTracker(Graph graph, Set<String> relationships) {
+		this.graph = graph;
+		this.relationships = relationships;
+	}
+
+	/**
+	 * Creates a component tracker for the given relationships of the given
+	 * graph and registers it as listener of the graph.
+	 *
+	 * @param graph
+	 *            The graph to track
+	 * @param relationships
+	 *            The names of the relationships whose edges connect nodes
+	 * @return The component tracker
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public static ComponentTracker create(Graph graph, Collection<String> relationships) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).isNotNull("Relationships", relationships).check();
+		ComponentTracker componentTracker = new ComponentTracker(graph, Collections.unmodifiableSet(new HashSet<String>(relationships)));
+		componentTracker.build();
+		graph.addGraphListener(componentTracker);
+		return componentTracker;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the names of the relationships whose edges connect nodes.
+	 *
+	 * @return The names of the tracked relationships
+	 */
+	public Set<String> getRelationships() {
+		return relationships;
+	}
+
+	/**
+	 * Returns the number of components.
+	 *
+	 * @return The number of components
+	 */
+	public synchronized int getComponentCount() {
+		update();
+		return componentCount;
+	}
+
+	/**
+	 * Returns the ID of the component of the given node.
+	 *
+	 * @param node
+	 *            The node
+	 * @return The ID of the component of the node, or {@code -1} if the node
+	 *         is not tracked
+	 */
+	public int getComponent(Node node) {
+		return getComponent(node.getId());
+	}
+
+	/**
+	 * Returns the ID of the component of the node with the given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The ID of the component of the node, or {@code -1} if the node
+	 *         is not tracked
+	 */
+	public synchronized int getComponent(long nodeId) {
+		update();
+		int index = indexes.get(nodeId);
+		return (index == -1) ? -1 : find(index);
+	}
+
+	/**
+	 * Returns the number of nodes in the component of the node with the
+	 * given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The size of the component of the node, or {@code 0} if the node
+	 *         is not tracked
+	 */
+	public synchronized int getComponentSize(long nodeId) {
+		int component = getComponent(nodeId);
+		return (component == -1) ? 0 : sizes[component];
+	}
+
+	/**
+	 * Returns whether the given nodes are in the same component.
+	 *
+	 * @param firstNode
+	 *            The first node
+	 * @param secondNode
+	 *            The second node
+	 * @return {@code true} if the nodes are connected, {@code false}
+	 *         otherwise
+	 */
+	public boolean isConnected(Node firstNode, Node secondNode) {
+		return isConnected(firstNode.getId(), secondNode.getId());
+	}
+
+	/**
+	 * Returns whether the nodes with the given IDs are in the same component.
+	 *
+	 * @param firstNodeId
+	 *            The ID of the first node
+	 * @param secondNodeId
+	 *            The ID of the second node
+	 * @return {@code true} if the nodes are connected, {@code false}
+	 *         otherwise
+	 */
+	public synchronized boolean isConnected(long firstNodeId, long secondNodeId) {
+		int firstComponent = getComponent(firstNodeId);
+		return (firstComponent != -1) && (firstComponent == getComponent(secondNodeId));
+	}
+
+	/**
+	 * Returns how often the components had to be rebuilt because an edge of
+	 * the spanning forest was removed.
+	 *
+	 * @return The number of rebuilds
+	 */
+	public synchronized int getRebuildCount() {
+		return rebuildCount;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Unregisters this tracker from its graph. The tracker is not updated
+	 * anymore after it has been closed.
+	 */
+	public void close() {
+		graph.removeGraphListener(this);
+	}
+
+	//
+	// INTERFACE GraphListener
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void nodeCreated(Node node) {
+		getIndex(node.getId());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void nodeRemoved(Node node) {
+		int index = indexes.remove(node.getId());
+		if (index == -1) {
+			return;
+		}
+		/* without a pending rebuild, a node without edges is a singleton. */
+		parents[index] = -1;
+		if (!stale) {
+			--componentCount;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeCreated(Edge edge) {
+		if (!relationships.contains(edge.getRelationship().getName())) {
+			return;
+		}
+		int startIndex = getIndex(edge.getStartNode().getId());
+		int endIndex = getIndex(edge.getEndNode().getId());
+		if (startIndex == endIndex) {
+			return;
+		}
+		long pair = getPair(startIndex, endIndex);
+		int pairValue = Math.max(pairs.get(pair), 0) + 2;
+		if (!stale && union(startIndex, endIndex)) {
+			pairValue |= 1;
+		}
+		pairs.put(pair, pairValue);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeRemoved(Edge edge) {
+		if (!relationships.contains(edge.getRelationship().getName())) {
+			return;
+		}
+		int startIndex = indexes.get(edge.getStartNode().getId());
+		int endIndex = indexes.get(edge.getEndNode().getId());
+		if ((startIndex == -1) || (endIndex == -1) || (startIndex == endIndex)) {
+			return;
+		}
+		long pair = getPair(startIndex, endIndex);
+		int pairValue = pairs.get(pair);
+		if (pairValue == -1) {
+			return;
+		}
+		if ((pairValue >>> 1) > 1) {
+			pairs.put(pair, pairValue - 2);
+			return;
+		}
+		pairs.remove(pair);
+		if ((pairValue & 1) != 0) {
+			stale = true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void propertyChanged(Node node, String key, Object oldValue, Object newValue) {
+		/* properties do not affect the components. */
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Reads all nodes and edges of the graph and builds the components.
+	 *
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	private void build() throws GraphException {
+		try {
+			for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+				Node node = nodes.next();
+				int startIndex = getIndex(node.getId());
+				for (String relationship : relationships) {
+					for (Edge edge : node.getOutgoingLinks(relationship)) {
+						int endIndex = getIndex(edge.getEndNode().getId());
+						if (startIndex != endIndex) {
+							long pair = getPair(startIndex, endIndex);
+							pairs.put(pair, Math.max(pairs.get(pair), 0) + 2);
+						}
+					}
+				}
+			}
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		}
+		stale = true;
+		update();
+		rebuildCount = 0;
+	}
+
+	/**
+	 * Rebuilds the components from the remembered pairs if an edge of the
+	 * spanning forest was removed.
+	 */
+	private void update() {
+		if (!stale) {
+			return;
+		}
+		componentCount = 0;
+		for (int index = 0; index < nodeCount; ++index) {
+			if (parents[index] != -1) {
+				parents[index] = index;
+				sizes[index] = 1;
+				++componentCount;
+			}
+		}
+		for (long pair : pairs.keys()) {
+			int pairValue = pairs.get(pair) & ~1;
+			if (union((int) (pair >>> 32), (int) pair)) {
+				pairValue |= 1;
+			}
+			pairs.put(pair, pairValue);
+		}
+		stale = false;
+		++rebuildCount;
+	}
+
+	/**
+	 * Returns the index of the node with the given ID, adding the node as a
+	 * new component if it is not tracked yet.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The index of the node
+	 */
+	private int getIndex(long nodeId) {
+		int index = indexes.get(nodeId);
+		if (index != -1) {
+			return index;
+		}
+		if (nodeCount == parents.length) {
+			parents = Arrays.copyOf(parents, nodeCount * 2);
+			sizes = Arrays.copyOf(sizes, nodeCount * 2);
+		}
+		index = nodeCount++;
+		indexes.put(nodeId, index);
+		parents[index] = index;
+		sizes[index] = 1;
+		++componentCount;
+		return index;
+	}
+
+	/**
+	 * Returns the root index of the component of the given node index,
+	 * halving the path to the root on the way.
+	 *
+	 * @param index
+	 *            The node index
+	 * @return The root index of the component of the node
+	 */
+	private int find(int index) {
+		while (parents[index] != index) {
+			parents[index] = parents[parents[index]];
+			index = parents[index];
+		}
+		return index;
+	}
+
+	/**
+	 * Merges the components of the given node indexes.
+	 *
+	 * @param firstIndex
+	 *            The index of the first node
+	 * @param secondIndex
+	 *            The index of the second node
+	 * @return {@code true} if two components were merged, {@code false} if
+	 *         the nodes already were in the same component
+	 */
+	private boolean union(int firstIndex, int secondIndex) {
+		int firstRoot = find(firstIndex);
+		int secondRoot = find(secondIndex);
+		if (firstRoot == secondRoot) {
+			return false;
+		}
+		if (sizes[firstRoot] < sizes[secondRoot]) {
+			int swap = firstRoot;
+			firstRoot = secondRoot;
+			secondRoot = swap;
+		}
+		parents[secondRoot] = firstRoot;
+		sizes[firstRoot] += sizes[secondRoot];
+		--componentCount;
+		return true;
+	}
+
+	/**
+	 * Returns the key of the unordered pair of the given node indexes.
+	 *
+	 * @param firstIndex
+	 *            The index of the first node
+	 * @param secondIndex
+	 *            The index of the second node
+	 * @return The key of the pair
+	 */
+	private static long getPair(int firstIndex, int secondIndex) {
+		return ((long) Math.min(firstIndex, secondIndex) << 32) | Math.max(firstIndex, secondIndex);
+	}
+
+}
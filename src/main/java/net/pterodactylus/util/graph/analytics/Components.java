@@ -0,0 +1,123 @@
+/*
+ * utils.graph - Components.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+/**
+ * The components of an {@link AdjacencySnapshot} as computed by
+ * {@link ConnectedComponents}. Every node is assigned a component ID between
+ * {@code 0} and {@link #getComponentCount()}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class Components {
+
+	/** The snapshot the components belong to. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The component IDs, by node index. */
+	private final int[] components;
+
+	/** The number of components. */
+	private final int componentCount;
+
+	/**
+	 * Creates new components.
+	 *
+	 * @param snapshot
+	 *            The snapshot the components belong to
+	 * @param components
+	 *            The component IDs, by node index
+	 * @param componentCount
+	 *            The number of components
+	 */
+	Components(AdjacencySnapshot snapshot, int[] components, int componentCount) {
+		this.snapshot = snapshot;
+		this.components = components;
+		this.componentCount = componentCount;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the snapshot the components belong to.
+	 *
+	 * @return The snapshot
+	 */
+	public AdjacencySnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns the number of components.
+	 *
+	 * @return The number of components
+	 */
+	public int getComponentCount() {
+		return componentCount;
+	}
+
+	/**
+	 * Returns the component IDs of all nodes, by node index. The returned
+	 * array is not copied and must not be modified.
+	 *
+	 * @return The component IDs of all nodes
+	 */
+	public int[] getComponents() {
+		return components;
+	}
+
+	/**
+	 * Returns the component ID of the node with the given index.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @return The component ID of the node
+	 */
+	public int getComponent(int index) {
+		return components[index];
+	}
+
+	/**
+	 * Returns the component ID of the node with the given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The component ID of the node, or {@code -1} if the node is not
+	 *         contained in the snapshot
+	 */
+	public int getComponentById(long nodeId) {
+		int index = snapshot.getIndex(nodeId);
+		return (index == -1) ? -1 : components[index];
+	}
+
+	/**
+	 * Returns the number of nodes in every component.
+	 *
+	 * @return The sizes of the components, by component ID
+	 */
+	public int[] getComponentSizes() {
+		int[] componentSizes = new int[componentCount];
+		for (int component : components) {
+			++componentSizes[component];
+		}
+		return componentSizes;
+	}
+
+}
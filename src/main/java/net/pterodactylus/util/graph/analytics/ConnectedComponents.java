@@ -0,0 +1,279 @@
+/*
+ * utils.graph - ConnectedComponents.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.analytics.RangeExecutor.RangeTask;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Computes the weakly and the strongly connected components of an
+ * {@link AdjacencySnapshot}.
+ * <p>
+ * Weakly connected components are found with a lock-free union-find over the
+ * node indexes: the edges are distributed over several threads, and the roots
+ * of two sets are joined with a compare-and-set that always links the root
+ * with the higher index to the root with the lower index. Finding a root
+ * halves the path to it. Once all edges are processed, the component IDs are
+ * assigned in parallel, numbered in the order of the lowest node index of
+ * every component.
+ * <p>
+ * Strongly connected components are found with an iterative version of
+ * Tarjan’s algorithm, which runs on a single thread; the component IDs are
+ * assigned in reverse topological order of the components.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class ConnectedComponents {
+
+	/** The minimum number of nodes processed by a single task. */
+	private static final int GRAIN = 4096;
+
+	/** The snapshot to analyze. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The number of threads to use. */
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Creates a new connected components computation.
+	 *
+	 * @param snapshot
+	 *            The snapshot to analyze
+	 */
+	public ConnectedComponents(AdjacencySnapshot snapshot) {
+		Validation.begin().isNotNull("Snapshot", snapshot).check();
+		this.snapshot = snapshot;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Sets the number of threads that are used to find weakly connected
+	 * components. The default is the number of available processors.
+	 *
+	 * @param threadCount
+	 *            The number of threads to use
+	 * @return This computation
+	 */
+	public ConnectedComponents setThreadCount(int threadCount) {
+		Validation.begin().isGreater("Thread Count", threadCount, 0).check();
+		this.threadCount = threadCount;
+		return this;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Computes the weakly connected components, i.e. the components of the
+	 * snapshot when the direction of edges is ignored.
+	 *
+	 * @return The weakly connected components
+	 * @throws GraphException
+	 *             if the computation is interrupted
+	 */
+	public Components computeWeak() throws GraphException {
+		final int nodeCount = snapshot.getNodeCount();
+		final AtomicIntegerArray parents = new AtomicIntegerArray(nodeCount);
+		final int[] components = new int[nodeCount];
+		RangeExecutor rangeExecutor = new RangeExecutor(threadCount, "ConnectedComponents Worker");
+		try {
+			rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+				@Override
+				public long run(int start, int end) {
+					for (int node = start; node < end; ++node) {
+						parents.set(node, node);
+					}
+					return 0;
+				}
+			});
+			rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+				@Override
+				public long run(int start, int end) {
+					int[] offsets = snapshot.outgoingOffsets;
+					int[] neighbours = snapshot.outgoingNeighbours;
+					for (int node = start; node < end; ++node) {
+						for (int edge = offsets[node]; edge < offsets[node + 1]; ++edge) {
+							union(parents, node, neighbours[edge]);
+						}
+					}
+					return 0;
+				}
+			});
+			rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+				@Override
+				public long run(int start, int end) {
+					for (int node = start; node < end; ++node) {
+						components[node] = find(parents, node);
+					}
+					return 0;
+				}
+			});
+			/* roots are the lowest index of their set, number them in order. */
+			int componentCount = 0;
+			for (int node = 0; node < nodeCount; ++node) {
+				if (components[node] == node) {
+					parents.set(node, componentCount++);
+				}
+			}
+			rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+				@Override
+				public long run(int start, int end) {
+					for (int node = start; node < end; ++node) {
+						components[node] = parents.get(components[node]);
+					}
+					return 0;
+				}
+			});
+			return new Components(snapshot, components, componentCount);
+		} finally {
+			rangeExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Computes the strongly connected components, i.e. the maximal sets of
+	 * nodes in which every node can be reached from every other node.
+	 *
+	 * @return The strongly connected components
+	 */
+	public Components computeStrong() {
+		int nodeCount = snapshot.getNodeCount();
+		int[] offsets = snapshot.outgoingOffsets;
+		int[] neighbours = snapshot.outgoingNeighbours;
+		int[] components = new int[nodeCount];
+		int[] indexes = new int[nodeCount];
+		int[] lowLinks = new int[nodeCount];
+		int[] stack = new int[nodeCount];
+		int[] callStack = new int[nodeCount];
+		int[] edgePositions = new int[nodeCount];
+		for (int node = 0; node < nodeCount; ++node) {
+			indexes[node] = -1;
+			components[node] = -1;
+		}
+		int nextIndex = 0;
+		int stackSize = 0;
+		int componentCount = 0;
+		for (int root = 0; root < nodeCount; ++root) {
+			if (indexes[root] != -1) {
+				continue;
+			}
+			int callStackSize = 0;
+			callStack[callStackSize++] = root;
+			indexes[root] = lowLinks[root] = nextIndex++;
+			edgePositions[root] = offsets[root];
+			stack[stackSize++] = root;
+			while (callStackSize > 0) {
+				int node = callStack[callStackSize - 1];
+				if (edgePositions[node] < offsets[node + 1]) {
+					int neighbour = neighbours[edgePositions[node]++];
+					if (indexes[neighbour] == -1) {
+						indexes[neighbour] = lowLinks[neighbour] = nextIndex++;
+						edgePositions[neighbour] = offsets[neighbour];
+						stack[stackSize++] = neighbour;
+						callStack[callStackSize++] = neighbour;
+					} else if (components[neighbour] == -1) {
+						/* neighbour is still on the stack. */
+						lowLinks[node] = Math.min(lowLinks[node], indexes[neighbour]);
+					}
+					continue;
+				}
+				--callStackSize;
+				if (lowLinks[node] == indexes[node]) {
+					int member;
+					do {
+						member = stack[--stackSize];
+						components[member] = componentCount;
+					} while (member != node);
+					++componentCount;
+				}
+				if (callStackSize > 0) {
+					int parent = callStack[callStackSize - 1];
+					lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[node]);
+				}
+			}
+		}
+		return new Components(snapshot, components, componentCount);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns the root of the set that contains the given node, halving the
+	 * path to the root on the way.
+	 *
+	 * @param parents
+	 *            The parents of all nodes
+	 * @param node
+	 *            The node
+	 * @return The root of the node’s set
+	 */
+	private static int find(AtomicIntegerArray parents, int node) {
+		while (true) {
+			int parent = parents.get(node);
+			if (parent == node) {
+				return node;
+			}
+			int grandParent = parents.get(parent);
+			if (parent != grandParent) {
+				parents.compareAndSet(node, parent, grandParent);
+			}
+			node = grandParent;
+		}
+	}
+
+	/**
+	 * Joins the sets that contain the given nodes.
+	 *
+	 * @param parents
+	 *            The parents of all nodes
+	 * @param firstNode
+	 *            The first node
+	 * @param secondNode
+	 *            The second node
+	 */
+	private static void union(AtomicIntegerArray parents, int firstNode, int secondNode) {
+		while (true) {
+			int firstRoot = find(parents, firstNode);
+			int secondRoot = find(parents, secondNode);
+			if (firstRoot == secondRoot) {
+				return;
+			}
+			if (firstRoot < secondRoot) {
+				if (parents.compareAndSet(secondRoot, secondRoot, firstRoot)) {
+					return;
+				}
+			} else if (parents.compareAndSet(firstRoot, firstRoot, secondRoot)) {
+				return;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * utils.graph - DegreeCount.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+/**
+ * The in-degree of a node as tracked by a {@link DegreeTracker}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class DegreeCount {
+
+	/** The ID of the node. */
+	private final long nodeId;
+
+	/** The tracked in-degree. */
+	private final int degree;
+
+	/** The maximum overestimation of the in-degree. */
+	private final int error;
+
+	/**
+	 * Creates a new degree count.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param degree
+	 *            The tracked in-degree
+	 * @param error
+	 *            The maximum overestimation of the in-degree
+	 */
+	DegreeCount(long nodeId, int degree, int error) {
+		this.nodeId = nodeId;
+		this.degree = degree;
+		this.error = error;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the ID of the node.
+	 *
+	 * @return The ID of the node
+	 */
+	public long getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * Returns the tracked in-degree of the node. It is exact if
+	 * {@link #getError()} returns {@code 0}.
+	 *
+	 * @return The tracked in-degree
+	 */
+	public int getDegree() {
+		return degree;
+	}
+
+	/**
+	 * Returns by how much the tracked in-degree can exceed the real in-degree.
+	 *
+	 * @return The maximum overestimation of the in-degree
+	 */
+	public int getError() {
+		return error;
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[nodeId=" + nodeId + ",degree=" + degree + ",error=" + error + "]";
+	}
+
+}
@@ -0,0 +1,588 @@
+/*
+ * utils.graph - DegreeTracker.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.GraphListener;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Keeps track of the nodes with the highest in-degree of every relationship
+ * of a graph so that they can be retrieved without scanning the graph.
+ * <p>
+ * For every relationship, the tracker keeps a Space-Saving summary: a list of
+ * buckets ordered by count, each holding the counters of all nodes with that
+ * count. The tracker registers itself as {@link GraphListener} of its graph,
+ * and every created or removed edge moves the counter of its end node to the
+ * neighbouring bucket in constant time; the top nodes are read by walking the
+ * buckets from the highest count downwards.
+ * <p>
+ * A tracker with unlimited capacity counts every node with incoming edges
+ * and is exact. A tracker with a limited capacity keeps at most that many
+ * counters per relationship: a node that is not tracked yet replaces the node
+ * with the lowest count and inherits that count as {@link DegreeCount#getError()
+ * error}. As long as no edges are removed, nodes whose in-degree is more
+ * than the lowest count are guaranteed to be tracked, and the tracked degree
+ * of a node is never lower than its real in-degree. Removed edges of
+ * untracked nodes are ignored, so many removals weaken these guarantees; a
+ * capacity of a few times the number of requested nodes keeps the top nodes
+ * accurate.
+ * <p>
+ * The tracker is initialized with the exact in-degrees of the graph, which
+ * should not be modified while the tracker is created: the graph is read
+ * before the tracker registers itself, so modifications made in the meantime
+ * are missed. Use {@link #close()} to unregister the tracker.
+ * <p>
+ * All methods of this tracker are synchronized.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class DegreeTracker implements GraphListener {
+
+	/** The graph. */
+	private final Graph graph;
+
+	/** The maximum number of tracked nodes per relationship. */
+	private final int capacity;
+
+	/** The summaries, by relationship name. */
+	private final Map<String, Summary> summaries = new HashMap<String, Summary>();
+
+	/**
+	 * Creates a new degree tracker.
+	 *
+	 * @param graph
+	 *            The graph
+	 * @param capacity
+	 *            The maximum number of tracked nodes per relationship
+	 */
+	private DegreeTracker(Graph graph, int capacity) {
+		this.graph = graph;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Creates a degree tracker that tracks the exact in-degrees of all nodes
+	 * of the given graph and registers it as listener of the graph.
+	 *
+	 * @param graph
+	 *            The graph to track
+	 * @return The degree tracker
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public static DegreeTracker create(Graph graph) throws GraphException {
+		return create(graph, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a degree tracker that tracks at most the given number of nodes
+	 * per relationship and registers it as listener of the given graph.
+	 *
+	 * @param graph
+	 *            The graph to track
+	 * @param capacity
+	 *            The maximum number of tracked nodes per relationship
+	 * @return The degree tracker
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public static DegreeTracker create(Graph graph, int capacity) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).isGreater("Capacity", capacity, 0).check();
+		DegreeTracker degreeTracker = new DegreeTracker(graph, capacity);
+		degreeTracker.build();
+		graph.addGraphListener(degreeTracker);
+		return degreeTracker;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the maximum number of tracked nodes per relationship.
+	 *
+	 * @return The capacity of this tracker
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the names of all relationships that have tracked nodes.
+	 *
+	 * @return The names of the tracked relationships
+	 */
+	public synchronized Set<String> getRelationships() {
+		Set<String> relationships = new HashSet<String>();
+		for (Map.Entry<String, Summary> summary : summaries.entrySet()) {
+			if (summary.getValue().highest != null) {
+				relationships.add(summary.getKey());
+			}
+		}
+		return relationships;
+	}
+
+	/**
+	 * Returns the tracked in-degree of the node with the given ID.
+	 *
+	 * @param relationship
+	 *            The name of the relationship
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The tracked in-degree of the node, or {@code 0} if the node is
+	 *         not tracked
+	 */
+	public synchronized int getDegree(String relationship, long nodeId) {
+		Summary summary = summaries.get(relationship);
+		if (summary == null) {
+			return 0;
+		}
+		Counter counter = summary.counters.get(nodeId);
+		return (counter == null) ? 0 : counter.bucket.count;
+	}
+
+	/**
+	 * Returns the nodes with the highest in-degree of the given relationship,
+	 * in the order of decreasing in-degree.
+	 *
+	 * @param relationship
+	 *            The name of the relationship
+	 * @param count
+	 *            The maximum number of nodes to return
+	 * @return The degree counts of the nodes with the highest in-degree
+	 */
+	public synchronized List<DegreeCount> getTopNodes(String relationship, int count) {
+		Validation.begin().isNotNull("Relationship", relationship).isGreaterOrEqual("Count", count, 0).check();
+		List<DegreeCount> topNodes = new ArrayList<DegreeCount>();
+		Summary summary = summaries.get(relationship);
+		if (summary == null) {
+			return topNodes;
+		}
+		for (Bucket bucket = summary.highest; (bucket != null) && (topNodes.size() < count); bucket = bucket.lower) {
+			for (Counter counter = bucket.first; (counter != null) && (topNodes.size() < count); counter = counter.next) {
+				topNodes.add(new DegreeCount(counter.nodeId, bucket.count, counter.error));
+			}
+		}
+		return topNodes;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Unregisters this tracker from its graph. The tracker is not updated
+	 * anymore after it has been closed.
+	 */
+	public void close() {
+		graph.removeGraphListener(this);
+	}
+
+	//
+	// INTERFACE GraphListener
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void nodeCreated(Node node) {
+		/* new nodes have no incoming edges. */
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void nodeRemoved(Node node) {
+		for (Summary summary : summaries.values()) {
+			Counter counter = summary.counters.remove(node.getId());
+			if (counter != null) {
+				summary.unlink(counter);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeCreated(Edge edge) {
+		String relationship = edge.getRelationship().getName();
+		Summary summary = summaries.get(relationship);
+		if (summary == null) {
+			summary = new Summary();
+			summaries.put(relationship, summary);
+		}
+		summary.increment(edge.getEndNode().getId(), capacity);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeRemoved(Edge edge) {
+		Summary summary = summaries.get(edge.getRelationship().getName());
+		if (summary != null) {
+			summary.decrement(edge.getEndNode().getId());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void propertyChanged(Node node, String key, Object oldValue, Object newValue) {
+		/* properties do not affect the in-degrees. */
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Counts the in-degrees of all nodes of the graph and keeps the nodes
+	 * with the highest in-degrees.
+	 *
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	private void build() throws GraphException {
+		Set<Relationship> relationships = graph.getRelationships();
+		Map<String, long[]> degrees = new HashMap<String, long[]>();
+		Map<String, List<Long>> nodeIds = new HashMap<String, List<Long>>();
+		for (Relationship relationship : relationships) {
+			degrees.put(relationship.getName(), new long[16]);
+			nodeIds.put(relationship.getName(), new ArrayList<Long>());
+		}
+		try {
+			for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+				Node node = nodes.next();
+				for (Relationship relationship : relationships) {
+					int degree = node.getIncomingLinks(relationship).size();
+					if (degree == 0) {
+						continue;
+					}
+					List<Long> relationshipNodeIds = nodeIds.get(relationship.getName());
+					long[] relationshipDegrees = degrees.get(relationship.getName());
+					if (relationshipNodeIds.size() == relationshipDegrees.length) {
+						relationshipDegrees = Arrays.copyOf(relationshipDegrees, relationshipDegrees.length * 2);
+						degrees.put(relationship.getName(), relationshipDegrees);
+					}
+					relationshipDegrees[relationshipNodeIds.size()] = ((long) degree << 32) | relationshipNodeIds.size();
+					relationshipNodeIds.add(node.getId());
+				}
+			}
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		}
+		for (Relationship relationship : relationships) {
+			List<Long> relationshipNodeIds = nodeIds.get(relationship.getName());
+			long[] relationshipDegrees = Arrays.copyOf(degrees.get(relationship.getName()), relationshipNodeIds.size());
+			Arrays.sort(relationshipDegrees);
+			Summary summary = new Summary();
+			for (int index = Math.max(0, relationshipDegrees.length - capacity); index < relationshipDegrees.length; ++index) {
+				summary.addHighest(relationshipNodeIds.get((int) relationshipDegrees[index]), (int) (relationshipDegrees[index] >>> 32));
+			}
+			summaries.put(relationship.getName(), summary);
+		}
+	}
+
+	/**
+	 * Space-Saving summary of the in-degrees of a single relationship.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Summary {
+
+		/** The counters, by node ID. */
+		final Map<Long, Counter> counters = new HashMap<Long, Counter>();
+
+		/** The bucket with the lowest count. */
+		Bucket lowest;
+
+		/** The bucket with the highest count. */
+		Bucket highest;
+
+		/**
+		 * Adds a counter with a count that is at least as high as the count
+		 * of all existing counters.
+		 *
+		 * @param nodeId
+		 *            The ID of the node
+		 * @param count
+		 *            The in-degree of the node
+		 */
+		void addHighest(long nodeId, int count) {
+			Counter counter = new Counter(nodeId, 0);
+			counters.put(nodeId, counter);
+			if ((highest == null) || (highest.count != count)) {
+				insertBucket(new Bucket(count), highest, null);
+			}
+			highest.add(counter);
+		}
+
+		/**
+		 * Increments the count of the given node, replacing the node with the
+		 * lowest count if the node is not tracked and the summary is full.
+		 *
+		 * @param nodeId
+		 *            The ID of the node
+		 * @param capacity
+		 *            The maximum number of counters
+		 */
+		void increment(long nodeId, int capacity) {
+			Counter counter = counters.get(nodeId);
+			if (counter != null) {
+				move(counter, counter.bucket.count + 1);
+				return;
+			}
+			if (counters.size() < capacity) {
+				counter = new Counter(nodeId, 0);
+				if ((lowest == null) || (lowest.count != 1)) {
+					insertBucket(new Bucket(1), null, lowest);
+				}
+				lowest.add(counter);
+				counters.put(nodeId, counter);
+				return;
+			}
+			counter = lowest.first;
+			counters.remove(counter.nodeId);
+			counter.nodeId = nodeId;
+			counter.error = lowest.count;
+			counters.put(nodeId, counter);
+			move(counter, lowest.count + 1);
+		}
+
+		/**
+		 * Decrements the count of the given node, removing its counter once
+		 * the count reaches {@code 0}.
+		 *
+		 * @param nodeId
+		 *            The ID of the node
+		 */
+		void decrement(long nodeId) {
+			Counter counter = counters.get(nodeId);
+			if (counter == null) {
+				return;
+			}
+			if (counter.bucket.count == 1) {
+				counters.remove(nodeId);
+				unlink(counter);
+				return;
+			}
+			counter.error = Math.min(counter.error, counter.bucket.count - 1);
+			move(counter, counter.bucket.count - 1);
+		}
+
+		/**
+		 * Moves the given counter to the bucket with the given count, which
+		 * has to be one more or one less than the current count.
+		 *
+		 * @param counter
+		 *            The counter to move
+		 * @param count
+		 *            The new count
+		 */
+		void move(Counter counter, int count) {
+			Bucket bucket = counter.bucket;
+			Bucket neighbour = (count > bucket.count) ? bucket.higher : bucket.lower;
+			if ((neighbour == null) || (neighbour.count != count)) {
+				neighbour = (count > bucket.count) ? insertBucket(new Bucket(count), bucket, bucket.higher) : insertBucket(new Bucket(count), bucket.lower, bucket);
+			}
+			unlink(counter);
+			neighbour.add(counter);
+		}
+
+		/**
+		 * Removes the given counter from its bucket, removing the bucket if it
+		 * becomes empty.
+		 *
+		 * @param counter
+		 *            The counter to remove
+		 */
+		void unlink(Counter counter) {
+			Bucket bucket = counter.bucket;
+			bucket.remove(counter);
+			if (bucket.first != null) {
+				return;
+			}
+			if (bucket.lower != null) {
+				bucket.lower.higher = bucket.higher;
+			} else {
+				lowest = bucket.higher;
+			}
+			if (bucket.higher != null) {
+				bucket.higher.lower = bucket.lower;
+			} else {
+				highest = bucket.lower;
+			}
+		}
+
+		/**
+		 * Inserts the given bucket between the given buckets.
+		 *
+		 * @param bucket
+		 *            The bucket to insert
+		 * @param lower
+		 *            The next lower bucket (may be {@code null})
+		 * @param higher
+		 *            The next higher bucket (may be {@code null})
+		 * @return The inserted bucket
+		 */
+		Bucket insertBucket(Bucket bucket, Bucket lower, Bucket higher) {
+			bucket.lower = lower;
+			bucket.higher = higher;
+			if (lower != null) {
+				lower.higher = bucket;
+			} else {
+				lowest = bucket;
+			}
+			if (higher != null) {
+				higher.lower = bucket;
+			} else {
+				highest = bucket;
+			}
+			return bucket;
+		}
+
+	}
+
+	/**
+	 * A bucket of a {@link Summary} that holds all counters with the same
+	 * count.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Bucket {
+
+		/** The count of all counters in this bucket. */
+		final int count;
+
+		/** The first counter of this bucket. */
+		Counter first;
+
+		/** The bucket with the next lower count. */
+		Bucket lower;
+
+		/** The bucket with the next higher count. */
+		Bucket higher;
+
+		/**
+		 * Creates a new bucket.
+		 *
+		 * @param count
+		 *            The count of all counters in this bucket
+		 */
+		Bucket(int count) {
+			this.count = count;
+		}
+
+		/**
+		 * Adds the given counter to this bucket.
+		 *
+		 * @param counter
+		 *            The counter to add
+		 */
+		void add(Counter counter) {
+			counter.bucket = this;
+			counter.previous = null;
+			counter.next = first;
+			if (first != null) {
+				first.previous = counter;
+			}
+			first = counter;
+		}
+
+		/**
+		 * Removes the given counter from this bucket.
+		 *
+		 * @param counter
+		 *            The counter to remove
+		 */
+		void remove(Counter counter) {
+			if (counter.previous != null) {
+				counter.previous.next = counter.next;
+			} else {
+				first = counter.next;
+			}
+			if (counter.next != null) {
+				counter.next.previous = counter.previous;
+			}
+			counter.previous = null;
+			counter.next = null;
+			counter.bucket = null;
+		}
+
+	}
+
+	/**
+	 * The counter of a single node.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Counter {
+
+		/** The ID of the node. */
+		long nodeId;
+
+		/** The maximum overestimation of the count. */
+		int error;
+
+		/** The bucket this counter is in. */
+		Bucket bucket;
+
+		/** The previous counter of the bucket. */
+		Counter previous;
+
+		/** The next counter of the bucket. */
+		Counter next;
+
+		/**
+		 * Creates a new counter.
+		 *
+		 * @param nodeId
+		 *            The ID of the node
+		 * @param error
+		 *            The maximum overestimation of the count
+		 */
+		Counter(long nodeId, int error) {
+			this.nodeId = nodeId;
+			this.error = error;
+		}
+
+	}
+
+}
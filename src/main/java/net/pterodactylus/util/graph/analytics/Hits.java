@@ -0,0 +1,253 @@
+/*
+ * utils.graph - Hits.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.analytics.RangeExecutor.DoubleRangeTask;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Computes the hub and authority scores of Kleinberg’s HITS algorithm for the
+ * nodes of an {@link AdjacencySnapshot}. Both score vectors are normalized to
+ * a Euclidean length of {@code 1} after every iteration. Like {@link PageRank}
+ * every node pulls the scores of its neighbours, so the nodes can be
+ * distributed over several threads without synchronization.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class Hits {
+
+	/** The minimum number of nodes processed by a single task. */
+	private static final int GRAIN = 1024;
+
+	/** The snapshot to score. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The number of threads to use. */
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/** The maximum number of iterations. */
+	private int maxIterations = 100;
+
+	/** The tolerance for convergence. */
+	private double tolerance = 1e-9;
+
+	/**
+	 * Creates a new HITS computation.
+	 *
+	 * @param snapshot
+	 *            The snapshot to score
+	 */
+	public Hits(AdjacencySnapshot snapshot) {
+		Validation.begin().isNotNull("Snapshot", snapshot).check();
+		this.snapshot = snapshot;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Sets the number of threads that are used. The default is the number of
+	 * available processors.
+	 *
+	 * @param threadCount
+	 *            The number of threads to use
+	 * @return This computation
+	 */
+	public Hits setThreadCount(int threadCount) {
+		Validation.begin().isGreater("Thread Count", threadCount, 0).check();
+		this.threadCount = threadCount;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of iterations. The default is {@code 100}.
+	 *
+	 * @param maxIterations
+	 *            The maximum number of iterations
+	 * @return This computation
+	 */
+	public Hits setMaxIterations(int maxIterations) {
+		Validation.begin().isGreater("Maximum Iterations", maxIterations, 0).check();
+		this.maxIterations = maxIterations;
+		return this;
+	}
+
+	/**
+	 * Sets the tolerance for convergence. The computation stops once the sum
+	 * of the absolute changes of all hub and authority scores in an iteration
+	 * is smaller than the tolerance. The default is {@code 1e-9}.
+	 *
+	 * @param tolerance
+	 *            The tolerance
+	 * @return This computation
+	 */
+	public Hits setTolerance(double tolerance) {
+		Validation.begin().isGreaterOrEqual("Tolerance", tolerance, 0).check();
+		this.tolerance = tolerance;
+		return this;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Computes the hub and authority scores of all nodes.
+	 *
+	 * @return The hub and authority scores
+	 * @throws GraphException
+	 *             if the computation is interrupted
+	 */
+	public HitsResult compute() throws GraphException {
+		int nodeCount = snapshot.getNodeCount();
+		double[] hubs = new double[nodeCount];
+		double[] authorities = new double[nodeCount];
+		double[] nextHubs = new double[nodeCount];
+		double[] nextAuthorities = new double[nodeCount];
+		for (int node = 0; node < nodeCount; ++node) {
+			hubs[node] = 1 / Math.sqrt(nodeCount);
+		}
+		RangeExecutor rangeExecutor = new RangeExecutor(threadCount, "HITS Worker");
+		try {
+			int iteration = 0;
+			while (iteration < maxIterations) {
+				++iteration;
+				double authorityNorm = Math.sqrt(rangeExecutor.execute(nodeCount, GRAIN, new SumStep(snapshot.incomingOffsets, snapshot.incomingNeighbours, hubs, nextAuthorities)));
+				double change = rangeExecutor.execute(nodeCount, GRAIN, new NormalizeStep(nextAuthorities, authorities, authorityNorm));
+				double hubNorm = Math.sqrt(rangeExecutor.execute(nodeCount, GRAIN, new SumStep(snapshot.outgoingOffsets, snapshot.outgoingNeighbours, authorities, nextHubs)));
+				change += rangeExecutor.execute(nodeCount, GRAIN, new NormalizeStep(nextHubs, hubs, hubNorm));
+				if (change < tolerance) {
+					break;
+				}
+			}
+			return new HitsResult(new NodeScores(snapshot, hubs, iteration), new NodeScores(snapshot, authorities, iteration));
+		} finally {
+			rangeExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Sums up the scores of the neighbours of every node. Returns the sum of
+	 * the squares of the new scores.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class SumStep implements DoubleRangeTask {
+
+		/** The offsets of the neighbours. */
+		private final int[] offsets;
+
+		/** The neighbours. */
+		private final int[] neighbours;
+
+		/** The scores of the neighbours. */
+		private final double[] scores;
+
+		/** The summed-up scores. */
+		private final double[] sums;
+
+		/**
+		 * Creates a new sum step.
+		 *
+		 * @param offsets
+		 *            The offsets of the neighbours
+		 * @param neighbours
+		 *            The neighbours
+		 * @param scores
+		 *            The scores of the neighbours
+		 * @param sums
+		 *            The array to store the summed-up scores in
+		 */
+		SumStep(int[] offsets, int[] neighbours, double[] scores, double[] sums) {
+			this.offsets = offsets;
+			this.neighbours = neighbours;
+			this.scores = scores;
+			this.sums = sums;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public double run(int start, int end) {
+			double squares = 0;
+			for (int node = start; node < end; ++node) {
+				double sum = 0;
+				for (int edge = offsets[node]; edge < offsets[node + 1]; ++edge) {
+					sum += scores[neighbours[edge]];
+				}
+				sums[node] = sum;
+				squares += sum * sum;
+			}
+			return squares;
+		}
+
+	}
+
+	/**
+	 * Divides new scores by their norm and replaces the old scores with them.
+	 * Returns the sum of the absolute changes.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class NormalizeStep implements DoubleRangeTask {
+
+		/** The new scores. */
+		private final double[] newScores;
+
+		/** The scores to replace. */
+		private final double[] scores;
+
+		/** The norm of the new scores. */
+		private final double norm;
+
+		/**
+		 * Creates a new normalize step.
+		 *
+		 * @param newScores
+		 *            The new scores
+		 * @param scores
+		 *            The scores to replace
+		 * @param norm
+		 *            The norm of the new scores
+		 */
+		NormalizeStep(double[] newScores, double[] scores, double norm) {
+			this.newScores = newScores;
+			this.scores = scores;
+			this.norm = norm;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public double run(int start, int end) {
+			double change = 0;
+			for (int node = start; node < end; ++node) {
+				double score = (norm == 0) ? 0 : (newScores[node] / norm);
+				change += Math.abs(score - scores[node]);
+				scores[node] = score;
+			}
+			return change;
+		}
+
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * utils.graph - HitsResult.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+/**
+ * The hub and authority scores computed by {@link Hits}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class HitsResult {
+
+	/** The hub scores. */
+	private final NodeScores hubScores;
+
+	/** The authority scores. */
+	private final NodeScores authorityScores;
+
+	/**
+	 * Creates a new HITS result.
+	 *
+	 * @param hubScores
+	 *            The hub scores
+	 * @param authorityScores
+	 *            The authority scores
+	 */
+	HitsResult(NodeScores hubScores, NodeScores authorityScores) {
+		this.hubScores = hubScores;
+		this.authorityScores = authorityScores;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the hub scores. Nodes with a high hub score link to many nodes
+	 * with a high authority score.
+	 *
+	 * @return The hub scores
+	 */
+	public NodeScores getHubScores() {
+		return hubScores;
+	}
+
+	/**
+	 * Returns the authority scores. Nodes with a high authority score are
+	 * linked from many nodes with a high hub score.
+	 *
+	 * @return The authority scores
+	 */
+	public NodeScores getAuthorityScores() {
+		return authorityScores;
+	}
+
+}
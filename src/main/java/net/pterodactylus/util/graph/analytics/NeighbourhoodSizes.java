@@ -0,0 +1,135 @@
+/*
+ * utils.graph - NeighbourhoodSizes.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+/**
+ * The estimated number of nodes within a number of hops of every node of an
+ * {@link AdjacencySnapshot}, as computed by {@link NeighbourhoodFunction}.
+ * The neighbourhood of a node always includes the node itself.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class NeighbourhoodSizes {
+
+	/** The snapshot the sizes were estimated for. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The estimated sizes, by number of hops and node index. */
+	private final float[][] sizes;
+
+	/** The relative standard error of the estimates. */
+	private final double relativeStandardError;
+
+	/**
+	 * Creates new neighbourhood sizes.
+	 *
+	 * @param snapshot
+	 *            The snapshot the sizes were estimated for
+	 * @param sizes
+	 *            The estimated sizes, by number of hops and node index
+	 * @param relativeStandardError
+	 *            The relative standard error of the estimates
+	 */
+	NeighbourhoodSizes(AdjacencySnapshot snapshot, float[][] sizes, double relativeStandardError) {
+		this.snapshot = snapshot;
+		this.sizes = sizes;
+		this.relativeStandardError = relativeStandardError;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the snapshot the sizes were estimated for.
+	 *
+	 * @return The snapshot
+	 */
+	public AdjacencySnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns the maximum number of hops sizes were estimated for.
+	 *
+	 * @return The maximum number of hops
+	 */
+	public int getMaxHops() {
+		return sizes.length - 1;
+	}
+
+	/**
+	 * Returns the relative standard error of the estimates.
+	 *
+	 * @return The relative standard error
+	 */
+	public double getRelativeStandardError() {
+		return relativeStandardError;
+	}
+
+	/**
+	 * Returns the estimated number of nodes that can be reached from the node
+	 * with the given index with at most the given number of hops.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @param hops
+	 *            The maximum number of hops (between {@code 0} and
+	 *            {@link #getMaxHops()})
+	 * @return The estimated size of the neighbourhood
+	 */
+	public double getNeighbourhoodSize(int index, int hops) {
+		return sizes[hops][index];
+	}
+
+	/**
+	 * Returns the estimated number of nodes that can be reached from the node
+	 * with the given ID with at most the given number of hops.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param hops
+	 *            The maximum number of hops (between {@code 0} and
+	 *            {@link #getMaxHops()})
+	 * @return The estimated size of the neighbourhood, or {@link Double#NaN}
+	 *         if the node is not contained in the snapshot
+	 */
+	public double getNeighbourhoodSizeById(long nodeId, int hops) {
+		int index = snapshot.getIndex(nodeId);
+		return (index == -1) ? Double.NaN : sizes[hops][index];
+	}
+
+	/**
+	 * Returns the estimated number of pairs of nodes where the second node can
+	 * be reached from the first node with at most the given number of hops,
+	 * i.e. the sum of the neighbourhood sizes of all nodes.
+	 *
+	 * @param hops
+	 *            The maximum number of hops (between {@code 0} and
+	 *            {@link #getMaxHops()})
+	 * @return The estimated number of reachable pairs
+	 */
+	public double getReachablePairs(int hops) {
+		double reachablePairs = 0;
+		for (float size : sizes[hops]) {
+			reachablePairs += size;
+		}
+		return reachablePairs;
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * utils.graph - NodeScores.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.RandomAccessGraph;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * A score for every node of an {@link AdjacencySnapshot}, as computed by
+ * {@link PageRank} or {@link Hits}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class NodeScores {
+
+	/** The snapshot the scores belong to. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The scores, by node index. */
+	private final double[] scores;
+
+	/** The number of iterations that were necessary. */
+	private final int iterations;
+
+	/**
+	 * Creates new node scores.
+	 *
+	 * @param snapshot
+	 *            The snapshot the scores belong to
+	 * @param scores
+	 *            The scores, by node index
+	 * @param iterations
+	 *            The number of iterations that were necessary
+	 */
+	NodeScores(AdjacencySnapshot snapshot, double[] scores, int iterations) {
+		this.snapshot = snapshot;
+		this.scores = scores;
+		this.iterations = iterations;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the snapshot the scores belong to.
+	 *
+	 * @return The snapshot
+	 */
+	public AdjacencySnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns the scores of all nodes, by node index. The returned array is
+	 * not copied and must not be modified.
+	 *
+	 * @return The scores of all nodes
+	 */
+	public double[] getScores() {
+		return scores;
+	}
+
+	/**
+	 * Returns the score of the node with the given index.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @return The score of the node
+	 */
+	public double getScore(int index) {
+		return scores[index];
+	}
+
+	/**
+	 * Returns the score of the node with the given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The score of the node, or {@link Double#NaN} if the node is not
+	 *         contained in the snapshot
+	 */
+	public double getScoreById(long nodeId) {
+		int index = snapshot.getIndex(nodeId);
+		return (index == -1) ? Double.NaN : scores[index];
+	}
+
+	/**
+	 * Returns the number of iterations that were run until the scores
+	 * converged or the maximum number of iterations was reached.
+	 *
+	 * @return The number of iterations
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Stores the score of every node in the given property of the node. The
+	 * given graph has to be the graph the snapshot was created from; nodes
+	 * that have been removed since are skipped.
+	 *
+	 * @param graph
+	 *            The graph to write the scores to
+	 * @param property
+	 *            The name of the property
+	 * @throws GraphException
+	 *             if a node can not be loaded or stored
+	 */
+	public void writeTo(Graph graph, String property) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).isNotNull("Property", property).check();
+		if (graph instanceof RandomAccessGraph) {
+			for (int index = 0; index < scores.length; ++index) {
+				Node node = ((RandomAccessGraph) graph).getNode(snapshot.getNodeId(index));
+				if (node != null) {
+					node.set(property, scores[index]);
+				}
+			}
+			return;
+		}
+		/* collect nodes first, storing them might change the iteration. */
+		List<Node> nodes = new ArrayList<Node>();
+		try {
+			for (Iterator<Node> nodeIterator = graph.getNodes(); nodeIterator.hasNext();) {
+				nodes.add(nodeIterator.next());
+			}
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		}
+		for (Node node : nodes) {
+			int index = snapshot.getIndex(node.getId());
+			if (index != -1) {
+				node.set(property, scores[index]);
+			}
+		}
+	}
+
+}
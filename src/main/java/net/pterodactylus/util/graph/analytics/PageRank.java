@@ -0,0 +1,261 @@
+/*
+ * utils.graph - PageRank.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.Collection;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.analytics.RangeExecutor.DoubleRangeTask;
+import net.pterodactylus.util.graph.analytics.RangeExecutor.RangeTask;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Computes PageRank and personalized PageRank scores for the nodes of an
+ * {@link AdjacencySnapshot}.
+ * <p>
+ * Every iteration pulls the contributions of the incoming neighbours of every
+ * node, so the nodes can be distributed over several threads without any
+ * synchronization. The rank of nodes without outgoing edges is distributed
+ * like the teleport probability: evenly over all nodes for PageRank, and
+ * evenly over the source nodes for personalized PageRank. The scores of all
+ * nodes add up to {@code 1}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class PageRank {
+
+	/** The minimum number of nodes processed by a single task. */
+	private static final int GRAIN = 1024;
+
+	/** The snapshot to rank. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The number of threads to use. */
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/** The damping factor. */
+	private double dampingFactor = 0.85;
+
+	/** The maximum number of iterations. */
+	private int maxIterations = 100;
+
+	/** The tolerance for convergence. */
+	private double tolerance = 1e-9;
+
+	/**
+	 * Creates a new PageRank computation.
+	 *
+	 * @param snapshot
+	 *            The snapshot to rank
+	 */
+	public PageRank(AdjacencySnapshot snapshot) {
+		Validation.begin().isNotNull("Snapshot", snapshot).check();
+		this.snapshot = snapshot;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Sets the number of threads that are used. The default is the number of
+	 * available processors.
+	 *
+	 * @param threadCount
+	 *            The number of threads to use
+	 * @return This computation
+	 */
+	public PageRank setThreadCount(int threadCount) {
+		Validation.begin().isGreater("Thread Count", threadCount, 0).check();
+		this.threadCount = threadCount;
+		return this;
+	}
+
+	/**
+	 * Sets the damping factor, i.e. the probability of following an edge
+	 * instead of teleporting. The default is {@code 0.85}.
+	 *
+	 * @param dampingFactor
+	 *            The damping factor
+	 * @return This computation
+	 */
+	public PageRank setDampingFactor(double dampingFactor) {
+		Validation.begin().isGreaterOrEqual("Damping Factor", dampingFactor, 0).isLessOrEqual("Damping Factor", dampingFactor, 1).check();
+		this.dampingFactor = dampingFactor;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of iterations. The default is {@code 100}.
+	 *
+	 * @param maxIterations
+	 *            The maximum number of iterations
+	 * @return This computation
+	 */
+	public PageRank setMaxIterations(int maxIterations) {
+		Validation.begin().isGreater("Maximum Iterations", maxIterations, 0).check();
+		this.maxIterations = maxIterations;
+		return this;
+	}
+
+	/**
+	 * Sets the tolerance for convergence. The computation stops once the sum
+	 * of the absolute changes of all scores in an iteration is smaller than
+	 * the tolerance. The default is {@code 1e-9}.
+	 *
+	 * @param tolerance
+	 *            The tolerance
+	 * @return This computation
+	 */
+	public PageRank setTolerance(double tolerance) {
+		Validation.begin().isGreaterOrEqual("Tolerance", tolerance, 0).check();
+		this.tolerance = tolerance;
+		return this;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Computes the PageRank scores of all nodes.
+	 *
+	 * @return The PageRank scores
+	 * @throws GraphException
+	 *             if the computation is interrupted
+	 */
+	public NodeScores compute() throws GraphException {
+		return compute(null);
+	}
+
+	/**
+	 * Computes the personalized PageRank scores of all nodes for the given
+	 * source nodes. Teleports always go to one of the source nodes.
+	 *
+	 * @param sourceNodes
+	 *            The source nodes
+	 * @return The personalized PageRank scores
+	 * @throws GraphException
+	 *             if a source node is not contained in the snapshot, or the
+	 *             computation is interrupted
+	 */
+	public NodeScores computePersonalized(Collection<? extends Node> sourceNodes) throws GraphException {
+		Validation.begin().isNotNull("Source Nodes", sourceNodes).check().isGreater("Source Nodes", sourceNodes.size(), 0).check();
+		double[] teleport = new double[snapshot.getNodeCount()];
+		int sourceCount = 0;
+		for (Node sourceNode : sourceNodes) {
+			int index = snapshot.getIndex(sourceNode.getId());
+			if (index == -1) {
+				throw new GraphException("Node " + sourceNode.getId() + " is not contained in the snapshot.");
+			}
+			if (teleport[index] == 0) {
+				teleport[index] = 1;
+				++sourceCount;
+			}
+		}
+		for (int index = 0; index < teleport.length; ++index) {
+			teleport[index] /= sourceCount;
+		}
+		return compute(teleport);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Computes the PageRank scores with the given teleport probabilities.
+	 *
+	 * @param teleport
+	 *            The teleport probability of every node, or {@code null} for
+	 *            an even distribution over all nodes
+	 * @return The PageRank scores
+	 * @throws GraphException
+	 *             if the computation is interrupted
+	 */
+	private NodeScores compute(final double[] teleport) throws GraphException {
+		final int nodeCount = snapshot.getNodeCount();
+		final double[] ranks = new double[nodeCount];
+		final double[] nextRanks = new double[nodeCount];
+		final double[] contributions = new double[nodeCount];
+		int danglingNodeCount = 0;
+		for (int node = 0; node < nodeCount; ++node) {
+			ranks[node] = (teleport == null) ? (1.0 / nodeCount) : teleport[node];
+			if (snapshot.getOutDegree(node) == 0) {
+				++danglingNodeCount;
+			}
+		}
+		int[] danglingNodes = new int[danglingNodeCount];
+		for (int node = 0, danglingNode = 0; node < nodeCount; ++node) {
+			if (snapshot.getOutDegree(node) == 0) {
+				danglingNodes[danglingNode++] = node;
+			}
+		}
+		RangeExecutor rangeExecutor = new RangeExecutor(threadCount, "PageRank Worker");
+		try {
+			int iteration = 0;
+			while (iteration < maxIterations) {
+				++iteration;
+				rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+					@Override
+					public long run(int start, int end) {
+						for (int node = start; node < end; ++node) {
+							int outDegree = snapshot.getOutDegree(node);
+							contributions[node] = (outDegree == 0) ? 0 : (ranks[node] / outDegree);
+						}
+						return 0;
+					}
+				});
+				double danglingRank = 0;
+				for (int danglingNode : danglingNodes) {
+					danglingRank += ranks[danglingNode];
+				}
+				final double danglingContribution = dampingFactor * danglingRank;
+				double change = rangeExecutor.execute(nodeCount, GRAIN, new DoubleRangeTask() {
+
+					@Override
+					public double run(int start, int end) {
+						int[] offsets = snapshot.incomingOffsets;
+						int[] neighbours = snapshot.incomingNeighbours;
+						double change = 0;
+						for (int node = start; node < end; ++node) {
+							double sum = 0;
+							for (int edge = offsets[node]; edge < offsets[node + 1]; ++edge) {
+								sum += contributions[neighbours[edge]];
+							}
+							double teleportProbability = (teleport == null) ? (1.0 / nodeCount) : teleport[node];
+							nextRanks[node] = ((1 - dampingFactor) * teleportProbability) + (danglingContribution * teleportProbability) + (dampingFactor * sum);
+							change += Math.abs(nextRanks[node] - ranks[node]);
+						}
+						return change;
+					}
+				});
+				System.arraycopy(nextRanks, 0, ranks, 0, nodeCount);
+				if (change < tolerance) {
+					break;
+				}
+			}
+			return new NodeScores(snapshot, ranks, iteration);
+		} finally {
+			rangeExecutor.shutdown();
+		}
+	}
+
+}
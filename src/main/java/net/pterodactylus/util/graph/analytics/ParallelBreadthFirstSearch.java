@@ -0,0 +1,416 @@
+/*
+ * utils.graph - ParallelBreadthFirstSearch.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.analytics.RangeExecutor.RangeTask;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Parallel, direction-optimizing breadth-first search over the outgoing edges
+ * of an {@link AdjacencySnapshot}.
+ * <p>
+ * The current and the next frontier are kept as bitsets. While the frontier is
+ * small, every level is discovered top-down: the threads walk the outgoing
+ * edges of the frontier nodes and claim unvisited neighbours with a
+ * compare-and-set on the visited bitset. Once the frontier has more edges than
+ * a fraction of the edges of all unvisited nodes, the search switches to
+ * bottom-up steps: every unvisited node checks its incoming edges for a
+ * frontier node and stops at the first one it finds. Every thread owns a range
+ * of 64-node words in a bottom-up step, so no synchronization is necessary.
+ * The search switches back to top-down steps when the frontier becomes small
+ * again.
+ * <p>
+ * A search instance can be used for several searches but not for several
+ * searches at the same time.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class ParallelBreadthFirstSearch {
+
+	/**
+	 * Switch to bottom-up once the edges of the frontier exceed the edges of
+	 * the unvisited nodes divided by this factor.
+	 */
+	private static final int ALPHA = 14;
+
+	/**
+	 * Switch back to top-down once the frontier contains fewer than the nodes
+	 * of the snapshot divided by this factor.
+	 */
+	private static final int BETA = 24;
+
+	/** The minimum number of bitset words processed by a single task. */
+	private static final int GRAIN = 16;
+
+	/** The snapshot to search. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The number of threads to use. */
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Creates a new parallel breadth-first search.
+	 *
+	 * @param snapshot
+	 *            The snapshot to search
+	 */
+	public ParallelBreadthFirstSearch(AdjacencySnapshot snapshot) {
+		Validation.begin().isNotNull("Snapshot", snapshot).check();
+		this.snapshot = snapshot;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Sets the number of threads that are used for a search. The default is
+	 * the number of available processors.
+	 *
+	 * @param threadCount
+	 *            The number of threads to use
+	 * @return This search
+	 */
+	public ParallelBreadthFirstSearch setThreadCount(int threadCount) {
+		Validation.begin().isGreater("Thread Count", threadCount, 0).check();
+		this.threadCount = threadCount;
+		return this;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Searches the snapshot starting at the given node.
+	 *
+	 * @param startNode
+	 *            The node to start at
+	 * @return The result of the search
+	 * @throws GraphException
+	 *             if the search is interrupted
+	 */
+	public BreadthFirstSearchResult search(Node startNode) throws GraphException {
+		Validation.begin().isNotNull("Start Node", startNode).check();
+		int startIndex = snapshot.getIndex(startNode.getId());
+		if (startIndex == -1) {
+			throw new GraphException("Node " + startNode.getId() + " is not contained in the snapshot.");
+		}
+		return search(startIndex);
+	}
+
+	/**
+	 * Searches the snapshot starting at the node with the given index.
+	 *
+	 * @param startIndex
+	 *            The index of the node to start at
+	 * @return The result of the search
+	 * @throws GraphException
+	 *             if the search is interrupted
+	 */
+	public BreadthFirstSearchResult search(int startIndex) throws GraphException {
+		int nodeCount = snapshot.getNodeCount();
+		Validation.begin().isGreaterOrEqual("Start Index", startIndex, 0).isLess("Start Index", startIndex, nodeCount).check();
+		RangeExecutor rangeExecutor = new RangeExecutor(threadCount, "ParallelBreadthFirstSearch Worker");
+		try {
+			return new Search(rangeExecutor, startIndex).run();
+		} finally {
+			rangeExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * The state of a single search.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private class Search {
+
+		/** The executor for the steps. */
+		private final RangeExecutor rangeExecutor;
+
+		/** The distances of the nodes, by index. */
+		private final int[] distances;
+
+		/** The number of words in every bitset. */
+		private final int wordCount;
+
+		/** The visited nodes. */
+		private final AtomicLongArray visited;
+
+		/** The nodes of the current level. */
+		private AtomicLongArray frontier;
+
+		/** The nodes of the next level. */
+		private AtomicLongArray next;
+
+		/** The number of nodes discovered by the current step. */
+		private final AtomicInteger discoveredNodes = new AtomicInteger();
+
+		/** The level that is currently being discovered. */
+		private int level;
+
+		/**
+		 * Creates a new search.
+		 *
+		 * @param rangeExecutor
+		 *            The executor for the steps
+		 * @param startIndex
+		 *            The index of the start node
+		 */
+		Search(RangeExecutor rangeExecutor, int startIndex) {
+			this.rangeExecutor = rangeExecutor;
+			int nodeCount = snapshot.getNodeCount();
+			distances = new int[nodeCount];
+			for (int index = 0; index < nodeCount; ++index) {
+				distances[index] = -1;
+			}
+			wordCount = (nodeCount + 63) >>> 6;
+			visited = new AtomicLongArray(wordCount);
+			frontier = new AtomicLongArray(wordCount);
+			next = new AtomicLongArray(wordCount);
+			distances[startIndex] = 0;
+			visited.set(startIndex >>> 6, 1L << startIndex);
+			frontier.set(startIndex >>> 6, 1L << startIndex);
+		}
+
+		/**
+		 * Runs the search.
+		 *
+		 * @return The result of the search
+		 * @throws GraphException
+		 *             if the search is interrupted
+		 */
+		BreadthFirstSearchResult run() throws GraphException {
+			int nodeCount = snapshot.getNodeCount();
+			int[] levelSizes = new int[16];
+			levelSizes[0] = 1;
+			int frontierSize = 1;
+			long frontierEdges = snapshot.getOutDegree(bitIndex(frontier));
+			long unvisitedEdges = snapshot.getEdgeCount() - frontierEdges;
+			boolean bottomUp = false;
+			int bottomUpLevels = 0;
+			while (frontierSize > 0) {
+				++level;
+				if (!bottomUp && (frontierEdges > (unvisitedEdges / ALPHA))) {
+					bottomUp = true;
+				} else if (bottomUp && (frontierSize < (nodeCount / BETA))) {
+					bottomUp = false;
+				}
+				discoveredNodes.set(0);
+				if (bottomUp) {
+					frontierEdges = rangeExecutor.execute(wordCount, GRAIN, new BottomUpStep());
+					++bottomUpLevels;
+				} else {
+					frontierEdges = rangeExecutor.execute(wordCount, GRAIN, new TopDownStep());
+				}
+				unvisitedEdges -= frontierEdges;
+				frontierSize = discoveredNodes.get();
+				if (frontierSize > 0) {
+					if (level == levelSizes.length) {
+						int[] newLevelSizes = new int[levelSizes.length * 2];
+						System.arraycopy(levelSizes, 0, newLevelSizes, 0, levelSizes.length);
+						levelSizes = newLevelSizes;
+					}
+					levelSizes[level] = frontierSize;
+				} else if (bottomUp) {
+					--bottomUpLevels;
+				}
+				AtomicLongArray oldFrontier = frontier;
+				frontier = next;
+				next = oldFrontier;
+				rangeExecutor.execute(wordCount, GRAIN * 64, new ClearStep(next));
+			}
+			int[] compactLevelSizes = new int[level];
+			System.arraycopy(levelSizes, 0, compactLevelSizes, 0, level);
+			return new BreadthFirstSearchResult(snapshot, distances, compactLevelSizes, bottomUpLevels);
+		}
+
+		/**
+		 * Sets the bit of the given node in the given bitset.
+		 *
+		 * @param bitset
+		 *            The bitset
+		 * @param index
+		 *            The index of the node
+		 * @return {@code true} if the bit was not set before, {@code false}
+		 *         otherwise
+		 */
+		private boolean setBit(AtomicLongArray bitset, int index) {
+			int word = index >>> 6;
+			long mask = 1L << index;
+			while (true) {
+				long value = bitset.get(word);
+				if ((value & mask) != 0) {
+					return false;
+				}
+				if (bitset.compareAndSet(word, value, value | mask)) {
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * Returns the index of the lowest bit that is set in the given bitset.
+		 *
+		 * @param bitset
+		 *            The bitset
+		 * @return The index of the lowest set bit, or {@code -1}
+		 */
+		private int bitIndex(AtomicLongArray bitset) {
+			for (int word = 0; word < wordCount; ++word) {
+				long value = bitset.get(word);
+				if (value != 0) {
+					return (word << 6) + Long.numberOfTrailingZeros(value);
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Discovers the next level by following the outgoing edges of all
+		 * frontier nodes. Returns the number of outgoing edges of the
+		 * discovered nodes.
+		 *
+		 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+		 */
+		private class TopDownStep implements RangeTask {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public long run(int start, int end) {
+				int[] offsets = snapshot.outgoingOffsets;
+				int[] neighbours = snapshot.outgoingNeighbours;
+				int discovered = 0;
+				long discoveredEdges = 0;
+				for (int word = start; word < end; ++word) {
+					long bits = frontier.get(word);
+					while (bits != 0) {
+						int node = (word << 6) + Long.numberOfTrailingZeros(bits);
+						bits &= bits - 1;
+						for (int edge = offsets[node]; edge < offsets[node + 1]; ++edge) {
+							int neighbour = neighbours[edge];
+							if (setBit(visited, neighbour)) {
+								distances[neighbour] = level;
+								setBit(next, neighbour);
+								++discovered;
+								discoveredEdges += offsets[neighbour + 1] - offsets[neighbour];
+							}
+						}
+					}
+				}
+				discoveredNodes.addAndGet(discovered);
+				return discoveredEdges;
+			}
+
+		}
+
+		/**
+		 * Discovers the next level by checking the incoming edges of all
+		 * unvisited nodes for a frontier node. Returns the number of outgoing
+		 * edges of the discovered nodes.
+		 *
+		 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+		 */
+		private class BottomUpStep implements RangeTask {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public long run(int start, int end) {
+				int[] offsets = snapshot.incomingOffsets;
+				int[] neighbours = snapshot.incomingNeighbours;
+				int nodeCount = snapshot.getNodeCount();
+				int discovered = 0;
+				long discoveredEdges = 0;
+				for (int word = start; word < end; ++word) {
+					long visitedBits = visited.get(word);
+					long unvisitedBits = ~visitedBits;
+					long discoveredBits = 0;
+					while (unvisitedBits != 0) {
+						int node = (word << 6) + Long.numberOfTrailingZeros(unvisitedBits);
+						if (node >= nodeCount) {
+							break;
+						}
+						unvisitedBits &= unvisitedBits - 1;
+						for (int edge = offsets[node]; edge < offsets[node + 1]; ++edge) {
+							int neighbour = neighbours[edge];
+							if ((frontier.get(neighbour >>> 6) & (1L << neighbour)) != 0) {
+								distances[node] = level;
+								discoveredBits |= 1L << node;
+								++discovered;
+								discoveredEdges += snapshot.getOutDegree(node);
+								break;
+							}
+						}
+					}
+					if (discoveredBits != 0) {
+						visited.set(word, visitedBits | discoveredBits);
+						next.set(word, discoveredBits);
+					}
+				}
+				discoveredNodes.addAndGet(discovered);
+				return discoveredEdges;
+			}
+
+		}
+
+		/**
+		 * Clears a bitset.
+		 *
+		 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+		 */
+		private class ClearStep implements RangeTask {
+
+			/** The bitset to clear. */
+			private final AtomicLongArray bitset;
+
+			/**
+			 * Creates a new clear step.
+			 *
+			 * @param bitset
+			 *            The bitset to clear
+			 */
+			ClearStep(AtomicLongArray bitset) {
+				this.bitset = bitset;
+			}
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public long run(int start, int end) {
+				for (int word = start; word < end; ++word) {
+					bitset.set(word, 0);
+				}
+				return 0;
+			}
+
+		}
+
+	}
+
+}
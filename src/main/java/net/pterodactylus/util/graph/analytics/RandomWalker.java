@@ -0,0 +1,492 @@
+/*
+ * utils.graph - RandomWalker.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.RandomAccessGraph;
+import net.pterodactylus.util.graph.analytics.RangeExecutor.RangeTask;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Generates random walks along the outgoing edges of an
+ * {@link AdjacencySnapshot}, e.g. to train node embeddings. Every node starts
+ * the configured number of walks; walks with the same number are identical
+ * regardless of the number of threads, as every walk has its own random
+ * number generator that is seeded from the walk number.
+ * <p>
+ * Without weights, the next step is chosen uniformly from the outgoing
+ * neighbours. Edges do not have properties, so {@link #setNodeWeights(double[])
+ * weights} are given per node, and an edge is weighted with the weight of the
+ * node it leads to; the neighbours are then sampled in constant time from
+ * alias tables that are built once for all edges. With a return parameter
+ * <em>p</em> and an in-out parameter <em>q</em> other than {@code 1}, the
+ * walks are second-order node2vec walks: the weight of a step back to the
+ * previous node is divided by <em>p</em>, the weight of a step to a node that
+ * is not an outgoing neighbour of the previous node is divided by <em>q</em>.
+ * These walks sample a first-order step and accept it with a probability
+ * proportional to its bias, so no tables per pair of nodes are necessary; the
+ * neighbour check is a binary search in the sorted neighbours of the previous
+ * node.
+ * <p>
+ * Walks are generated into a reusable block buffer per task and handed to a
+ * {@link WalkSink} block by block; no objects are created per step.
+ *
+ * <pre>
+ * WalkBuffer walks = new WalkBuffer(snapshot.getNodeCount() * 10, 80);
+ * new RandomWalker(snapshot).setReturnParameter(1).setInOutParameter(0.5).generate(10, 80, walks);
+ * </pre>
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class RandomWalker {
+
+	/** The minimum number of nodes processed by a single task. */
+	private static final int GRAIN = 256;
+
+	/** The maximum number of walks per block. */
+	private static final int BLOCK_SIZE = 1024;
+
+	/** The snapshot to walk on. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The outgoing neighbours of all nodes, sorted per node. */
+	private final int[] neighbours;
+
+	/** The number of threads to use. */
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/** The weights of the nodes, or {@code null} for uniform walks. */
+	private double[] nodeWeights;
+
+	/** The return parameter. */
+	private double returnParameter = 1;
+
+	/** The in-out parameter. */
+	private double inOutParameter = 1;
+
+	/** The seed of the random number generators. */
+	private long seed;
+
+	/**
+	 * The probabilities of the alias tables, or {@code null} if they have not
+	 * been built yet.
+	 */
+	private float[] aliasProbabilities;
+
+	/** The aliases of the alias tables, relative to the first edge of a node. */
+	private int[] aliases;
+
+	/**
+	 * Creates a new random walker.
+	 *
+	 * @param snapshot
+	 *            The snapshot to walk on
+	 */
+	public RandomWalker(AdjacencySnapshot snapshot) {
+		Validation.begin().isNotNull("Snapshot", snapshot).check();
+		this.snapshot = snapshot;
+		neighbours = snapshot.outgoingNeighbours.clone();
+		for (int node = 0; node < snapshot.getNodeCount(); ++node) {
+			Arrays.sort(neighbours, snapshot.outgoingOffsets[node], snapshot.outgoingOffsets[node + 1]);
+		}
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Sets the number of threads that are used. The default is the number of
+	 * available processors.
+	 *
+	 * @param threadCount
+	 *            The number of threads to use
+	 * @return This random walker
+	 */
+	public RandomWalker setThreadCount(int threadCount) {
+		Validation.begin().isGreater("Thread Count", threadCount, 0).check();
+		this.threadCount = threadCount;
+		return this;
+	}
+
+	/**
+	 * Sets the weights of the nodes. An edge is chosen with a probability
+	 * proportional to the weight of its end node; if all neighbours of a node
+	 * have a weight of {@code 0}, the next step is chosen uniformly.
+	 *
+	 * @param nodeWeights
+	 *            The weights of the nodes, by node index, or {@code null} for
+	 *            uniform walks
+	 * @return This random walker
+	 */
+	public RandomWalker setNodeWeights(double[] nodeWeights) {
+		if (nodeWeights != null) {
+			Validation.begin().isEqual("Node Weights", nodeWeights.length, snapshot.getNodeCount()).check();
+			for (double nodeWeight : nodeWeights) {
+				Validation.begin().isGreaterOrEqual("Node Weight", nodeWeight, 0).check();
+			}
+		}
+		this.nodeWeights = (nodeWeights == null) ? null : nodeWeights.clone();
+		aliasProbabilities = null;
+		aliases = null;
+		return this;
+	}
+
+	/**
+	 * Sets the weights of the nodes from the given property of the nodes. The
+	 * given graph has to be the graph the snapshot was created from.
+	 *
+	 * @see #setNodeWeights(double[])
+	 * @param graph
+	 *            The graph to read the weights from
+	 * @param property
+	 *            The name of the property that contains the weights
+	 * @param defaultWeight
+	 *            The weight of nodes that do not have the property
+	 * @return This random walker
+	 * @throws GraphException
+	 *             if a node can not be loaded
+	 */
+	public RandomWalker setNodeWeights(Graph graph, String property, double defaultWeight) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).isNotNull("Property", property).check();
+		double[] nodeWeights = new double[snapshot.getNodeCount()];
+		Arrays.fill(nodeWeights, defaultWeight);
+		if (graph instanceof RandomAccessGraph) {
+			for (int index = 0; index < nodeWeights.length; ++index) {
+				Node node = ((RandomAccessGraph) graph).getNode(snapshot.getNodeId(index));
+				if (node != null) {
+					nodeWeights[index] = getWeight(node, property, defaultWeight);
+				}
+			}
+		} else {
+			try {
+				for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+					Node node = nodes.next();
+					int index = snapshot.getIndex(node.getId());
+					if (index != -1) {
+						nodeWeights[index] = getWeight(node, property, defaultWeight);
+					}
+				}
+			} catch (IllegalStateException ise1) {
+				if (ise1.getCause() instanceof GraphException) {
+					throw (GraphException) ise1.getCause();
+				}
+				throw ise1;
+			}
+		}
+		return setNodeWeights(nodeWeights);
+	}
+
+	/**
+	 * Sets the return parameter <em>p</em> of node2vec walks. The default is
+	 * {@code 1}; lower values make the walk return to the previous node more
+	 * often.
+	 *
+	 * @param returnParameter
+	 *            The return parameter
+	 * @return This random walker
+	 */
+	public RandomWalker setReturnParameter(double returnParameter) {
+		Validation.begin().isGreater("Return Parameter", returnParameter, 0).check();
+		this.returnParameter = returnParameter;
+		return this;
+	}
+
+	/**
+	 * Sets the in-out parameter <em>q</em> of node2vec walks. The default is
+	 * {@code 1}; lower values make the walk move away from the previous node
+	 * (depth-first), higher values keep it close (breadth-first).
+	 *
+	 * @param inOutParameter
+	 *            The in-out parameter
+	 * @return This random walker
+	 */
+	public RandomWalker setInOutParameter(double inOutParameter) {
+		Validation.begin().isGreater("In-Out Parameter", inOutParameter, 0).check();
+		this.inOutParameter = inOutParameter;
+		return this;
+	}
+
+	/**
+	 * Sets the seed of the random number generators. The default is
+	 * {@code 0}.
+	 *
+	 * @param seed
+	 *            The seed
+	 * @return This random walker
+	 */
+	public RandomWalker setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Generates walks and hands them to the given sink. Walk number
+	 * {@code round * nodeCount + node} starts at the node with the given
+	 * index in the given round.
+	 *
+	 * @param walksPerNode
+	 *            The number of walks that start at every node
+	 * @param walkLength
+	 *            The number of steps of every walk, including the start node
+	 * @param walkSink
+	 *            The sink for the walks
+	 * @return The number of generated walks
+	 * @throws GraphException
+	 *             if the sink throws an exception, or the generation is
+	 *             interrupted
+	 */
+	public long generate(int walksPerNode, final int walkLength, final WalkSink walkSink) throws GraphException {
+		Validation.begin().isGreaterOrEqual("Walks per Node", walksPerNode, 0).isGreater("Walk Length", walkLength, 0).isLessOrEqual("Block Steps", (long) BLOCK_SIZE * walkLength, Integer.MAX_VALUE).isNotNull("Walk Sink", walkSink).check();
+		final int nodeCount = snapshot.getNodeCount();
+		RangeExecutor rangeExecutor = new RangeExecutor(threadCount, "RandomWalker Worker");
+		try {
+			if ((nodeWeights != null) && (aliasProbabilities == null)) {
+				buildAliasTables(rangeExecutor);
+			}
+			long walkCount = 0;
+			for (int round = 0; round < walksPerNode; ++round) {
+				final long firstWalk = (long) round * nodeCount;
+				walkCount += rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+					@Override
+					public long run(int start, int end) {
+						int[] steps = new int[Math.min(BLOCK_SIZE, end - start) * walkLength];
+						for (int blockStart = start; blockStart < end; blockStart += BLOCK_SIZE) {
+							int blockSize = Math.min(BLOCK_SIZE, end - blockStart);
+							for (int walk = 0; walk < blockSize; ++walk) {
+								walk(blockStart + walk, firstWalk + blockStart + walk, steps, walk * walkLength, walkLength);
+							}
+							try {
+								walkSink.walksGenerated(firstWalk + blockStart, blockSize, walkLength, steps);
+							} catch (GraphException ge1) {
+								throw new IllegalStateException("Could not process walks.", ge1);
+							}
+						}
+						return end - start;
+					}
+				});
+			}
+			return walkCount;
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		} finally {
+			rangeExecutor.shutdown();
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Generates a single walk.
+	 *
+	 * @param startNode
+	 *            The index of the start node
+	 * @param walkNumber
+	 *            The number of the walk
+	 * @param steps
+	 *            The array to store the steps in
+	 * @param offset
+	 *            The offset of the first step in the array
+	 * @param walkLength
+	 *            The number of steps
+	 */
+	private void walk(int startNode, long walkNumber, int[] steps, int offset, int walkLength) {
+		boolean secondOrder = (returnParameter != 1) || (inOutParameter != 1);
+		double maximumBias = Math.max(1, Math.max(1 / returnParameter, 1 / inOutParameter));
+		long state = mix(seed ^ mix(walkNumber));
+		int previousNode = -1;
+		int currentNode = startNode;
+		steps[offset] = startNode;
+		for (int step = 1; step < walkLength; ++step) {
+			int firstEdge = snapshot.outgoingOffsets[currentNode];
+			int degree = snapshot.outgoingOffsets[currentNode + 1] - firstEdge;
+			if (degree == 0) {
+				Arrays.fill(steps, offset + step, offset + walkLength, -1);
+				return;
+			}
+			int nextNode;
+			while (true) {
+				state += 0x9e3779b97f4a7c15L;
+				int edge = firstEdge + (int) (((mix(state) >>> 33) * degree) >>> 31);
+				if ((aliasProbabilities != null) && (nextDouble(state ^ 0x5851f42d4c957f2dL) >= aliasProbabilities[edge])) {
+					edge = firstEdge + aliases[edge];
+				}
+				nextNode = neighbours[edge];
+				if (!secondOrder || (previousNode == -1)) {
+					break;
+				}
+				double bias;
+				if (nextNode == previousNode) {
+					bias = 1 / returnParameter;
+				} else if (isNeighbour(previousNode, nextNode)) {
+					bias = 1;
+				} else {
+					bias = 1 / inOutParameter;
+				}
+				state += 0x9e3779b97f4a7c15L;
+				if ((nextDouble(state) * maximumBias) < bias) {
+					break;
+				}
+			}
+			steps[offset + step] = nextNode;
+			previousNode = currentNode;
+			currentNode = nextNode;
+		}
+	}
+
+	/**
+	 * Returns whether the second node is an outgoing neighbour of the first
+	 * node.
+	 *
+	 * @param node
+	 *            The index of the first node
+	 * @param neighbour
+	 *            The index of the second node
+	 * @return {@code true} if there is an edge from the first node to the
+	 *         second node, {@code false} otherwise
+	 */
+	private boolean isNeighbour(int node, int neighbour) {
+		return Arrays.binarySearch(neighbours, snapshot.outgoingOffsets[node], snapshot.outgoingOffsets[node + 1], neighbour) >= 0;
+	}
+
+	/**
+	 * Builds the alias tables of all nodes with Vose’s method.
+	 *
+	 * @param rangeExecutor
+	 *            The executor to build the tables with
+	 * @throws GraphException
+	 *             if the calling thread is interrupted
+	 */
+	private void buildAliasTables(RangeExecutor rangeExecutor) throws GraphException {
+		final float[] probabilities = new float[neighbours.length];
+		final int[] nodeAliases = new int[neighbours.length];
+		int maximumDegree = 0;
+		for (int node = 0; node < snapshot.getNodeCount(); ++node) {
+			maximumDegree = Math.max(maximumDegree, snapshot.getOutDegree(node));
+		}
+		final int workSize = maximumDegree;
+		rangeExecutor.execute(snapshot.getNodeCount(), GRAIN, new RangeTask() {
+
+			@Override
+			public long run(int start, int end) {
+				double[] scaledWeights = new double[workSize];
+				int[] small = new int[workSize];
+				int[] large = new int[workSize];
+				for (int node = start; node < end; ++node) {
+					int firstEdge = snapshot.outgoingOffsets[node];
+					int degree = snapshot.outgoingOffsets[node + 1] - firstEdge;
+					double weightSum = 0;
+					for (int edge = 0; edge < degree; ++edge) {
+						weightSum += nodeWeights[neighbours[firstEdge + edge]];
+					}
+					int smallCount = 0;
+					int largeCount = 0;
+					for (int edge = 0; edge < degree; ++edge) {
+						scaledWeights[edge] = (weightSum > 0) ? (nodeWeights[neighbours[firstEdge + edge]] * degree / weightSum) : 1;
+						if (scaledWeights[edge] < 1) {
+							small[smallCount++] = edge;
+						} else {
+							large[largeCount++] = edge;
+						}
+					}
+					while ((smallCount > 0) && (largeCount > 0)) {
+						int smallEdge = small[--smallCount];
+						int largeEdge = large[--largeCount];
+						probabilities[firstEdge + smallEdge] = (float) scaledWeights[smallEdge];
+						nodeAliases[firstEdge + smallEdge] = largeEdge;
+						scaledWeights[largeEdge] -= 1 - scaledWeights[smallEdge];
+						if (scaledWeights[largeEdge] < 1) {
+							small[smallCount++] = largeEdge;
+						} else {
+							large[largeCount++] = largeEdge;
+						}
+					}
+					while (largeCount > 0) {
+						probabilities[firstEdge + large[--largeCount]] = 1;
+					}
+					while (smallCount > 0) {
+						/* only reached because of rounding errors. */
+						probabilities[firstEdge + small[--smallCount]] = 1;
+					}
+				}
+				return 0;
+			}
+		});
+		aliasProbabilities = probabilities;
+		aliases = nodeAliases;
+	}
+
+	/**
+	 * Returns the weight of the given node.
+	 *
+	 * @param node
+	 *            The node
+	 * @param property
+	 *            The name of the weight property
+	 * @param defaultWeight
+	 *            The weight if the node does not have the property
+	 * @return The weight of the node
+	 * @throws GraphException
+	 *             if the property can not be read
+	 */
+	private static double getWeight(Node node, String property, double defaultWeight) throws GraphException {
+		Object weight = node.get(property);
+		return (weight instanceof Number) ? ((Number) weight).doubleValue() : defaultWeight;
+	}
+
+	/**
+	 * Returns a uniformly distributed number between {@code 0} (inclusive)
+	 * and {@code 1} (exclusive) that is derived from the given state.
+	 *
+	 * @param state
+	 *            The state of the random number generator
+	 * @return A random number
+	 */
+	private static double nextDouble(long state) {
+		return (mix(state) >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Scrambles the bits of the given value (the finalizer of SplitMix64).
+	 *
+	 * @param value
+	 *            The value to scramble
+	 * @return The scrambled value
+	 */
+	private static long mix(long value) {
+		long mixed = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		mixed = (mixed ^ (mixed >>> 27)) * 0x94d049bb133111ebL;
+		return mixed ^ (mixed >>> 31);
+	}
+
+}
@@ -0,0 +1,274 @@
+/*
+ * utils.graph - RangeExecutor.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.pterodactylus.util.graph.GraphException;
+
+/**
+ * Executes a {@link RangeTask} over a range of integers by splitting the range
+ * into chunks that are processed by a fixed pool of daemon threads. The range
+ * is split into a few more chunks than there are threads so that threads that
+ * finish early can pick up remaining work.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class RangeExecutor {
+
+	/** The number of chunks per thread. */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/** The number of threads. */
+	private final int threadCount;
+
+	/** The executor service, or {@code null} if only one thread is used. */
+	private final ExecutorService executorService;
+
+	/**
+	 * Creates a new range executor.
+	 *
+	 * @param threadCount
+	 *            The number of threads to use
+	 * @param name
+	 *            The name of the threads
+	 */
+	public RangeExecutor(int threadCount, String name) {
+		this.threadCount = threadCount;
+		executorService = (threadCount > 1) ? Executors.newFixedThreadPool(threadCount, new DaemonThreadFactory(name)) : null;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Runs the given task over the range from {@code 0} (inclusive) to
+	 * {@code size} (exclusive) and waits until all chunks have been processed.
+	 *
+	 * @param size
+	 *            The size of the range
+	 * @param grain
+	 *            The minimum size of a chunk
+	 * @param rangeTask
+	 *            The task to run
+	 * @return The sum of the values returned by all chunks
+	 * @throws GraphException
+	 *             if the calling thread is interrupted
+	 */
+	public long execute(int size, int grain, final RangeTask rangeTask) throws GraphException {
+		int chunkSize = getChunkSize(size, grain);
+		if ((executorService == null) || (size <= chunkSize)) {
+			return rangeTask.run(0, size);
+		}
+		List<Callable<Long>> chunks = new ArrayList<Callable<Long>>();
+		for (int chunkStart = 0; chunkStart < size; chunkStart += chunkSize) {
+			final int start = chunkStart;
+			final int end = (int) Math.min((long) chunkStart + chunkSize, size);
+			chunks.add(new Callable<Long>() {
+
+				@Override
+				public Long call() {
+					return rangeTask.run(start, end);
+				}
+			});
+		}
+		long sum = 0;
+		for (Long result : invokeAll(chunks)) {
+			sum += result;
+		}
+		return sum;
+	}
+
+	/**
+	 * Runs the given task over the range from {@code 0} (inclusive) to
+	 * {@code size} (exclusive) and waits until all chunks have been processed.
+	 *
+	 * @param size
+	 *            The size of the range
+	 * @param grain
+	 *            The minimum size of a chunk
+	 * @param doubleRangeTask
+	 *            The task to run
+	 * @return The sum of the values returned by all chunks
+	 * @throws GraphException
+	 *             if the calling thread is interrupted
+	 */
+	public double execute(int size, int grain, final DoubleRangeTask doubleRangeTask) throws GraphException {
+		int chunkSize = getChunkSize(size, grain);
+		if ((executorService == null) || (size <= chunkSize)) {
+			return doubleRangeTask.run(0, size);
+		}
+		List<Callable<Double>> chunks = new ArrayList<Callable<Double>>();
+		for (int chunkStart = 0; chunkStart < size; chunkStart += chunkSize) {
+			final int start = chunkStart;
+			final int end = (int) Math.min((long) chunkStart + chunkSize, size);
+			chunks.add(new Callable<Double>() {
+
+				@Override
+				public Double call() {
+					return doubleRangeTask.run(start, end);
+				}
+			});
+		}
+		double sum = 0;
+		for (Double result : invokeAll(chunks)) {
+			sum += result;
+		}
+		return sum;
+	}
+
+	/**
+	 * Stops all threads of this executor.
+	 */
+	public void shutdown() {
+		if (executorService != null) {
+			executorService.shutdownNow();
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns the size of the chunks for a range of the given size.
+	 *
+	 * @param size
+	 *            The size of the range
+	 * @param grain
+	 *            The minimum size of a chunk
+	 * @return The size of the chunks
+	 */
+	private int getChunkSize(int size, int grain) {
+		return Math.max(grain, (size + (threadCount * CHUNKS_PER_THREAD) - 1) / (threadCount * CHUNKS_PER_THREAD));
+	}
+
+	/**
+	 * Executes the given chunks and waits for their results.
+	 *
+	 * @param <T>
+	 *            The type of the results
+	 * @param chunks
+	 *            The chunks to execute
+	 * @return The results of the chunks
+	 * @throws GraphException
+	 *             if the calling thread is interrupted
+	 */
+	private <T> List<T> invokeAll(List<Callable<T>> chunks) throws GraphException {
+		try {
+			List<T> results = new ArrayList<T>(chunks.size());
+			for (Future<T> result : executorService.invokeAll(chunks)) {
+				results.add(result.get());
+			}
+			return results;
+		} catch (InterruptedException ie1) {
+			Thread.currentThread().interrupt();
+			throw new GraphException("Parallel execution was interrupted!", ie1);
+		} catch (ExecutionException ee1) {
+			if (ee1.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ee1.getCause();
+			}
+			if (ee1.getCause() instanceof Error) {
+				throw (Error) ee1.getCause();
+			}
+			throw new GraphException("Parallel execution failed!", ee1.getCause());
+		}
+	}
+
+	/**
+	 * A task that processes a chunk of a range.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	public interface RangeTask {
+
+		/**
+		 * Processes the given chunk.
+		 *
+		 * @param start
+		 *            The start of the chunk (inclusive)
+		 * @param end
+		 *            The end of the chunk (exclusive)
+		 * @return A value that is summed up over all chunks
+		 */
+		public long run(int start, int end);
+
+	}
+
+	/**
+	 * A task that processes a chunk of a range and computes a
+	 * {@code double} value.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	public interface DoubleRangeTask {
+
+		/**
+		 * Processes the given chunk.
+		 *
+		 * @param start
+		 *            The start of the chunk (inclusive)
+		 * @param end
+		 *            The end of the chunk (exclusive)
+		 * @return A value that is summed up over all chunks
+		 */
+		public double run(int start, int end);
+
+	}
+
+	/**
+	 * Thread factory for the daemon threads of a range executor.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		/** The name of the threads. */
+		private final String name;
+
+		/**
+		 * Creates a new daemon thread factory.
+		 *
+		 * @param name
+		 *            The name of the threads
+		 */
+		DaemonThreadFactory(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
@@ -0,0 +1,349 @@
+/*
+ * utils.graph - TriangleCount.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.analytics.RangeExecutor.RangeTask;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Counts the triangles of an {@link AdjacencySnapshot}, ignoring the
+ * direction of edges.
+ * <p>
+ * The snapshot is first turned into sorted, duplicate-free neighbour arrays in
+ * which every edge is only stored at the endpoint with the lower rank, where
+ * nodes are ranked by degree and then by index. Every triangle is then found
+ * exactly once, at its lowest-ranked node, by intersecting the neighbour
+ * arrays of both ends of each stored edge; because high-degree nodes have few
+ * higher-ranked neighbours, the arrays stay short. Arrays of similar length
+ * are intersected by merging them; if one array is much longer, the elements
+ * of the shorter one are searched in it by galloping. All steps are
+ * distributed over several threads.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class TriangleCount {
+
+	/** The minimum number of nodes processed by a single task. */
+	private static final int GRAIN = 1024;
+
+	/**
+	 * Use galloping when one array is longer than the other multiplied by this
+	 * factor.
+	 */
+	private static final int GALLOP_RATIO = 16;
+
+	/** The snapshot to analyze. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The number of threads to use. */
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Creates a new triangle count.
+	 *
+	 * @param snapshot
+	 *            The snapshot to analyze
+	 */
+	public TriangleCount(AdjacencySnapshot snapshot) {
+		Validation.begin().isNotNull("Snapshot", snapshot).check();
+		this.snapshot = snapshot;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Sets the number of threads that are used. The default is the number of
+	 * available processors.
+	 *
+	 * @param threadCount
+	 *            The number of threads to use
+	 * @return This triangle count
+	 */
+	public TriangleCount setThreadCount(int threadCount) {
+		Validation.begin().isGreater("Thread Count", threadCount, 0).check();
+		this.threadCount = threadCount;
+		return this;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Counts the triangles of every node.
+	 *
+	 * @return The triangle counts
+	 * @throws GraphException
+	 *             if the computation is interrupted
+	 */
+	public TriangleCounts compute() throws GraphException {
+		final int nodeCount = snapshot.getNodeCount();
+		RangeExecutor rangeExecutor = new RangeExecutor(threadCount, "TriangleCount Worker");
+		try {
+			/* build sorted, duplicate-free, undirected neighbour arrays. */
+			final int[] degrees = new int[nodeCount];
+			rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+				@Override
+				public long run(int start, int end) {
+					int[] buffer = new int[16];
+					for (int node = start; node < end; ++node) {
+						buffer = collectNeighbours(node, buffer);
+						degrees[node] = buffer[0];
+					}
+					return 0;
+				}
+			});
+			final int[] offsets = toOffsets(degrees);
+			final int[] neighbours = new int[offsets[nodeCount]];
+			rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+				@Override
+				public long run(int start, int end) {
+					int[] buffer = new int[16];
+					for (int node = start; node < end; ++node) {
+						buffer = collectNeighbours(node, buffer);
+						System.arraycopy(buffer, 1, neighbours, offsets[node], buffer[0]);
+					}
+					return 0;
+				}
+			});
+
+			/* only keep the edges to neighbours with a higher rank. */
+			final int[] orientedDegrees = new int[nodeCount];
+			rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+				@Override
+				public long run(int start, int end) {
+					for (int node = start; node < end; ++node) {
+						for (int edge = offsets[node]; edge < offsets[node + 1]; ++edge) {
+							if (isRankedLower(degrees, node, neighbours[edge])) {
+								++orientedDegrees[node];
+							}
+						}
+					}
+					return 0;
+				}
+			});
+			final int[] orientedOffsets = toOffsets(orientedDegrees);
+			final int[] orientedNeighbours = new int[orientedOffsets[nodeCount]];
+			rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+				@Override
+				public long run(int start, int end) {
+					for (int node = start; node < end; ++node) {
+						int position = orientedOffsets[node];
+						for (int edge = offsets[node]; edge < offsets[node + 1]; ++edge) {
+							if (isRankedLower(degrees, node, neighbours[edge])) {
+								orientedNeighbours[position++] = neighbours[edge];
+							}
+						}
+					}
+					return 0;
+				}
+			});
+
+			/* intersect the neighbours of both ends of every edge. */
+			final AtomicLongArray triangles = new AtomicLongArray(nodeCount);
+			long triangleCount = rangeExecutor.execute(nodeCount, GRAIN, new RangeTask() {
+
+				@Override
+				public long run(int start, int end) {
+					long triangleCount = 0;
+					for (int node = start; node < end; ++node) {
+						long nodeTriangles = 0;
+						for (int edge = orientedOffsets[node]; edge < orientedOffsets[node + 1]; ++edge) {
+							int neighbour = orientedNeighbours[edge];
+							long edgeTriangles = intersect(orientedNeighbours, orientedOffsets[node], orientedOffsets[node + 1], orientedOffsets[neighbour], orientedOffsets[neighbour + 1], triangles);
+							if (edgeTriangles > 0) {
+								triangles.addAndGet(neighbour, edgeTriangles);
+								nodeTriangles += edgeTriangles;
+							}
+						}
+						if (nodeTriangles > 0) {
+							triangles.addAndGet(node, nodeTriangles);
+							triangleCount += nodeTriangles;
+						}
+					}
+					return triangleCount;
+				}
+			});
+			long[] nodeTriangles = new long[nodeCount];
+			for (int node = 0; node < nodeCount; ++node) {
+				nodeTriangles[node] = triangles.get(node);
+			}
+			return new TriangleCounts(snapshot, nodeTriangles, degrees, triangleCount);
+		} finally {
+			rangeExecutor.shutdown();
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Collects the distinct neighbours of the given node, ignoring the
+	 * direction of edges and edges to the node itself. The number of
+	 * neighbours is stored in the first element of the returned buffer, the
+	 * sorted neighbours follow it.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @param buffer
+	 *            The buffer to use
+	 * @return The buffer, or a larger buffer if the given buffer was too small
+	 */
+	private int[] collectNeighbours(int node, int[] buffer) {
+		int outDegree = snapshot.getOutDegree(node);
+		int inDegree = snapshot.getInDegree(node);
+		if (buffer.length <= (outDegree + inDegree)) {
+			buffer = new int[Math.max(buffer.length * 2, outDegree + inDegree + 1)];
+		}
+		System.arraycopy(snapshot.outgoingNeighbours, snapshot.outgoingOffsets[node], buffer, 1, outDegree);
+		System.arraycopy(snapshot.incomingNeighbours, snapshot.incomingOffsets[node], buffer, 1 + outDegree, inDegree);
+		Arrays.sort(buffer, 1, 1 + outDegree + inDegree);
+		int count = 0;
+		for (int position = 1; position <= (outDegree + inDegree); ++position) {
+			int neighbour = buffer[position];
+			if ((neighbour != node) && ((count == 0) || (buffer[count] != neighbour))) {
+				buffer[++count] = neighbour;
+			}
+		}
+		buffer[0] = count;
+		return buffer;
+	}
+
+	/**
+	 * Returns whether the first node has a lower rank than the second node.
+	 * Nodes are ranked by degree, nodes with the same degree by index.
+	 *
+	 * @param degrees
+	 *            The degrees of all nodes
+	 * @param firstNode
+	 *            The first node
+	 * @param secondNode
+	 *            The second node
+	 * @return {@code true} if the first node has a lower rank than the second
+	 *         node, {@code false} otherwise
+	 */
+	private static boolean isRankedLower(int[] degrees, int firstNode, int secondNode) {
+		return (degrees[firstNode] < degrees[secondNode]) || ((degrees[firstNode] == degrees[secondNode]) && (firstNode < secondNode));
+	}
+
+	/**
+	 * Turns the given degrees into an offset array with one additional
+	 * element.
+	 *
+	 * @param degrees
+	 *            The degrees of all nodes
+	 * @return The offsets of the neighbours of all nodes
+	 * @throws GraphException
+	 *             if there are more than {@link Integer#MAX_VALUE} neighbours
+	 */
+	private static int[] toOffsets(int[] degrees) throws GraphException {
+		int[] offsets = new int[degrees.length + 1];
+		long offset = 0;
+		for (int node = 0; node < degrees.length; ++node) {
+			offsets[node] = (int) offset;
+			offset += degrees[node];
+			if (offset > Integer.MAX_VALUE) {
+				throw new GraphException("Graph has too many edges to count triangles.");
+			}
+		}
+		offsets[degrees.length] = (int) offset;
+		return offsets;
+	}
+
+	/**
+	 * Counts the elements that are contained in both of the given sorted
+	 * ranges of the given array, and adds a triangle to every common element.
+	 *
+	 * @param neighbours
+	 *            The array that contains both ranges
+	 * @param firstStart
+	 *            The start of the first range (inclusive)
+	 * @param firstEnd
+	 *            The end of the first range (exclusive)
+	 * @param secondStart
+	 *            The start of the second range (inclusive)
+	 * @param secondEnd
+	 *            The end of the second range (exclusive)
+	 * @param triangles
+	 *            The triangles of all nodes
+	 * @return The number of common elements
+	 */
+	private static long intersect(int[] neighbours, int firstStart, int firstEnd, int secondStart, int secondEnd, AtomicLongArray triangles) {
+		int firstLength = firstEnd - firstStart;
+		int secondLength = secondEnd - secondStart;
+		if ((firstLength == 0) || (secondLength == 0)) {
+			return 0;
+		}
+		if (firstLength > secondLength) {
+			return intersect(neighbours, secondStart, secondEnd, firstStart, firstEnd, triangles);
+		}
+		long common = 0;
+		if (secondLength > (firstLength * GALLOP_RATIO)) {
+			int low = secondStart;
+			for (int first = firstStart; (first < firstEnd) && (low < secondEnd); ++first) {
+				int value = neighbours[first];
+				/* gallop to find a range that contains the value. */
+				int step = 1;
+				int high = low;
+				while ((high < secondEnd) && (neighbours[high] < value)) {
+					low = high + 1;
+					high += step;
+					step <<= 1;
+				}
+				int position = Arrays.binarySearch(neighbours, low, Math.min(high + 1, secondEnd), value);
+				if (position >= 0) {
+					triangles.incrementAndGet(value);
+					++common;
+					low = position + 1;
+				} else {
+					low = -position - 1;
+				}
+			}
+			return common;
+		}
+		int first = firstStart;
+		int second = secondStart;
+		while ((first < firstEnd) && (second < secondEnd)) {
+			int firstValue = neighbours[first];
+			int secondValue = neighbours[second];
+			if (firstValue < secondValue) {
+				++first;
+			} else if (firstValue > secondValue) {
+				++second;
+			} else {
+				triangles.incrementAndGet(firstValue);
+				++common;
+				++first;
+				++second;
+			}
+		}
+		return common;
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * utils.graph - TriangleCounts.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+/**
+ * The number of triangles every node of an {@link AdjacencySnapshot} is part
+ * of, as computed by {@link TriangleCount}. The direction of edges is
+ * ignored, and multiple edges between the same nodes and edges from a node to
+ * itself are not counted.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class TriangleCounts {
+
+	/** The snapshot the triangles were counted in. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The number of triangles of every node, by node index. */
+	private final long[] triangles;
+
+	/** The number of distinct neighbours of every node, by node index. */
+	private final int[] degrees;
+
+	/** The total number of triangles. */
+	private final long triangleCount;
+
+	/**
+	 * Creates new triangle counts.
+	 *
+	 * @param snapshot
+	 *            The snapshot the triangles were counted in
+	 * @param triangles
+	 *            The number of triangles of every node
+	 * @param degrees
+	 *            The number of distinct neighbours of every node
+	 * @param triangleCount
+	 *            The total number of triangles
+	 */
+	TriangleCounts(AdjacencySnapshot snapshot, long[] triangles, int[] degrees, long triangleCount) {
+		this.snapshot = snapshot;
+		this.triangles = triangles;
+		this.degrees = degrees;
+		this.triangleCount = triangleCount;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the snapshot the triangles were counted in.
+	 *
+	 * @return The snapshot
+	 */
+	public AdjacencySnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns the total number of triangles.
+	 *
+	 * @return The number of triangles
+	 */
+	public long getTriangleCount() {
+		return triangleCount;
+	}
+
+	/**
+	 * Returns the number of triangles the node with the given index is part
+	 * of.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @return The number of triangles of the node
+	 */
+	public long getTriangleCount(int index) {
+		return triangles[index];
+	}
+
+	/**
+	 * Returns the number of triangles the node with the given ID is part of.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The number of triangles of the node, or {@code -1} if the node
+	 *         is not contained in the snapshot
+	 */
+	public long getTriangleCountById(long nodeId) {
+		int index = snapshot.getIndex(nodeId);
+		return (index == -1) ? -1 : triangles[index];
+	}
+
+	/**
+	 * Returns the local clustering coefficient of the node with the given
+	 * index, i.e. the ratio of the links between its neighbours to the number
+	 * of possible links between its neighbours.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @return The clustering coefficient of the node, or {@code 0} if the node
+	 *         has fewer than two neighbours
+	 */
+	public double getClusteringCoefficient(int index) {
+		long degree = degrees[index];
+		if (degree < 2) {
+			return 0;
+		}
+		return (2.0 * triangles[index]) / (degree * (degree - 1));
+	}
+
+	/**
+	 * Returns the local clustering coefficient of the node with the given ID.
+	 *
+	 * @see #getClusteringCoefficient(int)
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The clustering coefficient of the node, or {@link Double#NaN} if
+	 *         the node is not contained in the snapshot
+	 */
+	public double getClusteringCoefficientById(long nodeId) {
+		int index = snapshot.getIndex(nodeId);
+		return (index == -1) ? Double.NaN : getClusteringCoefficient(index);
+	}
+
+	/**
+	 * Returns the average of the local clustering coefficients of all nodes.
+	 *
+	 * @return The average clustering coefficient
+	 */
+	public double getAverageClusteringCoefficient() {
+		if (triangles.length == 0) {
+			return 0;
+		}
+		double sum = 0;
+		for (int index = 0; index < triangles.length; ++index) {
+			sum += getClusteringCoefficient(index);
+		}
+		return sum / triangles.length;
+	}
+
+}
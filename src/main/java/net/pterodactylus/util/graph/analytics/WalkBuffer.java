@@ -0,0 +1,112 @@
+/*
+ * utils.graph - WalkBuffer.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * {@link WalkSink} that stores all walks in a single array, ordered by walk
+ * number, so that the result does not depend on the number of threads.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class WalkBuffer implements WalkSink {
+
+	/** The number of walks. */
+	private final int walkCount;
+
+	/** The number of steps of every walk. */
+	private final int walkLength;
+
+	/** The steps of all walks. */
+	private final int[] steps;
+
+	/**
+	 * Creates a new walk buffer.
+	 *
+	 * @param walkCount
+	 *            The number of walks
+	 * @param walkLength
+	 *            The number of steps of every walk, including the start node
+	 */
+	public WalkBuffer(int walkCount, int walkLength) {
+		Validation.begin().isGreaterOrEqual("Walk Count", walkCount, 0).isGreater("Walk Length", walkLength, 0).isLessOrEqual("Steps", (long) walkCount * walkLength, Integer.MAX_VALUE).check();
+		this.walkCount = walkCount;
+		this.walkLength = walkLength;
+		steps = new int[walkCount * walkLength];
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the number of walks.
+	 *
+	 * @return The number of walks
+	 */
+	public int getWalkCount() {
+		return walkCount;
+	}
+
+	/**
+	 * Returns the number of steps of every walk.
+	 *
+	 * @return The number of steps of every walk, including the start node
+	 */
+	public int getWalkLength() {
+		return walkLength;
+	}
+
+	/**
+	 * Returns the node index of the given step of the given walk.
+	 *
+	 * @param walk
+	 *            The number of the walk
+	 * @param step
+	 *            The step ({@code 0} is the start node)
+	 * @return The node index, or {@code -1} if the walk ended earlier
+	 */
+	public int getStep(int walk, int step) {
+		return steps[walk * walkLength + step];
+	}
+
+	/**
+	 * Returns the steps of all walks, walk after walk. The returned array is
+	 * not copied.
+	 *
+	 * @return The steps of all walks
+	 */
+	public int[] getSteps() {
+		return steps;
+	}
+
+	//
+	// INTERFACE WalkSink
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void walksGenerated(long firstWalk, int walkCount, int walkLength, int[] steps) {
+		Validation.begin().isEqual("Walk Length", walkLength, this.walkLength).isLessOrEqual("Last Walk", firstWalk + walkCount, this.walkCount).check();
+		System.arraycopy(steps, 0, this.steps, (int) firstWalk * walkLength, walkCount * walkLength);
+	}
+
+}
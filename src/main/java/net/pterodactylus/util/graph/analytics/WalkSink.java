@@ -0,0 +1,53 @@
+/*
+ * utils.graph - WalkSink.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import net.pterodactylus.util.graph.GraphException;
+
+/**
+ * Receives the walks generated by a {@link RandomWalker}. Walks are delivered
+ * in blocks of consecutive walk numbers; the steps of all walks of a block are
+ * stored in one array, walk after walk, with {@code walkLength} node indexes
+ * per walk. A walk that reaches a node without outgoing edges is padded with
+ * {@code -1}.
+ * <p>
+ * Blocks are delivered concurrently by all threads of the walker, in no
+ * particular order. The step array is reused for the next block after this
+ * method returns.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public interface WalkSink {
+
+	/**
+	 * Processes a block of walks.
+	 *
+	 * @param firstWalk
+	 *            The number of the first walk of the block
+	 * @param walkCount
+	 *            The number of walks in the block
+	 * @param walkLength
+	 *            The number of steps of every walk, including the start node
+	 * @param steps
+	 *            The node indexes of the steps of all walks
+	 * @throws GraphException
+	 *             if the walks can not be processed
+	 */
+	public void walksGenerated(long firstWalk, int walkCount, int walkLength, int[] steps) throws GraphException;
+
+}
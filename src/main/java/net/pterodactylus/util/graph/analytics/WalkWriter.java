@@ -0,0 +1,121 @@
+/*
+ * utils.graph - WalkWriter.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * {@link WalkSink} that writes walks to a stream. Every walk is written as
+ * the number of its steps (an {@code int}) followed by the IDs of the nodes
+ * of the steps (as {@code long}s); walks that ended early are written without
+ * padding. Blocks of walks are written in the order they are generated, which
+ * depends on the scheduling of the threads.
+ * <p>
+ * The stream is not closed by this writer; it should be buffered.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class WalkWriter implements WalkSink {
+
+	/** The snapshot whose node IDs are written. */
+	private final AdjacencySnapshot snapshot;
+
+	/** The stream to write to. */
+	private final DataOutputStream outputStream;
+
+	/** The number of written walks. */
+	private long walkCount;
+
+	/**
+	 * Creates a new walk writer.
+	 *
+	 * @param snapshot
+	 *            The snapshot the walks are generated on
+	 * @param outputStream
+	 *            The stream to write to
+	 */
+	public WalkWriter(AdjacencySnapshot snapshot, OutputStream outputStream) {
+		Validation.begin().isNotNull("Snapshot", snapshot).isNotNull("Output Stream", outputStream).check();
+		this.snapshot = snapshot;
+		this.outputStream = new DataOutputStream(outputStream);
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the number of walks that have been written.
+	 *
+	 * @return The number of written walks
+	 */
+	public synchronized long getWalkCount() {
+		return walkCount;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Flushes the underlying stream.
+	 *
+	 * @throws GraphException
+	 *             if the stream can not be flushed
+	 */
+	public synchronized void flush() throws GraphException {
+		try {
+			outputStream.flush();
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not flush walks!", ioe1);
+		}
+	}
+
+	//
+	// INTERFACE WalkSink
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void walksGenerated(long firstWalk, int walkCount, int walkLength, int[] steps) throws GraphException {
+		try {
+			for (int walk = 0; walk < walkCount; ++walk) {
+				int offset = walk * walkLength;
+				int length = 0;
+				while ((length < walkLength) && (steps[offset + length] != -1)) {
+					++length;
+				}
+				outputStream.writeInt(length);
+				for (int step = 0; step < length; ++step) {
+					outputStream.writeLong(snapshot.getNodeId(steps[offset + step]));
+				}
+			}
+			this.walkCount += walkCount;
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not write walks!", ioe1);
+		}
+	}
+
+}
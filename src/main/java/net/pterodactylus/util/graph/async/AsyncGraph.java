@@ -0,0 +1,736 @@
+/*
+ * utils.graph - AsyncGraph.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.async;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Store;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Asynchronous facade for the {@link Graph} of a {@link Store}. All operations
+ * are queued and executed on a fixed number of dedicated I/O threads (called
+ * lanes); the calling thread never blocks on the store. Every operation
+ * returns a {@link Future} and optionally notifies a {@link Callback} once it
+ * has finished.
+ * <p>
+ * Operations are assigned to lanes by the node they operate on, so
+ * operations on the same node are executed in the order they were submitted.
+ * Links and unlinks operate on two nodes; they are queued in the lanes of
+ * both nodes and executed once both lanes have reached them, so they are
+ * ordered against the operations of both nodes. Each lane takes all
+ * operations that are waiting in its queue as a batch and executes the
+ * operations between two links or unlinks ordered by node, so that
+ * independent operations for the same node run back to back and can reuse
+ * cached data.
+ * <p>
+ * A {@link Callback} that throws an exception does not affect the lane or
+ * any other operation.
+ * <p>
+ * Each lane has a bounded queue. If the queue of a lane is full, the
+ * operation is not queued and fails immediately with a
+ * {@link RejectedExecutionException}.
+ * <p>
+ * Using more than one lane requires that the store is safe for concurrent
+ * use.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class AsyncGraph {
+
+	/** The default size of the queue of each lane. */
+	public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+	/** The maximum number of operations that are executed as one batch. */
+	private static final int MAXIMUM_BATCH_SIZE = 256;
+
+	/** Orders requests by node, keeping the submission order of each node. */
+	private static final Comparator<Request<?>> REQUEST_ORDER = new Comparator<Request<?>>() {
+
+		@Override
+		public int compare(Request<?> firstRequest, Request<?> secondRequest) {
+			if (firstRequest.key != secondRequest.key) {
+				return (firstRequest.key < secondRequest.key) ? -1 : 1;
+			}
+			if (firstRequest.sequence != secondRequest.sequence) {
+				return (firstRequest.sequence < secondRequest.sequence) ? -1 : 1;
+			}
+			return 0;
+		}
+
+	};
+
+	/** The graph to operate on. */
+	private final Graph graph;
+
+	/** The lanes. */
+	private final Lane[] lanes;
+
+	/** The lane for the next operation that does not operate on a node. */
+	private final AtomicInteger nextLane = new AtomicInteger();
+
+	/** The sequence number for the next request. */
+	private final AtomicLong nextSequence = new AtomicLong();
+
+	/**
+	 * Serializes the queueing of requests for two nodes, so that all lanes
+	 * reach these requests in the same order.
+	 */
+	private final Object barrierLock = new Object();
+
+	/**
+	 * Guards {@link #shutdown}: requests are queued while holding the read
+	 * lock, the facade is shut down while holding the write lock.
+	 */
+	private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+
+	/** Whether this facade has been shut down. */
+	private boolean shutdown;
+
+	/**
+	 * Creates a new asynchronous facade with a single lane.
+	 *
+	 * @param store
+	 *            The store to operate on
+	 */
+	public AsyncGraph(Store store) {
+		this(store, 1, DEFAULT_QUEUE_SIZE);
+	}
+
+	/**
+	 * Creates a new asynchronous facade.
+	 *
+	 * @param store
+	 *            The store to operate on
+	 * @param laneCount
+	 *            The number of lanes (and I/O threads)
+	 * @param queueSize
+	 *            The maximum number of queued operations per lane
+	 */
+	public AsyncGraph(Store store, int laneCount, int queueSize) {
+		Validation.begin().isNotNull("Store", store).isGreater("Lane Count", laneCount, 0).isGreater("Queue Size", queueSize, 0).check();
+		this.graph = store.getGraph();
+		lanes = new Lane[laneCount];
+		for (int laneIndex = 0; laneIndex < laneCount; ++laneIndex) {
+			lanes[laneIndex] = new Lane(laneIndex, queueSize);
+			lanes[laneIndex].start();
+		}
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Creates a new node.
+	 *
+	 * @see Graph#createNode()
+	 * @param callback
+	 *            The callback to notify (may be {@code null})
+	 * @return The future for the new node
+	 */
+	public Future<Node> createNodeAsync(Callback<Node> callback) {
+		return submit(null, callback, new Callable<Node>() {
+
+			@Override
+			public Node call() throws Exception {
+				return graph.createNode();
+			}
+
+		});
+	}
+
+	/**
+	 * Removes the given node.
+	 *
+	 * @see Graph#removeNode(Node)
+	 * @param node
+	 *            The node to remove
+	 * @param callback
+	 *            The callback to notify (may be {@code null})
+	 * @return The future for the removal
+	 */
+	public Future<Void> removeNodeAsync(final Node node, Callback<Void> callback) {
+		Validation.begin().isNotNull("Node", node).check();
+		return submit(node, callback, new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				graph.removeNode(node);
+				return null;
+			}
+
+		});
+	}
+
+	/**
+	 * Returns the value of a property of the given node.
+	 *
+	 * @see Node#get(String)
+	 * @param node
+	 *            The node to get the property of
+	 * @param key
+	 *            The key of the property
+	 * @param callback
+	 *            The callback to notify (may be {@code null})
+	 * @return The future for the value of the property
+	 */
+	public Future<Object> getAsync(final Node node, final String key, Callback<Object> callback) {
+		Validation.begin().isNotNull("Node", node).check();
+		return submit(node, callback, new Callable<Object>() {
+
+			@Override
+			public Object call() throws Exception {
+				return node.get(key);
+			}
+
+		});
+	}
+
+	/**
+	 * Sets a property of the given node.
+	 *
+	 * @see Node#set(String, Object)
+	 * @param node
+	 *            The node to set the property on
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 * @param callback
+	 *            The callback to notify (may be {@code null})
+	 * @return The future for the node
+	 */
+	public Future<Node> setAsync(final Node node, final String key, final Object value, Callback<Node> callback) {
+		Validation.begin().isNotNull("Node", node).check();
+		return submit(node, callback, new Callable<Node>() {
+
+			@Override
+			public Node call() throws Exception {
+				return node.set(key, value);
+			}
+
+		});
+	}
+
+	/**
+	 * Links the given start node to the given end node.
+	 *
+	 * @see Node#link(Node, String)
+	 * @param startNode
+	 *            The start node of the link
+	 * @param endNode
+	 *            The end node of the link
+	 * @param relationship
+	 *            The name of the relationship
+	 * @param callback
+	 *            The callback to notify (may be {@code null})
+	 * @return The future for whether an edge was added
+	 */
+	public Future<Boolean> linkAsync(final Node startNode, final Node endNode, final String relationship, Callback<Boolean> callback) {
+		Validation.begin().isNotNull("Start Node", startNode).isNotNull("End Node", endNode).check();
+		return submit(startNode, endNode, callback, new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() throws Exception {
+				return startNode.link(endNode, relationship);
+			}
+
+		});
+	}
+
+	/**
+	 * Removes the link between the given start node and the given end node.
+	 *
+	 * @see Node#unlink(Node, String)
+	 * @param startNode
+	 *            The start node of the link
+	 * @param endNode
+	 *            The end node of the link
+	 * @param relationship
+	 *            The name of the relationship
+	 * @param callback
+	 *            The callback to notify (may be {@code null})
+	 * @return The future for whether an edge was removed
+	 */
+	public Future<Boolean> unlinkAsync(final Node startNode, final Node endNode, final String relationship, Callback<Boolean> callback) {
+		Validation.begin().isNotNull("Start Node", startNode).isNotNull("End Node", endNode).check();
+		return submit(startNode, endNode, callback, new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() throws Exception {
+				return startNode.unlink(endNode, relationship);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns all edges that have the given node as end node.
+	 *
+	 * @see Node#getIncomingLinks(String)
+	 * @param node
+	 *            The end node of the edges
+	 * @param relationship
+	 *            The name of the relationship
+	 * @param callback
+	 *            The callback to notify (may be {@code null})
+	 * @return The future for the edges
+	 */
+	public Future<Set<Edge>> getIncomingLinksAsync(final Node node, final String relationship, Callback<Set<Edge>> callback) {
+		Validation.begin().isNotNull("Node", node).check();
+		return submit(node, callback, new Callable<Set<Edge>>() {
+
+			@Override
+			public Set<Edge> call() throws Exception {
+				return node.getIncomingLinks(relationship);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns all edges that have the given node as start node.
+	 *
+	 * @see Node#getOutgoingLinks(String)
+	 * @param node
+	 *            The start node of the edges
+	 * @param relationship
+	 *            The name of the relationship
+	 * @param callback
+	 *            The callback to notify (may be {@code null})
+	 * @return The future for the edges
+	 */
+	public Future<Set<Edge>> getOutgoingLinksAsync(final Node node, final String relationship, Callback<Set<Edge>> callback) {
+		Validation.begin().isNotNull("Node", node).check();
+		return submit(node, callback, new Callable<Set<Edge>>() {
+
+			@Override
+			public Set<Edge> call() throws Exception {
+				return node.getOutgoingLinks(relationship);
+			}
+
+		});
+	}
+
+	/**
+	 * Shuts down this facade. Operations that have already been queued are
+	 * still executed; all operations submitted after this method has been
+	 * called fail with a {@link RejectedExecutionException}. This method
+	 * blocks until all lanes have been notified but does not wait for the
+	 * queued operations to finish.
+	 */
+	public void shutdown() {
+		shutdownLock.writeLock().lock();
+		try {
+			if (shutdown) {
+				return;
+			}
+			shutdown = true;
+		} finally {
+			shutdownLock.writeLock().unlock();
+		}
+		for (Lane lane : lanes) {
+			lane.finish();
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Queues the given operation in the lane of the given node.
+	 *
+	 * @param <T>
+	 *            The type of the result
+	 * @param node
+	 *            The node the operation operates on (may be {@code null})
+	 * @param callback
+	 *            The callback to notify (may be {@code null})
+	 * @param callable
+	 *            The operation
+	 * @return The future for the result of the operation
+	 */
+	private <T> Future<T> submit(Node node, Callback<T> callback, Callable<T> callable) {
+		long key = (node != null) ? node.hashCode() : nextLane.getAndIncrement();
+		Request<T> request = new Request<T>(key, nextSequence.getAndIncrement(), 0, callable, callback);
+		Lane lane = getLane(key);
+		shutdownLock.readLock().lock();
+		try {
+			if (shutdown) {
+				request.reject(new RejectedExecutionException("AsyncGraph has been shut down."));
+			} else {
+				offer(lane, request);
+			}
+		} finally {
+			shutdownLock.readLock().unlock();
+		}
+		return request;
+	}
+
+	/**
+	 * Queues the given operation in the lanes of both given nodes. The
+	 * operation is executed once both lanes have reached it.
+	 *
+	 * @param <T>
+	 *            The type of the result
+	 * @param firstNode
+	 *            The first node the operation operates on
+	 * @param secondNode
+	 *            The second node the operation operates on
+	 * @param callback
+	 *            The callback to notify (may be {@code null})
+	 * @param callable
+	 *            The operation
+	 * @return The future for the result of the operation
+	 */
+	private <T> Future<T> submit(Node firstNode, Node secondNode, Callback<T> callback, Callable<T> callable) {
+		Lane firstLane = getLane(firstNode.hashCode());
+		Lane secondLane = getLane(secondNode.hashCode());
+		Request<T> request = new Request<T>(firstNode.hashCode(), nextSequence.getAndIncrement(), (firstLane == secondLane) ? 1 : 2, callable, callback);
+		shutdownLock.readLock().lock();
+		try {
+			if (shutdown) {
+				request.reject(new RejectedExecutionException("AsyncGraph has been shut down."));
+			} else {
+				synchronized (barrierLock) {
+					if (offer(firstLane, request) && (firstLane != secondLane)) {
+						offer(secondLane, request);
+					}
+				}
+			}
+		} finally {
+			shutdownLock.readLock().unlock();
+		}
+		return request;
+	}
+
+	/**
+	 * Returns the lane for the given key.
+	 *
+	 * @param key
+	 *            The key of the request
+	 * @return The lane for the key
+	 */
+	private Lane getLane(long key) {
+		return lanes[(int) ((key & 0x7fffffff) % lanes.length)];
+	}
+
+	/**
+	 * Queues the given request in the given lane, rejecting it if the queue of
+	 * the lane is full.
+	 *
+	 * @param lane
+	 *            The lane to queue the request in
+	 * @param request
+	 *            The request to queue
+	 * @return {@code true} if the request was queued, {@code false} if it was
+	 *         rejected
+	 */
+	private static boolean offer(Lane lane, Request<?> request) {
+		if (!lane.queue.offer(request)) {
+			request.reject(new RejectedExecutionException("Queue of lane " + lane.getName() + " is full."));
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * A queued operation that notifies its callback once it is done.
+	 *
+	 * @param <T>
+	 *            The type of the result
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Request<T> extends FutureTask<T> {
+
+		/** The key the request is ordered by. */
+		final long key;
+
+		/** The sequence number of the request. */
+		final long sequence;
+
+		/**
+		 * The number of lanes that have to reach this request before it is
+		 * executed, or {@code 0} if the request is not a barrier.
+		 */
+		final int parties;
+
+		/** The number of lanes that have reached this request. */
+		private final AtomicInteger arrivals = new AtomicInteger();
+
+		/** The callback to notify. */
+		private final Callback<T> callback;
+
+		/**
+		 * Creates a new request.
+		 *
+		 * @param key
+		 *            The key the request is ordered by
+		 * @param sequence
+		 *            The sequence number of the request
+		 * @param parties
+		 *            The number of lanes that have to reach the request
+		 *            before it is executed, or {@code 0} if the request is
+		 *            not a barrier
+		 * @param callable
+		 *            The operation
+		 * @param callback
+		 *            The callback to notify (may be {@code null})
+		 */
+		Request(long key, long sequence, int parties, Callable<T> callable, Callback<T> callback) {
+			super(callable);
+			this.key = key;
+			this.sequence = sequence;
+			this.parties = parties;
+			this.callback = callback;
+		}
+
+		/**
+		 * Returns whether this request is queued in more than one lane or has
+		 * to be executed in queue order.
+		 *
+		 * @return {@code true} if this request is a barrier, {@code false}
+		 *         otherwise
+		 */
+		boolean isBarrier() {
+			return parties > 0;
+		}
+
+		/**
+		 * Notes that a lane has reached this barrier.
+		 *
+		 * @return {@code true} if all lanes have reached this barrier and the
+		 *         calling lane has to execute it, {@code false} if the calling
+		 *         lane has to wait until it is done
+		 */
+		boolean arrive() {
+			return arrivals.incrementAndGet() == parties;
+		}
+
+		/**
+		 * Waits until this request is done, whether it succeeded or not.
+		 */
+		void await() {
+			boolean interrupted = false;
+			while (!isDone()) {
+				try {
+					get();
+				} catch (InterruptedException ie1) {
+					interrupted = true;
+				} catch (ExecutionException ee1) {
+					/* the request is done. */
+				} catch (CancellationException ce1) {
+					/* the request is done. */
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Fails this request without executing it.
+		 *
+		 * @param throwable
+		 *            The cause of the failure
+		 */
+		void reject(Throwable throwable) {
+			setException(throwable);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void done() {
+			if (callback == null) {
+				return;
+			}
+			try {
+				callback.completed(get());
+			} catch (CancellationException ce1) {
+				notifyFailure(ce1);
+			} catch (ExecutionException ee1) {
+				notifyFailure(ee1.getCause());
+			} catch (InterruptedException ie1) {
+				/* can not happen, the request is done. */
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException re1) {
+				/* the callback failed, the request is done anyway. */
+			}
+		}
+
+		/**
+		 * Notifies the callback that this request failed, ignoring exceptions
+		 * thrown by the callback.
+		 *
+		 * @param throwable
+		 *            The cause of the failure
+		 */
+		private void notifyFailure(Throwable throwable) {
+			try {
+				callback.failed(throwable);
+			} catch (RuntimeException re1) {
+				/* the callback failed, the request is done anyway. */
+			}
+		}
+
+	}
+
+	/**
+	 * A lane is a thread with a bounded queue that executes the queued
+	 * requests in batches.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Lane extends Thread {
+
+		/** The marker request that stops a lane. */
+		private static final Request<Void> STOP = new Request<Void>(Long.MAX_VALUE, Long.MAX_VALUE, 0, new Callable<Void>() {
+
+			@Override
+			public Void call() {
+				return null;
+			}
+
+		}, null);
+
+		/** The queued requests. */
+		final BlockingQueue<Request<?>> queue;
+
+		/**
+		 * Creates a new lane.
+		 *
+		 * @param index
+		 *            The index of the lane
+		 * @param queueSize
+		 *            The maximum number of queued requests
+		 */
+		Lane(int index, int queueSize) {
+			super("AsyncGraph Lane " + index);
+			setDaemon(true);
+			queue = new ArrayBlockingQueue<Request<?>>(queueSize);
+		}
+
+		/**
+		 * Stops this lane once all requests that are currently queued have
+		 * been executed.
+		 */
+		void finish() {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					queue.put(STOP);
+					break;
+				} catch (InterruptedException ie1) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			List<Request<?>> batch = new ArrayList<Request<?>>();
+			boolean stopped = false;
+			while (!stopped) {
+				try {
+					batch.add(queue.take());
+				} catch (InterruptedException ie1) {
+					break;
+				}
+				queue.drainTo(batch, MAXIMUM_BATCH_SIZE - 1);
+				int segmentStart = 0;
+				for (int index = 0; index <= batch.size(); ++index) {
+					if ((index < batch.size()) && !batch.get(index).isBarrier()) {
+						continue;
+					}
+					List<Request<?>> segment = batch.subList(segmentStart, index);
+					Collections.sort(segment, REQUEST_ORDER);
+					for (Request<?> request : segment) {
+						if (request == STOP) {
+							stopped = true;
+							continue;
+						}
+						execute(request);
+					}
+					if (index < batch.size()) {
+						Request<?> barrier = batch.get(index);
+						if (barrier.arrive()) {
+							execute(barrier);
+						} else {
+							barrier.await();
+						}
+					}
+					segmentStart = index + 1;
+				}
+				batch.clear();
+			}
+			/* reject everything that can not be executed anymore. */
+			queue.drainTo(batch);
+			for (Request<?> request : batch) {
+				if (request != STOP) {
+					request.reject(new RejectedExecutionException("Lane " + getName() + " has been stopped."));
+				}
+			}
+		}
+
+		/**
+		 * Executes the given request. Nothing the request or its callback
+		 * throws stops this lane.
+		 *
+		 * @param request
+		 *            The request to execute
+		 */
+		private static void execute(Request<?> request) {
+			try {
+				request.run();
+			} catch (Throwable t1) {
+				/* the request is done, the lane has to go on. */
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * utils.graph - Callback.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.async;
+
+/**
+ * Callback that is notified when an operation of an {@link AsyncGraph} has
+ * finished. Callbacks are called on the I/O thread that executed the
+ * operation and should therefore return quickly, e.g. by handing the result
+ * to an event loop.
+ *
+ * @param <T>
+ *            The type of the result
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public interface Callback<T> {
+
+	/**
+	 * Notifies the callback that the operation has finished successfully.
+	 *
+	 * @param result
+	 *            The result of the operation
+	 */
+	public void completed(T result);
+
+	/**
+	 * Notifies the callback that the operation has failed or could not be
+	 * scheduled.
+	 *
+	 * @param throwable
+	 *            The cause of the failure
+	 */
+	public void failed(Throwable throwable);
+
+}
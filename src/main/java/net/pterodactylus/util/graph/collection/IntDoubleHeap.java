@@ -0,0 +1,190 @@
+/*
+ * utils.graph - IntDoubleHeap.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.collection;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of {@code int} values with {@code double} priorities that
+ * stores values and priorities in primitive arrays. The heap does not support
+ * changing the priority of a value; algorithms like Dijkstra’s simply add the
+ * value again with the lower priority and skip the stale entry when it is
+ * removed.
+ * <p>
+ * This heap is not synchronized.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class IntDoubleHeap {
+
+	/** The values. */
+	private int[] values;
+
+	/** The priorities of the values. */
+	private double[] priorities;
+
+	/** The number of values. */
+	private int size;
+
+	/**
+	 * Creates a new, empty heap.
+	 */
+	public IntDoubleHeap() {
+		this(16);
+	}
+
+	/**
+	 * Creates a new, empty heap.
+	 *
+	 * @param expectedSize
+	 *            The expected number of values
+	 */
+	public IntDoubleHeap(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Expected size must not be negative!");
+		}
+		values = new int[Math.max(expectedSize, 16)];
+		priorities = new double[values.length];
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the number of values in this heap.
+	 *
+	 * @return The number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether this heap is empty.
+	 *
+	 * @return {@code true} if this heap does not contain any values,
+	 *         {@code false} otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the value with the lowest priority without removing it.
+	 *
+	 * @return The value with the lowest priority
+	 * @throws NoSuchElementException
+	 *             if this heap is empty
+	 */
+	public int peek() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return values[0];
+	}
+
+	/**
+	 * Returns the lowest priority of all values.
+	 *
+	 * @return The lowest priority
+	 * @throws NoSuchElementException
+	 *             if this heap is empty
+	 */
+	public double peekPriority() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return priorities[0];
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Adds the given value with the given priority.
+	 *
+	 * @param value
+	 *            The value to add
+	 * @param priority
+	 *            The priority of the value
+	 */
+	public void add(int value, double priority) {
+		if (size == values.length) {
+			int[] newValues = new int[values.length * 2];
+			System.arraycopy(values, 0, newValues, 0, size);
+			values = newValues;
+			double[] newPriorities = new double[priorities.length * 2];
+			System.arraycopy(priorities, 0, newPriorities, 0, size);
+			priorities = newPriorities;
+		}
+		int index = size++;
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (priorities[parent] <= priority) {
+				break;
+			}
+			values[index] = values[parent];
+			priorities[index] = priorities[parent];
+			index = parent;
+		}
+		values[index] = value;
+		priorities[index] = priority;
+	}
+
+	/**
+	 * Removes and returns the value with the lowest priority.
+	 *
+	 * @return The value with the lowest priority
+	 * @throws NoSuchElementException
+	 *             if this heap is empty
+	 */
+	public int remove() {
+		int first = peek();
+		int value = values[--size];
+		double priority = priorities[size];
+		int index = 0;
+		while (true) {
+			int child = (index << 1) + 1;
+			if (child >= size) {
+				break;
+			}
+			if (((child + 1) < size) && (priorities[child + 1] < priorities[child])) {
+				++child;
+			}
+			if (priority <= priorities[child]) {
+				break;
+			}
+			values[index] = values[child];
+			priorities[index] = priorities[child];
+			index = child;
+		}
+		values[index] = value;
+		priorities[index] = priority;
+		return first;
+	}
+
+	/**
+	 * Removes all values from this heap.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ * utils.graph - LongHashSet.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.collection;
+
+import java.util.Arrays;
+
+/**
+ * Set of {@code long} values that stores the values in a primitive array,
+ * using open addressing with linear probing. In contrast to a
+ * {@link java.util.HashSet HashSet&lt;Long&gt;} no objects are created for
+ * the values.
+ * <p>
+ * This set is not synchronized.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class LongHashSet {
+
+	/** The maximum ratio of values to slots. */
+	private static final float LOAD_FACTOR = 0.6f;
+
+	/** The values. */
+	private long[] values;
+
+	/** Whether a slot is used. */
+	private boolean[] used;
+
+	/** The number of values. */
+	private int size;
+
+	/** The number of values after which the table is enlarged. */
+	private int resizeThreshold;
+
+	/**
+	 * Creates a new, empty set.
+	 */
+	public LongHashSet() {
+		this(16);
+	}
+
+	/**
+	 * Creates a new, empty set.
+	 *
+	 * @param expectedSize
+	 *            The expected number of values
+	 */
+	public LongHashSet(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Expected size must not be negative!");
+		}
+		int capacity = 16;
+		while (capacity * LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the number of values in this set.
+	 *
+	 * @return The number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether this set contains no values.
+	 *
+	 * @return {@code true} if this set is empty, {@code false} otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns whether this set contains the given value.
+	 *
+	 * @param value
+	 *            The value
+	 * @return {@code true} if this set contains the value, {@code false}
+	 *         otherwise
+	 */
+	public boolean contains(long value) {
+		return used[findSlot(value)];
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Adds the given value to this set.
+	 *
+	 * @param value
+	 *            The value to add
+	 * @return {@code true} if the value was added, {@code false} if it was
+	 *         already contained in this set
+	 */
+	public boolean add(long value) {
+		int slot = findSlot(value);
+		if (used[slot]) {
+			return false;
+		}
+		used[slot] = true;
+		values[slot] = value;
+		if (++size > resizeThreshold) {
+			resize();
+		}
+		return true;
+	}
+
+	/**
+	 * Removes all values from this set.
+	 */
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns the slot that contains the given value, or the empty slot the
+	 * value would be stored in.
+	 *
+	 * @param value
+	 *            The value
+	 * @return The slot of the value
+	 */
+	private int findSlot(long value) {
+		int mask = values.length - 1;
+		int slot = hash(value) & mask;
+		while (used[slot] && (values[slot] != value)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Doubles the number of slots and re-inserts all values.
+	 */
+	private void resize() {
+		long[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(values.length << 1);
+		for (int slot = 0; slot < oldValues.length; ++slot) {
+			if (oldUsed[slot]) {
+				int newSlot = findSlot(oldValues[slot]);
+				used[newSlot] = true;
+				values[newSlot] = oldValues[slot];
+			}
+		}
+	}
+
+	/**
+	 * Allocates an empty table with the given number of slots.
+	 *
+	 * @param capacity
+	 *            The number of slots (a power of two)
+	 */
+	private void allocate(int capacity) {
+		values = new long[capacity];
+		used = new boolean[capacity];
+		resizeThreshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Spreads the bits of the given value.
+	 *
+	 * @param value
+	 *            The value
+	 * @return The hash of the value
+	 */
+	private static int hash(long value) {
+		long hash = value * 0x9e3779b97f4a7c15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+}
@@ -0,0 +1,277 @@
+/*
+ * utils.graph - LongIntHashMap.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.collection;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from {@code long} keys to {@code int} values that stores keys and
+ * values in primitive arrays, using open addressing with linear probing. In
+ * contrast to a {@link java.util.HashMap HashMap&lt;Long, Integer&gt;} no
+ * objects are created for entries, keys or values.
+ * <p>
+ * This map is not synchronized.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class LongIntHashMap {
+
+	/** The maximum ratio of entries to slots. */
+	private static final float LOAD_FACTOR = 0.6f;
+
+	/** The value that is returned for keys that are not in the map. */
+	private final int missingValue;
+
+	/** The keys. */
+	private long[] keys;
+
+	/** The values. */
+	private int[] values;
+
+	/** Whether a slot is used. */
+	private boolean[] used;
+
+	/** The number of entries. */
+	private int size;
+
+	/** The number of entries after which the table is enlarged. */
+	private int resizeThreshold;
+
+	/**
+	 * Creates a new map that returns {@code -1} for missing keys.
+	 */
+	public LongIntHashMap() {
+		this(16, -1);
+	}
+
+	/**
+	 * Creates a new map.
+	 *
+	 * @param expectedSize
+	 *            The expected number of entries
+	 * @param missingValue
+	 *            The value that is returned for keys that are not in the map
+	 */
+	public LongIntHashMap(int expectedSize, int missingValue) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Expected size must not be negative!");
+		}
+		this.missingValue = missingValue;
+		int capacity = 16;
+		while (capacity * LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the number of entries in this map.
+	 *
+	 * @return The number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether this map contains no entries.
+	 *
+	 * @return {@code true} if this map is empty, {@code false} otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns whether this map contains the given key.
+	 *
+	 * @param key
+	 *            The key
+	 * @return {@code true} if this map contains the key, {@code false}
+	 *         otherwise
+	 */
+	public boolean containsKey(long key) {
+		return used[findSlot(key)];
+	}
+
+	/**
+	 * Returns the value of the given key.
+	 *
+	 * @param key
+	 *            The key
+	 * @return The value of the key, or the missing value if the key is not in
+	 *         this map
+	 */
+	public int get(long key) {
+		int slot = findSlot(key);
+		return used[slot] ? values[slot] : missingValue;
+	}
+
+	/**
+	 * Returns all keys of this map, in no particular order.
+	 *
+	 * @return The keys of this map
+	 */
+	public long[] keys() {
+		long[] allKeys = new long[size];
+		int index = 0;
+		for (int slot = 0; slot < keys.length; ++slot) {
+			if (used[slot]) {
+				allKeys[index++] = keys[slot];
+			}
+		}
+		return allKeys;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Stores the given value for the given key.
+	 *
+	 * @param key
+	 *            The key
+	 * @param value
+	 *            The value
+	 * @return The previous value of the key, or the missing value if the key
+	 *         was not in this map
+	 */
+	public int put(long key, int value) {
+		int slot = findSlot(key);
+		if (used[slot]) {
+			int oldValue = values[slot];
+			values[slot] = value;
+			return oldValue;
+		}
+		used[slot] = true;
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > resizeThreshold) {
+			resize();
+		}
+		return missingValue;
+	}
+
+	/**
+	 * Removes the given key from this map. Entries that follow the key in its
+	 * probe sequence are shifted back so that no tombstones are necessary.
+	 *
+	 * @param key
+	 *            The key to remove
+	 * @return The value of the key, or the missing value if the key was not
+	 *         in this map
+	 */
+	public int remove(long key) {
+		int slot = findSlot(key);
+		if (!used[slot]) {
+			return missingValue;
+		}
+		int oldValue = values[slot];
+		int mask = keys.length - 1;
+		int gap = slot;
+		for (int next = (gap + 1) & mask; used[next]; next = (next + 1) & mask) {
+			int home = hash(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				gap = next;
+			}
+		}
+		used[gap] = false;
+		--size;
+		return oldValue;
+	}
+
+	/**
+	 * Removes all entries from this map.
+	 */
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns the slot that contains the given key, or the empty slot the key
+	 * would be stored in.
+	 *
+	 * @param key
+	 *            The key
+	 * @return The slot of the key
+	 */
+	private int findSlot(long key) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (used[slot] && (keys[slot] != key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Doubles the number of slots and re-inserts all entries.
+	 */
+	private void resize() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(keys.length << 1);
+		for (int slot = 0; slot < oldKeys.length; ++slot) {
+			if (oldUsed[slot]) {
+				int newSlot = findSlot(oldKeys[slot]);
+				used[newSlot] = true;
+				keys[newSlot] = oldKeys[slot];
+				values[newSlot] = oldValues[slot];
+			}
+		}
+	}
+
+	/**
+	 * Allocates empty tables with the given number of slots.
+	 *
+	 * @param capacity
+	 *            The number of slots (a power of two)
+	 */
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		resizeThreshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Spreads the bits of the given key.
+	 *
+	 * @param key
+	 *            The key
+	 * @return The hash of the key
+	 */
+	private static int hash(long key) {
+		long hash = key * 0x9e3779b97f4a7c15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+}
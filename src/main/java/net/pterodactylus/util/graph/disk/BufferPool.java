@@ -0,0 +1,178 @@
+/*
+ * utils.graph - BufferPool.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.storage.Allocation;
+import net.pterodactylus.util.storage.Storage;
+import net.pterodactylus.util.storage.StorageException;
+
+/**
+ * Buffer pool for the pages of the {@link RangeIndex}es of a {@link DiskStore}.
+ * Decoded pages are kept in an {@link ObjectCache}, so that the upper levels
+ * of frequently used indexes stay in memory. Modified pages are written
+ * through to the storage immediately.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class BufferPool {
+
+	/** The storage for the pages. */
+	private final Storage<RangeIndexPage> pageStorage;
+
+	/** The cache for decoded pages. */
+	private final ObjectCache<RangeIndexPage> pageCache;
+
+	/** The smallest ID of a page that is allocated by this pool. */
+	private final long firstPageId;
+
+	/** ID counter for new pages. */
+	private final AtomicLong pageCounter = new AtomicLong();
+
+	/**
+	 * Creates a new buffer pool.
+	 *
+	 * @param pageStorage
+	 *            The storage for the pages
+	 * @param cacheSize
+	 *            The maximum number of decoded pages to keep in memory
+	 *            ({@code 0} to disable caching)
+	 * @param firstPageId
+	 *            The smallest ID of a page that is allocated by this pool;
+	 *            smaller IDs are reserved for the root pages of the indexes
+	 */
+	BufferPool(Storage<RangeIndexPage> pageStorage, int cacheSize, long firstPageId) {
+		this.pageStorage = pageStorage;
+		this.pageCache = new ObjectCache<RangeIndexPage>(cacheSize);
+		this.firstPageId = firstPageId;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the page with the given ID.
+	 *
+	 * @param pageId
+	 *            The ID of the page
+	 * @return The page
+	 * @throws GraphException
+	 *             if the page does not exist or can not be loaded
+	 */
+	RangeIndexPage getPage(long pageId) throws GraphException {
+		RangeIndexPage page = pageCache.get(pageId);
+		if (page != null) {
+			return page;
+		}
+		try {
+			synchronized (pageStorage) {
+				page = pageStorage.load(pageId);
+			}
+		} catch (StorageException se1) {
+			throw new GraphException("Could not load index page: " + pageId, se1);
+		}
+		if (page == null) {
+			throw new GraphException("Index page " + pageId + " does not exist.");
+		}
+		pageCache.put(pageId, page);
+		return page;
+	}
+
+	/**
+	 * Returns the current statistics of the page cache.
+	 *
+	 * @return The statistics of the page cache
+	 */
+	CacheStatistics getStatistics() {
+		return pageCache.getStatistics();
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Opens the page storage and recovers the ID counter for new pages.
+	 *
+	 * @throws StorageException
+	 *             if the storage can not be opened
+	 */
+	void open() throws StorageException {
+		pageStorage.open();
+		long maximumPageId = firstPageId - 1;
+		for (int directoryIndex = 0; directoryIndex < pageStorage.getDirectorySize(); ++directoryIndex) {
+			Allocation allocation = pageStorage.getAllocation(directoryIndex);
+			if (allocation != null) {
+				maximumPageId = Math.max(maximumPageId, allocation.getId());
+			}
+		}
+		pageCounter.set(maximumPageId + 1);
+	}
+
+	/**
+	 * Returns a new, unused page ID.
+	 *
+	 * @return A new page ID
+	 */
+	long allocatePageId() {
+		return pageCounter.getAndIncrement();
+	}
+
+	/**
+	 * Stores the given page.
+	 *
+	 * @param page
+	 *            The page to store
+	 * @throws GraphException
+	 *             if the page can not be stored
+	 */
+	void storePage(RangeIndexPage page) throws GraphException {
+		try {
+			synchronized (pageStorage) {
+				pageStorage.add(page);
+			}
+			pageCache.put(page.getId(), page);
+		} catch (StorageException se1) {
+			pageCache.invalidate(page.getId());
+			throw new GraphException("Could not store index page: " + page.getId(), se1);
+		}
+	}
+
+	/**
+	 * Removes the page with the given ID.
+	 *
+	 * @param pageId
+	 *            The ID of the page
+	 * @throws GraphException
+	 *             if the page can not be removed
+	 */
+	void removePage(long pageId) throws GraphException {
+		pageCache.invalidate(pageId);
+		try {
+			synchronized (pageStorage) {
+				pageStorage.remove(new RangeIndexPage(pageId, true));
+			}
+		} catch (StorageException se1) {
+			throw new GraphException("Could not remove index page: " + pageId, se1);
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * utils.graph - CacheStatistics.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+/**
+ * Snapshot of the statistics of one of the object caches of a
+ * {@link DiskStore}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class CacheStatistics {
+
+	/** The maximum number of objects in the cache. */
+	private final int capacity;
+
+	/** The current number of objects in the cache. */
+	private final int size;
+
+	/** The number of lookups that were answered from the cache. */
+	private final long hits;
+
+	/** The number of lookups that were not answered from the cache. */
+	private final long misses;
+
+	/** The number of objects that were evicted from the cache. */
+	private final long evictions;
+
+	/**
+	 * Creates new cache statistics.
+	 *
+	 * @param capacity
+	 *            The maximum number of objects in the cache
+	 * @param size
+	 *            The current number of objects in the cache
+	 * @param hits
+	 *            The number of cache hits
+	 * @param misses
+	 *            The number of cache misses
+	 * @param evictions
+	 *            The number of evicted objects
+	 */
+	CacheStatistics(int capacity, int size, long hits, long misses, long evictions) {
+		this.capacity = capacity;
+		this.size = size;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+	}
+
+	/**
+	 * Returns the maximum number of objects in the cache.
+	 *
+	 * @return The capacity of the cache
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of objects in the cache.
+	 *
+	 * @return The size of the cache
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of lookups that were answered from the cache.
+	 *
+	 * @return The number of cache hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that had to go to the storage.
+	 *
+	 * @return The number of cache misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of objects that were evicted from the cache to make
+	 * room for other objects.
+	 *
+	 * @return The number of evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the ratio of hits to all lookups.
+	 *
+	 * @return The hit rate of the cache, or {@code 0} if there were no lookups
+	 *         yet
+	 */
+	public double getHitRate() {
+		long requests = hits + misses;
+		return (requests == 0) ? 0 : (double) hits / requests;
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[capacity=" + capacity + ",size=" + size + ",hits=" + hits + ",misses=" + misses + ",evictions=" + evictions + "]";
+	}
+
+}
@@ -17,12 +17,20 @@
 
 package net.pterodactylus.util.graph.disk;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+import net.pterodactylus.util.graph.AbstractGraph;
 import net.pterodactylus.util.graph.Edge;
 import net.pterodactylus.util.graph.Graph;
 import net.pterodactylus.util.graph.GraphException;
 import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.PropertyIndex;
+import net.pterodactylus.util.graph.RandomAccessGraph;
+import net.pterodactylus.util.graph.Relationship;
 import net.pterodactylus.util.validation.Validation;
 
 /**
@@ -30,7 +38,7 @@ import net.pterodactylus.util.validation.Validation;
  *
  * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
  */
-class DiskGraph implements Graph {
+class DiskGraph extends AbstractGraph implements RandomAccessGraph {
 
 	/** The disk store. */
 	private final DiskStore store;
@@ -114,6 +122,78 @@ class DiskGraph implements Graph {
 		return store.getRelationship(name);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Relationship> getRelationships() {
+		return store.getRelationships();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The nodes are returned in the order they are stored on disk.
+	 */
+	@Override
+	public Iterator<Node> getNodes() {
+		final Iterator<Long> nodeIds = store.getNodeIds();
+		return new Iterator<Node>() {
+
+			/** The next node, or {@code null} if it has not been loaded yet. */
+			private Node nextNode;
+
+			@Override
+			public boolean hasNext() {
+				while ((nextNode == null) && nodeIds.hasNext()) {
+					try {
+						/* the node might have been removed in the meantime. */
+						nextNode = store.getNode(nodeIds.next());
+					} catch (GraphException ge1) {
+						throw new IllegalStateException("Could not load node.", ge1);
+					}
+				}
+				return nextNode != null;
+			}
+
+			@Override
+			public Node next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Node node = nextNode;
+				nextNode = null;
+				return node;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DiskNode getNode(long nodeId) throws GraphException {
+		return store.getNode(nodeId);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The node-edge lists of the given nodes are loaded in the order of the
+	 * node IDs, once per node.
+	 */
+	@Override
+	public long[][] getLinkedNodeIds(long[] nodeIds, Collection<? extends Relationship> relationships, boolean outgoing) throws GraphException {
+		Validation.begin().isNotNull("Node IDs", nodeIds).isNotNull("Relationships", relationships).check();
+		return store.getLinkedNodeIds(nodeIds, relationships, outgoing);
+	}
+
 	//
 	// ACTIONS
 	//
@@ -124,20 +204,85 @@ class DiskGraph implements Graph {
 	@Override
 	public DiskNode createNode() throws GraphException {
 		DiskNode node = store.createNode();
+		fireNodeCreated(node);
 		return node;
 	}
 
 	/**
-	 * Stores the given node in the store. This method should be called after a
-	 * node’s properties have changed.
+	 * Sets a property of the given node, stores the node, updates the range
+	 * index and the property indexes, and notifies all listeners.
 	 *
 	 * @param node
-	 *            The node to store
+	 *            The node
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The new value of the property
 	 * @throws GraphException
 	 *             if the node can not be stored
 	 */
-	void storeNode(DiskNode node) throws GraphException {
-		store.storeNode(node);
+	void setProperty(DiskNode node, String key, Object value) throws GraphException {
+		Object oldValue = store.setProperty(node, key, value);
+		firePropertyChanged(node, key, oldValue, value);
+	}
+
+	/**
+	 * Updates the property index of the given key after a property of the
+	 * given node was changed, without notifying any listeners.
+	 *
+	 * @param node
+	 *            The node
+	 * @param key
+	 *            The key of the property
+	 * @param oldValue
+	 *            The old value of the property
+	 * @param newValue
+	 *            The new value of the property
+	 * @throws GraphException
+	 *             if the index can not be updated
+	 */
+	void indexProperty(DiskNode node, String key, Object oldValue, Object newValue) throws GraphException {
+		updatePropertyIndex(node, key, oldValue, newValue);
+	}
+
+	/**
+	 * Removes the properties of the given, removed node from all property
+	 * indexes, without notifying any listeners.
+	 *
+	 * @param node
+	 *            The removed node
+	 * @return The removed properties, to be reported with
+	 *         {@link #notifyPropertiesRemoved(DiskNode, Map)}
+	 * @throws GraphException
+	 *             if an index can not be updated
+	 */
+	Map<String, Object> unindexProperties(DiskNode node) throws GraphException {
+		Map<String, Object> removedProperties = getRemovedProperties(node);
+		removeFromPropertyIndexes(node, removedProperties);
+		return removedProperties;
+	}
+
+	/**
+	 * Notifies all listeners that the given properties of the given, removed
+	 * node were removed.
+	 *
+	 * @param node
+	 *            The removed node
+	 * @param removedProperties
+	 *            The removed properties
+	 */
+	void notifyPropertiesRemoved(DiskNode node, Map<String, Object> removedProperties) {
+		firePropertiesRemoved(node, removedProperties);
+	}
+
+	/**
+	 * Adds a property index that was loaded from the store.
+	 *
+	 * @param propertyIndex
+	 *            The property index to add
+	 */
+	void restorePropertyIndex(PropertyIndex propertyIndex) {
+		addPropertyIndex(propertyIndex);
 	}
 
 	/**
@@ -149,7 +294,12 @@ class DiskGraph implements Graph {
 	@Override
 	public void removeNode(Node node) throws GraphException {
 		Validation.begin().isNotNull("Node", node).check().isEqual("Node’s Graph", node.getGraph(), this).isInstanceOf("Node", node, DiskNode.class).check();
+		Set<Edge> edges = hasGraphListeners() ? getEdges(node) : null;
 		store.removeNode((DiskNode) node);
+		if (edges != null) {
+			fireEdgesRemoved(edges);
+			fireNodeRemoved(node);
+		}
 	}
 
 	/**
@@ -179,15 +329,25 @@ class DiskGraph implements Graph {
 	 *            The end node of the edge
 	 * @param relationship
 	 *            The relationship of the nodes
-	 * @return The newly created edge
+	 * @return {@code true} if a new edge was created, {@code false} if an edge
+	 *         already existed
 	 * @throws GraphException
 	 *             if the edge can not be created
 	 */
 	boolean createEdge(DiskNode startNode, DiskNode endNode, DiskRelationship relationship) throws GraphException {
-		if (hasEdge(startNode, endNode, relationship)) {
+		validateEdge(startNode, endNode, relationship);
+		DiskEdge edge = null;
+		try {
+			edge = store.createEdge(startNode, endNode, relationship);
+		} finally {
+			if (edge == null) {
+				fireEdgeNotCreated(startNode, endNode, relationship);
+			}
+		}
+		if (edge == null) {
 			return false;
 		}
-		store.createEdge(startNode, endNode, relationship);
+		fireEdgeCreated(edge);
 		return true;
 	}
 
@@ -206,7 +366,28 @@ class DiskGraph implements Graph {
 	 *             if the edge can not be removed
 	 */
 	boolean removeEdge(DiskNode startNode, DiskNode endNode, DiskRelationship relationship) throws GraphException {
-		return store.removeEdge(startNode, endNode, relationship);
+		DiskEdge edge = hasGraphListeners() ? store.getEdge(startNode, endNode, relationship) : null;
+		if (!store.removeEdge(startNode, endNode, relationship)) {
+			return false;
+		}
+		if (edge != null) {
+			fireEdgeRemoved(edge);
+		}
+		return true;
+	}
+
+	//
+	// ABSTRACTGRAPH METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The index is stored in the disk store.
+	 */
+	@Override
+	protected PropertyIndex createPropertyIndex(String key) throws GraphException {
+		return store.createPropertyIndex(key);
 	}
 
 }
@@ -68,14 +68,33 @@ class DiskNode extends AbstractNode implements Storable {
 
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * The property is changed, the node is stored, and the indexes are updated
+	 * while holding the lock of this node in the store; listeners are notified
+	 * afterwards.
 	 */
 	@Override
 	public DiskNode set(String key, Object value) throws GraphException {
-		super.set(key, value);
-		((DiskGraph) getGraph()).storeNode(this);
+		((DiskGraph) getGraph()).setProperty(this, key, value);
 		return this;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized Object get(String key) {
+		return super.get(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized Set<String> getPropertyKeys() {
+		return super.getPropertyKeys();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -112,6 +131,32 @@ class DiskNode extends AbstractNode implements Storable {
 		return ((DiskGraph) getGraph()).getEdgesFrom(this, (DiskRelationship) relationship);
 	}
 
+	/**
+	 * Changes a property of this node without storing it.
+	 *
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The new value of the property
+	 * @return The old value of the property
+	 * @throws GraphException
+	 *             if the property can not be changed
+	 */
+	synchronized Object putProperty(String key, Object value) throws GraphException {
+		Object oldValue = super.get(key);
+		super.set(key, value);
+		return oldValue;
+	}
+
+	/**
+	 * Returns the number of properties of this node.
+	 *
+	 * @return The number of properties
+	 */
+	synchronized int getPropertyCount() {
+		return getProperties().size();
+	}
+
 	//
 	// ABSTRACTNODE METHODS
 	//
@@ -120,7 +165,7 @@ class DiskNode extends AbstractNode implements Storable {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void setProperties(Map<String, Object> properties) {
+	protected synchronized void setProperties(Map<String, Object> properties) {
 		super.setProperties(properties);
 	}
 
@@ -155,7 +200,7 @@ class DiskNode extends AbstractNode implements Storable {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public byte[] getBuffer() throws StorageException {
+	public synchronized byte[] getBuffer() throws StorageException {
 		ByteArrayOutputStream contentStream = null;
 		ObjectOutputStream objectStream = null;
 		try {
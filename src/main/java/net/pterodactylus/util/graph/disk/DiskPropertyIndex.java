@@ -0,0 +1,118 @@
+/*
+ * utils.graph - DiskPropertyIndex.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.util.Map;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.PropertyIndex;
+
+/**
+ * {@link PropertyIndex} of a {@link DiskStore} that stores every change in
+ * the store, so that it does not have to be rebuilt when the store is loaded
+ * again.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class DiskPropertyIndex extends PropertyIndex {
+
+	/** The store. */
+	private final DiskStore store;
+
+	/** The number of this index within the store. */
+	private final int number;
+
+	/**
+	 * Creates a new disk property index.
+	 *
+	 * @param store
+	 *            The store
+	 * @param number
+	 *            The number of this index within the store
+	 * @param key
+	 *            The indexed property key
+	 */
+	DiskPropertyIndex(DiskStore store, int number, String key) {
+		super(key);
+		this.store = store;
+		this.number = number;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the number of this index within the store.
+	 *
+	 * @return The number of this index
+	 */
+	int getNumber() {
+		return number;
+	}
+
+	/**
+	 * Returns the IDs of all indexed nodes with their values.
+	 *
+	 * @return The values of all indexed nodes, by node ID
+	 */
+	Map<Long, Object> getIndexedValues() {
+		return getValues();
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Adds a stored entry to this index.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param value
+	 *            The value of the property
+	 */
+	void restoreEntry(long nodeId, Object value) {
+		restore(nodeId, null, value);
+	}
+
+	//
+	// PROPERTYINDEX METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void nodeUpdated(long nodeId, Object oldValue, Object newValue) throws GraphException {
+		if (newValue == null) {
+			store.removeIndexEntry(number, nodeId);
+		} else {
+			store.storeIndexEntry(number, nodeId, newValue);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void dropped() throws GraphException {
+		store.removePropertyIndex(this);
+	}
+
+}
@@ -18,20 +18,35 @@
 package net.pterodactylus.util.graph.disk;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import net.pterodactylus.util.graph.Edge;
 import net.pterodactylus.util.graph.Graph;
 import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Relationship;
 import net.pterodactylus.util.graph.Store;
+import net.pterodactylus.util.graph.collection.LongHashSet;
+import net.pterodactylus.util.io.Closer;
 import net.pterodactylus.util.storage.Allocation;
 import net.pterodactylus.util.storage.Factory;
 import net.pterodactylus.util.storage.Storable;
@@ -41,11 +56,35 @@ import net.pterodactylus.util.validation.Validation;
 
 /**
  * {@link Store} implementation that stores the complete graph on disk.
+ * <p>
+ * A disk store is safe for concurrent use. Modifications of a node and its
+ * node-edge list are guarded by a striped lock that is selected by the ID of
+ * the node; creating or removing an edge locks the stripes of both nodes (in
+ * ascending stripe order to prevent deadlocks). Node-edge lists are never
+ * modified after they have been stored: modifications work on a copy that
+ * replaces the stored and cached version, so reads that can be answered from
+ * the caches do not have to acquire any of the striped locks. Access to each
+ * of the underlying {@link Storage}s is serialized.
  *
  * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
  */
 public class DiskStore implements Store {
 
+	/** The default number of objects in each object cache. */
+	public static final int DEFAULT_CACHE_SIZE = 4096;
+
+	/** The number of lock stripes for nodes and node-edge lists. */
+	private static final int LOCK_STRIPES = 256;
+
+	/** The maximum number of property indexes. */
+	private static final int MAXIMUM_PROPERTY_INDEXES = 256;
+
+	/**
+	 * The maximum number of range indexes; the page IDs below this number are
+	 * the root pages of the range indexes.
+	 */
+	private static final int MAXIMUM_RANGE_INDEXES = 256;
+
 	/** {@link Factory} that can create {@link DiskRelationship}s. */
 	@SuppressWarnings("synthetic-access")
 	public final Factory<DiskRelationship> DISK_RELATIONSHIP_FACTORY = new DiskRelationshipFactory();
@@ -57,22 +96,40 @@ public class DiskStore implements Store {
 	@SuppressWarnings("synthetic-access")
 	private static final Factory<NodeEdgeList> NODE_EDGE_LIST_FACTORY = new NodeEdgeListFactory();
 
+	/** {@link Factory} that can create {@link IndexEntry}s. */
+	@SuppressWarnings("synthetic-access")
+	private static final Factory<IndexEntry> INDEX_ENTRY_FACTORY = new IndexEntryFactory();
+
+	/** {@link Factory} that can create {@link RangeIndexPage}s. */
+	@SuppressWarnings("synthetic-access")
+	private static final Factory<RangeIndexPage> RANGE_INDEX_PAGE_FACTORY = new RangeIndexPageFactory();
+
 	/** ID Counter for new nodes. */
-	private static long nodeCounter = 0;
+	private final AtomicLong nodeCounter = new AtomicLong();
 
 	/** ID counter for new edges. */
-	private static long edgeCounter = 0;
+	private final AtomicLong edgeCounter = new AtomicLong();
 
 	/** ID counter for new relationships. */
-	private static long relationshipCounter = 0;
+	private final AtomicLong relationshipCounter = new AtomicLong();
 
 	/** The graph of this store. */
 	private DiskGraph graph;
 
+	/** Whether this store rejects all modifications. */
+	private final boolean readOnly;
+
 	/** Cache for relationships. */
-	private final Map<String, DiskRelationship> relationships = new HashMap<String, DiskRelationship>();
+	private final ConcurrentMap<String, DiskRelationship> relationships = new ConcurrentHashMap<String, DiskRelationship>();
 
-	/** The storage for the node-edge lists. */
+	/** The striped locks for nodes and node-edge lists. */
+	private final ReadWriteLock[] nodeLocks = createLocks(LOCK_STRIPES);
+
+	/**
+	 * The storage for the node-edge lists. Storages are not thread-safe, so
+	 * all accesses to a storage synchronize on it; reads only reach the
+	 * storage on a cache miss.
+	 */
 	private final Storage<NodeEdgeList> nodeEdgeListStorage;
 
 	/** The storage for the nodes. */
@@ -81,6 +138,57 @@ public class DiskStore implements Store {
 	/** The storage for the relationships. */
 	private final Storage<DiskRelationship> relationshipStorage;
 
+	/**
+	 * The storage for the keys of the property indexes, by index number
+	 * ({@code null} for a read-only store without property indexes).
+	 */
+	private final Storage<IndexEntry> indexStorage;
+
+	/**
+	 * The storage for the values of the property indexes ({@code null} for a
+	 * read-only store without property indexes).
+	 */
+	private final Storage<IndexEntry> indexEntryStorage;
+
+	/** The property indexes, by index number. */
+	private final DiskPropertyIndex[] propertyIndexes = new DiskPropertyIndex[MAXIMUM_PROPERTY_INDEXES];
+
+	/**
+	 * The storage for the keys of the range indexes, by index number
+	 * ({@code null} for a read-only store without range indexes).
+	 */
+	private final Storage<IndexEntry> rangeIndexStorage;
+
+	/**
+	 * The buffer pool for the pages of the range indexes ({@code null} for a
+	 * read-only store without range indexes).
+	 */
+	private final BufferPool bufferPool;
+
+	/**
+	 * The storage for the modification stamp ({@code null} for a read-only
+	 * store without modification stamp).
+	 */
+	private final Storage<IndexEntry> stampStorage;
+
+	/** The modification stamp. */
+	private volatile long modificationStamp;
+
+	/**
+	 * Whether the graph has been modified since the modification stamp was
+	 * last returned.
+	 */
+	private volatile boolean modified;
+
+	/** The range indexes, by property key. */
+	private final ConcurrentMap<String, RangeIndex> rangeIndexes = new ConcurrentHashMap<String, RangeIndex>();
+
+	/** The cache for decoded node-edge lists. */
+	private final ObjectCache<NodeEdgeList> nodeEdgeListCache;
+
+	/** The cache for decoded nodes. */
+	private final ObjectCache<DiskNode> nodeCache;
+
 	/**
 	 * Creates a new disk store in or loads a disk store from the given
 	 * directory.
@@ -106,14 +214,84 @@ public class DiskStore implements Store {
 	 *             directory
 	 */
 	public DiskStore(File directory) throws GraphException {
-		Validation.begin().isNotNull("Directory", directory).check();
-		if (!directory.exists() || !directory.isDirectory() || !directory.canWrite()) {
+		this(directory, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Creates a new disk store in or loads a disk store from the given
+	 * directory.
+	 *
+	 * @param directory
+	 *            The directory to create the store in or to load the store from
+	 * @param cacheSize
+	 *            The maximum number of decoded nodes and the maximum number of
+	 *            decoded node-edge lists to keep in memory ({@code 0} to
+	 *            disable caching)
+	 * @throws GraphException
+	 *             if the store can not be created in or loaded from the given
+	 *             directory
+	 */
+	public DiskStore(File directory, int cacheSize) throws GraphException {
+		this(directory, cacheSize, false);
+	}
+
+	/**
+	 * Creates a new disk store in or loads a disk store from the given
+	 * directory. A read-only store does not need write access to the
+	 * directory; it requires that the directory already contains a store,
+	 * does not create the storages for indexes that a store written by an
+	 * older version does not have, does not recover the ID counters, and
+	 * rejects all modifications of the graph with a {@link GraphException}. Any number of read-only stores
+	 * (even from different processes) can share the same directory, as long
+	 * as no writable store modifies it at the same time.
+	 *
+	 * @param directory
+	 *            The directory to create the store in or to load the store from
+	 * @param cacheSize
+	 *            The maximum number of decoded nodes and the maximum number of
+	 *            decoded node-edge lists to keep in memory ({@code 0} to
+	 *            disable caching)
+	 * @param readOnly
+	 *            {@code true} to open the store read-only, {@code false} to
+	 *            open it for reading and writing
+	 * @throws GraphException
+	 *             if the store can not be created in or loaded from the given
+	 *             directory
+	 */
+	public DiskStore(File directory, int cacheSize, boolean readOnly) throws GraphException {
+		Validation.begin().isNotNull("Directory", directory).check().isGreaterOrEqual("Cache Size", cacheSize, 0).check();
+		if (readOnly) {
+			if (!directory.exists() || !directory.isDirectory() || !directory.canRead()) {
+				throw new GraphException("“" + directory + "” is not a readable directory.");
+			}
+		} else if (!directory.exists() || !directory.isDirectory() || !directory.canWrite()) {
 			throw new GraphException("“" + directory + "” is not a writable directory.");
 		}
+		this.readOnly = readOnly;
+		nodeCache = new ObjectCache<DiskNode>(cacheSize);
+		nodeEdgeListCache = new ObjectCache<NodeEdgeList>(cacheSize);
 		try {
+			if (readOnly && (!storageExists(directory, "relationships") || !storageExists(directory, "nodes") || !storageExists(directory, "edges"))) {
+				throw new GraphException("Read-only store does not contain a graph!");
+			}
 			relationshipStorage = new Storage<DiskRelationship>(128, DISK_RELATIONSHIP_FACTORY, directory, "relationships");
 			nodeStorage = new Storage<DiskNode>(512, DISK_NODE_FACTORY, directory, "nodes");
 			nodeEdgeListStorage = new Storage<NodeEdgeList>(64, NODE_EDGE_LIST_FACTORY, directory, "edges");
+			if (!readOnly || (storageExists(directory, "indexes") && storageExists(directory, "index-entries"))) {
+				indexStorage = new Storage<IndexEntry>(128, INDEX_ENTRY_FACTORY, directory, "indexes");
+				indexEntryStorage = new Storage<IndexEntry>(64, INDEX_ENTRY_FACTORY, directory, "index-entries");
+			} else {
+				indexStorage = null;
+				indexEntryStorage = null;
+			}
+			if (!readOnly || (storageExists(directory, "range-indexes") && storageExists(directory, "range-index-pages"))) {
+				rangeIndexStorage = new Storage<IndexEntry>(128, INDEX_ENTRY_FACTORY, directory, "range-indexes");
+				bufferPool = new BufferPool(new Storage<RangeIndexPage>(512, RANGE_INDEX_PAGE_FACTORY, directory, "range-index-pages"), cacheSize, MAXIMUM_RANGE_INDEXES);
+			} else {
+				rangeIndexStorage = null;
+				bufferPool = null;
+			}
+			stampStorage = (!readOnly || storageExists(directory, "stamps")) ? new Storage<IndexEntry>(64, INDEX_ENTRY_FACTORY, directory, "stamps") : null;
 			loadDiskStore();
 		} catch (IOException ioe1) {
 			throw new GraphException("Could not create store in or load store from “" + directory + "”!", ioe1);
@@ -134,7 +312,9 @@ public class DiskStore implements Store {
 	 *             if the node can not be created
 	 */
 	DiskNode createNode() throws GraphException {
-		DiskNode node = new DiskNode(nodeCounter++, graph);
+		verifyWritable();
+		markModified();
+		DiskNode node = new DiskNode(nodeCounter.getAndIncrement(), graph);
 		storeNode(node);
 		return node;
 	}
@@ -150,14 +330,17 @@ public class DiskStore implements Store {
 	 */
 	DiskNode getNode(long nodeId) throws GraphException {
 		try {
-			return nodeStorage.load(nodeId);
+			return loadNode(nodeId);
 		} catch (StorageException se1) {
 			throw new GraphException("Could not load node:" + nodeId + "!", se1);
 		}
 	}
 
 	/**
-	 * Removes the given node and all edges to or from it from the storage.
+	 * Removes the given node and all edges to or from it from the storage. The
+	 * node itself is removed first so that {@link #createEdge(DiskNode,
+	 * DiskNode, DiskRelationship)} can not link to it anymore while its edges
+	 * are being removed.
 	 *
 	 * @param node
 	 *            The node to remove
@@ -165,13 +348,79 @@ public class DiskStore implements Store {
 	 *             if the node could not be removed
 	 */
 	void removeNode(DiskNode node) throws GraphException {
+		verifyWritable();
+		markModified();
+		Map<String, Object> removedProperties;
 		try {
-			NodeEdgeList nodeEdges = nodeEdgeListStorage.load(node.getId());
-			nodeEdgeListStorage.remove(nodeEdges);
-			nodeStorage.remove(node);
+			Lock lock = getLock(node.getId()).writeLock();
+			lock.lock();
+			try {
+				nodeCache.invalidate(node.getId());
+				synchronized (nodeStorage) {
+					nodeStorage.remove(node);
+				}
+				removedProperties = graph.unindexProperties(node);
+				for (RangeIndex rangeIndex : rangeIndexes.values()) {
+					rangeIndex.update(node.getId(), node.get(rangeIndex.getKey()), null);
+				}
+			} finally {
+				lock.unlock();
+			}
+			NodeEdgeList nodeEdges = loadNodeEdgeList(node.getId());
+			if (nodeEdges != null) {
+				for (int index = 0, size = nodeEdges.size(); index < size; ++index) {
+					removeEdge(nodeEdges.getEdgeId(index), nodeEdges.getStartNodeId(index), nodeEdges.getEndNodeId(index));
+				}
+			}
+			lock.lock();
+			try {
+				nodeEdges = loadNodeEdgeList(node.getId());
+				nodeEdgeListCache.invalidate(node.getId());
+				if (nodeEdges != null) {
+					synchronized (nodeEdgeListStorage) {
+						nodeEdgeListStorage.remove(nodeEdges);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
 		} catch (StorageException se1) {
 			throw new GraphException("Could not remove node: " + node, se1);
 		}
+		graph.notifyPropertiesRemoved(node, removedProperties);
+	}
+
+	/**
+	 * Sets a property of the given node, stores the node, and updates the
+	 * range index and the property index of the key while holding the lock of
+	 * the node, so that concurrent changes of a node update the indexes in the
+	 * same order as the node.
+	 *
+	 * @param node
+	 *            The node
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The new value of the property
+	 * @return The old value of the property
+	 * @throws GraphException
+	 *             if the node can not be stored or an index can not be
+	 *             updated
+	 */
+	Object setProperty(DiskNode node, String key, Object value) throws GraphException {
+		verifyWritable();
+		markModified();
+		Lock lock = getLock(node.getId()).writeLock();
+		lock.lock();
+		try {
+			Object oldValue = node.putProperty(key, value);
+			storeNode(node);
+			updateRangeIndex(node.getId(), key, oldValue, value);
+			graph.indexProperty(node, key, oldValue, value);
+			return oldValue;
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -184,15 +433,25 @@ public class DiskStore implements Store {
 	 *             if the node can not be stored
 	 */
 	void storeNode(DiskNode node) throws GraphException {
+		verifyWritable();
+		Lock lock = getLock(node.getId()).writeLock();
+		lock.lock();
 		try {
-			nodeStorage.add(node);
+			synchronized (nodeStorage) {
+				nodeStorage.add(node);
+			}
+			nodeCache.put(node.getId(), node);
 		} catch (StorageException se1) {
+			nodeCache.invalidate(node.getId());
 			throw new GraphException("Could not store node: " + node, se1);
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	/**
-	 * Creates a new edge.
+	 * Creates a new edge, unless an edge with the given relationship between
+	 * the given nodes already exists.
 	 *
 	 * @param startNode
 	 *            The start node of the edge
@@ -200,22 +459,34 @@ public class DiskStore implements Store {
 	 *            The end node of the edge
 	 * @param relationship
 	 *            The relationship between the two nodes
-	 * @return The new edge
+	 * @return The new edge, or {@code null} if the edge already existed
 	 * @throws GraphException
-	 *             if the edge can not be created
+	 *             if one of the nodes has been removed, or if the edge can not
+	 *             be created
 	 */
 	DiskEdge createEdge(DiskNode startNode, DiskNode endNode, DiskRelationship relationship) throws GraphException {
-		DiskEdge edge = new DiskEdge(edgeCounter++, graph, startNode, endNode, relationship);
+		verifyWritable();
+		markModified();
+		Lock[] locks = lockNodes(startNode.getId(), endNode.getId());
 		try {
-			NodeEdgeList nodeEdges = getNodeEdgeList(startNode.getId());
+			if ((loadNode(startNode.getId()) == null) || (loadNode(endNode.getId()) == null)) {
+				throw new GraphException("Can not link removed node, startNode: " + startNode + ", endNode: " + endNode + "!");
+			}
+			if (findEdge(loadNodeEdgeList(startNode.getId()), startNode.getId(), endNode.getId(), relationship.getId()) != -1) {
+				return null;
+			}
+			DiskEdge edge = new DiskEdge(edgeCounter.getAndIncrement(), graph, startNode, endNode, relationship);
+			NodeEdgeList nodeEdges = copyNodeEdgeList(startNode.getId());
 			nodeEdges.addEdge(edge.getId(), startNode.getId(), endNode.getId(), relationship.getId());
-			nodeEdgeListStorage.add(nodeEdges);
-			nodeEdges = getNodeEdgeList(endNode.getId());
+			storeNodeEdgeList(nodeEdges);
+			nodeEdges = copyNodeEdgeList(endNode.getId());
 			nodeEdges.addEdge(edge.getId(), startNode.getId(), endNode.getId(), relationship.getId());
-			nodeEdgeListStorage.add(nodeEdges);
+			storeNodeEdgeList(nodeEdges);
 			return edge;
 		} catch (StorageException se1) {
 			throw new GraphException("Could not create edge for startNode: " + startNode + ", endNode: " + endNode + ", relationship: " + relationship + "!", se1);
+		} finally {
+			unlock(locks);
 		}
 	}
 
@@ -237,8 +508,11 @@ public class DiskStore implements Store {
 	 */
 	Set<Edge> getEdges(DiskNode startNode, DiskNode endNode, DiskRelationship relationship) throws GraphException {
 		try {
-			NodeEdgeList nodeEdges = nodeEdgeListStorage.load((startNode != null) ? startNode.getId() : endNode.getId());
+			NodeEdgeList nodeEdges = loadNodeEdgeList((startNode != null) ? startNode.getId() : endNode.getId());
 			Set<Edge> edges = new HashSet<Edge>();
+			if (nodeEdges == null) {
+				return edges;
+			}
 			for (int index = 0, size = nodeEdges.size(); index < size; ++index) {
 				if (nodeEdges.getRelationshipId(index) != relationship.getId()) {
 					continue;
@@ -249,132 +523,889 @@ public class DiskStore implements Store {
 				if ((endNode != null) && (nodeEdges.getEndNodeId(index) != endNode.getId())) {
 					continue;
 				}
-				DiskNode loadedStartNode = (startNode != null) ? startNode : nodeStorage.load(nodeEdges.getStartNodeId(index));
-				DiskNode loadedEndNode = (endNode != null) ? endNode : nodeStorage.load(nodeEdges.getEndNodeId(index));
+				DiskNode loadedStartNode = (startNode != null) ? startNode : loadNode(nodeEdges.getStartNodeId(index));
+				DiskNode loadedEndNode = (endNode != null) ? endNode : loadNode(nodeEdges.getEndNodeId(index));
 				edges.add(new DiskEdge(nodeEdges.getEdgeId(index), graph, loadedStartNode, loadedEndNode, relationship));
 			}
-			return edges;
+			return edges;
+		} catch (StorageException se1) {
+			throw new GraphException("Could not get edges for startNode: " + startNode + ", endNode: " + endNode + ", relationship: " + relationship + "!", se1);
+		}
+	}
+
+	/**
+	 * Returns the IDs of all nodes that are linked to the node with the given
+	 * ID with the given relationship. In contrast to
+	 * {@link #getEdges(DiskNode, DiskNode, DiskRelationship)} the linked nodes
+	 * are not loaded.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param relationship
+	 *            The relationship of the edges
+	 * @param outgoing
+	 *            {@code true} to return the end nodes of all outgoing edges,
+	 *            {@code false} to return the start nodes of all incoming edges
+	 * @return The IDs of the linked nodes
+	 * @throws GraphException
+	 *             if the node-edge list can not be loaded
+	 */
+	long[] getLinkedNodeIds(long nodeId, DiskRelationship relationship, boolean outgoing) throws GraphException {
+		try {
+			NodeEdgeList nodeEdges = loadNodeEdgeList(nodeId);
+			if (nodeEdges == null) {
+				return new long[0];
+			}
+			long[] nodeIds = new long[nodeEdges.size()];
+			int count = 0;
+			for (int index = 0, size = nodeEdges.size(); index < size; ++index) {
+				if (nodeEdges.getRelationshipId(index) != relationship.getId()) {
+					continue;
+				}
+				if (outgoing && (nodeEdges.getStartNodeId(index) == nodeId)) {
+					nodeIds[count++] = nodeEdges.getEndNodeId(index);
+				} else if (!outgoing && (nodeEdges.getEndNodeId(index) == nodeId)) {
+					nodeIds[count++] = nodeEdges.getStartNodeId(index);
+				}
+			}
+			long[] linkedNodeIds = new long[count];
+			System.arraycopy(nodeIds, 0, linkedNodeIds, 0, count);
+			return linkedNodeIds;
+		} catch (StorageException se1) {
+			throw new GraphException("Could not get linked nodes for node: " + nodeId + ", relationship: " + relationship + "!", se1);
+		}
+	}
+
+	/**
+	 * Returns the IDs of all nodes that are linked to the nodes with the given
+	 * IDs with any of the given relationships. The node-edge lists are loaded
+	 * in the order of the node IDs, and the node-edge list of every node is
+	 * only loaded once, regardless of the number of relationships.
+	 *
+	 * @param nodeIds
+	 *            The IDs of the nodes
+	 * @param relationships
+	 *            The relationships of the edges
+	 * @param outgoing
+	 *            {@code true} to return the end nodes of all outgoing edges,
+	 *            {@code false} to return the start nodes of all incoming edges
+	 * @return The IDs of the linked nodes, in the order of the given node IDs
+	 * @throws GraphException
+	 *             if a node-edge list can not be loaded
+	 */
+	long[][] getLinkedNodeIds(long[] nodeIds, Collection<? extends Relationship> relationships, boolean outgoing) throws GraphException {
+		LongHashSet relationshipIds = new LongHashSet(relationships.size());
+		for (Relationship relationship : relationships) {
+			Validation.begin().isInstanceOf("Relationship", relationship, DiskRelationship.class).check();
+			relationshipIds.add(((DiskRelationship) relationship).getId());
+		}
+		long[] sortedNodeIds = new long[nodeIds.length];
+		System.arraycopy(nodeIds, 0, sortedNodeIds, 0, nodeIds.length);
+		Arrays.sort(sortedNodeIds);
+		long[][] sortedLinkedNodeIds = new long[nodeIds.length][];
+		for (int index = 0; index < sortedNodeIds.length; ++index) {
+			long nodeId = sortedNodeIds[index];
+			if ((index > 0) && (sortedNodeIds[index - 1] == nodeId)) {
+				sortedLinkedNodeIds[index] = sortedLinkedNodeIds[index - 1];
+				continue;
+			}
+			try {
+				NodeEdgeList nodeEdges = loadNodeEdgeList(nodeId);
+				if (nodeEdges == null) {
+					sortedLinkedNodeIds[index] = new long[0];
+					continue;
+				}
+				long[] linkedNodeIds = new long[nodeEdges.size()];
+				int count = 0;
+				for (int edgeIndex = 0, size = nodeEdges.size(); edgeIndex < size; ++edgeIndex) {
+					if (!relationshipIds.contains(nodeEdges.getRelationshipId(edgeIndex))) {
+						continue;
+					}
+					if (outgoing && (nodeEdges.getStartNodeId(edgeIndex) == nodeId)) {
+						linkedNodeIds[count++] = nodeEdges.getEndNodeId(edgeIndex);
+					} else if (!outgoing && (nodeEdges.getEndNodeId(edgeIndex) == nodeId)) {
+						linkedNodeIds[count++] = nodeEdges.getStartNodeId(edgeIndex);
+					}
+				}
+				sortedLinkedNodeIds[index] = new long[count];
+				System.arraycopy(linkedNodeIds, 0, sortedLinkedNodeIds[index], 0, count);
+			} catch (StorageException se1) {
+				throw new GraphException("Could not get linked nodes for node: " + nodeId + "!", se1);
+			}
+		}
+		long[][] linkedNodeIds = new long[nodeIds.length][];
+		for (int index = 0; index < nodeIds.length; ++index) {
+			linkedNodeIds[index] = sortedLinkedNodeIds[Arrays.binarySearch(sortedNodeIds, nodeIds[index])];
+		}
+		return linkedNodeIds;
+	}
+
+	/**
+	 * Removes the edge with the given relationship between the given nodes.
+	 *
+	 * @param startNode
+	 *            The start node of the edge
+	 * @param endNode
+	 *            The end node of the edge
+	 * @param relationship
+	 *            The relationship of the edge
+	 * @return {@code true} if an edge was removed, {@code false} if no edge was
+	 *         removed
+	 * @throws GraphException
+	 *             if the edge can not be removed
+	 */
+	boolean removeEdge(DiskNode startNode, DiskNode endNode, DiskRelationship relationship) throws GraphException {
+		verifyWritable();
+		markModified();
+		Lock[] locks = lockNodes(startNode.getId(), endNode.getId());
+		try {
+			NodeEdgeList nodeEdges = loadNodeEdgeList(startNode.getId());
+			int index = findEdge(nodeEdges, startNode.getId(), endNode.getId(), relationship.getId());
+			if (index == -1) {
+				return false;
+			}
+			return removeEdge(nodeEdges.getEdgeId(index), startNode.getId(), endNode.getId());
+		} catch (StorageException se1) {
+			throw new GraphException("Could not remove edge for startNode: " + startNode + ", endNode: " + endNode + ", relationship: " + relationship, se1);
+		} finally {
+			unlock(locks);
+		}
+	}
+
+	/**
+	 * Returns the edge with the given relationship between the given nodes.
+	 *
+	 * @param startNode
+	 *            The start node of the edge
+	 * @param endNode
+	 *            The end node of the edge
+	 * @param relationship
+	 *            The relationship between the nodes
+	 * @return The edge, or {@code null} if there is no such edge
+	 * @throws GraphException
+	 *             if the edge can not be loaded
+	 */
+	DiskEdge getEdge(DiskNode startNode, DiskNode endNode, DiskRelationship relationship) throws GraphException {
+		try {
+			NodeEdgeList nodeEdges = loadNodeEdgeList(startNode.getId());
+			int index = findEdge(nodeEdges, startNode.getId(), endNode.getId(), relationship.getId());
+			if (index != -1) {
+				return new DiskEdge(nodeEdges.getEdgeId(index), graph, startNode, endNode, relationship);
+			}
+		} catch (StorageException se1) {
+			throw new GraphException("Could not get edge for startNode: " + startNode + ", endNode: " + endNode + ", relationship: " + relationship + "!", se1);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the relationship with the given name. If no relationship with the
+	 * given name exists, one is created.
+	 *
+	 * @param name
+	 *            The name of the relationship
+	 * @return The relationship with the given name
+	 * @throws GraphException
+	 *             if the relationship can not be created, or if it does not
+	 *             exist and this store is read-only
+	 */
+	DiskRelationship getRelationship(String name) throws GraphException {
+		DiskRelationship relationship = relationships.get(name);
+		if (relationship != null) {
+			return relationship;
+		}
+		if (readOnly) {
+			throw new GraphException("Relationship “" + name + "” does not exist in read-only store.");
+		}
+		synchronized (relationshipStorage) {
+			relationship = relationships.get(name);
+			if (relationship == null) {
+				relationship = new DiskRelationship(relationshipCounter.getAndIncrement(), name);
+				try {
+					relationshipStorage.add(relationship);
+				} catch (StorageException se1) {
+					throw new GraphException("Could not get relationship for name: " + name, se1);
+				}
+				relationships.put(name, relationship);
+			}
+			return relationship;
+		}
+	}
+
+	/**
+	 * Creates a new, empty property index for the given key and stores its
+	 * key.
+	 *
+	 * @param key
+	 *            The property key to index
+	 * @return The new property index
+	 * @throws GraphException
+	 *             if the store is read-only, if the store already has the
+	 *             maximum number of indexes, or if the index can not be
+	 *             stored
+	 */
+	DiskPropertyIndex createPropertyIndex(String key) throws GraphException {
+		verifyWritable();
+		synchronized (propertyIndexes) {
+			for (int number = 0; number < propertyIndexes.length; ++number) {
+				if (propertyIndexes[number] != null) {
+					continue;
+				}
+				try {
+					synchronized (indexStorage) {
+						indexStorage.add(new IndexEntry(number, key));
+					}
+				} catch (StorageException se1) {
+					throw new GraphException("Could not store index for key: " + key, se1);
+				}
+				propertyIndexes[number] = new DiskPropertyIndex(this, number, key);
+				return propertyIndexes[number];
+			}
+		}
+		throw new GraphException("Store already has " + MAXIMUM_PROPERTY_INDEXES + " indexes!");
+	}
+
+	/**
+	 * Removes the given property index and all its entries from the storage.
+	 *
+	 * @param propertyIndex
+	 *            The property index to remove
+	 * @throws GraphException
+	 *             if the index can not be removed
+	 */
+	void removePropertyIndex(DiskPropertyIndex propertyIndex) throws GraphException {
+		verifyWritable();
+		try {
+			for (long nodeId : propertyIndex.getIndexedValues().keySet()) {
+				removeIndexEntry(propertyIndex.getNumber(), nodeId);
+			}
+			synchronized (indexStorage) {
+				indexStorage.remove(new IndexEntry(propertyIndex.getNumber(), null));
+			}
+		} catch (StorageException se1) {
+			throw new GraphException("Could not remove index for key: " + propertyIndex.getKey(), se1);
+		}
+		synchronized (propertyIndexes) {
+			propertyIndexes[propertyIndex.getNumber()] = null;
+		}
+	}
+
+	/**
+	 * Stores the value of a node in the property index with the given number.
+	 *
+	 * @param number
+	 *            The number of the property index
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param value
+	 *            The value of the indexed property
+	 * @throws GraphException
+	 *             if the entry can not be stored
+	 */
+	void storeIndexEntry(int number, long nodeId, Object value) throws GraphException {
+		try {
+			synchronized (indexEntryStorage) {
+				indexEntryStorage.add(new IndexEntry(getIndexEntryId(number, nodeId), value));
+			}
+		} catch (StorageException se1) {
+			throw new GraphException("Could not store index entry for node: " + nodeId, se1);
+		}
+	}
+
+	/**
+	 * Removes the value of a node from the property index with the given
+	 * number.
+	 *
+	 * @param number
+	 *            The number of the property index
+	 * @param nodeId
+	 *            The ID of the node
+	 * @throws GraphException
+	 *             if the entry can not be removed
+	 */
+	void removeIndexEntry(int number, long nodeId) throws GraphException {
+		try {
+			synchronized (indexEntryStorage) {
+				indexEntryStorage.remove(new IndexEntry(getIndexEntryId(number, nodeId), null));
+			}
+		} catch (StorageException se1) {
+			throw new GraphException("Could not remove index entry for node: " + nodeId, se1);
+		}
+	}
+
+	/**
+	 * Creates a range index for the given property key and builds it from
+	 * the values of all nodes of this store. If a range index for the key
+	 * already exists, it is returned. The graph should not be modified while
+	 * the index is built; afterwards the index is updated whenever a property
+	 * of a node is changed.
+	 *
+	 * @param key
+	 *            The property key to index
+	 * @return The range index for the key
+	 * @throws GraphException
+	 *             if the store is read-only, if the store already has the
+	 *             maximum number of range indexes, or if the index can not be
+	 *             built
+	 */
+	public RangeIndex createRangeIndex(String key) throws GraphException {
+		Validation.begin().isNotNull("Key", key).check();
+		verifyWritable();
+		synchronized (rangeIndexes) {
+			if (rangeIndexes.containsKey(key)) {
+				return rangeIndexes.get(key);
+			}
+			boolean[] usedNumbers = new boolean[MAXIMUM_RANGE_INDEXES];
+			for (RangeIndex rangeIndex : rangeIndexes.values()) {
+				usedNumbers[rangeIndex.getNumber()] = true;
+			}
+			int number = 0;
+			while ((number < MAXIMUM_RANGE_INDEXES) && usedNumbers[number]) {
+				++number;
+			}
+			if (number == MAXIMUM_RANGE_INDEXES) {
+				throw new GraphException("Store already has " + MAXIMUM_RANGE_INDEXES + " range indexes!");
+			}
+			RangeIndex rangeIndex = new RangeIndex(this, bufferPool, number, key);
+			try {
+				rangeIndex.build(graph.getNodes());
+			} catch (IllegalStateException ise1) {
+				if (ise1.getCause() instanceof GraphException) {
+					throw (GraphException) ise1.getCause();
+				}
+				throw ise1;
+			}
+			try {
+				synchronized (rangeIndexStorage) {
+					rangeIndexStorage.add(new IndexEntry(number, key));
+				}
+			} catch (StorageException se1) {
+				throw new GraphException("Could not store range index for key: " + key, se1);
+			}
+			rangeIndexes.put(key, rangeIndex);
+			return rangeIndex;
+		}
+	}
+
+	/**
+	 * Removes the range index for the given property key and all its pages.
+	 *
+	 * @param key
+	 *            The indexed property key
+	 * @throws GraphException
+	 *             if the store is read-only or if the index can not be removed
+	 */
+	public void dropRangeIndex(String key) throws GraphException {
+		Validation.begin().isNotNull("Key", key).check();
+		verifyWritable();
+		synchronized (rangeIndexes) {
+			RangeIndex rangeIndex = rangeIndexes.remove(key);
+			if (rangeIndex == null) {
+				return;
+			}
+			try {
+				synchronized (rangeIndexStorage) {
+					rangeIndexStorage.remove(new IndexEntry(rangeIndex.getNumber(), null));
+				}
+			} catch (StorageException se1) {
+				throw new GraphException("Could not remove range index for key: " + key, se1);
+			}
+			rangeIndex.drop();
+		}
+	}
+
+	/**
+	 * Updates the range index of the given key, if there is one, after a
+	 * property of a node was changed.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param key
+	 *            The key of the property
+	 * @param oldValue
+	 *            The old value of the property
+	 * @param newValue
+	 *            The new value of the property
+	 * @throws GraphException
+	 *             if the index can not be updated
+	 */
+	void updateRangeIndex(long nodeId, String key, Object oldValue, Object newValue) throws GraphException {
+		RangeIndex rangeIndex = rangeIndexes.get(key);
+		if (rangeIndex != null) {
+			rangeIndex.update(nodeId, oldValue, newValue);
+		}
+	}
+
+	/**
+	 * Returns all relationships of this store.
+	 *
+	 * @return All relationships
+	 */
+	Set<Relationship> getRelationships() {
+		return new HashSet<Relationship>(relationships.values());
+	}
+
+	/**
+	 * Returns an iterator over the IDs of all nodes, in the order the nodes
+	 * are stored on disk. Nodes are not loaded by the iterator.
+	 *
+	 * @return An iterator over the IDs of all nodes
+	 */
+	Iterator<Long> getNodeIds() {
+		return new Iterator<Long>() {
+
+			/** The index of the next directory entry to check. */
+			private int directoryIndex;
+
+			/** The next node ID, or {@code null} if it has not been found yet. */
+			private Long nextNodeId;
+
+			@Override
+			public boolean hasNext() {
+				if (nextNodeId != null) {
+					return true;
+				}
+				synchronized (nodeStorage) {
+					while (directoryIndex < nodeStorage.getDirectorySize()) {
+						Allocation allocation = nodeStorage.getAllocation(directoryIndex++);
+						if (allocation != null) {
+							nextNodeId = allocation.getId();
+							return true;
+						}
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public Long next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Long nodeId = nextNodeId;
+				nextNodeId = null;
+				return nodeId;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+		};
+	}
+
+	//
+	// INTERFACE Store
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Graph getGraph() {
+		return graph;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns whether this store was opened read-only.
+	 *
+	 * @return {@code true} if this store rejects all modifications,
+	 *         {@code false} otherwise
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * Returns the modification stamp of the graph. The stamp changes with the
+	 * first modification of the graph after it has been returned, and it is
+	 * stored before the modification so that it also changes if the store is
+	 * not shut down cleanly. A {@link
+	 * net.pterodactylus.util.graph.query.StatisticsCatalog} saved with the
+	 * stamp can therefore be checked against the store when it is loaded.
+	 *
+	 * @return The modification stamp
+	 */
+	public long getModificationStamp() {
+		if (stampStorage == null) {
+			return modificationStamp;
+		}
+		synchronized (stampStorage) {
+			modified = false;
+			return modificationStamp;
+		}
+	}
+
+	/**
+	 * Returns the statistics of the cache for decoded nodes.
+	 *
+	 * @return The statistics of the node cache
+	 */
+	public CacheStatistics getNodeCacheStatistics() {
+		return nodeCache.getStatistics();
+	}
+
+	/**
+	 * Returns the statistics of the cache for decoded node-edge lists.
+	 *
+	 * @return The statistics of the node-edge list cache
+	 */
+	public CacheStatistics getNodeEdgeListCacheStatistics() {
+		return nodeEdgeListCache.getStatistics();
+	}
+
+	/**
+	 * Returns the statistics of the buffer pool for the pages of the range
+	 * indexes.
+	 *
+	 * @return The statistics of the range index page cache
+	 */
+	public CacheStatistics getRangeIndexCacheStatistics() {
+		if (bufferPool == null) {
+			return new CacheStatistics(0, 0, 0, 0, 0);
+		}
+		return bufferPool.getStatistics();
+	}
+
+	/**
+	 * Returns the range index for the given property key.
+	 *
+	 * @param key
+	 *            The indexed property key
+	 * @return The range index, or {@code null} if there is no range index for
+	 *         the key
+	 */
+	public RangeIndex getRangeIndex(String key) {
+		return rangeIndexes.get(key);
+	}
+
+	/**
+	 * Returns all property keys that have a range index.
+	 *
+	 * @return The keys of all range indexes
+	 */
+	public Set<String> getRangeIndexKeys() {
+		return new HashSet<String>(rangeIndexes.keySet());
+	}
+
+	/**
+	 * Verifies that this store may be modified.
+	 *
+	 * @throws GraphException
+	 *             if this store is read-only
+	 */
+	void verifyWritable() throws GraphException {
+		if (readOnly) {
+			throw new GraphException("Store is read-only!");
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Stores a new modification stamp unless the graph has already been
+	 * modified since the modification stamp was last returned. This method
+	 * has to be called before the graph is modified.
+	 *
+	 * @throws GraphException
+	 *             if the modification stamp can not be stored
+	 */
+	private void markModified() throws GraphException {
+		if (modified) {
+			return;
+		}
+		synchronized (stampStorage) {
+			if (modified) {
+				return;
+			}
+			try {
+				stampStorage.add(new IndexEntry(0, modificationStamp + 1));
+			} catch (StorageException se1) {
+				throw new GraphException("Could not store modification stamp!", se1);
+			}
+			++modificationStamp;
+			modified = true;
+		}
+	}
+
+	/**
+	 * Loads the node with the given ID, using the node cache if possible.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The node, or {@code null} if there is no node with the given ID
+	 * @throws StorageException
+	 *             if the node can not be loaded
+	 */
+	private DiskNode loadNode(long nodeId) throws StorageException {
+		DiskNode node = nodeCache.get(nodeId);
+		if (node != null) {
+			return node;
+		}
+		Lock lock = getLock(nodeId).readLock();
+		lock.lock();
+		try {
+			synchronized (nodeStorage) {
+				node = nodeStorage.load(nodeId);
+			}
+			if (node != null) {
+				nodeCache.put(nodeId, node);
+			}
+			return node;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Loads the node-edge list of the node with the given ID, using the
+	 * node-edge list cache if possible.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The node-edge list, or {@code null} if the node does not have a
+	 *         node-edge list
+	 * @throws StorageException
+	 *             if the node-edge list can not be loaded
+	 */
+	private NodeEdgeList loadNodeEdgeList(long nodeId) throws StorageException {
+		NodeEdgeList nodeEdges = nodeEdgeListCache.get(nodeId);
+		if (nodeEdges != null) {
+			return nodeEdges;
+		}
+		Lock lock = getLock(nodeId).readLock();
+		lock.lock();
+		try {
+			synchronized (nodeEdgeListStorage) {
+				nodeEdges = nodeEdgeListStorage.load(nodeId);
+			}
+			if (nodeEdges != null) {
+				nodeEdgeListCache.put(nodeId, nodeEdges);
+			}
+			return nodeEdges;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns a modifiable copy of the node-edge list of the node with the
+	 * given ID. If the node does not have a node-edge list yet, a new, empty
+	 * node-edge list is returned. The caller has to hold the write lock of the
+	 * node.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return A copy of the node-edge list for the given node
+	 * @throws StorageException
+	 *             if a store error occurs
+	 */
+	private NodeEdgeList copyNodeEdgeList(long nodeId) throws StorageException {
+		NodeEdgeList nodeEdges = loadNodeEdgeList(nodeId);
+		if (nodeEdges == null) {
+			return new NodeEdgeList(nodeId);
+		}
+		return new NodeEdgeList(nodeEdges);
+	}
+
+	/**
+	 * Stores the given node-edge list and replaces the cached version of it.
+	 * The caller has to hold the write lock of the node.
+	 *
+	 * @param nodeEdges
+	 *            The node-edge list to store
+	 * @throws StorageException
+	 *             if the node-edge list can not be stored
+	 */
+	private void storeNodeEdgeList(NodeEdgeList nodeEdges) throws StorageException {
+		try {
+			synchronized (nodeEdgeListStorage) {
+				nodeEdgeListStorage.add(nodeEdges);
+			}
+			nodeEdgeListCache.put(nodeEdges.getId(), nodeEdges);
 		} catch (StorageException se1) {
-			throw new GraphException("Could not get edges for startNode: " + startNode + ", endNode: " + endNode + ", relationship: " + relationship + "!", se1);
+			nodeEdgeListCache.invalidate(nodeEdges.getId());
+			throw se1;
 		}
 	}
 
 	/**
-	 * Returns the node-edge list for the node with the given ID.
+	 * Removes the edge with the given ID from the node-edge lists of both of
+	 * its nodes.
 	 *
-	 * @param nodeId
-	 *            The ID of the node
-	 * @return The node-edge list for the given node
+	 * @param edgeId
+	 *            The ID of the edge
+	 * @param startNodeId
+	 *            The ID of the start node of the edge
+	 * @param endNodeId
+	 *            The ID of the end node of the edge
+	 * @return {@code true} if the edge was removed, {@code false} if the edge
+	 *         did not exist
 	 * @throws StorageException
-	 *             if a store error occurs
+	 *             if a node-edge list can not be stored
 	 */
-	NodeEdgeList getNodeEdgeList(long nodeId) throws StorageException {
-		NodeEdgeList nodeEdges = nodeEdgeListStorage.load(nodeId);
-		if (nodeEdges == null) {
-			nodeEdges = new NodeEdgeList(nodeId);
-			nodeEdgeListStorage.add(nodeEdges);
+	private boolean removeEdge(long edgeId, long startNodeId, long endNodeId) throws StorageException {
+		Lock[] locks = lockNodes(startNodeId, endNodeId);
+		try {
+			NodeEdgeList nodeEdges = copyNodeEdgeList(startNodeId);
+			boolean removed = nodeEdges.removeEdge(edgeId);
+			if (removed) {
+				storeNodeEdgeList(nodeEdges);
+			}
+			nodeEdges = copyNodeEdgeList(endNodeId);
+			if (nodeEdges.removeEdge(edgeId)) {
+				storeNodeEdgeList(nodeEdges);
+				removed = true;
+			}
+			return removed;
+		} finally {
+			unlock(locks);
 		}
-		return nodeEdges;
 	}
 
 	/**
-	 * Removes the edge with the given relationship between the given nodes.
+	 * Returns the index of the edge with the given nodes and relationship in
+	 * the given node-edge list.
 	 *
-	 * @param startNode
-	 *            The start node of the edge
-	 * @param endNode
-	 *            The end node of the edge
-	 * @param relationship
-	 *            The relationship of the edge
-	 * @return {@code true} if an edge was removed, {@code false} if no edge was
-	 *         removed
-	 * @throws GraphException
-	 *             if the edge can not be removed
+	 * @param nodeEdges
+	 *            The node-edge list to search (may be {@code null})
+	 * @param startNodeId
+	 *            The ID of the start node
+	 * @param endNodeId
+	 *            The ID of the end node
+	 * @param relationshipId
+	 *            The ID of the relationship
+	 * @return The index of the edge, or {@code -1} if there is no such edge
 	 */
-	boolean removeEdge(DiskNode startNode, DiskNode endNode, DiskRelationship relationship) throws GraphException {
-		try {
-			DiskEdge edge = getEdge(startNode, endNode, relationship);
-			if (edge == null) {
-				return false;
+	private static int findEdge(NodeEdgeList nodeEdges, long startNodeId, long endNodeId, long relationshipId) {
+		if (nodeEdges == null) {
+			return -1;
+		}
+		for (int index = 0, size = nodeEdges.size(); index < size; ++index) {
+			if ((nodeEdges.getStartNodeId(index) == startNodeId) && (nodeEdges.getEndNodeId(index) == endNodeId) && (nodeEdges.getRelationshipId(index) == relationshipId)) {
+				return index;
 			}
-			NodeEdgeList nodeEdges = nodeEdgeListStorage.load(startNode.getId());
-			nodeEdges.removeEdge(edge.getId());
-			nodeEdgeListStorage.add(nodeEdges);
-			nodeEdges = nodeEdgeListStorage.load(endNode.getId());
-			nodeEdges.removeEdge(edge.getId());
-			nodeEdgeListStorage.add(nodeEdges);
-			return true;
-		} catch (StorageException se1) {
-			throw new GraphException("Could not remove edge for startNode: " + startNode + ", endNode: " + endNode + ", relationship: " + relationship, se1);
 		}
+		return -1;
 	}
 
 	/**
-	 * Returns the edge with the given relationship between the given nodes.
+	 * Returns the ID of the entry of the given node in the property index with
+	 * the given number. Node IDs must not exceed 2<sup>55</sup>.
 	 *
-	 * @param startNode
-	 *            The start node of the edge
-	 * @param endNode
-	 *            The end node of the edge
-	 * @param relationship
-	 *            The relationship between the nodes
-	 * @return The edge, or {@code null} if there is no such edge
-	 * @throws GraphException
-	 *             if the edge can not be loaded
+	 * @param number
+	 *            The number of the property index
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The ID of the index entry
 	 */
-	DiskEdge getEdge(DiskNode startNode, DiskNode endNode, DiskRelationship relationship) throws GraphException {
-		try {
-			NodeEdgeList nodeEdges = nodeEdgeListStorage.load(startNode.getId());
-			for (int index = 0, size = nodeEdges.size(); index < size; ++index) {
-				if ((nodeEdges.getStartNodeId(index) == startNode.getId()) && (nodeEdges.getEndNodeId(index) == endNode.getId()) && (nodeEdges.getRelationshipId(index) == relationship.getId())) {
-					return new DiskEdge(nodeEdges.getEdgeId(index), graph, startNode, endNode, relationship);
-				}
-			}
-		} catch (StorageException se1) {
-			throw new GraphException("Could not get edge for startNode: " + startNode + ", endNode: " + endNode + ", relationship: " + relationship + "!", se1);
+	private static long getIndexEntryId(int number, long nodeId) {
+		return (nodeId << 8) | number;
+	}
+
+	/**
+	 * Returns the striped lock for the node with the given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The lock for the node
+	 */
+	private ReadWriteLock getLock(long nodeId) {
+		return nodeLocks[getStripe(nodeId)];
+	}
+
+	/**
+	 * Acquires the write locks of both given nodes, in ascending stripe order.
+	 *
+	 * @param firstNodeId
+	 *            The ID of the first node
+	 * @param secondNodeId
+	 *            The ID of the second node
+	 * @return The acquired locks, to be released with {@link #unlock(Lock[])}
+	 */
+	private Lock[] lockNodes(long firstNodeId, long secondNodeId) {
+		int firstStripe = getStripe(firstNodeId);
+		int secondStripe = getStripe(secondNodeId);
+		if (firstStripe == secondStripe) {
+			Lock lock = nodeLocks[firstStripe].writeLock();
+			lock.lock();
+			return new Lock[] { lock };
 		}
-		return null;
+		Lock lowerLock = nodeLocks[Math.min(firstStripe, secondStripe)].writeLock();
+		Lock higherLock = nodeLocks[Math.max(firstStripe, secondStripe)].writeLock();
+		lowerLock.lock();
+		higherLock.lock();
+		return new Lock[] { higherLock, lowerLock };
 	}
 
 	/**
-	 * Returns the relationship with the given name. If no relationship with the
-	 * given name exists, one is created.
+	 * Releases the given locks.
 	 *
-	 * @param name
-	 *            The name of the relationship
-	 * @return The relationship with the given name
-	 * @throws GraphException
-	 *             if the relationship can not be created
+	 * @param locks
+	 *            The locks to release
 	 */
-	DiskRelationship getRelationship(String name) throws GraphException {
-		DiskRelationship relationship = relationships.get(name);
-		if (relationship == null) {
-			relationship = new DiskRelationship(relationshipCounter++, name);
-			relationships.put(name, relationship);
-			try {
-				relationshipStorage.add(relationship);
-			} catch (StorageException se1) {
-				throw new GraphException("Could not get relationship for name: " + name, se1);
-			}
+	private static void unlock(Lock[] locks) {
+		for (Lock lock : locks) {
+			lock.unlock();
 		}
-		return relationship;
 	}
 
-	//
-	// INTERFACE Store
-	//
+	/**
+	 * Returns the index of the lock stripe for the node with the given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The index of the lock stripe
+	 */
+	private static int getStripe(long nodeId) {
+		long hash = nodeId * 0x9e3779b97f4a7c15L;
+		return (int) (hash >>> 56) & (LOCK_STRIPES - 1);
+	}
 
 	/**
-	 * {@inheritDoc}
+	 * Creates the given number of read-write locks.
+	 *
+	 * @param count
+	 *            The number of locks to create
+	 * @return The created locks
 	 */
-	@Override
-	public Graph getGraph() {
-		return graph;
+	private static ReadWriteLock[] createLocks(int count) {
+		ReadWriteLock[] locks = new ReadWriteLock[count];
+		for (int index = 0; index < count; ++index) {
+			locks[index] = new ReentrantReadWriteLock();
+		}
+		return locks;
 	}
 
-	//
-	// PRIVATE METHODS
-	//
+	/**
+	 * Returns whether the given directory contains the files of the storage
+	 * with the given name. The files of a storage are named after the
+	 * storage.
+	 *
+	 * @param directory
+	 *            The directory of the store
+	 * @param name
+	 *            The name of the storage
+	 * @return {@code true} if the storage exists, {@code false} otherwise
+	 */
+	private static boolean storageExists(File directory, final String name) {
+		String[] fileNames = directory.list(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File parentDirectory, String fileName) {
+				return fileName.startsWith(name + ".");
+			}
+
+		});
+		return (fileNames != null) && (fileNames.length > 0);
+	}
 
 	/**
 	 * Attempts to load a store from the disk.
@@ -391,7 +1422,23 @@ public class DiskStore implements Store {
 		relationshipStorage.open();
 		nodeStorage.open();
 		nodeEdgeListStorage.open();
+		if (indexStorage != null) {
+			indexStorage.open();
+			indexEntryStorage.open();
+		}
+		if (rangeIndexStorage != null) {
+			rangeIndexStorage.open();
+			bufferPool.open();
+		}
+		if (stampStorage != null) {
+			stampStorage.open();
+			IndexEntry stampEntry = stampStorage.load(0);
+			if (stampEntry != null) {
+				modificationStamp = (Long) stampEntry.getContent();
+			}
+		}
 
+		graph = new DiskGraph(this);
 		for (int directoryIndex = 0; directoryIndex < relationshipStorage.getDirectorySize(); ++directoryIndex) {
 			Allocation allocation = relationshipStorage.getAllocation(directoryIndex);
 			if (allocation == null) {
@@ -399,38 +1446,126 @@ public class DiskStore implements Store {
 			}
 			DiskRelationship diskRelationship = relationshipStorage.load(allocation.getId());
 			relationships.put(diskRelationship.getName(), diskRelationship);
-			relationshipCounter = Math.max(relationshipCounter, allocation.getId());
 		}
-		++relationshipCounter;
+		if (indexStorage != null) {
+			loadPropertyIndexes();
+		}
+		if (rangeIndexStorage != null) {
+			loadRangeIndexes();
+		}
 
 		DiskNode rootNode = null;
 		if (nodeStorage.size() > 0) {
-			rootNode = nodeStorage.load(0);
-			for (int directoryIndex = 0; directoryIndex < nodeStorage.getDirectorySize(); ++directoryIndex) {
-				Allocation allocation = nodeStorage.getAllocation(directoryIndex);
-				if (allocation == null) {
-					continue;
-				}
-				nodeCounter = Math.max(nodeCounter, allocation.getId());
-			}
-			++nodeCounter;
+			rootNode = loadNode(0);
 		}
 
-		for (int directoryIndex = 0; directoryIndex < nodeEdgeListStorage.getDirectorySize(); ++directoryIndex) {
-			Allocation allocation = nodeEdgeListStorage.getAllocation(directoryIndex);
-			if (allocation == null) {
-				continue;
+		if (readOnly) {
+			if (rootNode == null) {
+				throw new GraphException("Read-only store does not contain a graph!");
 			}
-			edgeCounter = Math.max(edgeCounter, allocation.getId());
+			graph.setRootNode(rootNode);
+			return;
 		}
-		++edgeCounter;
 
-		graph = new DiskGraph(this);
+		recoverCounters();
 		if (rootNode == null) {
 			rootNode = createNode();
 		}
 		graph.setRootNode(rootNode);
-		return;
+	}
+
+	/**
+	 * Loads the declarations of the range indexes.
+	 *
+	 * @throws StorageException
+	 *             if a storage error occurs
+	 */
+	private void loadRangeIndexes() throws StorageException {
+		for (int directoryIndex = 0; directoryIndex < rangeIndexStorage.getDirectorySize(); ++directoryIndex) {
+			Allocation allocation = rangeIndexStorage.getAllocation(directoryIndex);
+			if (allocation == null) {
+				continue;
+			}
+			IndexEntry indexEntry = rangeIndexStorage.load(allocation.getId());
+			rangeIndexes.put((String) indexEntry.getContent(), new RangeIndex(this, bufferPool, (int) indexEntry.getId(), (String) indexEntry.getContent()));
+		}
+	}
+
+	/**
+	 * Loads the property indexes and all their entries and adds them to the
+	 * graph.
+	 *
+	 * @throws StorageException
+	 *             if a storage error occurs
+	 */
+	private void loadPropertyIndexes() throws StorageException {
+		for (int directoryIndex = 0; directoryIndex < indexStorage.getDirectorySize(); ++directoryIndex) {
+			Allocation allocation = indexStorage.getAllocation(directoryIndex);
+			if (allocation == null) {
+				continue;
+			}
+			IndexEntry indexEntry = indexStorage.load(allocation.getId());
+			propertyIndexes[(int) indexEntry.getId()] = new DiskPropertyIndex(this, (int) indexEntry.getId(), (String) indexEntry.getContent());
+		}
+		for (int directoryIndex = 0; directoryIndex < indexEntryStorage.getDirectorySize(); ++directoryIndex) {
+			Allocation allocation = indexEntryStorage.getAllocation(directoryIndex);
+			if (allocation == null) {
+				continue;
+			}
+			DiskPropertyIndex propertyIndex = propertyIndexes[(int) (allocation.getId() & (MAXIMUM_PROPERTY_INDEXES - 1))];
+			if (propertyIndex != null) {
+				propertyIndex.restoreEntry(allocation.getId() >>> 8, indexEntryStorage.load(allocation.getId()).getContent());
+			}
+		}
+		for (DiskPropertyIndex propertyIndex : propertyIndexes) {
+			if (propertyIndex != null) {
+				graph.restorePropertyIndex(propertyIndex);
+			}
+		}
+	}
+
+	/**
+	 * Recovers the ID counters for relationships, nodes, and edges from the
+	 * allocations of the storages.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws StorageException
+	 *             if a storage error occurs
+	 */
+	private void recoverCounters() throws IOException, StorageException {
+		long maximumRelationshipId = -1;
+		for (int directoryIndex = 0; directoryIndex < relationshipStorage.getDirectorySize(); ++directoryIndex) {
+			Allocation allocation = relationshipStorage.getAllocation(directoryIndex);
+			if (allocation == null) {
+				continue;
+			}
+			maximumRelationshipId = Math.max(maximumRelationshipId, allocation.getId());
+		}
+		relationshipCounter.set(maximumRelationshipId + 1);
+
+		long maximumNodeId = -1;
+		for (int directoryIndex = 0; directoryIndex < nodeStorage.getDirectorySize(); ++directoryIndex) {
+			Allocation allocation = nodeStorage.getAllocation(directoryIndex);
+			if (allocation == null) {
+				continue;
+			}
+			maximumNodeId = Math.max(maximumNodeId, allocation.getId());
+		}
+		nodeCounter.set(maximumNodeId + 1);
+
+		long maximumEdgeId = -1;
+		for (int directoryIndex = 0; directoryIndex < nodeEdgeListStorage.getDirectorySize(); ++directoryIndex) {
+			Allocation allocation = nodeEdgeListStorage.getAllocation(directoryIndex);
+			if (allocation == null) {
+				continue;
+			}
+			NodeEdgeList nodeEdges = nodeEdgeListStorage.load(allocation.getId());
+			for (int index = 0, size = nodeEdges.size(); index < size; ++index) {
+				maximumEdgeId = Math.max(maximumEdgeId, nodeEdges.getEdgeId(index));
+			}
+		}
+		edgeCounter.set(maximumEdgeId + 1);
 	}
 
 	/**
@@ -533,6 +1668,21 @@ public class DiskStore implements Store {
 			this.nodeId = nodeId;
 		}
 
+		/**
+		 * Creates a new node-edge list that contains the same edges as the
+		 * given node-edge list.
+		 *
+		 * @param nodeEdgeList
+		 *            The node-edge list to copy
+		 */
+		public NodeEdgeList(NodeEdgeList nodeEdgeList) {
+			this.nodeId = nodeEdgeList.nodeId;
+			edges.addAll(nodeEdgeList.edges);
+			startNodes.addAll(nodeEdgeList.startNodes);
+			endNodes.addAll(nodeEdgeList.endNodes);
+			relationships.addAll(nodeEdgeList.relationships);
+		}
+
 		/**
 		 * Adds an edge to this node-edge list.
 		 *
@@ -557,16 +1707,22 @@ public class DiskStore implements Store {
 		 *
 		 * @param edgeId
 		 *            The ID of the edge to remove
+		 * @return {@code true} if the edge was removed, {@code false} if this
+		 *         list did not contain the edge
 		 */
-		public void removeEdge(long edgeId) {
+		public boolean removeEdge(long edgeId) {
 			int index = edges.indexOf(edgeId);
 			if (index == -1) {
-				return;
+				return false;
 			}
-			edges.remove(index);
-			startNodes.remove(index);
-			endNodes.remove(index);
-			relationships.remove(index);
+			while (index != -1) {
+				edges.remove(index);
+				startNodes.remove(index);
+				endNodes.remove(index);
+				relationships.remove(index);
+				index = edges.indexOf(edgeId);
+			}
+			return true;
 		}
 
 		/**
@@ -676,4 +1832,144 @@ public class DiskStore implements Store {
 
 	}
 
+
+	/**
+	 * An entry of a property index: either the key of an index, stored under
+	 * the number of the index, or the value of the indexed property of a
+	 * node, stored under an ID that combines the node ID and the number of the
+	 * index. The content is stored using Java serialization.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class IndexEntry implements Storable {
+
+		/** The ID of the entry. */
+		private final long id;
+
+		/** The content of the entry. */
+		private final Object content;
+
+		/**
+		 * Creates a new index entry.
+		 *
+		 * @param id
+		 *            The ID of the entry
+		 * @param content
+		 *            The content of the entry
+		 */
+		public IndexEntry(long id, Object content) {
+			this.id = id;
+			this.content = content;
+		}
+
+		/**
+		 * Returns the content of this entry.
+		 *
+		 * @return The content of this entry
+		 */
+		public Object getContent() {
+			return content;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long getId() {
+			return id;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public byte[] getBuffer() throws StorageException {
+			ByteArrayOutputStream contentStream = null;
+			ObjectOutputStream objectStream = null;
+			try {
+				contentStream = new ByteArrayOutputStream();
+				objectStream = new ObjectOutputStream(contentStream);
+				objectStream.writeObject(content);
+			} catch (IOException ioe1) {
+				throw new StorageException("Could not get bytes for IndexEntry.", ioe1);
+			} finally {
+				Closer.close(objectStream);
+				Closer.close(contentStream);
+			}
+			byte[] contentBuffer = contentStream.toByteArray();
+			byte[] buffer = new byte[contentBuffer.length + 8];
+			Storable.Utils.putLong(id, buffer, 0);
+			System.arraycopy(contentBuffer, 0, buffer, 8, contentBuffer.length);
+			return buffer;
+		}
+
+	}
+
+	/**
+	 * {@link Factory} implementation that can create {@link IndexEntry}s.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class IndexEntryFactory implements Factory<IndexEntry> {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public IndexEntry restore(byte[] buffer) {
+			long id = Storable.Utils.getLong(buffer, 0);
+			Object content = null;
+			try {
+				content = new ObjectInputStream(new ByteArrayInputStream(buffer, 8, buffer.length - 8)).readObject();
+			} catch (IOException ioe1) {
+				/* the entry is restored without content. */
+			} catch (ClassNotFoundException cnfe1) {
+				/* the entry is restored without content. */
+			}
+			return new IndexEntry(id, content);
+		}
+
+	}
+
+
+	/**
+	 * {@link Factory} implementation that can create {@link RangeIndexPage}s.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class RangeIndexPageFactory implements Factory<RangeIndexPage> {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public RangeIndexPage restore(byte[] buffer) {
+			long id = Storable.Utils.getLong(buffer, 0);
+			RangeIndexPage page = null;
+			try {
+				ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(buffer, 8, buffer.length - 8));
+				page = new RangeIndexPage(id, objectInputStream.readBoolean());
+				int size = objectInputStream.readInt();
+				Object[] values = new Object[size];
+				long[] nodeIds = new long[size];
+				for (int index = 0; index < size; ++index) {
+					values[index] = objectInputStream.readObject();
+					nodeIds[index] = objectInputStream.readLong();
+				}
+				if (!page.isLeaf()) {
+					page.setFirstChild(objectInputStream.readLong());
+				}
+				for (int index = 0; index < size; ++index) {
+					page.append(values[index], nodeIds[index], page.isLeaf() ? -1 : objectInputStream.readLong());
+				}
+			} catch (IOException ioe1) {
+				/* the page is restored without content. */
+			} catch (ClassNotFoundException cnfe1) {
+				/* the page is restored without content. */
+			}
+			return page;
+		}
+
+	}
+
 }
@@ -0,0 +1,610 @@
+/*
+ * utils.graph - HybridGraph.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import net.pterodactylus.util.graph.AbstractGraph;
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * {@link Graph} implementation that is used by {@link HybridStore}. It keeps
+ * the recently used nodes, together with the IDs of the nodes they are linked
+ * to, in an LRU-ordered map and loads all other nodes from the backing
+ * {@link DiskStore} when they are accessed. The size of a node in memory is
+ * only estimated from the number of its properties and links.
+ * <p>
+ * All methods that access nodes are synchronized. Listeners and edge
+ * validators are only called while the graph is not locked, so that they can
+ * access the graph from any thread.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class HybridGraph extends AbstractGraph {
+
+	/** The estimated size of a node without properties and links. */
+	private static final long NODE_SIZE = 160;
+
+	/** The estimated size of a single property. */
+	private static final long PROPERTY_SIZE = 96;
+
+	/** The estimated size of the links of one relationship. */
+	private static final long LINKS_SIZE = 96;
+
+	/** The estimated size of a single link. */
+	private static final long LINK_SIZE = 48;
+
+	/** The backing disk store. */
+	private final DiskStore store;
+
+	/** The estimated number of bytes the nodes in memory may use. */
+	private final long memoryBudget;
+
+	/** The root node. */
+	private final HybridNode rootNode;
+
+	/** The nodes in memory, by ID, least recently used first. */
+	private final Map<Long, ResidentNode> residentNodes = new LinkedHashMap<Long, ResidentNode>(16, 0.75f, true);
+
+	/** The estimated size of all nodes in memory. */
+	private long residentBytes;
+
+	/** The number of node accesses that were answered from memory. */
+	private long hits;
+
+	/** The number of node accesses that had to load the node from disk. */
+	private long misses;
+
+	/** The number of nodes that were evicted from memory. */
+	private long evictions;
+
+	/**
+	 * Creates a new hybrid graph.
+	 *
+	 * @param store
+	 *            The backing disk store
+	 * @param memoryBudget
+	 *            The estimated number of bytes the nodes in memory may use
+	 */
+	HybridGraph(DiskStore store, long memoryBudget) {
+		this.store = store;
+		this.memoryBudget = memoryBudget;
+		rootNode = new HybridNode(this, ((DiskNode) store.getGraph().getRootNode()).getId());
+	}
+
+	//
+	// INTERFACE Graph
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public HybridNode getRootNode() {
+		return rootNode;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public HybridNode createNode() throws GraphException {
+		HybridNode hybridNode;
+		synchronized (this) {
+			DiskNode node = store.createNode();
+			addResidentNode(new ResidentNode(node));
+			hybridNode = new HybridNode(this, node.getId());
+		}
+		fireNodeCreated(hybridNode);
+		return hybridNode;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All nodes in memory are checked for links to the removed node.
+	 */
+	@Override
+	public void removeNode(Node node) throws GraphException {
+		Validation.begin().isNotNull("Node", node).check().isInstanceOf("Node", node, HybridNode.class).isEqual("Node’s Graph", node.getGraph(), this).check();
+		long nodeId = ((HybridNode) node).getId();
+		Set<Edge> edges;
+		Map<String, Object> removedProperties;
+		synchronized (this) {
+			DiskNode diskNode = getResidentNode(nodeId).node;
+			edges = hasGraphListeners() ? getEdges(node) : null;
+			removedProperties = getRemovedProperties(node);
+			store.removeNode(diskNode);
+			removeFromPropertyIndexes(node, removedProperties);
+			ResidentNode removedNode = residentNodes.remove(nodeId);
+			if (removedNode != null) {
+				residentBytes -= removedNode.size;
+			}
+			/* updateSize() reorders the access-ordered map, so iterate a copy. */
+			for (ResidentNode residentNode : new ArrayList<ResidentNode>(residentNodes.values())) {
+				if (residentNode.removeLinks(nodeId)) {
+					updateSize(residentNode);
+				}
+			}
+		}
+		firePropertiesRemoved(node, removedProperties);
+		if (edges != null) {
+			fireEdgesRemoved(edges);
+			fireNodeRemoved(node);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DiskRelationship getRelationship(String name) throws GraphException {
+		return store.getRelationship(name);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Relationship> getRelationships() {
+		return store.getRelationships();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The iterator returns node handles in the order the nodes are stored on
+	 * disk; the nodes themselves are not loaded.
+	 */
+	@Override
+	public Iterator<Node> getNodes() {
+		final Iterator<Long> nodeIds = store.getNodeIds();
+		return new Iterator<Node>() {
+
+			@Override
+			public boolean hasNext() {
+				return nodeIds.hasNext();
+			}
+
+			@Override
+			public Node next() {
+				return new HybridNode(HybridGraph.this, nodeIds.next());
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+		};
+	}
+
+	//
+	// ABSTRACTGRAPH METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The node is not loaded; an unknown ID results in a handle that throws
+	 * on access.
+	 */
+	@Override
+	protected Node getNode(long nodeId) {
+		return new HybridNode(this, nodeId);
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the memory budget of this graph.
+	 *
+	 * @return The estimated number of bytes the nodes in memory may use
+	 */
+	long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Returns the number of nodes in memory.
+	 *
+	 * @return The number of nodes in memory
+	 */
+	synchronized int getResidentNodeCount() {
+		return residentNodes.size();
+	}
+
+	/**
+	 * Returns the estimated size of all nodes in memory.
+	 *
+	 * @return The estimated size of the nodes in memory
+	 */
+	synchronized long getResidentBytes() {
+		return residentBytes;
+	}
+
+	/**
+	 * Returns the statistics of the nodes in memory.
+	 *
+	 * @return The statistics of the nodes in memory
+	 */
+	synchronized CacheStatistics getStatistics() {
+		return new CacheStatistics(-1, residentNodes.size(), hits, misses, evictions);
+	}
+
+	//
+	// PACKAGE-PROTECTED METHODS
+	//
+
+	/**
+	 * Returns the value of a property of the given node.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property, or {@code null} if the node does not
+	 *         have the property
+	 * @throws GraphException
+	 *             if the node can not be loaded
+	 */
+	synchronized Object getProperty(long nodeId, String key) throws GraphException {
+		return getResidentNode(nodeId).node.get(key);
+	}
+
+	/**
+	 * Returns the keys of all properties of the given node.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The keys of all properties of the node
+	 * @throws GraphException
+	 *             if the node can not be loaded
+	 */
+	synchronized Set<String> getPropertyKeys(long nodeId) throws GraphException {
+		return getResidentNode(nodeId).node.getPropertyKeys();
+	}
+
+	/**
+	 * Sets a property of the given node and stores the node.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 * @throws GraphException
+	 *             if the node can not be loaded or stored
+	 */
+	void setProperty(long nodeId, String key, Object value) throws GraphException {
+		HybridNode node = new HybridNode(this, nodeId);
+		Object oldValue;
+		synchronized (this) {
+			ResidentNode residentNode = getResidentNode(nodeId);
+			oldValue = residentNode.node.get(key);
+			residentNode.node.set(key, value);
+			updateSize(residentNode);
+			updatePropertyIndex(node, key, oldValue, value);
+		}
+		firePropertyChanged(node, key, oldValue, value);
+	}
+
+	/**
+	 * Creates an edge between the given nodes, unless it already exists.
+	 *
+	 * @param startNodeId
+	 *            The ID of the start node
+	 * @param endNodeId
+	 *            The ID of the end node
+	 * @param relationship
+	 *            The relationship between the nodes
+	 * @return {@code true} if a new edge was created, {@code false} if the edge
+	 *         already existed
+	 * @throws GraphException
+	 *             if the edge can not be created
+	 */
+	boolean createEdge(long startNodeId, long endNodeId, DiskRelationship relationship) throws GraphException {
+		if (hasEdgeValidators()) {
+			validateEdge(new HybridNode(this, startNodeId), new HybridNode(this, endNodeId), relationship);
+		}
+		boolean created = false;
+		try {
+			synchronized (this) {
+				ResidentNode startNode = getResidentNode(startNodeId);
+				ResidentNode endNode = getResidentNode(endNodeId);
+				if (store.createEdge(startNode.node, endNode.node, relationship) == null) {
+					return false;
+				}
+				if (startNode.addLink(relationship, endNodeId, true)) {
+					updateSize(startNode);
+				}
+				if (endNode.addLink(relationship, startNodeId, false)) {
+					updateSize(endNode);
+				}
+			}
+			created = true;
+		} finally {
+			if (!created && hasEdgeValidators()) {
+				fireEdgeNotCreated(new HybridNode(this, startNodeId), new HybridNode(this, endNodeId), relationship);
+			}
+		}
+		fireEdgeCreated(new HybridEdge(this, new HybridNode(this, startNodeId), new HybridNode(this, endNodeId), relationship));
+		return true;
+	}
+
+	/**
+	 * Removes the edge between the given nodes.
+	 *
+	 * @param startNodeId
+	 *            The ID of the start node
+	 * @param endNodeId
+	 *            The ID of the end node
+	 * @param relationship
+	 *            The relationship between the nodes
+	 * @return {@code true} if an edge was removed, {@code false} if there was
+	 *         no edge to remove
+	 * @throws GraphException
+	 *             if the edge can not be removed
+	 */
+	boolean removeEdge(long startNodeId, long endNodeId, DiskRelationship relationship) throws GraphException {
+		synchronized (this) {
+			ResidentNode startNode = getResidentNode(startNodeId);
+			ResidentNode endNode = getResidentNode(endNodeId);
+			if (!store.removeEdge(startNode.node, endNode.node, relationship)) {
+				return false;
+			}
+			if (startNode.removeLink(relationship, endNodeId, true)) {
+				updateSize(startNode);
+			}
+			if (endNode.removeLink(relationship, startNodeId, false)) {
+				updateSize(endNode);
+			}
+		}
+		fireEdgeRemoved(new HybridEdge(this, new HybridNode(this, startNodeId), new HybridNode(this, endNodeId), relationship));
+		return true;
+	}
+
+	/**
+	 * Returns the outgoing or incoming edges of the given node that have the
+	 * given relationship.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param relationship
+	 *            The relationship of the edges
+	 * @param outgoing
+	 *            {@code true} to return the outgoing edges, {@code false} to
+	 *            return the incoming edges
+	 * @return The edges
+	 * @throws GraphException
+	 *             if the node or its edges can not be loaded
+	 */
+	synchronized Set<Edge> getEdges(long nodeId, DiskRelationship relationship, boolean outgoing) throws GraphException {
+		ResidentNode residentNode = getResidentNode(nodeId);
+		Map<Long, Set<Long>> links = outgoing ? residentNode.outgoingLinks : residentNode.incomingLinks;
+		Set<Long> linkedNodeIds = links.get(relationship.getId());
+		if (linkedNodeIds == null) {
+			linkedNodeIds = new HashSet<Long>();
+			for (long linkedNodeId : store.getLinkedNodeIds(nodeId, relationship, outgoing)) {
+				linkedNodeIds.add(linkedNodeId);
+			}
+			links.put(relationship.getId(), linkedNodeIds);
+			updateSize(residentNode);
+		}
+		HybridNode node = new HybridNode(this, nodeId);
+		Set<Edge> edges = new HashSet<Edge>();
+		for (long linkedNodeId : linkedNodeIds) {
+			HybridNode linkedNode = new HybridNode(this, linkedNodeId);
+			edges.add(outgoing ? new HybridEdge(this, node, linkedNode, relationship) : new HybridEdge(this, linkedNode, node, relationship));
+		}
+		return edges;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns the node with the given ID, loading it from disk if it is not
+	 * in memory.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The node
+	 * @throws GraphException
+	 *             if the node does not exist or can not be loaded
+	 */
+	private ResidentNode getResidentNode(long nodeId) throws GraphException {
+		ResidentNode residentNode = residentNodes.get(nodeId);
+		if (residentNode != null) {
+			++hits;
+			return residentNode;
+		}
+		++misses;
+		DiskNode node = store.getNode(nodeId);
+		if (node == null) {
+			throw new GraphException("Node " + nodeId + " does not exist.");
+		}
+		residentNode = new ResidentNode(node);
+		addResidentNode(residentNode);
+		return residentNode;
+	}
+
+	/**
+	 * Adds the given node to the nodes in memory.
+	 *
+	 * @param residentNode
+	 *            The node to add
+	 */
+	private void addResidentNode(ResidentNode residentNode) {
+		residentNodes.put(residentNode.node.getId(), residentNode);
+		residentNode.size = residentNode.estimateSize();
+		residentBytes += residentNode.size;
+		evict();
+	}
+
+	/**
+	 * Updates the estimated size of the given node after its properties or
+	 * links have changed.
+	 *
+	 * @param residentNode
+	 *            The node that has changed
+	 */
+	private void updateSize(ResidentNode residentNode) {
+		if (residentNodes.get(residentNode.node.getId()) != residentNode) {
+			/* the node has already been evicted. */
+			return;
+		}
+		long size = residentNode.estimateSize();
+		residentBytes += size - residentNode.size;
+		residentNode.size = size;
+		evict();
+	}
+
+	/**
+	 * Evicts the least recently used nodes until the nodes in memory fit into
+	 * the memory budget. The most recently used node is never evicted.
+	 */
+	private void evict() {
+		Iterator<ResidentNode> residentNodeIterator = residentNodes.values().iterator();
+		while ((residentBytes > memoryBudget) && (residentNodes.size() > 1)) {
+			ResidentNode residentNode = residentNodeIterator.next();
+			residentNodeIterator.remove();
+			residentBytes -= residentNode.size;
+			++evictions;
+		}
+	}
+
+	/**
+	 * A node in memory, together with the IDs of the nodes it is linked to.
+	 * The links of a relationship are only loaded when they are requested.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class ResidentNode {
+
+		/** The node. */
+		final DiskNode node;
+
+		/** The IDs of the end nodes of the outgoing edges, by relationship. */
+		final Map<Long, Set<Long>> outgoingLinks = new HashMap<Long, Set<Long>>();
+
+		/** The IDs of the start nodes of the incoming edges, by relationship. */
+		final Map<Long, Set<Long>> incomingLinks = new HashMap<Long, Set<Long>>();
+
+		/** The estimated size of this node. */
+		long size;
+
+		/**
+		 * Creates a new node in memory.
+		 *
+		 * @param node
+		 *            The node
+		 */
+		ResidentNode(DiskNode node) {
+			this.node = node;
+		}
+
+		/**
+		 * Adds a link to this node if the links of the given relationship have
+		 * been loaded.
+		 *
+		 * @param relationship
+		 *            The relationship of the link
+		 * @param nodeId
+		 *            The ID of the linked node
+		 * @param outgoing
+		 *            {@code true} if the link is outgoing, {@code false} if it
+		 *            is incoming
+		 * @return {@code true} if the link was added, {@code false} otherwise
+		 */
+		boolean addLink(DiskRelationship relationship, long nodeId, boolean outgoing) {
+			Set<Long> nodeIds = (outgoing ? outgoingLinks : incomingLinks).get(relationship.getId());
+			return (nodeIds != null) && nodeIds.add(nodeId);
+		}
+
+		/**
+		 * Removes a link from this node if the links of the given relationship
+		 * have been loaded.
+		 *
+		 * @param relationship
+		 *            The relationship of the link
+		 * @param nodeId
+		 *            The ID of the linked node
+		 * @param outgoing
+		 *            {@code true} if the link is outgoing, {@code false} if it
+		 *            is incoming
+		 * @return {@code true} if the link was removed, {@code false}
+		 *         otherwise
+		 */
+		boolean removeLink(DiskRelationship relationship, long nodeId, boolean outgoing) {
+			Set<Long> nodeIds = (outgoing ? outgoingLinks : incomingLinks).get(relationship.getId());
+			return (nodeIds != null) && nodeIds.remove(nodeId);
+		}
+
+		/**
+		 * Removes all links to or from the node with the given ID.
+		 *
+		 * @param nodeId
+		 *            The ID of the linked node
+		 * @return {@code true} if a link was removed, {@code false} otherwise
+		 */
+		boolean removeLinks(long nodeId) {
+			boolean removed = false;
+			for (Set<Long> nodeIds : outgoingLinks.values()) {
+				removed |= nodeIds.remove(nodeId);
+			}
+			for (Set<Long> nodeIds : incomingLinks.values()) {
+				removed |= nodeIds.remove(nodeId);
+			}
+			return removed;
+		}
+
+		/**
+		 * Estimates the number of bytes this node uses.
+		 *
+		 * @return The estimated size of this node
+		 */
+		long estimateSize() {
+			long estimatedSize = NODE_SIZE + node.getPropertyCount() * PROPERTY_SIZE;
+			for (Set<Long> nodeIds : outgoingLinks.values()) {
+				estimatedSize += LINKS_SIZE + nodeIds.size() * LINK_SIZE;
+			}
+			for (Set<Long> nodeIds : incomingLinks.values()) {
+				estimatedSize += LINKS_SIZE + nodeIds.size() * LINK_SIZE;
+			}
+			return estimatedSize;
+		}
+
+	}
+
+}
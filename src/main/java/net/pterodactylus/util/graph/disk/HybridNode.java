@@ -0,0 +1,195 @@
+/*
+ * utils.graph - HybridNode.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.util.Set;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * {@link Node} implementation that is used by {@link HybridStore}. A node is
+ * only a handle that contains the ID of the node; its properties and edges
+ * are kept by the {@link HybridGraph} while the node is in memory, and are
+ * loaded from disk otherwise. Any number of handles can exist for the same
+ * node, they are equal to each other.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class HybridNode implements Node {
+
+	/** The graph this node belongs to. */
+	private final HybridGraph graph;
+
+	/** The ID of the node. */
+	private final long id;
+
+	/**
+	 * Creates a new node handle.
+	 *
+	 * @param graph
+	 *            The graph the node belongs to
+	 * @param id
+	 *            The ID of the node
+	 */
+	HybridNode(HybridGraph graph, long id) {
+		this.graph = graph;
+		this.id = id;
+	}
+
+	//
+	// INTERFACE Node
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public HybridGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Node set(String key, Object value) throws GraphException {
+		graph.setProperty(id, key, value);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(String key) throws GraphException {
+		return graph.getProperty(id, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<String> getPropertyKeys() throws GraphException {
+		return graph.getPropertyKeys(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean link(Node otherNode, Relationship relationship) throws GraphException {
+		Validation.begin().isNotNull("Other Node", otherNode).isNotNull("Relationship", relationship).check().isInstanceOf("Other Node", otherNode, HybridNode.class).isInstanceOf("Relationship", relationship, DiskRelationship.class).isEqual("Other Node’s Graph", otherNode.getGraph(), graph).check();
+		return graph.createEdge(id, ((HybridNode) otherNode).id, (DiskRelationship) relationship);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean link(Node otherNode, String relationship) throws GraphException {
+		return link(otherNode, graph.getRelationship(relationship));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean unlink(Node otherNode, Relationship relationship) throws GraphException {
+		Validation.begin().isNotNull("Other Node", otherNode).isNotNull("Relationship", relationship).check().isInstanceOf("Other Node", otherNode, HybridNode.class).isInstanceOf("Relationship", relationship, DiskRelationship.class).isEqual("Other Node’s Graph", otherNode.getGraph(), graph).check();
+		return graph.removeEdge(id, ((HybridNode) otherNode).id, (DiskRelationship) relationship);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean unlink(Node otherNode, String relationship) throws GraphException {
+		return unlink(otherNode, graph.getRelationship(relationship));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Edge> getIncomingLinks(Relationship relationship) throws GraphException {
+		Validation.begin().isNotNull("Relationship", relationship).check().isInstanceOf("Relationship", relationship, DiskRelationship.class).check();
+		return graph.getEdges(id, (DiskRelationship) relationship, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Edge> getIncomingLinks(String relationship) throws GraphException {
+		return getIncomingLinks(graph.getRelationship(relationship));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Edge> getOutgoingLinks(Relationship relationship) throws GraphException {
+		Validation.begin().isNotNull("Relationship", relationship).check().isInstanceOf("Relationship", relationship, DiskRelationship.class).check();
+		return graph.getEdges(id, (DiskRelationship) relationship, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Edge> getOutgoingLinks(String relationship) throws GraphException {
+		return getOutgoingLinks(graph.getRelationship(relationship));
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return (int) ((id >> 32) ^ (id & 0xffffffff));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if (!(object instanceof HybridNode)) {
+			return false;
+		}
+		HybridNode node = (HybridNode) object;
+		return (node.graph == graph) && (node.id == id);
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * utils.graph - HybridStore.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.io.File;
+
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Store;
+
+/**
+ * {@link Store} implementation that keeps the properties and the adjacency of
+ * recently used nodes in memory and all other nodes only on disk. The nodes
+ * are stored in a {@link DiskStore} in the given directory; every
+ * modification is written through to it immediately. Nodes that are accessed
+ * are loaded into memory, and when the estimated size of all nodes in memory
+ * exceeds the memory budget the least recently used nodes are evicted.
+ * <p>
+ * Skewed workloads that mostly access a small set of hot nodes are thus
+ * served from memory while the graph itself can be as large as the disk.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class HybridStore implements Store {
+
+	/** The default memory budget (64 MiB). */
+	public static final long DEFAULT_MEMORY_BUDGET = 64 * 1024 * 1024;
+
+	/** The backing disk store. */
+	private final DiskStore diskStore;
+
+	/** The graph of this store. */
+	private final HybridGraph graph;
+
+	/**
+	 * Creates a new hybrid store in the given directory with the default
+	 * memory budget.
+	 *
+	 * @param directory
+	 *            The directory of the backing disk store
+	 * @throws GraphException
+	 *             if the backing disk store can not be created or loaded
+	 */
+	public HybridStore(File directory) throws GraphException {
+		this(directory, DEFAULT_MEMORY_BUDGET);
+	}
+
+	/**
+	 * Creates a new hybrid store in the given directory.
+	 *
+	 * @param directory
+	 *            The directory of the backing disk store
+	 * @param memoryBudget
+	 *            The estimated number of bytes the nodes in memory may use
+	 * @throws GraphException
+	 *             if the backing disk store can not be created or loaded
+	 */
+	public HybridStore(File directory, long memoryBudget) throws GraphException {
+		if (memoryBudget < 0) {
+			throw new IllegalArgumentException("Memory budget must not be negative!");
+		}
+		/* nodes are kept in memory by the hybrid graph only. */
+		diskStore = new DiskStore(directory, 0);
+		graph = new HybridGraph(diskStore, memoryBudget);
+	}
+
+	//
+	// INTERFACE Store
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Graph getGraph() {
+		return graph;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the memory budget of this store.
+	 *
+	 * @return The estimated number of bytes the nodes in memory may use
+	 */
+	public long getMemoryBudget() {
+		return graph.getMemoryBudget();
+	}
+
+	/**
+	 * Returns the number of nodes that are currently kept in memory.
+	 *
+	 * @return The number of nodes in memory
+	 */
+	public int getResidentNodeCount() {
+		return graph.getResidentNodeCount();
+	}
+
+	/**
+	 * Returns the estimated number of bytes used by the nodes that are
+	 * currently kept in memory.
+	 *
+	 * @return The estimated size of the nodes in memory
+	 */
+	public long getResidentBytes() {
+		return graph.getResidentBytes();
+	}
+
+	/**
+	 * Returns the statistics of the nodes kept in memory. The capacity of the
+	 * returned statistics is {@code -1} as the number of nodes in memory is
+	 * limited by their estimated size only.
+	 *
+	 * @return The statistics of the nodes in memory
+	 */
+	public CacheStatistics getStatistics() {
+		return graph.getStatistics();
+	}
+
+}
@@ -0,0 +1,630 @@
+/*
+ * utils.graph - ObjectCache.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded cache for decoded objects that uses the W-TinyLFU eviction
+ * policy. New objects enter a small LRU window; objects that fall out of the
+ * window only replace the least recently used object of the main area if they
+ * have been requested more often, as estimated by a count-min sketch with
+ * periodic aging. The main area is a segmented LRU with a probation and a
+ * protected segment. This keeps frequently requested objects (like the root
+ * node) in the cache even when a scan over many cold objects happens.
+ * <p>
+ * {@link #get(long)} does not lock: the entries are kept in a concurrent map,
+ * and every hit is only recorded in one of several striped read buffers. The
+ * recorded hits are applied to the segments and the sketch by whichever
+ * thread holds the eviction lock next, either because it modifies the cache
+ * or because its read buffer has filled up. Hits that arrive while a read
+ * buffer is full are dropped, which only makes the eviction policy slightly
+ * less accurate.
+ *
+ * @param <T>
+ *            The type of the cached objects
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class ObjectCache<T> {
+
+	/** The number of slots of a read buffer, a power of two. */
+	private static final int READ_BUFFER_SIZE = 16;
+
+	/** The maximum number of objects in the cache. */
+	private final int capacity;
+
+	/** The maximum number of objects in the window. */
+	private final int windowCapacity;
+
+	/** The maximum number of objects in the protected segment. */
+	private final int protectedCapacity;
+
+	/** The cache entries, by ID. */
+	private final ConcurrentMap<Long, Entry<T>> entries = new ConcurrentHashMap<Long, Entry<T>>();
+
+	/** The read buffers, striped by thread. */
+	private final ReadBuffer<T>[] readBuffers;
+
+	/** The lock that guards the segments, the sketch, and the evictions. */
+	private final Lock evictionLock = new ReentrantLock();
+
+	/** The window segment. */
+	private final Segment<T> window = new Segment<T>();
+
+	/** The probation segment of the main area. */
+	private final Segment<T> probation = new Segment<T>();
+
+	/** The protected segment of the main area. */
+	private final Segment<T> protectedSegment = new Segment<T>();
+
+	/** The frequency sketch. */
+	private final FrequencySketch sketch;
+
+	/** The number of evictions. */
+	private long evictions;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param capacity
+	 *            The maximum number of objects in the cache ({@code 0} to
+	 *            disable caching)
+	 */
+	@SuppressWarnings("unchecked")
+	public ObjectCache(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity must not be negative!");
+		}
+		this.capacity = capacity;
+		windowCapacity = Math.max(1, capacity / 100);
+		protectedCapacity = (capacity - windowCapacity) * 4 / 5;
+		sketch = new FrequencySketch(capacity);
+		int stripes = 1;
+		while (stripes < Runtime.getRuntime().availableProcessors()) {
+			stripes <<= 1;
+		}
+		readBuffers = (ReadBuffer<T>[]) new ReadBuffer<?>[stripes];
+		for (int stripe = 0; stripe < stripes; ++stripe) {
+			readBuffers[stripe] = new ReadBuffer<T>();
+		}
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the object with the given ID.
+	 *
+	 * @param id
+	 *            The ID of the object
+	 * @return The cached object, or {@code null} if the object is not cached
+	 */
+	public T get(long id) {
+		ReadBuffer<T> readBuffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+		Entry<T> entry = (capacity == 0) ? null : entries.get(id);
+		if (entry == null) {
+			readBuffer.misses.incrementAndGet();
+			return null;
+		}
+		readBuffer.hits.incrementAndGet();
+		T value = entry.value;
+		if (readBuffer.record(entry)) {
+			tryDrainReadBuffers();
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the current statistics of this cache.
+	 *
+	 * @return The statistics of this cache
+	 */
+	public CacheStatistics getStatistics() {
+		long hits = 0;
+		long misses = 0;
+		for (ReadBuffer<T> readBuffer : readBuffers) {
+			hits += readBuffer.hits.get();
+			misses += readBuffer.misses.get();
+		}
+		evictionLock.lock();
+		try {
+			return new CacheStatistics(capacity, entries.size(), hits, misses, evictions);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Stores the given object in the cache, replacing any object that is
+	 * already cached under the same ID.
+	 *
+	 * @param id
+	 *            The ID of the object
+	 * @param value
+	 *            The object to cache
+	 */
+	public void put(long id, T value) {
+		if (capacity == 0) {
+			return;
+		}
+		evictionLock.lock();
+		try {
+			drainReadBuffers();
+			Entry<T> entry = entries.get(id);
+			if (entry != null) {
+				entry.value = value;
+				touch(entry);
+				return;
+			}
+			sketch.increment(id);
+			entry = new Entry<T>(id, value);
+			entries.put(id, entry);
+			window.addFirst(entry);
+			if (window.size <= windowCapacity) {
+				return;
+			}
+			Entry<T> candidate = window.removeLast();
+			probation.addFirst(candidate);
+			if ((probation.size + protectedSegment.size) <= (capacity - windowCapacity)) {
+				return;
+			}
+			Entry<T> victim = probation.last;
+			if (victim == candidate) {
+				victim = candidate.previous;
+			}
+			if ((victim == null) || (sketch.frequency(candidate.id) > sketch.frequency(victim.id))) {
+				evict((victim == null) ? candidate : victim);
+			} else {
+				evict(candidate);
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the object with the given ID from the cache. This method has to
+	 * be called whenever the stored version of an object changes.
+	 *
+	 * @param id
+	 *            The ID of the object
+	 */
+	public void invalidate(long id) {
+		evictionLock.lock();
+		try {
+			drainReadBuffers();
+			Entry<T> entry = entries.remove(id);
+			if (entry != null) {
+				entry.segment.remove(entry);
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Removes all objects from the cache.
+	 */
+	public void clear() {
+		evictionLock.lock();
+		try {
+			drainReadBuffers();
+			entries.clear();
+			window.clear();
+			probation.clear();
+			protectedSegment.clear();
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Applies the recorded hits of all read buffers if the eviction lock is
+	 * not held by another thread.
+	 */
+	private void tryDrainReadBuffers() {
+		if (evictionLock.tryLock()) {
+			try {
+				drainReadBuffers();
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Applies the recorded hits of all read buffers to the sketch and the
+	 * segments. The caller has to hold the eviction lock.
+	 */
+	private void drainReadBuffers() {
+		for (ReadBuffer<T> readBuffer : readBuffers) {
+			Entry<T> entry;
+			while ((entry = readBuffer.poll()) != null) {
+				sketch.increment(entry.id);
+				if (entry.segment != null) {
+					touch(entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records an access to the given entry, moving it to the appropriate
+	 * position in its segment.
+	 *
+	 * @param entry
+	 *            The entry that was accessed
+	 */
+	private void touch(Entry<T> entry) {
+		if (entry.segment == probation) {
+			probation.remove(entry);
+			protectedSegment.addFirst(entry);
+			if (protectedSegment.size > protectedCapacity) {
+				probation.addFirst(protectedSegment.removeLast());
+			}
+			return;
+		}
+		Segment<T> segment = entry.segment;
+		segment.remove(entry);
+		segment.addFirst(entry);
+	}
+
+	/**
+	 * Evicts the given entry from the cache.
+	 *
+	 * @param entry
+	 *            The entry to evict
+	 */
+	private void evict(Entry<T> entry) {
+		entry.segment.remove(entry);
+		entries.remove(entry.id);
+		++evictions;
+	}
+
+	/**
+	 * A cache entry that is also a member of a doubly-linked {@link Segment}.
+	 *
+	 * @param <T>
+	 *            The type of the cached object
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Entry<T> {
+
+		/** The ID of the object. */
+		final long id;
+
+		/** The cached object. */
+		volatile T value;
+
+		/** The segment this entry is currently in. */
+		Segment<T> segment;
+
+		/** The previous (more recently used) entry. */
+		Entry<T> previous;
+
+		/** The next (less recently used) entry. */
+		Entry<T> next;
+
+		/**
+		 * Creates a new entry.
+		 *
+		 * @param id
+		 *            The ID of the object
+		 * @param value
+		 *            The cached object
+		 */
+		Entry(long id, T value) {
+			this.id = id;
+			this.value = value;
+		}
+
+	}
+
+	/**
+	 * An LRU-ordered, doubly-linked list of cache entries.
+	 *
+	 * @param <T>
+	 *            The type of the cached objects
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Segment<T> {
+
+		/** The most recently used entry. */
+		Entry<T> first;
+
+		/** The least recently used entry. */
+		Entry<T> last;
+
+		/** The number of entries in this segment. */
+		int size;
+
+		/**
+		 * Adds the given entry as most recently used entry.
+		 *
+		 * @param entry
+		 *            The entry to add
+		 */
+		void addFirst(Entry<T> entry) {
+			entry.segment = this;
+			entry.previous = null;
+			entry.next = first;
+			if (first != null) {
+				first.previous = entry;
+			} else {
+				last = entry;
+			}
+			first = entry;
+			++size;
+		}
+
+		/**
+		 * Removes the given entry from this segment.
+		 *
+		 * @param entry
+		 *            The entry to remove
+		 */
+		void remove(Entry<T> entry) {
+			if (entry.previous != null) {
+				entry.previous.next = entry.next;
+			} else {
+				first = entry.next;
+			}
+			if (entry.next != null) {
+				entry.next.previous = entry.previous;
+			} else {
+				last = entry.previous;
+			}
+			entry.previous = null;
+			entry.next = null;
+			entry.segment = null;
+			--size;
+		}
+
+		/**
+		 * Removes and returns the least recently used entry.
+		 *
+		 * @return The least recently used entry
+		 */
+		Entry<T> removeLast() {
+			Entry<T> entry = last;
+			remove(entry);
+			return entry;
+		}
+
+		/**
+		 * Removes all entries from this segment.
+		 */
+		void clear() {
+			first = null;
+			last = null;
+			size = 0;
+		}
+
+	}
+
+	/**
+	 * Lossy ring buffer that records cache hits of the threads of one stripe
+	 * until they are applied under the eviction lock. It also counts the hits
+	 * and misses of its threads.
+	 *
+	 * @param <T>
+	 *            The type of the cached objects
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class ReadBuffer<T> {
+
+		/** The recorded entries. */
+		private final AtomicReferenceArray<Entry<T>> slots = new AtomicReferenceArray<Entry<T>>(READ_BUFFER_SIZE);
+
+		/** The number of recorded entries. */
+		private final AtomicLong writeCount = new AtomicLong();
+
+		/** The number of applied entries, only changed under the eviction lock. */
+		private volatile long readCount;
+
+		/** The number of hits. */
+		final AtomicLong hits = new AtomicLong();
+
+		/** The number of misses. */
+		final AtomicLong misses = new AtomicLong();
+
+		/**
+		 * Records a hit of the given entry. The hit is dropped if the buffer
+		 * is full.
+		 *
+		 * @param entry
+		 *            The entry that was hit
+		 * @return {@code true} if the buffer is full and should be drained,
+		 *         {@code false} otherwise
+		 */
+		boolean record(Entry<T> entry) {
+			long writeIndex = writeCount.get();
+			if ((writeIndex - readCount) >= READ_BUFFER_SIZE) {
+				return true;
+			}
+			if (writeCount.compareAndSet(writeIndex, writeIndex + 1)) {
+				slots.lazySet((int) writeIndex & (READ_BUFFER_SIZE - 1), entry);
+			}
+			return (writeIndex + 1 - readCount) >= READ_BUFFER_SIZE;
+		}
+
+		/**
+		 * Removes the oldest recorded entry. The caller has to hold the
+		 * eviction lock.
+		 *
+		 * @return The oldest recorded entry, or {@code null} if there are no
+		 *         more completely recorded entries
+		 */
+		Entry<T> poll() {
+			if (readCount == writeCount.get()) {
+				return null;
+			}
+			int index = (int) readCount & (READ_BUFFER_SIZE - 1);
+			Entry<T> entry = slots.get(index);
+			if (entry == null) {
+				return null;
+			}
+			slots.lazySet(index, null);
+			readCount = readCount + 1;
+			return entry;
+		}
+
+	}
+
+	/**
+	 * Count-min sketch with four rows of 4-bit counters that estimates how
+	 * often an ID was requested. All counters are halved once the number of
+	 * recorded requests reaches ten times the cache capacity so that old
+	 * popularity fades.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class FrequencySketch {
+
+		/** The seeds for the four hash functions. */
+		private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+		/** The counters, sixteen 4-bit counters per long. */
+		private final long[] table;
+
+		/** The number of requests after which the counters are halved. */
+		private final int sampleSize;
+
+		/** The number of requests since the last reset. */
+		private int additions;
+
+		/**
+		 * Creates a new frequency sketch for a cache with the given capacity.
+		 *
+		 * @param capacity
+		 *            The capacity of the cache
+		 */
+		FrequencySketch(int capacity) {
+			int tableSize = 1;
+			while (tableSize < Math.max(capacity, 16)) {
+				tableSize <<= 1;
+			}
+			table = new long[tableSize];
+			sampleSize = Math.max(capacity, 1) * 10;
+		}
+
+		/**
+		 * Records a request for the given ID.
+		 *
+		 * @param id
+		 *            The requested ID
+		 */
+		void increment(long id) {
+			boolean added = false;
+			for (int row = 0; row < 4; ++row) {
+				int index = index(id, row);
+				int offset = offset(id, row);
+				if (((table[index] >>> offset) & 0xf) < 15) {
+					table[index] += 1L << offset;
+					added = true;
+				}
+			}
+			if (added && (++additions >= sampleSize)) {
+				reset();
+			}
+		}
+
+		/**
+		 * Returns the estimated number of requests for the given ID.
+		 *
+		 * @param id
+		 *            The ID
+		 * @return The estimated request frequency (between 0 and 15)
+		 */
+		int frequency(long id) {
+			int frequency = 15;
+			for (int row = 0; row < 4; ++row) {
+				frequency = Math.min(frequency, (int) ((table[index(id, row)] >>> offset(id, row)) & 0xf));
+			}
+			return frequency;
+		}
+
+		/**
+		 * Halves all counters.
+		 */
+		private void reset() {
+			for (int index = 0; index < table.length; ++index) {
+				table[index] = (table[index] >>> 1) & 0x7777777777777777L;
+			}
+			additions /= 2;
+		}
+
+		/**
+		 * Returns the hash of the given ID for the given row.
+		 *
+		 * @param id
+		 *            The ID
+		 * @param row
+		 *            The row
+		 * @return The hash of the ID
+		 */
+		private static long hash(long id, int row) {
+			long hash = (id + SEEDS[row]) * SEEDS[row];
+			return hash ^ (hash >>> 32);
+		}
+
+		/**
+		 * Returns the index of the long that contains the counter of the given
+		 * ID in the given row.
+		 *
+		 * @param id
+		 *            The ID
+		 * @param row
+		 *            The row
+		 * @return The index into the table
+		 */
+		private int index(long id, int row) {
+			return (int) (hash(id, row) >>> 4) & (table.length - 1);
+		}
+
+		/**
+		 * Returns the bit offset of the counter of the given ID in the given
+		 * row.
+		 *
+		 * @param id
+		 *            The ID
+		 * @param row
+		 *            The row
+		 * @return The bit offset of the counter
+		 */
+		private static int offset(long id, int row) {
+			return (int) (hash(id, row) & 0xf) << 2;
+		}
+
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * utils.graph - RangeCursor.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.util.NoSuchElementException;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+
+/**
+ * Cursor over the entries of a {@link RangeIndex} whose values lie in a
+ * range. The cursor reads one leaf page at a time; to read the next leaf page
+ * it searches the index again for the first entry after the last entry it
+ * returned, so it never sees an entry twice even if the index is modified
+ * while the cursor is used. Entries that are added or removed behind the
+ * current leaf page may or may not be returned.
+ * <p>
+ * A cursor is positioned before the first entry; {@link #next()} has to be
+ * called to move it to the first entry.
+ *
+ * <pre>
+ * RangeCursor cursor = rangeIndex.find(start, end, true);
+ * while (cursor.next()) {
+ * 	Node node = cursor.getNode();
+ * }
+ * </pre>
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class RangeCursor {
+
+	/** The index. */
+	private final RangeIndex rangeIndex;
+
+	/** The smallest value to return, or {@code null}. */
+	private final Object lowerBound;
+
+	/** The largest value to return, or {@code null}. */
+	private final Object upperBound;
+
+	/** Whether the largest values are returned first. */
+	private final boolean descending;
+
+	/** The values of the entries of the current leaf page. */
+	private final Object[] values = new Object[RangeIndexPage.CAPACITY];
+
+	/** The node IDs of the entries of the current leaf page. */
+	private final long[] nodeIds = new long[RangeIndexPage.CAPACITY];
+
+	/** The number of entries of the current leaf page. */
+	private int count;
+
+	/** The index of the current entry, or {@code -1} before the first entry. */
+	private int position = -1;
+
+	/** Whether the cursor has moved past the last entry. */
+	private boolean finished;
+
+	/**
+	 * Creates a new cursor.
+	 *
+	 * @param rangeIndex
+	 *            The index
+	 * @param lowerBound
+	 *            The smallest value to return, or {@code null}
+	 * @param upperBound
+	 *            The largest value to return, or {@code null}
+	 * @param descending
+	 *            {@code true} to return the largest values first,
+	 *            {@code false} to return the smallest values first
+	 */
+	RangeCursor(RangeIndex rangeIndex, Object lowerBound, Object upperBound, boolean descending) {
+		this.rangeIndex = rangeIndex;
+		this.lowerBound = lowerBound;
+		this.upperBound = upperBound;
+		this.descending = descending;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the value of the current entry.
+	 *
+	 * @return The value of the current entry
+	 * @throws NoSuchElementException
+	 *             if the cursor is not positioned on an entry
+	 */
+	public Object getValue() {
+		verifyPosition();
+		return values[position];
+	}
+
+	/**
+	 * Returns the ID of the node of the current entry.
+	 *
+	 * @return The ID of the node of the current entry
+	 * @throws NoSuchElementException
+	 *             if the cursor is not positioned on an entry
+	 */
+	public long getNodeId() {
+		verifyPosition();
+		return nodeIds[position];
+	}
+
+	/**
+	 * Loads the node of the current entry.
+	 *
+	 * @return The node of the current entry, or {@code null} if it has been
+	 *         removed in the meantime
+	 * @throws GraphException
+	 *             if the node can not be loaded
+	 * @throws NoSuchElementException
+	 *             if the cursor is not positioned on an entry
+	 */
+	public Node getNode() throws GraphException {
+		return rangeIndex.getNode(getNodeId());
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Moves the cursor to the next entry.
+	 *
+	 * @return {@code true} if the cursor is positioned on an entry,
+	 *         {@code false} if there are no more entries
+	 * @throws GraphException
+	 *             if a page of the index can not be loaded
+	 */
+	public boolean next() throws GraphException {
+		if (finished) {
+			return false;
+		}
+		if (++position >= count) {
+			if (count > 0) {
+				count = rangeIndex.readEntries(values[count - 1], nodeIds[count - 1], false, descending, values, nodeIds);
+			} else if (descending) {
+				count = rangeIndex.readEntries(upperBound, Long.MAX_VALUE, true, true, values, nodeIds);
+			} else {
+				count = rangeIndex.readEntries(lowerBound, Long.MIN_VALUE, true, false, values, nodeIds);
+			}
+			position = 0;
+		}
+		if ((position >= count) || isOutOfRange(values[position])) {
+			finished = true;
+			return false;
+		}
+		return true;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns whether the given value lies behind the end of the range.
+	 *
+	 * @param value
+	 *            The value to check
+	 * @return {@code true} if the value lies behind the end of the range,
+	 *         {@code false} otherwise
+	 */
+	private boolean isOutOfRange(Object value) {
+		if (descending) {
+			return (lowerBound != null) && (RangeIndex.compareValues(value, lowerBound) < 0);
+		}
+		return (upperBound != null) && (RangeIndex.compareValues(value, upperBound) > 0);
+	}
+
+	/**
+	 * Verifies that this cursor is positioned on an entry.
+	 *
+	 * @throws NoSuchElementException
+	 *             if the cursor is not positioned on an entry
+	 */
+	private void verifyPosition() {
+		if ((position < 0) || (position >= count) || finished) {
+			throw new NoSuchElementException();
+		}
+	}
+
+}
@@ -0,0 +1,697 @@
+/*
+ * utils.graph - RangeIndex.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Persistent B+tree index over the values of a single property key of the
+ * nodes of a {@link DiskStore}. Unlike the hash indexes created with
+ * {@link net.pterodactylus.util.graph.Graph#createIndex(String)} a range index
+ * can return the nodes whose values lie in a range, in ascending or
+ * descending order of the values.
+ * <p>
+ * Only {@link Number}s and {@link Comparable} values are indexed; other
+ * values are ignored. Numbers are compared exactly by their numeric value,
+ * so that e.g. {@link Long}s and {@link Double}s of one key are ordered
+ * consistently; NaN is greater than all other numbers, and positive and
+ * negative zero are equal. Other values of the same class are compared by
+ * their natural order, and values of different classes by the names of their
+ * classes.
+ * <p>
+ * The entries of the index are (value, node ID) pairs, stored in
+ * {@link RangeIndexPage}s of a {@link BufferPool}. The root page of an index
+ * never changes its ID; when it is split, its content is moved to a new page.
+ * Pages that become empty are removed, but pages are not merged.
+ * <p>
+ * A range index is safe for concurrent use: modifications are serialized by
+ * a read-write lock, and a {@link RangeCursor} only holds the lock while it
+ * reads the next leaf page.
+ *
+ * @see DiskStore#createRangeIndex(String)
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class RangeIndex {
+
+	/** The number of keys in a page created by a bulk build. */
+	private static final int BUILD_FILL = RangeIndexPage.CAPACITY * 7 / 8;
+
+	/** The store. */
+	private final DiskStore store;
+
+	/** The buffer pool that holds the pages. */
+	private final BufferPool bufferPool;
+
+	/** The number of this index within the store; also the root page ID. */
+	private final int number;
+
+	/** The indexed property key. */
+	private final String key;
+
+	/** The lock that guards the pages of this index. */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Creates a new range index. The root page has to be created with
+	 * {@link #build(Iterator)} if the index is new.
+	 *
+	 * @param store
+	 *            The store
+	 * @param bufferPool
+	 *            The buffer pool that holds the pages
+	 * @param number
+	 *            The number of this index within the store
+	 * @param key
+	 *            The indexed property key
+	 */
+	RangeIndex(DiskStore store, BufferPool bufferPool, int number, String key) {
+		this.store = store;
+		this.bufferPool = bufferPool;
+		this.number = number;
+		this.key = key;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the indexed property key.
+	 *
+	 * @return The indexed property key
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns the number of this index within the store.
+	 *
+	 * @return The number of this index
+	 */
+	int getNumber() {
+		return number;
+	}
+
+	/**
+	 * Returns a cursor over all nodes whose value lies between the given
+	 * bounds. Both bounds are inclusive; a {@code null} bound is unbounded.
+	 * Nodes with the same value are returned in the order of their IDs (or in
+	 * reverse order, if descending).
+	 *
+	 * @param lowerBound
+	 *            The smallest value to return, or {@code null}
+	 * @param upperBound
+	 *            The largest value to return, or {@code null}
+	 * @param descending
+	 *            {@code true} to return the largest values first,
+	 *            {@code false} to return the smallest values first
+	 * @return A cursor over the matching nodes
+	 */
+	public RangeCursor find(Object lowerBound, Object upperBound, boolean descending) {
+		Validation.begin().isEqual("Lower Bound Indexable", (lowerBound == null) || isIndexable(lowerBound), true).isEqual("Upper Bound Indexable", (upperBound == null) || isIndexable(upperBound), true).check();
+		return new RangeCursor(this, lowerBound, upperBound, descending);
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Updates the entry of the node with the given ID after its property has
+	 * changed.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param oldValue
+	 *            The old value of the property, or {@code null}
+	 * @param newValue
+	 *            The new value of the property, or {@code null}
+	 * @throws GraphException
+	 *             if a page can not be loaded or stored
+	 */
+	void update(long nodeId, Object oldValue, Object newValue) throws GraphException {
+		boolean indexOldValue = isIndexable(oldValue);
+		boolean indexNewValue = isIndexable(newValue);
+		if (indexOldValue && indexNewValue && (compareValues(oldValue, newValue) == 0) && oldValue.equals(newValue)) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (indexOldValue && remove(number, oldValue, nodeId)) {
+				RangeIndexPage rootPage = bufferPool.getPage(number);
+				rootPage.clear(true);
+				bufferPool.storePage(rootPage);
+			}
+			if (indexNewValue) {
+				Separator separator = insert(number, newValue, nodeId);
+				if (separator != null) {
+					RangeIndexPage rootPage = bufferPool.getPage(number);
+					RangeIndexPage leftPage = new RangeIndexPage(bufferPool.allocatePageId(), true);
+					leftPage.copyFrom(rootPage);
+					bufferPool.storePage(leftPage);
+					rootPage.setChildren(leftPage.getId(), separator.value, separator.nodeId, separator.pageId);
+					bufferPool.storePage(rootPage);
+				}
+			}
+			shrinkRoot();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Builds this index from the given nodes. The entries are sorted first,
+	 * then the pages are filled bottom-up, one level at a time, so that every
+	 * page is written only once.
+	 *
+	 * @param nodes
+	 *            The nodes to index
+	 * @throws GraphException
+	 *             if a node can not be read or a page can not be stored
+	 */
+	void build(Iterator<Node> nodes) throws GraphException {
+		List<Separator> entries = new ArrayList<Separator>();
+		while (nodes.hasNext()) {
+			Node node = nodes.next();
+			Object value = node.get(key);
+			if (isIndexable(value)) {
+				entries.add(new Separator(value, node.getId(), -1));
+			}
+		}
+		Collections.sort(entries, new Comparator<Separator>() {
+
+			@Override
+			public int compare(Separator firstEntry, Separator secondEntry) {
+				return RangeIndex.compare(firstEntry.value, firstEntry.nodeId, secondEntry.value, secondEntry.nodeId);
+			}
+
+		});
+		lock.writeLock().lock();
+		try {
+			if (entries.size() <= RangeIndexPage.CAPACITY) {
+				bufferPool.storePage(createPage(number, true, entries, 0, entries.size()));
+				return;
+			}
+			List<Separator> level = new ArrayList<Separator>();
+			int pageCount = (entries.size() + BUILD_FILL - 1) / BUILD_FILL;
+			for (int page = 0; page < pageCount; ++page) {
+				int first = (int) ((long) entries.size() * page / pageCount);
+				int last = (int) ((long) entries.size() * (page + 1) / pageCount);
+				RangeIndexPage leafPage = createPage(bufferPool.allocatePageId(), true, entries, first, last);
+				bufferPool.storePage(leafPage);
+				level.add(new Separator(entries.get(first).value, entries.get(first).nodeId, leafPage.getId()));
+			}
+			while (level.size() > RangeIndexPage.CAPACITY + 1) {
+				List<Separator> upperLevel = new ArrayList<Separator>();
+				pageCount = (level.size() + BUILD_FILL) / (BUILD_FILL + 1);
+				for (int page = 0; page < pageCount; ++page) {
+					int first = (int) ((long) level.size() * page / pageCount);
+					int last = (int) ((long) level.size() * (page + 1) / pageCount);
+					RangeIndexPage innerPage = createPage(bufferPool.allocatePageId(), false, level, first, last);
+					bufferPool.storePage(innerPage);
+					upperLevel.add(new Separator(level.get(first).value, level.get(first).nodeId, innerPage.getId()));
+				}
+				level = upperLevel;
+			}
+			bufferPool.storePage(createPage(number, false, level, 0, level.size()));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes all pages of this index.
+	 *
+	 * @throws GraphException
+	 *             if a page can not be removed
+	 */
+	void drop() throws GraphException {
+		lock.writeLock().lock();
+		try {
+			List<Long> pageIds = new ArrayList<Long>();
+			pageIds.add((long) number);
+			while (!pageIds.isEmpty()) {
+				long pageId = pageIds.remove(pageIds.size() - 1);
+				RangeIndexPage page = bufferPool.getPage(pageId);
+				if (!page.isLeaf()) {
+					for (int index = 0; index <= page.getSize(); ++index) {
+						pageIds.add(page.getChild(index));
+					}
+				}
+				bufferPool.removePage(pageId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads the entries of the leaf page that contains the first entry after
+	 * the given key, in the given direction. If that leaf page has no such
+	 * entry, the following leaf pages are searched.
+	 *
+	 * @param value
+	 *            The value of the key, or {@code null} to start at the first
+	 *            (or, if descending, the last) entry of this index
+	 * @param nodeId
+	 *            The node ID of the key
+	 * @param inclusive
+	 *            {@code true} to include an entry that is equal to the key
+	 * @param descending
+	 *            {@code true} to read the entries before the key, in
+	 *            descending order, {@code false} to read the entries after the
+	 *            key, in ascending order
+	 * @param values
+	 *            The array that receives the values of the entries; it must
+	 *            have room for {@link RangeIndexPage#CAPACITY} entries
+	 * @param nodeIds
+	 *            The array that receives the node IDs of the entries; it must
+	 *            have room for {@link RangeIndexPage#CAPACITY} entries
+	 * @return The number of entries that were read, or {@code 0} if there are
+	 *         no more entries
+	 * @throws GraphException
+	 *             if a page can not be loaded
+	 */
+	int readEntries(Object value, long nodeId, boolean inclusive, boolean descending, Object[] values, long[] nodeIds) throws GraphException {
+		lock.readLock().lock();
+		try {
+			while (true) {
+				RangeIndexPage page = bufferPool.getPage(number);
+				RangeIndexPage fence = null;
+				int fenceIndex = -1;
+				while (!page.isLeaf()) {
+					int child;
+					if (value == null) {
+						child = descending ? page.getSize() : 0;
+					} else {
+						int position = page.search(value, nodeId);
+						child = (position < 0) ? -(position + 1) : ((descending && !inclusive) ? position : (position + 1));
+					}
+					if (!descending && (child < page.getSize())) {
+						fence = page;
+						fenceIndex = child;
+					} else if (descending && (child > 0)) {
+						fence = page;
+						fenceIndex = child - 1;
+					}
+					page = bufferPool.getPage(page.getChild(child));
+				}
+				int index;
+				if (value == null) {
+					index = descending ? (page.getSize() - 1) : 0;
+				} else {
+					int position = page.search(value, nodeId);
+					if (position < 0) {
+						index = descending ? (-(position + 1) - 1) : -(position + 1);
+					} else {
+						index = (inclusive ? position : (descending ? (position - 1) : (position + 1)));
+					}
+				}
+				int count = 0;
+				for (; (index >= 0) && (index < page.getSize()); index += descending ? -1 : 1, ++count) {
+					values[count] = page.getValue(index);
+					nodeIds[count] = page.getNodeId(index);
+				}
+				if ((count > 0) || (fence == null)) {
+					return count;
+				}
+				value = fence.getValue(fenceIndex);
+				nodeId = fence.getNodeId(fenceIndex);
+				inclusive = !descending;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the node with the given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The node, or {@code null} if there is no such node
+	 * @throws GraphException
+	 *             if the node can not be loaded
+	 */
+	Node getNode(long nodeId) throws GraphException {
+		return store.getNode(nodeId);
+	}
+
+	//
+	// STATIC METHODS
+	//
+
+	/**
+	 * Returns whether the given value can be stored in a range index.
+	 *
+	 * @param value
+	 *            The value to check
+	 * @return {@code true} if the value can be indexed, {@code false}
+	 *         otherwise
+	 */
+	static boolean isIndexable(Object value) {
+		return (value instanceof Number) || (value instanceof Comparable<?>);
+	}
+
+	/**
+	 * Compares two indexable values.
+	 *
+	 * @param firstValue
+	 *            The first value
+	 * @param secondValue
+	 *            The second value
+	 * @return A negative number, zero, or a positive number if the first value
+	 *         is smaller than, equal to, or greater than the second value
+	 */
+	@SuppressWarnings("unchecked")
+	static int compareValues(Object firstValue, Object secondValue) {
+		if ((firstValue instanceof Number) && (secondValue instanceof Number)) {
+			return compareNumbers((Number) firstValue, (Number) secondValue);
+		}
+		if ((firstValue instanceof Number) != (secondValue instanceof Number)) {
+			return (firstValue instanceof Number) ? -1 : 1;
+		}
+		if (firstValue.getClass() != secondValue.getClass()) {
+			return firstValue.getClass().getName().compareTo(secondValue.getClass().getName());
+		}
+		return ((Comparable<Object>) firstValue).compareTo(secondValue);
+	}
+
+	/**
+	 * Compares two entries of a range index, first by their values, then by
+	 * their node IDs.
+	 *
+	 * @param firstValue
+	 *            The value of the first entry
+	 * @param firstNodeId
+	 *            The node ID of the first entry
+	 * @param secondValue
+	 *            The value of the second entry
+	 * @param secondNodeId
+	 *            The node ID of the second entry
+	 * @return A negative number, zero, or a positive number if the first entry
+	 *         is smaller than, equal to, or greater than the second entry
+	 */
+	static int compare(Object firstValue, long firstNodeId, Object secondValue, long secondNodeId) {
+		int comparison = compareValues(firstValue, secondValue);
+		if (comparison != 0) {
+			return comparison;
+		}
+		return (firstNodeId < secondNodeId) ? -1 : ((firstNodeId == secondNodeId) ? 0 : 1);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Inserts an entry into the subtree below the given page.
+	 *
+	 * @param pageId
+	 *            The ID of the page
+	 * @param value
+	 *            The value of the entry
+	 * @param nodeId
+	 *            The node ID of the entry
+	 * @return The key that separates the page from its new right sibling, if
+	 *         the page was split, or {@code null}
+	 * @throws GraphException
+	 *             if a page can not be loaded or stored
+	 */
+	private Separator insert(long pageId, Object value, long nodeId) throws GraphException {
+		RangeIndexPage page = bufferPool.getPage(pageId);
+		int position = page.search(value, nodeId);
+		if (page.isLeaf()) {
+			if (position >= 0) {
+				return null;
+			}
+			page.insertEntry(-(position + 1), value, nodeId);
+		} else {
+			int child = (position < 0) ? -(position + 1) : (position + 1);
+			Separator childSeparator = insert(page.getChild(child), value, nodeId);
+			if (childSeparator == null) {
+				return null;
+			}
+			page.insertChild(child, childSeparator.value, childSeparator.nodeId, childSeparator.pageId);
+		}
+		if (page.getSize() <= RangeIndexPage.CAPACITY) {
+			bufferPool.storePage(page);
+			return null;
+		}
+		int middle = page.getSize() / 2;
+		Separator separator = new Separator(page.getValue(middle), page.getNodeId(middle), bufferPool.allocatePageId());
+		RangeIndexPage rightPage = new RangeIndexPage(separator.pageId, true);
+		page.split(rightPage);
+		bufferPool.storePage(rightPage);
+		bufferPool.storePage(page);
+		return separator;
+	}
+
+	/**
+	 * Removes an entry from the subtree below the given page. Child pages
+	 * that become empty are removed.
+	 *
+	 * @param pageId
+	 *            The ID of the page
+	 * @param value
+	 *            The value of the entry
+	 * @param nodeId
+	 *            The node ID of the entry
+	 * @return {@code true} if the page is empty now, {@code false} otherwise
+	 * @throws GraphException
+	 *             if a page can not be loaded or stored
+	 */
+	private boolean remove(long pageId, Object value, long nodeId) throws GraphException {
+		RangeIndexPage page = bufferPool.getPage(pageId);
+		int position = page.search(value, nodeId);
+		if (page.isLeaf()) {
+			if (position < 0) {
+				return false;
+			}
+			page.removeEntry(position);
+			if (page.getSize() == 0) {
+				return true;
+			}
+		} else {
+			int child = (position < 0) ? -(position + 1) : (position + 1);
+			if (!remove(page.getChild(child), value, nodeId)) {
+				return false;
+			}
+			bufferPool.removePage(page.getChild(child));
+			if (page.getSize() == 0) {
+				return true;
+			}
+			page.removeChild(child);
+		}
+		bufferPool.storePage(page);
+		return false;
+	}
+
+	/**
+	 * Replaces the root page with its only child as long as the root page is
+	 * an inner page without keys.
+	 *
+	 * @throws GraphException
+	 *             if a page can not be loaded or stored
+	 */
+	private void shrinkRoot() throws GraphException {
+		RangeIndexPage rootPage = bufferPool.getPage(number);
+		while (!rootPage.isLeaf() && (rootPage.getSize() == 0)) {
+			RangeIndexPage childPage = bufferPool.getPage(rootPage.getChild(0));
+			rootPage.copyFrom(childPage);
+			bufferPool.storePage(rootPage);
+			bufferPool.removePage(childPage.getId());
+		}
+	}
+
+	/**
+	 * Creates a page from the given range of sorted keys. For an inner page,
+	 * the page IDs of the keys are the children, and the first key only
+	 * provides the first child.
+	 *
+	 * @param pageId
+	 *            The ID of the page
+	 * @param leaf
+	 *            {@code true} to create a leaf page, {@code false} to create
+	 *            an inner page
+	 * @param keys
+	 *            The sorted keys
+	 * @param first
+	 *            The index of the first key (inclusive)
+	 * @param last
+	 *            The index of the last key (exclusive)
+	 * @return The new page
+	 */
+	private static RangeIndexPage createPage(long pageId, boolean leaf, List<Separator> keys, int first, int last) {
+		RangeIndexPage page = new RangeIndexPage(pageId, leaf);
+		if (!leaf) {
+			page.setFirstChild(keys.get(first++).pageId);
+		}
+		for (int index = first; index < last; ++index) {
+			page.append(keys.get(index).value, keys.get(index).nodeId, keys.get(index).pageId);
+		}
+		return page;
+	}
+
+	/**
+	 * Compares two numbers exactly by their numeric value. NaN is greater than
+	 * all other numbers, and positive and negative zero are equal.
+	 *
+	 * @param firstNumber
+	 *            The first number
+	 * @param secondNumber
+	 *            The second number
+	 * @return A negative number, zero, or a positive number if the first
+	 *         number is smaller than, equal to, or greater than the second
+	 *         number
+	 */
+	private static int compareNumbers(Number firstNumber, Number secondNumber) {
+		if (isIntegral(firstNumber) && isIntegral(secondNumber)) {
+			long firstValue = firstNumber.longValue();
+			long secondValue = secondNumber.longValue();
+			return (firstValue < secondValue) ? -1 : ((firstValue == secondValue) ? 0 : 1);
+		}
+		int firstClass = getNumberClass(firstNumber);
+		int secondClass = getNumberClass(secondNumber);
+		if ((firstClass != 0) || (secondClass != 0)) {
+			return (firstClass < secondClass) ? -1 : ((firstClass == secondClass) ? 0 : 1);
+		}
+		if (isExact(firstNumber) || isExact(secondNumber)) {
+			return toBigDecimal(firstNumber).compareTo(toBigDecimal(secondNumber));
+		}
+		double firstValue = firstNumber.doubleValue();
+		double secondValue = secondNumber.doubleValue();
+		return (firstValue < secondValue) ? -1 : ((firstValue == secondValue) ? 0 : 1);
+	}
+
+	/**
+	 * Returns the class of the given number: {@code -1} for negative infinity,
+	 * {@code 1} for positive infinity, {@code 2} for NaN, and {@code 0} for
+	 * all finite numbers.
+	 *
+	 * @param number
+	 *            The number
+	 * @return The class of the number
+	 */
+	private static int getNumberClass(Number number) {
+		if (isExact(number)) {
+			return 0;
+		}
+		double value = number.doubleValue();
+		if (Double.isNaN(value)) {
+			return 2;
+		}
+		return Double.isInfinite(value) ? ((value < 0) ? -1 : 1) : 0;
+	}
+
+	/**
+	 * Returns whether the given number is always finite and can not be
+	 * compared as {@code double} without losing precision.
+	 *
+	 * @param number
+	 *            The number to check
+	 * @return {@code true} if the number is integral, a {@link BigInteger}, or
+	 *         a {@link BigDecimal}, {@code false} otherwise
+	 */
+	private static boolean isExact(Number number) {
+		return isIntegral(number) || (number instanceof BigInteger) || (number instanceof BigDecimal);
+	}
+
+	/**
+	 * Converts the given finite number to a {@link BigDecimal} without losing
+	 * precision.
+	 *
+	 * @param number
+	 *            The number to convert
+	 * @return The value of the number
+	 */
+	private static BigDecimal toBigDecimal(Number number) {
+		if (number instanceof BigDecimal) {
+			return (BigDecimal) number;
+		}
+		if (number instanceof BigInteger) {
+			return new BigDecimal((BigInteger) number);
+		}
+		if (isIntegral(number)) {
+			return BigDecimal.valueOf(number.longValue());
+		}
+		return new BigDecimal(number.doubleValue());
+	}
+
+	/**
+	 * Returns whether the given number is an integral number.
+	 *
+	 * @param number
+	 *            The number to check
+	 * @return {@code true} if the number is a {@link Long}, {@link Integer},
+	 *         {@link Short}, or {@link Byte}, {@code false} otherwise
+	 */
+	private static boolean isIntegral(Object number) {
+		return (number instanceof Long) || (number instanceof Integer) || (number instanceof Short) || (number instanceof Byte);
+	}
+
+	/**
+	 * A key together with the ID of the page that starts with it. Separators
+	 * are returned when pages are split, and hold the sorted entries and the
+	 * built pages during a bulk build.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Separator {
+
+		/** The value of the key. */
+		final Object value;
+
+		/** The node ID of the key. */
+		final long nodeId;
+
+		/** The ID of the page. */
+		final long pageId;
+
+		/**
+		 * Creates a new separator.
+		 *
+		 * @param value
+		 *            The value of the key
+		 * @param nodeId
+		 *            The node ID of the key
+		 * @param pageId
+		 *            The ID of the page
+		 */
+		Separator(Object value, long nodeId, long pageId) {
+			this.value = value;
+			this.nodeId = nodeId;
+			this.pageId = pageId;
+		}
+
+	}
+
+}
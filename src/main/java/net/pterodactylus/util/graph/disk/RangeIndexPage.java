@@ -0,0 +1,373 @@
+/*
+ * utils.graph - RangeIndexPage.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import net.pterodactylus.util.io.Closer;
+import net.pterodactylus.util.storage.Storable;
+import net.pterodactylus.util.storage.StorageException;
+
+/**
+ * A page of a {@link RangeIndex}. Every page stores up to {@link #CAPACITY}
+ * keys, sorted by value and node ID. The keys of a leaf page are the entries
+ * of the index; the keys of an inner page separate its children: the child at
+ * index <em>i</em> contains all entries that are smaller than the key at
+ * index <em>i</em> and not smaller than the key at index <em>i</em> - 1.
+ * <p>
+ * Pages are not synchronized; the owning {@link RangeIndex} guards them with
+ * its lock.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class RangeIndexPage implements Storable {
+
+	/** The maximum number of keys of a page. */
+	static final int CAPACITY = 64;
+
+	/** The ID of the page. */
+	private final long id;
+
+	/** Whether this page is a leaf page. */
+	private boolean leaf;
+
+	/** The number of keys. */
+	private int size;
+
+	/** The values of the keys. */
+	private Object[] values = new Object[CAPACITY + 1];
+
+	/** The node IDs of the keys. */
+	private long[] nodeIds = new long[CAPACITY + 1];
+
+	/** The IDs of the child pages, if this is an inner page. */
+	private long[] children = new long[CAPACITY + 2];
+
+	/**
+	 * Creates a new, empty page.
+	 *
+	 * @param id
+	 *            The ID of the page
+	 * @param leaf
+	 *            {@code true} to create a leaf page, {@code false} to create
+	 *            an inner page
+	 */
+	RangeIndexPage(long id, boolean leaf) {
+		this.id = id;
+		this.leaf = leaf;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns whether this page is a leaf page.
+	 *
+	 * @return {@code true} if this page is a leaf page, {@code false} if it is
+	 *         an inner page
+	 */
+	boolean isLeaf() {
+		return leaf;
+	}
+
+	/**
+	 * Returns the number of keys of this page.
+	 *
+	 * @return The number of keys
+	 */
+	int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the value of the key at the given index.
+	 *
+	 * @param index
+	 *            The index of the key
+	 * @return The value of the key
+	 */
+	Object getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Returns the node ID of the key at the given index.
+	 *
+	 * @param index
+	 *            The index of the key
+	 * @return The node ID of the key
+	 */
+	long getNodeId(int index) {
+		return nodeIds[index];
+	}
+
+	/**
+	 * Returns the ID of the child page at the given index.
+	 *
+	 * @param index
+	 *            The index of the child
+	 * @return The ID of the child page
+	 */
+	long getChild(int index) {
+		return children[index];
+	}
+
+	/**
+	 * Searches the keys of this page for the given key.
+	 *
+	 * @param value
+	 *            The value of the key
+	 * @param nodeId
+	 *            The node ID of the key
+	 * @return The index of the key, if it is contained in this page; otherwise
+	 *         (-(<em>insertion point</em>) - 1)
+	 * @see java.util.Arrays#binarySearch(long[], long)
+	 */
+	int search(Object value, long nodeId) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = RangeIndex.compare(values[middle], nodeIds[middle], value, nodeId);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Inserts a key into this leaf page.
+	 *
+	 * @param index
+	 *            The index of the new key
+	 * @param value
+	 *            The value of the key
+	 * @param nodeId
+	 *            The node ID of the key
+	 */
+	void insertEntry(int index, Object value, long nodeId) {
+		System.arraycopy(values, index, values, index + 1, size - index);
+		System.arraycopy(nodeIds, index, nodeIds, index + 1, size - index);
+		values[index] = value;
+		nodeIds[index] = nodeId;
+		++size;
+	}
+
+	/**
+	 * Inserts a key and the child page to the right of it into this inner
+	 * page.
+	 *
+	 * @param index
+	 *            The index of the new key
+	 * @param value
+	 *            The value of the key
+	 * @param nodeId
+	 *            The node ID of the key
+	 * @param child
+	 *            The ID of the child page that contains the entries starting
+	 *            with the new key
+	 */
+	void insertChild(int index, Object value, long nodeId, long child) {
+		System.arraycopy(children, index + 1, children, index + 2, size - index);
+		children[index + 1] = child;
+		insertEntry(index, value, nodeId);
+	}
+
+	/**
+	 * Appends a key to this leaf page, or a key and the child page to the
+	 * right of it to this inner page. This is used to build pages from sorted
+	 * keys.
+	 *
+	 * @param value
+	 *            The value of the key
+	 * @param nodeId
+	 *            The node ID of the key
+	 * @param child
+	 *            The ID of the child page (ignored for leaf pages)
+	 */
+	void append(Object value, long nodeId, long child) {
+		values[size] = value;
+		nodeIds[size] = nodeId;
+		children[size + 1] = child;
+		++size;
+	}
+
+	/**
+	 * Sets the first child page of this inner page.
+	 *
+	 * @param child
+	 *            The ID of the first child page
+	 */
+	void setFirstChild(long child) {
+		children[0] = child;
+	}
+
+	/**
+	 * Removes the key at the given index from this leaf page.
+	 *
+	 * @param index
+	 *            The index of the key
+	 */
+	void removeEntry(int index) {
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		System.arraycopy(nodeIds, index + 1, nodeIds, index, size - index - 1);
+		values[--size] = null;
+	}
+
+	/**
+	 * Removes the child page at the given index, and the key that separates
+	 * it from its left neighbour (or from its right neighbour, if it is the
+	 * first child), from this inner page. The page must have at least one key.
+	 *
+	 * @param index
+	 *            The index of the child
+	 */
+	void removeChild(int index) {
+		System.arraycopy(children, index + 1, children, index, size - index);
+		removeEntry(Math.max(index - 1, 0));
+	}
+
+	/**
+	 * Moves the upper half of the keys (and children) of this page to the
+	 * given, empty page. The key at index {@link #getSize()} / 2 becomes the
+	 * first key of the new leaf page, or is removed from this inner page; in
+	 * both cases it separates this page from the new page.
+	 *
+	 * @param rightPage
+	 *            The empty page that receives the upper half
+	 */
+	void split(RangeIndexPage rightPage) {
+		int middle = size / 2;
+		int first = leaf ? middle : (middle + 1);
+		rightPage.leaf = leaf;
+		rightPage.size = size - first;
+		System.arraycopy(values, first, rightPage.values, 0, rightPage.size);
+		System.arraycopy(nodeIds, first, rightPage.nodeIds, 0, rightPage.size);
+		if (!leaf) {
+			System.arraycopy(children, first, rightPage.children, 0, rightPage.size + 1);
+		}
+		for (int index = middle; index < size; ++index) {
+			values[index] = null;
+		}
+		size = middle;
+	}
+
+	/**
+	 * Copies the complete content of the given page into this page.
+	 *
+	 * @param page
+	 *            The page to copy
+	 */
+	void copyFrom(RangeIndexPage page) {
+		leaf = page.leaf;
+		size = page.size;
+		values = page.values.clone();
+		nodeIds = page.nodeIds.clone();
+		children = page.children.clone();
+	}
+
+	/**
+	 * Turns this page into an inner page with the given two children.
+	 *
+	 * @param leftChild
+	 *            The ID of the left child page
+	 * @param value
+	 *            The value of the key that separates the children
+	 * @param nodeId
+	 *            The node ID of the key that separates the children
+	 * @param rightChild
+	 *            The ID of the right child page
+	 */
+	void setChildren(long leftChild, Object value, long nodeId, long rightChild) {
+		clear(false);
+		setFirstChild(leftChild);
+		append(value, nodeId, rightChild);
+	}
+
+	/**
+	 * Removes all keys and children from this page.
+	 *
+	 * @param leaf
+	 *            {@code true} to turn this page into a leaf page, {@code false}
+	 *            to turn it into an inner page
+	 */
+	void clear(boolean leaf) {
+		this.leaf = leaf;
+		size = 0;
+		values = new Object[CAPACITY + 1];
+	}
+
+	//
+	// INTERFACE Storable
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte[] getBuffer() throws StorageException {
+		ByteArrayOutputStream contentStream = null;
+		ObjectOutputStream objectStream = null;
+		try {
+			contentStream = new ByteArrayOutputStream();
+			objectStream = new ObjectOutputStream(contentStream);
+			objectStream.writeBoolean(leaf);
+			objectStream.writeInt(size);
+			for (int index = 0; index < size; ++index) {
+				objectStream.writeObject(values[index]);
+				objectStream.writeLong(nodeIds[index]);
+			}
+			if (!leaf) {
+				for (int index = 0; index <= size; ++index) {
+					objectStream.writeLong(children[index]);
+				}
+			}
+		} catch (IOException ioe1) {
+			throw new StorageException("Could not get bytes for RangeIndexPage.", ioe1);
+		} finally {
+			Closer.close(objectStream);
+			Closer.close(contentStream);
+		}
+		byte[] contentBuffer = contentStream.toByteArray();
+		byte[] buffer = new byte[contentBuffer.length + 8];
+		Storable.Utils.putLong(id, buffer, 0);
+		System.arraycopy(contentBuffer, 0, buffer, 8, contentBuffer.length);
+		return buffer;
+	}
+
+}
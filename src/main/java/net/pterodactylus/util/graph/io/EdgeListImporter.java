@@ -0,0 +1,832 @@
+/*
+ * utils.graph - EdgeListImporter.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.graph.collection.LongIntHashMap;
+import net.pterodactylus.util.io.Closer;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Imports edges from a text file into a {@link Graph}. Every line of the file
+ * contains the integer keys of the start and the end node of an edge,
+ * optionally followed by the name of the relationship; the columns can be
+ * separated by spaces, tabs, commas, or semicolons. Empty lines and lines
+ * that start with “#” or “%” are ignored.
+ * <p>
+ * The file is split into chunks at line boundaries. The chunks are mapped
+ * into memory and parsed in parallel, directly from the mapped buffers, so
+ * that no objects are created per line. The parsed chunks are then added to
+ * the graph in file order. The thread that called {@link #importFile(File)}
+ * resolves the node keys of a chunk to nodes using a {@link LongIntHashMap},
+ * creating nodes for unknown keys on the fly, and then creates the edges of
+ * the chunk. For graphs that can be modified concurrently, like the graph of
+ * a {@link net.pterodactylus.util.graph.disk.DiskStore}, the edges of every
+ * chunk can instead be split between several threads with
+ * {@link #setLinkThreadCount(int)}; the edges of a chunk are then created in
+ * no particular order, but all of them are created before the next chunk is
+ * added.
+ * The importer remembers the nodes of all keys it has seen so that several
+ * files can be imported into the same graph; nodes that already exist can be
+ * assigned a key with {@link #addNode(long, Node)}.
+ * <p>
+ * An importer can only import one file at a time.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class EdgeListImporter {
+
+	/** The default relationship of edges without relationship column. */
+	public static final String DEFAULT_RELATIONSHIP = "edge";
+
+	/** The default size of a chunk (32 MiB). */
+	public static final int DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+	/** The graph to import into. */
+	private final Graph graph;
+
+	/** The import listeners. */
+	private final List<ImportListener> importListeners = new CopyOnWriteArrayList<ImportListener>();
+
+	/** The indexes of all known nodes, by key. */
+	private final LongIntHashMap nodeIndexes = new LongIntHashMap();
+
+	/** All known nodes. */
+	private final List<Node> nodes = new ArrayList<Node>();
+
+	/** The relationship of edges without relationship column. */
+	private String relationship = DEFAULT_RELATIONSHIP;
+
+	/** The name of the property that receives the key of a created node. */
+	private String keyProperty;
+
+	/** The number of parser threads. */
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/** The number of threads that create the edges of a chunk. */
+	private int linkThreadCount = 1;
+
+	/** The size of a chunk. */
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * Creates a new importer.
+	 *
+	 * @param graph
+	 *            The graph to import into
+	 */
+	public EdgeListImporter(Graph graph) {
+		Validation.begin().isNotNull("Graph", graph).check();
+		this.graph = graph;
+	}
+
+	//
+	// LISTENER MANAGEMENT
+	//
+
+	/**
+	 * Adds the given listener to the list of registered listeners.
+	 *
+	 * @param importListener
+	 *            The listener to add
+	 */
+	public void addImportListener(ImportListener importListener) {
+		importListeners.add(importListener);
+	}
+
+	/**
+	 * Removes the given listener from the list of registered listeners.
+	 *
+	 * @param importListener
+	 *            The listener to remove
+	 */
+	public void removeImportListener(ImportListener importListener) {
+		importListeners.remove(importListener);
+	}
+
+	/**
+	 * Notifies all listeners about the progress of the import.
+	 *
+	 * @param importStatistics
+	 *            The statistics of the import so far
+	 */
+	private void fireImportProgressed(ImportStatistics importStatistics) {
+		for (ImportListener importListener : importListeners) {
+			importListener.importProgressed(importStatistics);
+		}
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Sets the relationship of edges that do not have a relationship column.
+	 *
+	 * @param relationship
+	 *            The name of the relationship
+	 * @return This importer
+	 */
+	public EdgeListImporter setRelationship(String relationship) {
+		Validation.begin().isNotNull("Relationship", relationship).check();
+		this.relationship = relationship;
+		return this;
+	}
+
+	/**
+	 * Sets the name of the property that receives the key of every node that
+	 * is created by the import.
+	 *
+	 * @param keyProperty
+	 *            The name of the key property, or {@code null} to not store
+	 *            the keys
+	 * @return This importer
+	 */
+	public EdgeListImporter setKeyProperty(String keyProperty) {
+		this.keyProperty = keyProperty;
+		return this;
+	}
+
+	/**
+	 * Sets the number of threads that parse chunks in parallel.
+	 *
+	 * @param threadCount
+	 *            The number of parser threads
+	 * @return This importer
+	 */
+	public EdgeListImporter setThreadCount(int threadCount) {
+		Validation.begin().isGreater("Thread Count", threadCount, 0).check();
+		this.threadCount = threadCount;
+		return this;
+	}
+
+	/**
+	 * Sets the number of threads that create the edges of a parsed chunk.
+	 * More than one thread must only be used if the graph can be modified
+	 * concurrently.
+	 *
+	 * @param linkThreadCount
+	 *            The number of linking threads
+	 * @return This importer
+	 */
+	public EdgeListImporter setLinkThreadCount(int linkThreadCount) {
+		Validation.begin().isGreater("Link Thread Count", linkThreadCount, 0).check();
+		this.linkThreadCount = linkThreadCount;
+		return this;
+	}
+
+	/**
+	 * Sets the size of the chunks the file is split into. Chunks are extended
+	 * to the end of the line they end in.
+	 *
+	 * @param chunkSize
+	 *            The size of a chunk (in bytes)
+	 * @return This importer
+	 */
+	public EdgeListImporter setChunkSize(int chunkSize) {
+		Validation.begin().isGreater("Chunk Size", chunkSize, 0).check();
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	/**
+	 * Returns the node that has been created for the given key.
+	 *
+	 * @param key
+	 *            The key of the node
+	 * @return The node with the given key, or {@code null} if no node has
+	 *         been created for the key
+	 */
+	public Node getNode(long key) {
+		int nodeIndex = nodeIndexes.get(key);
+		return (nodeIndex == -1) ? null : nodes.get(nodeIndex);
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Assigns the given key to an existing node. Edges of the key are
+	 * imported as edges of the given node.
+	 *
+	 * @param key
+	 *            The key of the node
+	 * @param node
+	 *            The node
+	 * @return This importer
+	 */
+	public EdgeListImporter addNode(long key, Node node) {
+		Validation.begin().isNotNull("Node", node).check().isEqual("Node’s Graph", node.getGraph(), graph).check();
+		int nodeIndex = nodeIndexes.get(key);
+		if (nodeIndex != -1) {
+			nodes.set(nodeIndex, node);
+		} else {
+			nodeIndexes.put(key, nodes.size());
+			nodes.add(node);
+		}
+		return this;
+	}
+
+	/**
+	 * Imports all edges from the given file.
+	 *
+	 * @param file
+	 *            The file to import
+	 * @return The statistics of the import
+	 * @throws GraphException
+	 *             if the file can not be read or parsed, or the edges can not
+	 *             be created
+	 */
+	public ImportStatistics importFile(File file) throws GraphException {
+		Validation.begin().isNotNull("File", file).check();
+		long startTime = System.currentTimeMillis();
+		RandomAccessFile randomAccessFile = null;
+		ExecutorService parserExecutor = Executors.newFixedThreadPool(threadCount, new ImporterThreadFactory("EdgeListImporter Parser"));
+		ExecutorService linkExecutor = (linkThreadCount > 1) ? Executors.newFixedThreadPool(linkThreadCount, new ImporterThreadFactory("EdgeListImporter Linker")) : null;
+		try {
+			randomAccessFile = new RandomAccessFile(file, "r");
+			FileChannel fileChannel = randomAccessFile.getChannel();
+			long totalBytes = fileChannel.size();
+			RelationshipNames relationshipNames = new RelationshipNames();
+			List<Relationship> relationships = new ArrayList<Relationship>();
+			Relationship defaultRelationship = graph.getRelationship(relationship);
+			LinkedList<Future<ParsedChunk>> parsedChunks = new LinkedList<Future<ParsedChunk>>();
+			long chunkStart = 0;
+			long processedBytes = 0;
+			long edges = 0;
+			long createdEdges = 0;
+			int knownNodes = nodes.size();
+			while ((chunkStart < totalBytes) || !parsedChunks.isEmpty()) {
+				while ((chunkStart < totalBytes) && (parsedChunks.size() < (threadCount * 2))) {
+					long chunkEnd = findChunkEnd(fileChannel, chunkStart, totalBytes);
+					parsedChunks.add(parserExecutor.submit(new ChunkParser(fileChannel, chunkStart, chunkEnd, relationshipNames)));
+					chunkStart = chunkEnd;
+				}
+				ParsedChunk parsedChunk = parsedChunks.removeFirst().get();
+				for (int edgeIndex = 0; edgeIndex < parsedChunk.size; ++edgeIndex) {
+					parsedChunk.startKeys[edgeIndex] = resolveNode(parsedChunk.startKeys[edgeIndex]);
+					parsedChunk.endKeys[edgeIndex] = resolveNode(parsedChunk.endKeys[edgeIndex]);
+					if (parsedChunk.relationshipIndexes[edgeIndex] != -1) {
+						resolveRelationship(parsedChunk.relationshipIndexes[edgeIndex], relationshipNames, relationships);
+					}
+				}
+				createdEdges += linkChunk(parsedChunk, defaultRelationship, relationships, linkExecutor);
+				edges += parsedChunk.size;
+				processedBytes += parsedChunk.length;
+				fireImportProgressed(new ImportStatistics(processedBytes, totalBytes, edges, createdEdges, nodes.size() - knownNodes, System.currentTimeMillis() - startTime));
+			}
+			return new ImportStatistics(processedBytes, totalBytes, edges, createdEdges, nodes.size() - knownNodes, System.currentTimeMillis() - startTime);
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not import “" + file + "”!", ioe1);
+		} catch (InterruptedException ie1) {
+			Thread.currentThread().interrupt();
+			throw new GraphException("Import of “" + file + "” was interrupted!", ie1);
+		} catch (ExecutionException ee1) {
+			if (ee1.getCause() instanceof GraphException) {
+				throw (GraphException) ee1.getCause();
+			}
+			if (ee1.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ee1.getCause();
+			}
+			throw new GraphException("Could not parse “" + file + "”!", ee1.getCause());
+		} finally {
+			parserExecutor.shutdownNow();
+			if (linkExecutor != null) {
+				linkExecutor.shutdownNow();
+			}
+			Closer.close(randomAccessFile);
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns the index of the node with the given key, creating the node if
+	 * necessary.
+	 *
+	 * @param key
+	 *            The key of the node
+	 * @return The index of the node with the given key
+	 * @throws GraphException
+	 *             if the node can not be created
+	 */
+	private int resolveNode(long key) throws GraphException {
+		int nodeIndex = nodeIndexes.get(key);
+		if (nodeIndex != -1) {
+			return nodeIndex;
+		}
+		Node node = graph.createNode();
+		if (keyProperty != null) {
+			node.set(keyProperty, key);
+		}
+		nodeIndexes.put(key, nodes.size());
+		nodes.add(node);
+		return nodes.size() - 1;
+	}
+
+	/**
+	 * Creates the edges of the given resolved chunk, splitting them between
+	 * the threads of the given executor if there is one.
+	 *
+	 * @param parsedChunk
+	 *            The chunk, with node indexes instead of node keys
+	 * @param defaultRelationship
+	 *            The relationship of edges without relationship column
+	 * @param relationships
+	 *            The resolved relationships
+	 * @param linkExecutor
+	 *            The executor for the linking threads, or {@code null} to
+	 *            create the edges on the current thread
+	 * @return The number of created edges
+	 * @throws GraphException
+	 *             if an edge can not be created
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting for the
+	 *             linking threads
+	 * @throws ExecutionException
+	 *             if a linking thread fails
+	 */
+	@SuppressWarnings("synthetic-access")
+	private long linkChunk(final ParsedChunk parsedChunk, final Relationship defaultRelationship, final List<Relationship> relationships, ExecutorService linkExecutor) throws GraphException, InterruptedException, ExecutionException {
+		if (linkExecutor == null) {
+			return linkEdges(parsedChunk, 0, parsedChunk.size, defaultRelationship, relationships);
+		}
+		List<Future<Long>> linkedRanges = new ArrayList<Future<Long>>();
+		int rangeSize = Math.max(1, (parsedChunk.size + linkThreadCount - 1) / linkThreadCount);
+		for (int rangeStart = 0; rangeStart < parsedChunk.size; rangeStart += rangeSize) {
+			final int start = rangeStart;
+			final int end = Math.min(rangeStart + rangeSize, parsedChunk.size);
+			linkedRanges.add(linkExecutor.submit(new Callable<Long>() {
+
+				@Override
+				public Long call() throws GraphException {
+					return linkEdges(parsedChunk, start, end, defaultRelationship, relationships);
+				}
+
+			}));
+		}
+		long createdEdges = 0;
+		for (Future<Long> linkedRange : linkedRanges) {
+			createdEdges += linkedRange.get();
+		}
+		return createdEdges;
+	}
+
+	/**
+	 * Creates the given range of edges of the given resolved chunk.
+	 *
+	 * @param parsedChunk
+	 *            The chunk, with node indexes instead of node keys
+	 * @param start
+	 *            The index of the first edge to create
+	 * @param end
+	 *            The index after the last edge to create
+	 * @param defaultRelationship
+	 *            The relationship of edges without relationship column
+	 * @param relationships
+	 *            The resolved relationships
+	 * @return The number of created edges
+	 * @throws GraphException
+	 *             if an edge can not be created
+	 */
+	private long linkEdges(ParsedChunk parsedChunk, int start, int end, Relationship defaultRelationship, List<Relationship> relationships) throws GraphException {
+		long createdEdges = 0;
+		for (int edgeIndex = start; edgeIndex < end; ++edgeIndex) {
+			Node startNode = nodes.get((int) parsedChunk.startKeys[edgeIndex]);
+			Node endNode = nodes.get((int) parsedChunk.endKeys[edgeIndex]);
+			int relationshipIndex = parsedChunk.relationshipIndexes[edgeIndex];
+			if (startNode.link(endNode, (relationshipIndex == -1) ? defaultRelationship : relationships.get(relationshipIndex))) {
+				++createdEdges;
+			}
+		}
+		return createdEdges;
+	}
+
+	/**
+	 * Returns the relationship with the given index.
+	 *
+	 * @param relationshipIndex
+	 *            The index of the relationship name
+	 * @param relationshipNames
+	 *            The relationship names
+	 * @param relationships
+	 *            The relationships that have already been resolved
+	 * @return The relationship
+	 * @throws GraphException
+	 *             if the relationship can not be created
+	 * @throws UnsupportedEncodingException
+	 *             if UTF-8 is not supported
+	 */
+	private Relationship resolveRelationship(int relationshipIndex, RelationshipNames relationshipNames, List<Relationship> relationships) throws GraphException, UnsupportedEncodingException {
+		while (relationships.size() <= relationshipIndex) {
+			relationships.add(graph.getRelationship(new String(relationshipNames.getName(relationships.size()), "UTF-8")));
+		}
+		return relationships.get(relationshipIndex);
+	}
+
+	/**
+	 * Returns the end of the chunk that starts at the given position. The end
+	 * of the chunk is the first line break after the nominal chunk size.
+	 *
+	 * @param fileChannel
+	 *            The channel of the file
+	 * @param chunkStart
+	 *            The start of the chunk
+	 * @param totalBytes
+	 *            The size of the file
+	 * @return The end of the chunk (exclusive)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private long findChunkEnd(FileChannel fileChannel, long chunkStart, long totalBytes) throws IOException {
+		long position = chunkStart + chunkSize;
+		if (position >= totalBytes) {
+			return totalBytes;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		while (position < totalBytes) {
+			buffer.clear();
+			int read = fileChannel.read(buffer, position);
+			if (read == -1) {
+				break;
+			}
+			for (int index = 0; index < read; ++index) {
+				if (buffer.get(index) == '\n') {
+					return position + index + 1;
+				}
+			}
+			position += read;
+		}
+		return totalBytes;
+	}
+
+	/**
+	 * Names of relationships that are shared between all parser threads. A
+	 * name is only converted into a {@link String} once.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class RelationshipNames {
+
+		/** The names of the relationships, in the order they were found. */
+		private final List<byte[]> names = new ArrayList<byte[]>();
+
+		/**
+		 * Returns the index of the relationship name that is contained in the
+		 * given buffer, adding it if necessary.
+		 *
+		 * @param buffer
+		 *            The buffer that contains the name
+		 * @param start
+		 *            The start of the name
+		 * @param end
+		 *            The end of the name (exclusive)
+		 * @return The index of the relationship name
+		 */
+		synchronized int getIndex(ByteBuffer buffer, int start, int end) {
+			for (int nameIndex = 0, size = names.size(); nameIndex < size; ++nameIndex) {
+				byte[] name = names.get(nameIndex);
+				if (name.length != (end - start)) {
+					continue;
+				}
+				int index = 0;
+				while ((index < name.length) && (name[index] == buffer.get(start + index))) {
+					++index;
+				}
+				if (index == name.length) {
+					return nameIndex;
+				}
+			}
+			byte[] name = new byte[end - start];
+			for (int index = 0; index < name.length; ++index) {
+				name[index] = buffer.get(start + index);
+			}
+			names.add(name);
+			return names.size() - 1;
+		}
+
+		/**
+		 * Returns the relationship name with the given index.
+		 *
+		 * @param index
+		 *            The index of the name
+		 * @return The name
+		 */
+		synchronized byte[] getName(int index) {
+			return names.get(index);
+		}
+
+	}
+
+	/**
+	 * The edges of a parsed chunk.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class ParsedChunk {
+
+		/** The length of the chunk (in bytes). */
+		final long length;
+
+		/**
+		 * The keys of the start nodes, replaced by the indexes of the nodes
+		 * once they have been resolved.
+		 */
+		long[] startKeys = new long[1024];
+
+		/**
+		 * The keys of the end nodes, replaced by the indexes of the nodes once
+		 * they have been resolved.
+		 */
+		long[] endKeys = new long[1024];
+
+		/** The relationship indexes ({@code -1} for the default relationship). */
+		int[] relationshipIndexes = new int[1024];
+
+		/** The number of edges. */
+		int size;
+
+		/**
+		 * Creates a new parsed chunk.
+		 *
+		 * @param length
+		 *            The length of the chunk (in bytes)
+		 */
+		ParsedChunk(long length) {
+			this.length = length;
+		}
+
+		/**
+		 * Adds an edge.
+		 *
+		 * @param startKey
+		 *            The key of the start node
+		 * @param endKey
+		 *            The key of the end node
+		 * @param relationshipIndex
+		 *            The index of the relationship
+		 */
+		void add(long startKey, long endKey, int relationshipIndex) {
+			if (size == startKeys.length) {
+				int newLength = size * 2;
+				long[] newStartKeys = new long[newLength];
+				System.arraycopy(startKeys, 0, newStartKeys, 0, size);
+				startKeys = newStartKeys;
+				long[] newEndKeys = new long[newLength];
+				System.arraycopy(endKeys, 0, newEndKeys, 0, size);
+				endKeys = newEndKeys;
+				int[] newRelationshipIndexes = new int[newLength];
+				System.arraycopy(relationshipIndexes, 0, newRelationshipIndexes, 0, size);
+				relationshipIndexes = newRelationshipIndexes;
+			}
+			startKeys[size] = startKey;
+			endKeys[size] = endKey;
+			relationshipIndexes[size] = relationshipIndex;
+			++size;
+		}
+
+	}
+
+	/**
+	 * Parses a single chunk of the file from a mapped buffer.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class ChunkParser implements Callable<ParsedChunk> {
+
+		/** The channel of the file. */
+		private final FileChannel fileChannel;
+
+		/** The start of the chunk. */
+		private final long chunkStart;
+
+		/** The end of the chunk (exclusive). */
+		private final long chunkEnd;
+
+		/** The relationship names. */
+		private final RelationshipNames relationshipNames;
+
+		/** The mapped chunk. */
+		private MappedByteBuffer buffer;
+
+		/** The current position in the buffer. */
+		private int position;
+
+		/**
+		 * Creates a new chunk parser.
+		 *
+		 * @param fileChannel
+		 *            The channel of the file
+		 * @param chunkStart
+		 *            The start of the chunk
+		 * @param chunkEnd
+		 *            The end of the chunk (exclusive)
+		 * @param relationshipNames
+		 *            The relationship names
+		 */
+		ChunkParser(FileChannel fileChannel, long chunkStart, long chunkEnd, RelationshipNames relationshipNames) {
+			this.fileChannel = fileChannel;
+			this.chunkStart = chunkStart;
+			this.chunkEnd = chunkEnd;
+			this.relationshipNames = relationshipNames;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public ParsedChunk call() throws IOException {
+			buffer = fileChannel.map(MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart);
+			ParsedChunk parsedChunk = new ParsedChunk(chunkEnd - chunkStart);
+			int limit = buffer.limit();
+			while (position < limit) {
+				skipSeparators();
+				if ((position == limit) || isLineEnd(buffer.get(position))) {
+					skipLine();
+					continue;
+				}
+				byte first = buffer.get(position);
+				if ((first == '#') || (first == '%')) {
+					skipLine();
+					continue;
+				}
+				long lineStart = position;
+				long startKey = parseKey(lineStart);
+				skipSeparators();
+				long endKey = parseKey(lineStart);
+				skipSeparators();
+				int relationshipIndex = -1;
+				if ((position < limit) && !isLineEnd(buffer.get(position))) {
+					int nameStart = position;
+					while ((position < limit) && !isLineEnd(buffer.get(position)) && !isSeparator(buffer.get(position))) {
+						++position;
+					}
+					relationshipIndex = relationshipNames.getIndex(buffer, nameStart, position);
+				}
+				parsedChunk.add(startKey, endKey, relationshipIndex);
+				skipLine();
+			}
+			return parsedChunk;
+		}
+
+		//
+		// PRIVATE METHODS
+		//
+
+		/**
+		 * Parses a key at the current position.
+		 *
+		 * @param lineStart
+		 *            The position of the start of the line (for error
+		 *            messages)
+		 * @return The parsed key
+		 * @throws IOException
+		 *             if there is no valid key at the current position
+		 */
+		private long parseKey(long lineStart) throws IOException {
+			int limit = buffer.limit();
+			boolean negative = false;
+			if ((position < limit) && ((buffer.get(position) == '-') || (buffer.get(position) == '+'))) {
+				negative = buffer.get(position) == '-';
+				++position;
+			}
+			int digitsStart = position;
+			long key = 0;
+			while ((position < limit) && (buffer.get(position) >= '0') && (buffer.get(position) <= '9')) {
+				long newKey = key * 10 - (buffer.get(position) - '0');
+				if ((key < (Long.MIN_VALUE / 10)) || (newKey > key)) {
+					throw new IOException("Key out of range in line at offset " + (chunkStart + lineStart) + ".");
+				}
+				key = newKey;
+				++position;
+			}
+			if ((position == digitsStart) || ((position < limit) && !isSeparator(buffer.get(position)) && !isLineEnd(buffer.get(position)))) {
+				throw new IOException("Invalid key in line at offset " + (chunkStart + lineStart) + ".");
+			}
+			if (!negative && (key == Long.MIN_VALUE)) {
+				throw new IOException("Key out of range in line at offset " + (chunkStart + lineStart) + ".");
+			}
+			return negative ? key : -key;
+		}
+
+		/**
+		 * Skips all separators at the current position.
+		 */
+		private void skipSeparators() {
+			int limit = buffer.limit();
+			while ((position < limit) && isSeparator(buffer.get(position))) {
+				++position;
+			}
+		}
+
+		/**
+		 * Skips the rest of the current line, including the line break.
+		 */
+		private void skipLine() {
+			int limit = buffer.limit();
+			while ((position < limit) && (buffer.get(position) != '\n')) {
+				++position;
+			}
+			++position;
+		}
+
+		/**
+		 * Returns whether the given byte separates two columns.
+		 *
+		 * @param value
+		 *            The byte to check
+		 * @return {@code true} if the byte is a separator, {@code false}
+		 *         otherwise
+		 */
+		private static boolean isSeparator(byte value) {
+			return (value == ' ') || (value == '\t') || (value == ',') || (value == ';');
+		}
+
+		/**
+		 * Returns whether the given byte ends a line.
+		 *
+		 * @param value
+		 *            The byte to check
+		 * @return {@code true} if the byte ends a line, {@code false}
+		 *         otherwise
+		 */
+		private static boolean isLineEnd(byte value) {
+			return (value == '\n') || (value == '\r');
+		}
+
+	}
+
+	/**
+	 * Thread factory for the daemon threads that parse chunks and create
+	 * edges.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class ImporterThreadFactory implements ThreadFactory {
+
+		/** The name of the created threads. */
+		private final String name;
+
+		/**
+		 * Creates a new thread factory.
+		 *
+		 * @param name
+		 *            The name of the created threads
+		 */
+		ImporterThreadFactory(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
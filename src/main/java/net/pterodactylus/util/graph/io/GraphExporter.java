@@ -0,0 +1,462 @@
+/*
+ * utils.graph - GraphExporter.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.io;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.io.Closer;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Exports a {@link Graph} to a file or a stream. The nodes are streamed from
+ * {@link Graph#getNodes()}, and only the edges of the node that is currently
+ * written are held in memory, so the memory needed for an export does not
+ * depend on the size of the graph.
+ * <p>
+ * The following formats are supported:
+ * <ul>
+ * <li>{@link Format#EDGE_LIST}: one line per edge with the IDs of the start
+ * and end node and the name of the relationship, separated by tabs. This
+ * format can be read by {@link EdgeListImporter} as long as relationship names
+ * do not contain separators. Properties and nodes without edges are not
+ * exported.</li>
+ * <li>{@link Format#GRAPHML}: a GraphML document with all nodes, their
+ * properties, and all edges. The graph is read twice: once to collect the
+ * property keys and types, and once to write the nodes.</li>
+ * <li>{@link Format#BINARY}: a compact binary format with all nodes,
+ * properties, and edges; see {@link Format#BINARY}.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class GraphExporter {
+
+	/**
+	 * The export formats.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	public enum Format {
+
+		/** Tab-separated edge list. */
+		EDGE_LIST,
+
+		/** GraphML. */
+		GRAPHML,
+
+		/**
+		 * Compact binary format. It consists of the following parts, written
+		 * with a {@link DataOutputStream}:
+		 * <ol>
+		 * <li>the magic number {@link GraphExporter#BINARY_MAGIC} and the
+		 * version {@link GraphExporter#BINARY_VERSION} (ints),</li>
+		 * <li>the number of relationships (int), followed by the names of the
+		 * relationships (length-prefixed UTF-8),</li>
+		 * <li>one record per node, starting with the byte {@code 1}, followed
+		 * by the ID of the node (long), the number of properties (int), the
+		 * properties (length-prefixed UTF-8 key and typed value), the number
+		 * of outgoing edges (int), and the outgoing edges (relationship index
+		 * as int and end node ID as long),</li>
+		 * <li>the byte {@code 0}.</li>
+		 * </ol>
+		 * A typed value starts with a type byte: {@code 0} for {@code null},
+		 * {@code 1} for booleans, {@code 2} for ints, {@code 3} for longs,
+		 * {@code 4} for doubles, {@code 5} for floats, {@code 6} for strings
+		 * (length-prefixed UTF-8), and {@code 7} for all other serializable
+		 * objects (length-prefixed serialized form).
+		 */
+		BINARY
+
+	}
+
+	/** The magic number at the start of binary exports (“UGEX”). */
+	public static final int BINARY_MAGIC = 0x55474558;
+
+	/** The version of the binary format. */
+	public static final int BINARY_VERSION = 1;
+
+	/** Marks a node record in the binary format. */
+	private static final byte BINARY_NODE = 1;
+
+	/** Marks the end of the binary format. */
+	private static final byte BINARY_END = 0;
+
+	/** The size of the output buffer. */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/** The graph to export. */
+	private final Graph graph;
+
+	/**
+	 * Creates a new exporter.
+	 *
+	 * @param graph
+	 *            The graph to export
+	 */
+	public GraphExporter(Graph graph) {
+		Validation.begin().isNotNull("Graph", graph).check();
+		this.graph = graph;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Exports the graph to the given file.
+	 *
+	 * @param file
+	 *            The file to export to
+	 * @param format
+	 *            The format to export
+	 * @throws GraphException
+	 *             if the graph can not be exported
+	 */
+	public void export(File file, Format format) throws GraphException {
+		Validation.begin().isNotNull("File", file).isNotNull("Format", format).check();
+		FileOutputStream fileOutputStream = null;
+		try {
+			fileOutputStream = new FileOutputStream(file);
+			OutputStream outputStream = new BufferedOutputStream(Channels.newOutputStream(fileOutputStream.getChannel()), BUFFER_SIZE);
+			export(outputStream, format);
+			outputStream.flush();
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not export graph to “" + file + "”!", ioe1);
+		} finally {
+			Closer.close(fileOutputStream);
+		}
+	}
+
+	/**
+	 * Exports the graph to the given stream. The stream is flushed but not
+	 * closed.
+	 *
+	 * @param outputStream
+	 *            The stream to export to
+	 * @param format
+	 *            The format to export
+	 * @throws GraphException
+	 *             if the graph can not be exported
+	 */
+	public void export(OutputStream outputStream, Format format) throws GraphException {
+		Validation.begin().isNotNull("Output Stream", outputStream).isNotNull("Format", format).check();
+		try {
+			switch (format) {
+			case EDGE_LIST:
+				exportEdgeList(outputStream);
+				break;
+			case GRAPHML:
+				exportGraphML(outputStream);
+				break;
+			case BINARY:
+				exportBinary(outputStream);
+				break;
+			}
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not export graph!", ioe1);
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Exports the graph as edge list.
+	 *
+	 * @param outputStream
+	 *            The stream to export to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	private void exportEdgeList(OutputStream outputStream) throws IOException, GraphException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"), BUFFER_SIZE);
+		Set<Relationship> relationships = graph.getRelationships();
+		for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+			Node node = nodes.next();
+			for (Relationship relationship : relationships) {
+				for (Edge edge : node.getOutgoingLinks(relationship)) {
+					writer.write(String.valueOf(node.getId()));
+					writer.write('\t');
+					writer.write(String.valueOf(edge.getEndNode().getId()));
+					writer.write('\t');
+					writer.write(relationship.getName());
+					writer.write('\n');
+				}
+			}
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Exports the graph as GraphML document.
+	 *
+	 * @param outputStream
+	 *            The stream to export to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	private void exportGraphML(OutputStream outputStream) throws IOException, GraphException {
+		Map<String, String> propertyTypes = new HashMap<String, String>();
+		for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+			Node node = nodes.next();
+			for (String key : node.getPropertyKeys()) {
+				String type = getGraphMLType(node.get(key));
+				String existingType = propertyTypes.get(key);
+				if (existingType == null) {
+					propertyTypes.put(key, type);
+				} else if (!existingType.equals(type)) {
+					propertyTypes.put(key, "string");
+				}
+			}
+		}
+		Map<String, String> propertyIds = new HashMap<String, String>();
+		Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"), BUFFER_SIZE);
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		writer.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+		writer.write("  <key id=\"relationship\" for=\"edge\" attr.name=\"relationship\" attr.type=\"string\"/>\n");
+		for (Map.Entry<String, String> propertyType : propertyTypes.entrySet()) {
+			String propertyId = "p" + propertyIds.size();
+			propertyIds.put(propertyType.getKey(), propertyId);
+			writer.write("  <key id=\"" + propertyId + "\" for=\"node\" attr.name=\"" + escapeXml(propertyType.getKey()) + "\" attr.type=\"" + propertyType.getValue() + "\"/>\n");
+		}
+		writer.write("  <graph edgedefault=\"directed\">\n");
+		Set<Relationship> relationships = graph.getRelationships();
+		for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+			Node node = nodes.next();
+			writer.write("    <node id=\"n" + node.getId() + "\">\n");
+			for (String key : node.getPropertyKeys()) {
+				Object value = node.get(key);
+				if (value == null) {
+					continue;
+				}
+				writer.write("      <data key=\"" + propertyIds.get(key) + "\">" + escapeXml(String.valueOf(value)) + "</data>\n");
+			}
+			writer.write("    </node>\n");
+			for (Relationship relationship : relationships) {
+				for (Edge edge : node.getOutgoingLinks(relationship)) {
+					writer.write("    <edge source=\"n" + node.getId() + "\" target=\"n" + edge.getEndNode().getId() + "\">");
+					writer.write("<data key=\"relationship\">" + escapeXml(relationship.getName()) + "</data></edge>\n");
+				}
+			}
+		}
+		writer.write("  </graph>\n");
+		writer.write("</graphml>\n");
+		writer.flush();
+	}
+
+	/**
+	 * Exports the graph in the {@link Format#BINARY binary format}.
+	 *
+	 * @param outputStream
+	 *            The stream to export to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	private void exportBinary(OutputStream outputStream) throws IOException, GraphException {
+		DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+		dataOutputStream.writeInt(BINARY_MAGIC);
+		dataOutputStream.writeInt(BINARY_VERSION);
+		List<Relationship> relationships = new ArrayList<Relationship>(graph.getRelationships());
+		dataOutputStream.writeInt(relationships.size());
+		for (Relationship relationship : relationships) {
+			writeString(dataOutputStream, relationship.getName());
+		}
+		List<Set<Edge>> relationshipEdges = new ArrayList<Set<Edge>>(relationships.size());
+		for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+			Node node = nodes.next();
+			dataOutputStream.writeByte(BINARY_NODE);
+			dataOutputStream.writeLong(node.getId());
+			Set<String> propertyKeys = node.getPropertyKeys();
+			dataOutputStream.writeInt(propertyKeys.size());
+			for (String key : propertyKeys) {
+				writeString(dataOutputStream, key);
+				writeValue(dataOutputStream, node.get(key));
+			}
+			relationshipEdges.clear();
+			int edgeCount = 0;
+			for (Relationship relationship : relationships) {
+				Set<Edge> edges = node.getOutgoingLinks(relationship);
+				relationshipEdges.add(edges);
+				edgeCount += edges.size();
+			}
+			dataOutputStream.writeInt(edgeCount);
+			for (int relationshipIndex = 0; relationshipIndex < relationships.size(); ++relationshipIndex) {
+				for (Edge edge : relationshipEdges.get(relationshipIndex)) {
+					dataOutputStream.writeInt(relationshipIndex);
+					dataOutputStream.writeLong(edge.getEndNode().getId());
+				}
+			}
+		}
+		dataOutputStream.writeByte(BINARY_END);
+		dataOutputStream.flush();
+	}
+
+	/**
+	 * Writes the given string as length-prefixed UTF-8.
+	 *
+	 * @param dataOutputStream
+	 *            The stream to write to
+	 * @param string
+	 *            The string to write
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private static void writeString(DataOutputStream dataOutputStream, String string) throws IOException {
+		byte[] bytes = string.getBytes("UTF-8");
+		dataOutputStream.writeInt(bytes.length);
+		dataOutputStream.write(bytes);
+	}
+
+	/**
+	 * Writes the given value with a type byte.
+	 *
+	 * @param dataOutputStream
+	 *            The stream to write to
+	 * @param value
+	 *            The value to write
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws GraphException
+	 *             if the value can not be serialized
+	 */
+	private static void writeValue(DataOutputStream dataOutputStream, Object value) throws IOException, GraphException {
+		if (value == null) {
+			dataOutputStream.writeByte(0);
+		} else if (value instanceof Boolean) {
+			dataOutputStream.writeByte(1);
+			dataOutputStream.writeBoolean((Boolean) value);
+		} else if (value instanceof Integer) {
+			dataOutputStream.writeByte(2);
+			dataOutputStream.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			dataOutputStream.writeByte(3);
+			dataOutputStream.writeLong((Long) value);
+		} else if (value instanceof Double) {
+			dataOutputStream.writeByte(4);
+			dataOutputStream.writeDouble((Double) value);
+		} else if (value instanceof Float) {
+			dataOutputStream.writeByte(5);
+			dataOutputStream.writeFloat((Float) value);
+		} else if (value instanceof String) {
+			dataOutputStream.writeByte(6);
+			writeString(dataOutputStream, (String) value);
+		} else if (value instanceof Serializable) {
+			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+			ObjectOutputStream objectOutputStream = null;
+			try {
+				objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
+				objectOutputStream.writeObject(value);
+			} finally {
+				Closer.close(objectOutputStream);
+			}
+			dataOutputStream.writeByte(7);
+			dataOutputStream.writeInt(byteArrayOutputStream.size());
+			byteArrayOutputStream.writeTo(dataOutputStream);
+		} else {
+			throw new GraphException("Can not export value of type " + value.getClass().getName() + "!");
+		}
+	}
+
+	/**
+	 * Returns the GraphML type of the given value.
+	 *
+	 * @param value
+	 *            The value
+	 * @return The GraphML type of the value
+	 */
+	private static String getGraphMLType(Object value) {
+		if (value instanceof Boolean) {
+			return "boolean";
+		} else if (value instanceof Integer) {
+			return "int";
+		} else if (value instanceof Long) {
+			return "long";
+		} else if (value instanceof Float) {
+			return "float";
+		} else if (value instanceof Double) {
+			return "double";
+		}
+		return "string";
+	}
+
+	/**
+	 * Escapes the XML special characters in the given text.
+	 *
+	 * @param text
+	 *            The text to escape
+	 * @return The escaped text
+	 */
+	private static String escapeXml(String text) {
+		StringBuilder escapedText = new StringBuilder(text.length());
+		for (char character : text.toCharArray()) {
+			switch (character) {
+			case '<':
+				escapedText.append("&lt;");
+				break;
+			case '>':
+				escapedText.append("&gt;");
+				break;
+			case '&':
+				escapedText.append("&amp;");
+				break;
+			case '"':
+				escapedText.append("&quot;");
+				break;
+			default:
+				escapedText.append(character);
+			}
+		}
+		return escapedText.toString();
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * utils.graph - ImportListener.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.io;
+
+import java.util.EventListener;
+
+/**
+ * Interface for objects that want to be notified about the progress of an
+ * {@link EdgeListImporter}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public interface ImportListener extends EventListener {
+
+	/**
+	 * Notifies a listener that another part of the imported file has been
+	 * added to the graph.
+	 *
+	 * @param importStatistics
+	 *            The statistics of the import so far
+	 */
+	public void importProgressed(ImportStatistics importStatistics);
+
+}
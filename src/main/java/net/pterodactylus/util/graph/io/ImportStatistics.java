@@ -0,0 +1,164 @@
+/*
+ * utils.graph - ImportStatistics.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.io;
+
+/**
+ * Snapshot of the progress of an {@link EdgeListImporter}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class ImportStatistics {
+
+	/** The number of bytes that have been imported. */
+	private final long processedBytes;
+
+	/** The total number of bytes of the imported file. */
+	private final long totalBytes;
+
+	/** The number of edges that were read. */
+	private final long edges;
+
+	/** The number of edges that were created. */
+	private final long createdEdges;
+
+	/** The number of nodes that were created. */
+	private final long createdNodes;
+
+	/** The number of milliseconds since the import was started. */
+	private final long elapsedTime;
+
+	/**
+	 * Creates new import statistics.
+	 *
+	 * @param processedBytes
+	 *            The number of bytes that have been imported
+	 * @param totalBytes
+	 *            The total number of bytes of the imported file
+	 * @param edges
+	 *            The number of edges that were read
+	 * @param createdEdges
+	 *            The number of edges that were created
+	 * @param createdNodes
+	 *            The number of nodes that were created
+	 * @param elapsedTime
+	 *            The number of milliseconds since the import was started
+	 */
+	ImportStatistics(long processedBytes, long totalBytes, long edges, long createdEdges, long createdNodes, long elapsedTime) {
+		this.processedBytes = processedBytes;
+		this.totalBytes = totalBytes;
+		this.edges = edges;
+		this.createdEdges = createdEdges;
+		this.createdNodes = createdNodes;
+		this.elapsedTime = elapsedTime;
+	}
+
+	/**
+	 * Returns the number of bytes of the file that have been imported.
+	 *
+	 * @return The number of processed bytes
+	 */
+	public long getProcessedBytes() {
+		return processedBytes;
+	}
+
+	/**
+	 * Returns the size of the imported file.
+	 *
+	 * @return The total number of bytes
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * Returns the number of edges that were read from the file.
+	 *
+	 * @return The number of read edges
+	 */
+	public long getEdges() {
+		return edges;
+	}
+
+	/**
+	 * Returns the number of edges that were created. Edges that already
+	 * existed in the graph are not counted.
+	 *
+	 * @return The number of created edges
+	 */
+	public long getCreatedEdges() {
+		return createdEdges;
+	}
+
+	/**
+	 * Returns the number of nodes that were created.
+	 *
+	 * @return The number of created nodes
+	 */
+	public long getCreatedNodes() {
+		return createdNodes;
+	}
+
+	/**
+	 * Returns the time since the import was started.
+	 *
+	 * @return The elapsed time (in milliseconds)
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * Returns the ratio of processed bytes to the size of the file.
+	 *
+	 * @return The progress of the import (between {@code 0} and {@code 1})
+	 */
+	public double getProgress() {
+		return (totalBytes == 0) ? 1 : (double) processedBytes / totalBytes;
+	}
+
+	/**
+	 * Returns the average number of edges that were read per second.
+	 *
+	 * @return The edge throughput of the import
+	 */
+	public double getEdgesPerSecond() {
+		return (elapsedTime == 0) ? 0 : edges * 1000.0 / elapsedTime;
+	}
+
+	/**
+	 * Returns the average number of bytes that were imported per second.
+	 *
+	 * @return The byte throughput of the import
+	 */
+	public double getBytesPerSecond() {
+		return (elapsedTime == 0) ? 0 : processedBytes * 1000.0 / elapsedTime;
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[processedBytes=" + processedBytes + ",totalBytes=" + totalBytes + ",edges=" + edges + ",createdEdges=" + createdEdges + ",createdNodes=" + createdNodes + ",elapsedTime=" + elapsedTime + "]";
+	}
+
+}
@@ -17,16 +17,21 @@
 
 package net.pterodactylus.util.graph.memory;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import net.pterodactylus.util.graph.AbstractGraph;
 import net.pterodactylus.util.graph.Edge;
 import net.pterodactylus.util.graph.Graph;
 import net.pterodactylus.util.graph.GraphException;
 import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.RandomAccessGraph;
 import net.pterodactylus.util.graph.Relationship;
 import net.pterodactylus.util.validation.Validation;
 
@@ -35,16 +40,22 @@ import net.pterodactylus.util.validation.Validation;
  *
  * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
  */
-public class MemoryGraph implements Graph {
+public class MemoryGraph extends AbstractGraph implements RandomAccessGraph {
 
 	/** All relationships. */
-	private static final Map<String, MemoryRelationship> relationships = new HashMap<String, MemoryRelationship>();
+	private final Map<String, MemoryRelationship> relationships = new HashMap<String, MemoryRelationship>();
 
 	/** The edges for all nodes and relationships. */
-	private static final Map<MemoryNode, Map<MemoryRelationship, Set<Edge>>> nodeRelationshipEdges = new HashMap<MemoryNode, Map<MemoryRelationship, Set<Edge>>>();
+	private final Map<MemoryNode, Map<MemoryRelationship, Set<Edge>>> nodeRelationshipEdges = new HashMap<MemoryNode, Map<MemoryRelationship, Set<Edge>>>();
+
+	/** All nodes of the graph, by ID. */
+	private final Map<Long, MemoryNode> nodes = new HashMap<Long, MemoryNode>();
+
+	/** The ID of the next node. */
+	private long nextNodeId;
 
 	/** The root node of the graph. */
-	private final MemoryNode rootNode = new MemoryNode(this);
+	private final MemoryNode rootNode = createMemoryNode();
 
 	//
 	// PACKAGE-PROTECTED METHODS
@@ -72,6 +83,45 @@ public class MemoryGraph implements Graph {
 		return Collections.emptySet();
 	}
 
+	/**
+	 * Returns the edges of the given node, by relationship. Note that this
+	 * method returns all edges that are connected to the given node, as start
+	 * node or as end node.
+	 *
+	 * @param node
+	 *            The node to get the edges for
+	 * @return All edges of the given node, by relationship
+	 */
+	Map<MemoryRelationship, Set<Edge>> getRelationshipEdges(MemoryNode node) {
+		Map<MemoryRelationship, Set<Edge>> relationshipEdges = nodeRelationshipEdges.get(node);
+		if (relationshipEdges != null) {
+			return relationshipEdges;
+		}
+		return Collections.emptyMap();
+	}
+
+	/**
+	 * Sets a property of the given node and updates the property index of the
+	 * key.
+	 *
+	 * @param node
+	 *            The node
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 * @throws GraphException
+	 *             if the property index can not be updated
+	 */
+	void setProperty(MemoryNode node, String key, Object value) throws GraphException {
+		Object oldValue;
+		synchronized (node) {
+			oldValue = node.putProperty(key, value);
+			updatePropertyIndex(node, key, oldValue, value);
+		}
+		firePropertyChanged(node, key, oldValue, value);
+	}
+
 	/**
 	 * Creates an edge between the given nodes with the given relationship.
 	 *
@@ -83,8 +133,11 @@ public class MemoryGraph implements Graph {
 	 *            The relationship between the nodes
 	 * @return {@code true} if a new edge was created, {@code false} if an edge
 	 *         already existed
+	 * @throws GraphException
+	 *             if an edge validator rejects the edge
 	 */
-	boolean createEdge(MemoryNode startNode, MemoryNode endNode, MemoryRelationship relationship) {
+	boolean createEdge(MemoryNode startNode, MemoryNode endNode, MemoryRelationship relationship) throws GraphException {
+		validateEdge(startNode, endNode, relationship);
 		boolean changed = false;
 		MemoryEdge edge = new MemoryEdge(this, startNode, endNode, relationship);
 
@@ -114,6 +167,11 @@ public class MemoryGraph implements Graph {
 		}
 		changed |= edges.add(edge);
 
+		if (changed) {
+			fireEdgeCreated(edge);
+		} else {
+			fireEdgeNotCreated(startNode, endNode, relationship);
+		}
 		return changed;
 	}
 
@@ -138,7 +196,7 @@ public class MemoryGraph implements Graph {
 		if (relationshipEdges != null) {
 			Set<Edge> edges = relationshipEdges.get(relationship);
 			if (edges != null) {
-				changed = edges.remove(edge);
+				changed |= edges.remove(edge);
 				if (edges.isEmpty()) {
 					relationshipEdges.remove(relationship);
 					if (relationshipEdges.isEmpty()) {
@@ -153,7 +211,7 @@ public class MemoryGraph implements Graph {
 		if (relationshipEdges != null) {
 			Set<Edge> edges = relationshipEdges.get(relationship);
 			if (edges != null) {
-				changed = edges.remove(edge);
+				changed |= edges.remove(edge);
 				if (edges.isEmpty()) {
 					relationshipEdges.remove(relationship);
 					if (relationshipEdges.isEmpty()) {
@@ -163,9 +221,78 @@ public class MemoryGraph implements Graph {
 			}
 		}
 
+		if (changed) {
+			fireEdgeRemoved(edge);
+		}
 		return changed;
 	}
 
+	/**
+	 * Returns all nodes of this graph.
+	 *
+	 * @return All nodes of this graph
+	 */
+	Collection<MemoryNode> getMemoryNodes() {
+		synchronized (nodes) {
+			return new ArrayList<MemoryNode>(nodes.values());
+		}
+	}
+
+	/**
+	 * Returns all relationships of this graph.
+	 *
+	 * @return All relationships of this graph
+	 */
+	Collection<MemoryRelationship> getMemoryRelationships() {
+		synchronized (relationships) {
+			return new ArrayList<MemoryRelationship>(relationships.values());
+		}
+	}
+
+	/**
+	 * Returns the ID the next created node will get.
+	 *
+	 * @return The ID of the next node
+	 */
+	long getNextNodeId() {
+		synchronized (nodes) {
+			return nextNodeId;
+		}
+	}
+
+	/**
+	 * Returns the node with the given ID, creating it if it does not exist.
+	 * This method is used when restoring a graph from a snapshot.
+	 *
+	 * @param id
+	 *            The ID of the node
+	 * @return The node with the given ID
+	 */
+	MemoryNode restoreNode(long id) {
+		synchronized (nodes) {
+			MemoryNode node = nodes.get(id);
+			if (node == null) {
+				node = new MemoryNode(this, id);
+				nodes.put(id, node);
+				nextNodeId = Math.max(nextNodeId, id + 1);
+			}
+			return node;
+		}
+	}
+
+	/**
+	 * Sets the ID the next created node will get. This method is used when
+	 * restoring a graph from a snapshot.
+	 *
+	 * @param nextNodeId
+	 *            The ID of the next node
+	 */
+	void restoreNextNodeId(long nextNodeId) {
+		synchronized (nodes) {
+			this.nextNodeId = Math.max(this.nextNodeId, nextNodeId);
+		}
+	}
+
 	//
 	// INTERFACE Graph
 	//
@@ -183,7 +310,9 @@ public class MemoryGraph implements Graph {
 	 */
 	@Override
 	public Node createNode() throws GraphException {
-		return new MemoryNode(this);
+		MemoryNode node = createMemoryNode();
+		fireNodeCreated(node);
+		return node;
 	}
 
 	/**
@@ -192,15 +321,38 @@ public class MemoryGraph implements Graph {
 	@Override
 	public void removeNode(Node node) throws GraphException {
 		Validation.begin().isNotNull("Node", node).check().isInstanceOf("Node", node, MemoryNode.class).isEqual("Node’s Graph", node.getGraph(), this).check();
-		Map<MemoryRelationship, Set<Edge>> relationshipEdges = nodeRelationshipEdges.remove(node);
-		if (relationshipEdges == null) {
-			return;
+		synchronized (nodes) {
+			nodes.remove(((MemoryNode) node).getId());
 		}
-		for (MemoryRelationship relationship : new HashSet<MemoryRelationship>(relationshipEdges.keySet())) {
-			for (Edge edge : new HashSet<Edge>(relationshipEdges.get(relationship))) {
-				removeEdge((MemoryNode) edge.getStartNode(), (MemoryNode) edge.getEndNode(), relationship);
+		Map<MemoryRelationship, Set<Edge>> relationshipEdges = nodeRelationshipEdges.get(node);
+		if (relationshipEdges != null) {
+			for (MemoryRelationship relationship : new HashSet<MemoryRelationship>(relationshipEdges.keySet())) {
+				for (Edge edge : new HashSet<Edge>(relationshipEdges.get(relationship))) {
+					removeEdge((MemoryNode) edge.getStartNode(), (MemoryNode) edge.getEndNode(), relationship);
+				}
 			}
+			nodeRelationshipEdges.remove(node);
 		}
+		propertiesRemoved(node, getRemovedProperties(node));
+		fireNodeRemoved(node);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Relationship> getRelationships() {
+		return new HashSet<Relationship>(getMemoryRelationships());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The iterator works on a copy of the list of nodes.
+	 */
+	@Override
+	public Iterator<Node> getNodes() {
+		return new ArrayList<Node>(getMemoryNodes()).iterator();
 	}
 
 	/**
@@ -218,4 +370,74 @@ public class MemoryGraph implements Graph {
 		}
 	}
 
+	//
+	// INTERFACE RandomAccessGraph
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Node getNode(long nodeId) {
+		synchronized (nodes) {
+			return nodes.get(nodeId);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long[][] getLinkedNodeIds(long[] nodeIds, Collection<? extends Relationship> relationships, boolean outgoing) {
+		Validation.begin().isNotNull("Node IDs", nodeIds).isNotNull("Relationships", relationships).check();
+		long[][] linkedNodeIds = new long[nodeIds.length][];
+		for (int index = 0; index < nodeIds.length; ++index) {
+			Node node = getNode(nodeIds[index]);
+			if (node == null) {
+				linkedNodeIds[index] = new long[0];
+				continue;
+			}
+			Map<MemoryRelationship, Set<Edge>> relationshipEdges = getRelationshipEdges((MemoryNode) node);
+			long[] nodeLinkedNodeIds = new long[8];
+			int count = 0;
+			for (Relationship relationship : relationships) {
+				Set<Edge> edges = relationshipEdges.get(relationship);
+				if (edges == null) {
+					continue;
+				}
+				for (Edge edge : edges) {
+					if (!(outgoing ? edge.getStartNode() : edge.getEndNode()).equals(node)) {
+						continue;
+					}
+					if (count == nodeLinkedNodeIds.length) {
+						long[] newNodeLinkedNodeIds = new long[count * 2];
+						System.arraycopy(nodeLinkedNodeIds, 0, newNodeLinkedNodeIds, 0, count);
+						nodeLinkedNodeIds = newNodeLinkedNodeIds;
+					}
+					nodeLinkedNodeIds[count++] = (outgoing ? edge.getEndNode() : edge.getStartNode()).getId();
+				}
+			}
+			linkedNodeIds[index] = new long[count];
+			System.arraycopy(nodeLinkedNodeIds, 0, linkedNodeIds[index], 0, count);
+		}
+		return linkedNodeIds;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Creates a new node with the next free ID and registers it.
+	 *
+	 * @return The new node
+	 */
+	private MemoryNode createMemoryNode() {
+		synchronized (nodes) {
+			MemoryNode node = new MemoryNode(this, nextNodeId++);
+			nodes.put(node.getId(), node);
+			return node;
+		}
+	}
+
 }
@@ -17,6 +17,7 @@
 
 package net.pterodactylus.util.graph.memory;
 
+import java.util.Map;
 import java.util.Set;
 
 import net.pterodactylus.util.filter.Filter;
@@ -35,20 +36,77 @@ import net.pterodactylus.util.validation.Validation;
  */
 public class MemoryNode extends AbstractNode {
 
-	/** The counter for all created nodes. */
-	private static long counter = 0;
-
 	/** The ID of this node. */
-	private final long id = counter++;
+	private final long id;
 
 	/**
 	 * Creates a new node that belongs to the given graph.
 	 *
 	 * @param graph
 	 *            The graph this node belongs to
+	 * @param id
+	 *            The ID of the node
 	 */
-	MemoryNode(MemoryGraph graph) {
+	MemoryNode(MemoryGraph graph, long id) {
 		super(graph);
+		this.id = id;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the properties of this node.
+	 *
+	 * @return The properties of this node
+	 */
+	Map<String, Object> getNodeProperties() {
+		return getProperties();
+	}
+
+	/**
+	 * Replaces the properties of this node.
+	 *
+	 * @param properties
+	 *            The new properties of this node
+	 */
+	void setNodeProperties(Map<String, Object> properties) {
+		setProperties(properties);
+	}
+
+	/**
+	 * Sets a property of this node without notifying the graph.
+	 *
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 * @return The old value of the property
+	 */
+	Object putProperty(String key, Object value) {
+		return getProperties().put(key, value);
+	}
+
+	//
+	// INTERFACE Node
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Node set(String key, Object value) throws GraphException {
+		((MemoryGraph) getGraph()).setProperty(this, key, value);
+		return this;
 	}
 
 	/**
@@ -121,7 +179,8 @@ public class MemoryNode extends AbstractNode {
 		if (!(object instanceof MemoryNode)) {
 			return false;
 		}
-		return ((MemoryNode) object).id == id;
+		MemoryNode node = (MemoryNode) object;
+		return (node.getGraph() == getGraph()) && (node.id == id);
 	}
 
 }
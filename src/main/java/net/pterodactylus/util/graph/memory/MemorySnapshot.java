@@ -0,0 +1,421 @@
+/*
+ * utils.graph - MemorySnapshot.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.memory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.io.Closer;
+
+/**
+ * Writes and reads binary images of a {@link MemoryGraph}. The image consists
+ * of a header, the names of all relationships, and one record per node that
+ * contains the node’s ID, its serialized properties, and the end nodes and
+ * relationships of all its outgoing edges. All data is transferred through a
+ * {@link FileChannel} in large blocks.
+ * <p>
+ * The graph must not be modified while a snapshot is written.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class MemorySnapshot {
+
+	/** The magic number at the start of every snapshot (“UGMS”). */
+	private static final int MAGIC = 0x55474d53;
+
+	/** The version of the snapshot format. */
+	private static final int VERSION = 1;
+
+	/** The size of the transfer buffer. */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Writes a snapshot of the given graph to the given file.
+	 *
+	 * @param graph
+	 *            The graph to write
+	 * @param file
+	 *            The file to write the snapshot to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static void write(MemoryGraph graph, File file) throws IOException {
+		FileOutputStream fileOutputStream = null;
+		try {
+			fileOutputStream = new FileOutputStream(file);
+			ChannelWriter writer = new ChannelWriter(fileOutputStream.getChannel());
+			writer.putInt(MAGIC);
+			writer.putInt(VERSION);
+			writer.putLong(graph.getNextNodeId());
+			Collection<MemoryRelationship> relationships = graph.getMemoryRelationships();
+			Map<MemoryRelationship, Integer> relationshipIndexes = new HashMap<MemoryRelationship, Integer>();
+			writer.putInt(relationships.size());
+			for (MemoryRelationship relationship : relationships) {
+				relationshipIndexes.put(relationship, relationshipIndexes.size());
+				writer.putBytes(relationship.getName().getBytes("UTF-8"));
+			}
+			Collection<MemoryNode> nodes = graph.getMemoryNodes();
+			writer.putLong(nodes.size());
+			for (MemoryNode node : nodes) {
+				writer.putLong(node.getId());
+				Map<String, Object> properties = node.getNodeProperties();
+				if (properties.isEmpty()) {
+					writer.putInt(-1);
+				} else {
+					writer.putBytes(serialize(properties));
+				}
+				Map<MemoryRelationship, Set<Edge>> relationshipEdges = graph.getRelationshipEdges(node);
+				int outgoingEdgeCount = 0;
+				for (Set<Edge> edges : relationshipEdges.values()) {
+					for (Edge edge : edges) {
+						if (edge.getStartNode().equals(node)) {
+							++outgoingEdgeCount;
+						}
+					}
+				}
+				writer.putInt(outgoingEdgeCount);
+				for (Entry<MemoryRelationship, Set<Edge>> relationshipEdge : relationshipEdges.entrySet()) {
+					int relationshipIndex = relationshipIndexes.get(relationshipEdge.getKey());
+					for (Edge edge : relationshipEdge.getValue()) {
+						if (edge.getStartNode().equals(node)) {
+							writer.putInt(relationshipIndex);
+							writer.putLong(((MemoryNode) edge.getEndNode()).getId());
+						}
+					}
+				}
+			}
+			writer.flush();
+			fileOutputStream.getChannel().force(false);
+		} finally {
+			Closer.close(fileOutputStream);
+		}
+	}
+
+	/**
+	 * Reads a snapshot from the given file into the given, empty graph.
+	 *
+	 * @param graph
+	 *            The graph to restore the snapshot into
+	 * @param file
+	 *            The file to read the snapshot from
+	 * @throws IOException
+	 *             if an I/O error occurs, or the file is not a valid snapshot
+	 */
+	static void read(MemoryGraph graph, File file) throws IOException {
+		FileInputStream fileInputStream = null;
+		try {
+			fileInputStream = new FileInputStream(file);
+			ChannelReader reader = new ChannelReader(fileInputStream.getChannel());
+			if (reader.getInt() != MAGIC) {
+				throw new IOException("“" + file + "” is not a graph snapshot.");
+			}
+			int version = reader.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported snapshot version: " + version);
+			}
+			long nextNodeId = reader.getLong();
+			MemoryRelationship[] relationships = new MemoryRelationship[reader.getInt()];
+			for (int relationshipIndex = 0; relationshipIndex < relationships.length; ++relationshipIndex) {
+				relationships[relationshipIndex] = (MemoryRelationship) graph.getRelationship(new String(reader.getBytes(reader.getInt()), "UTF-8"));
+			}
+			for (long nodeCount = reader.getLong(); nodeCount > 0; --nodeCount) {
+				MemoryNode node = graph.restoreNode(reader.getLong());
+				int propertiesLength = reader.getInt();
+				if (propertiesLength != -1) {
+					node.setNodeProperties(deserialize(reader.getBytes(propertiesLength)));
+				}
+				for (int edgeCount = reader.getInt(); edgeCount > 0; --edgeCount) {
+					int relationshipIndex = reader.getInt();
+					if ((relationshipIndex < 0) || (relationshipIndex >= relationships.length)) {
+						throw new IOException("Invalid relationship index: " + relationshipIndex);
+					}
+					graph.createEdge(node, graph.restoreNode(reader.getLong()), relationships[relationshipIndex]);
+				}
+			}
+			graph.restoreNextNodeId(nextNodeId);
+		} catch (ClassNotFoundException cnfe1) {
+			throw new IOException("Could not restore node properties: " + cnfe1.getMessage());
+		} catch (GraphException ge1) {
+			throw new IOException("Could not restore relationship: " + ge1.getMessage());
+		} finally {
+			Closer.close(fileInputStream);
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Serializes the given properties.
+	 *
+	 * @param properties
+	 *            The properties to serialize
+	 * @return The serialized properties
+	 * @throws IOException
+	 *             if the properties can not be serialized
+	 */
+	private static byte[] serialize(Map<String, Object> properties) throws IOException {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		ObjectOutputStream objectOutputStream = null;
+		try {
+			objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
+			objectOutputStream.writeObject(new HashMap<String, Object>(properties));
+		} finally {
+			Closer.close(objectOutputStream);
+		}
+		return byteArrayOutputStream.toByteArray();
+	}
+
+	/**
+	 * Deserializes properties.
+	 *
+	 * @param buffer
+	 *            The serialized properties
+	 * @return The deserialized properties
+	 * @throws IOException
+	 *             if the properties can not be deserialized
+	 * @throws ClassNotFoundException
+	 *             if the class of a property value can not be found
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> deserialize(byte[] buffer) throws IOException, ClassNotFoundException {
+		ObjectInputStream objectInputStream = null;
+		try {
+			objectInputStream = new ObjectInputStream(new ByteArrayInputStream(buffer));
+			return (Map<String, Object>) objectInputStream.readObject();
+		} finally {
+			Closer.close(objectInputStream);
+		}
+	}
+
+	/**
+	 * Writes primitive values into a buffer that is written to a file channel
+	 * whenever it is full.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class ChannelWriter {
+
+		/** The channel to write to. */
+		private final FileChannel channel;
+
+		/** The transfer buffer. */
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		/**
+		 * Creates a new channel writer.
+		 *
+		 * @param channel
+		 *            The channel to write to
+		 */
+		ChannelWriter(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Writes an int.
+		 *
+		 * @param value
+		 *            The int to write
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		void putInt(int value) throws IOException {
+			ensureRemaining(4);
+			buffer.putInt(value);
+		}
+
+		/**
+		 * Writes a long.
+		 *
+		 * @param value
+		 *            The long to write
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		void putLong(long value) throws IOException {
+			ensureRemaining(8);
+			buffer.putLong(value);
+		}
+
+		/**
+		 * Writes the length of the given bytes, followed by the bytes.
+		 *
+		 * @param bytes
+		 *            The bytes to write
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		void putBytes(byte[] bytes) throws IOException {
+			putInt(bytes.length);
+			int offset = 0;
+			while (offset < bytes.length) {
+				ensureRemaining(1);
+				int length = Math.min(buffer.remaining(), bytes.length - offset);
+				buffer.put(bytes, offset, length);
+				offset += length;
+			}
+		}
+
+		/**
+		 * Writes all buffered data to the channel.
+		 *
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * Flushes the buffer if it does not have room for the given number of
+		 * bytes.
+		 *
+		 * @param length
+		 *            The number of bytes that will be written
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		private void ensureRemaining(int length) throws IOException {
+			if (buffer.remaining() < length) {
+				flush();
+			}
+		}
+
+	}
+
+	/**
+	 * Reads primitive values from a buffer that is refilled from a file
+	 * channel whenever it runs empty.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class ChannelReader {
+
+		/** The channel to read from. */
+		private final FileChannel channel;
+
+		/** The transfer buffer. */
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		/**
+		 * Creates a new channel reader.
+		 *
+		 * @param channel
+		 *            The channel to read from
+		 */
+		ChannelReader(FileChannel channel) {
+			this.channel = channel;
+			buffer.flip();
+		}
+
+		/**
+		 * Reads an int.
+		 *
+		 * @return The read int
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		int getInt() throws IOException {
+			ensureAvailable(4);
+			return buffer.getInt();
+		}
+
+		/**
+		 * Reads a long.
+		 *
+		 * @return The read long
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		long getLong() throws IOException {
+			ensureAvailable(8);
+			return buffer.getLong();
+		}
+
+		/**
+		 * Reads the given number of bytes.
+		 *
+		 * @param length
+		 *            The number of bytes to read
+		 * @return The read bytes
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		byte[] getBytes(int length) throws IOException {
+			if (length < 0) {
+				throw new IOException("Invalid length: " + length);
+			}
+			byte[] bytes = new byte[length];
+			int offset = 0;
+			while (offset < length) {
+				ensureAvailable(1);
+				int chunkLength = Math.min(buffer.remaining(), length - offset);
+				buffer.get(bytes, offset, chunkLength);
+				offset += chunkLength;
+			}
+			return bytes;
+		}
+
+		/**
+		 * Refills the buffer until it contains at least the given number of
+		 * bytes.
+		 *
+		 * @param length
+		 *            The number of bytes that will be read
+		 * @throws IOException
+		 *             if an I/O error occurs, or the end of the channel is
+		 *             reached
+		 */
+		private void ensureAvailable(int length) throws IOException {
+			if (buffer.remaining() >= length) {
+				return;
+			}
+			buffer.compact();
+			while (buffer.position() < length) {
+				if (channel.read(buffer) == -1) {
+					throw new EOFException("Unexpected end of snapshot.");
+				}
+			}
+			buffer.flip();
+		}
+
+	}
+
+}
@@ -17,7 +17,11 @@
 
 package net.pterodactylus.util.graph.memory;
 
+import java.io.File;
+import java.io.IOException;
+
 import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
 import net.pterodactylus.util.graph.Store;
 
 /**
@@ -28,7 +32,54 @@ import net.pterodactylus.util.graph.Store;
 public class MemoryStore implements Store {
 
 	/** The graph of this store. */
-	private final Graph graph = new MemoryGraph();
+	private final MemoryGraph graph = new MemoryGraph();
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Writes a binary snapshot of the graph of this store to the given file.
+	 * The graph must not be modified while the snapshot is written, and all
+	 * property values have to be {@link java.io.Serializable serializable}.
+	 *
+	 * @param file
+	 *            The file to write the snapshot to
+	 * @throws GraphException
+	 *             if the snapshot can not be written
+	 * @see #restore(File)
+	 */
+	public void snapshot(File file) throws GraphException {
+		try {
+			MemorySnapshot.write(graph, file);
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not write snapshot to “" + file + "”!", ioe1);
+		}
+	}
+
+	/**
+	 * Creates a new memory store from a snapshot that was written by
+	 * {@link #snapshot(File)}.
+	 *
+	 * @param file
+	 *            The file to read the snapshot from
+	 * @return The restored memory store
+	 * @throws GraphException
+	 *             if the snapshot can not be read
+	 */
+	public static MemoryStore restore(File file) throws GraphException {
+		MemoryStore memoryStore = new MemoryStore();
+		try {
+			MemorySnapshot.read(memoryStore.graph, file);
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not restore snapshot from “" + file + "”!", ioe1);
+		}
+		return memoryStore;
+	}
+
+	//
+	// INTERFACE Store
+	//
 
 	/**
 	 * {@inheritDoc}
@@ -0,0 +1,139 @@
+/*
+ * utils.graph - ByteArena.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only arena for byte blocks that is stored outside of the Java heap in
+ * direct {@link ByteBuffer}s of 16 MiB each. Blocks can span chunk
+ * boundaries. Blocks that are no longer used can be marked as garbage; the
+ * owner of the arena is responsible for copying the live blocks into a new
+ * arena once too much garbage has accumulated.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class ByteArena {
+
+	/** The number of bits of an offset that address a byte inside a chunk. */
+	private static final int CHUNK_BITS = 24;
+
+	/** The number of bytes in a chunk. */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	/** The chunks. */
+	private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+	/** The number of used bytes. */
+	private long size;
+
+	/** The number of bytes in blocks that are no longer used. */
+	private long garbage;
+
+	/**
+	 * Returns the number of used bytes, including garbage.
+	 *
+	 * @return The number of used bytes
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes in blocks that are no longer used.
+	 *
+	 * @return The number of garbage bytes
+	 */
+	public long getGarbage() {
+		return garbage;
+	}
+
+	/**
+	 * Returns the number of bytes allocated for this arena.
+	 *
+	 * @return The number of allocated bytes
+	 */
+	public long getAllocatedBytes() {
+		return (long) chunks.size() * CHUNK_SIZE;
+	}
+
+	/**
+	 * Appends the given block to this arena.
+	 *
+	 * @param block
+	 *            The block to append
+	 * @return The offset of the block
+	 */
+	public long add(byte[] block) {
+		long offset = size;
+		while (((long) chunks.size() << CHUNK_BITS) < (size + block.length)) {
+			chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+		}
+		int written = 0;
+		while (written < block.length) {
+			ByteBuffer chunk = chunks.get((int) (size >>> CHUNK_BITS));
+			int chunkOffset = (int) (size & (CHUNK_SIZE - 1));
+			int length = Math.min(block.length - written, CHUNK_SIZE - chunkOffset);
+			ByteBuffer target = chunk.duplicate();
+			target.position(chunkOffset);
+			target.put(block, written, length);
+			written += length;
+			size += length;
+		}
+		return offset;
+	}
+
+	/**
+	 * Reads a block from this arena.
+	 *
+	 * @param offset
+	 *            The offset of the block
+	 * @param length
+	 *            The length of the block
+	 * @return The block
+	 */
+	public byte[] get(long offset, int length) {
+		byte[] block = new byte[length];
+		int read = 0;
+		long position = offset;
+		while (read < length) {
+			ByteBuffer chunk = chunks.get((int) (position >>> CHUNK_BITS));
+			int chunkOffset = (int) (position & (CHUNK_SIZE - 1));
+			int blockLength = Math.min(length - read, CHUNK_SIZE - chunkOffset);
+			ByteBuffer source = chunk.duplicate();
+			source.position(chunkOffset);
+			source.get(block, read, blockLength);
+			read += blockLength;
+			position += blockLength;
+		}
+		return block;
+	}
+
+	/**
+	 * Marks the given number of bytes as no longer used.
+	 *
+	 * @param length
+	 *            The number of bytes that are no longer used
+	 */
+	public void release(int length) {
+		garbage += length;
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * utils.graph - IntTable.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Growable table of fixed-size records of {@code int} fields that is stored
+ * outside of the Java heap in direct {@link ByteBuffer}s. The table is split
+ * into chunks of 4 MiB so that it can grow beyond the 2 GiB limit of a single
+ * buffer without copying existing records.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class IntTable {
+
+	/** The number of bits of an index that address an int inside a chunk. */
+	private static final int CHUNK_BITS = 20;
+
+	/** The number of ints in a chunk. */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	/** The mask for the index inside a chunk. */
+	private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/** The number of fields of each record. */
+	private final int recordSize;
+
+	/** The chunks. */
+	private final List<IntBuffer> chunks = new ArrayList<IntBuffer>();
+
+	/** The number of records in this table. */
+	private int size;
+
+	/**
+	 * Creates a new table.
+	 *
+	 * @param recordSize
+	 *            The number of fields of each record
+	 */
+	public IntTable(int recordSize) {
+		this.recordSize = recordSize;
+	}
+
+	/**
+	 * Returns the number of records in this table.
+	 *
+	 * @return The number of records
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes allocated for this table.
+	 *
+	 * @return The number of allocated bytes
+	 */
+	public long getAllocatedBytes() {
+		return (long) chunks.size() * CHUNK_SIZE * 4;
+	}
+
+	/**
+	 * Returns a field of a record.
+	 *
+	 * @param record
+	 *            The index of the record
+	 * @param field
+	 *            The index of the field
+	 * @return The value of the field
+	 */
+	public int get(int record, int field) {
+		long index = (long) record * recordSize + field;
+		return chunks.get((int) (index >>> CHUNK_BITS)).get((int) (index & CHUNK_MASK));
+	}
+
+	/**
+	 * Sets a field of a record.
+	 *
+	 * @param record
+	 *            The index of the record
+	 * @param field
+	 *            The index of the field
+	 * @param value
+	 *            The new value of the field
+	 */
+	public void set(int record, int field, int value) {
+		long index = (long) record * recordSize + field;
+		chunks.get((int) (index >>> CHUNK_BITS)).put((int) (index & CHUNK_MASK), value);
+	}
+
+	/**
+	 * Appends a new record to this table. All fields of the new record are set
+	 * to the given value.
+	 *
+	 * @param initialValue
+	 *            The initial value of all fields
+	 * @return The index of the new record
+	 */
+	public int add(int initialValue) {
+		if (size == Integer.MAX_VALUE) {
+			throw new IllegalStateException("Table is full.");
+		}
+		long end = (long) (size + 1) * recordSize;
+		while (((long) chunks.size() << CHUNK_BITS) < end) {
+			chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE * 4).order(ByteOrder.nativeOrder()).asIntBuffer());
+		}
+		int record = size++;
+		for (int field = 0; field < recordSize; ++field) {
+			set(record, field, initialValue);
+		}
+		return record;
+	}
+
+}
@@ -0,0 +1,738 @@
+/*
+ * utils.graph - OffHeapGraph.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.offheap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import net.pterodactylus.util.graph.AbstractGraph;
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.io.Closer;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * {@link Graph} implementation that is used by {@link OffHeapStore}.
+ * <p>
+ * Nodes and edges are stored as records in off-heap {@link IntTable}s. Every
+ * node record contains the heads of two doubly-linked lists, one for the
+ * outgoing and one for the incoming edges; every edge record contains the
+ * start node, the end node, the relationship, and the neighbouring edges in
+ * the outgoing list of its start node and the incoming list of its end node.
+ * All edges are also chained into an off-heap hash table by start node, end
+ * node, and relationship, so that creating, finding, and removing an edge
+ * takes constant time regardless of the degree of its nodes. The properties
+ * of a node are serialized into an off-heap {@link ByteArena}. Removed edge
+ * records are reused; removed node records are not, so that stale node
+ * handles can never refer to a different node.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class OffHeapGraph extends AbstractGraph {
+
+	/** Node field: whether the node exists (1) or was removed (0). */
+	private static final int NODE_ALIVE = 0;
+
+	/** Node field: the first edge of the outgoing edge list. */
+	private static final int NODE_FIRST_OUTGOING = 1;
+
+	/** Node field: the first edge of the incoming edge list. */
+	private static final int NODE_FIRST_INCOMING = 2;
+
+	/** Node field: the upper 32 bits of the offset of the properties. */
+	private static final int NODE_PROPERTIES_HIGH = 3;
+
+	/** Node field: the lower 32 bits of the offset of the properties. */
+	private static final int NODE_PROPERTIES_LOW = 4;
+
+	/** Node field: the length of the properties ({@code -1} for none). */
+	private static final int NODE_PROPERTIES_LENGTH = 5;
+
+	/** The number of fields of a node record. */
+	private static final int NODE_RECORD_SIZE = 6;
+
+	/** Edge field: the start node. */
+	private static final int EDGE_START_NODE = 0;
+
+	/** Edge field: the end node. */
+	private static final int EDGE_END_NODE = 1;
+
+	/** Edge field: the relationship ({@code -1} for unused records). */
+	private static final int EDGE_RELATIONSHIP = 2;
+
+	/** Edge field: the next edge in the start node’s outgoing list. */
+	private static final int EDGE_NEXT_OUTGOING = 3;
+
+	/** Edge field: the next edge in the end node’s incoming list. */
+	private static final int EDGE_NEXT_INCOMING = 4;
+
+	/** Edge field: the previous edge in the start node’s outgoing list. */
+	private static final int EDGE_PREVIOUS_OUTGOING = 5;
+
+	/** Edge field: the previous edge in the end node’s incoming list. */
+	private static final int EDGE_PREVIOUS_INCOMING = 6;
+
+	/** Edge field: the next edge in the same bucket of the edge hash table. */
+	private static final int EDGE_NEXT_IN_BUCKET = 7;
+
+	/** The number of fields of an edge record. */
+	private static final int EDGE_RECORD_SIZE = 8;
+
+	/** The initial number of buckets of the edge hash table. */
+	private static final int INITIAL_EDGE_BUCKETS = 1 << 10;
+
+	/** The minimum amount of garbage before properties are compacted. */
+	private static final long MINIMUM_COMPACTION_GARBAGE = 1 << 20;
+
+	/** The node records. */
+	private final IntTable nodes = new IntTable(NODE_RECORD_SIZE);
+
+	/** The edge records. */
+	private final IntTable edges = new IntTable(EDGE_RECORD_SIZE);
+
+	/** The serialized properties. */
+	private ByteArena properties = new ByteArena();
+
+	/** The first unused edge record. */
+	private int firstUnusedEdge = -1;
+
+	/** The first edge of each bucket of the edge hash table. */
+	private IntTable edgeBuckets = createEdgeBuckets(INITIAL_EDGE_BUCKETS);
+
+	/** The number of buckets of the edge hash table (a power of two). */
+	private int edgeBucketCount = INITIAL_EDGE_BUCKETS;
+
+	/** The number of edges. */
+	private int edgeCount;
+
+	/** The relationships, by name. */
+	private final Map<String, OffHeapRelationship> relationships = new HashMap<String, OffHeapRelationship>();
+
+	/** The relationships, by ID. */
+	private final List<OffHeapRelationship> relationshipsById = new ArrayList<OffHeapRelationship>();
+
+	/** The root node of the graph. */
+	private final OffHeapNode rootNode;
+
+	/**
+	 * Creates a new, empty graph.
+	 */
+	OffHeapGraph() {
+		rootNode = createNode();
+	}
+
+	//
+	// INTERFACE Graph
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OffHeapNode getRootNode() {
+		return rootNode;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OffHeapNode createNode() {
+		int node = nodes.add(-1);
+		nodes.set(node, NODE_ALIVE, 1);
+		OffHeapNode offHeapNode = new OffHeapNode(this, node);
+		fireNodeCreated(offHeapNode);
+		return offHeapNode;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeNode(Node node) throws GraphException {
+		Validation.begin().isNotNull("Node", node).check().isInstanceOf("Node", node, OffHeapNode.class).isEqual("Node’s Graph", node.getGraph(), this).check();
+		int index = ((OffHeapNode) node).getIndex();
+		if (nodes.get(index, NODE_ALIVE) == 0) {
+			return;
+		}
+		Set<Edge> removedEdges = hasGraphListeners() ? getEdges(node) : null;
+		Map<String, Object> removedProperties = getRemovedProperties(node);
+		while (nodes.get(index, NODE_FIRST_OUTGOING) != -1) {
+			removeEdgeRecord(nodes.get(index, NODE_FIRST_OUTGOING));
+		}
+		while (nodes.get(index, NODE_FIRST_INCOMING) != -1) {
+			removeEdgeRecord(nodes.get(index, NODE_FIRST_INCOMING));
+		}
+		if (nodes.get(index, NODE_PROPERTIES_LENGTH) != -1) {
+			properties.release(nodes.get(index, NODE_PROPERTIES_LENGTH));
+		}
+		nodes.set(index, NODE_ALIVE, 0);
+		nodes.set(index, NODE_FIRST_OUTGOING, -1);
+		nodes.set(index, NODE_FIRST_INCOMING, -1);
+		nodes.set(index, NODE_PROPERTIES_LENGTH, -1);
+		propertiesRemoved(node, removedProperties);
+		if (removedEdges != null) {
+			fireEdgesRemoved(removedEdges);
+			fireNodeRemoved(node);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OffHeapRelationship getRelationship(String name) throws GraphException {
+		OffHeapRelationship relationship = relationships.get(name);
+		if (relationship == null) {
+			relationship = new OffHeapRelationship(relationshipsById.size(), name);
+			relationships.put(name, relationship);
+			relationshipsById.add(relationship);
+		}
+		return relationship;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Relationship> getRelationships() {
+		return new HashSet<Relationship>(relationshipsById);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Node> getNodes() {
+		return new Iterator<Node>() {
+
+			/** The index of the next node record to check. */
+			private int nextNode = findNode(0);
+
+			@Override
+			public boolean hasNext() {
+				return nextNode != -1;
+			}
+
+			@Override
+			public Node next() {
+				if (nextNode == -1) {
+					throw new NoSuchElementException();
+				}
+				Node node = new OffHeapNode(OffHeapGraph.this, nextNode);
+				nextNode = findNode(nextNode + 1);
+				return node;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+		};
+	}
+
+	//
+	// ABSTRACTGRAPH METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Node getNode(long nodeId) {
+		if ((nodeId < 0) || (nodeId >= nodes.size()) || (nodes.get((int) nodeId, NODE_ALIVE) == 0)) {
+			return null;
+		}
+		return new OffHeapNode(this, (int) nodeId);
+	}
+
+	//
+	// PACKAGE-PROTECTED METHODS
+	//
+
+	/**
+	 * Returns the number of bytes of off-heap memory allocated for this graph.
+	 *
+	 * @return The number of allocated off-heap bytes
+	 */
+	long getAllocatedBytes() {
+		return nodes.getAllocatedBytes() + edges.getAllocatedBytes() + edgeBuckets.getAllocatedBytes() + properties.getAllocatedBytes();
+	}
+
+	/**
+	 * Returns the number of edge records, including unused records that will
+	 * be reused for new edges.
+	 *
+	 * @return The number of edge records
+	 */
+	int getEdgeRecordCount() {
+		return edges.size();
+	}
+
+	/**
+	 * Returns the value of a property of the given node.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property, or {@code null} if the node does not
+	 *         have the property
+	 * @throws GraphException
+	 *             if the node was removed or its properties can not be read
+	 */
+	Object getProperty(int node, String key) throws GraphException {
+		verifyAlive(node);
+		return readProperties(node).get(key);
+	}
+
+	/**
+	 * Returns the keys of all properties of the given node.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @return The keys of all properties of the node
+	 * @throws GraphException
+	 *             if the node was removed or its properties can not be read
+	 */
+	Set<String> getPropertyKeys(int node) throws GraphException {
+		verifyAlive(node);
+		return readProperties(node).keySet();
+	}
+
+	/**
+	 * Sets a property of the given node.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 * @throws GraphException
+	 *             if the node was removed or its properties can not be stored
+	 */
+	void setProperty(int node, String key, Object value) throws GraphException {
+		verifyAlive(node);
+		Map<String, Object> nodeProperties = readProperties(node);
+		Object oldValue = nodeProperties.put(key, value);
+		writeProperties(node, nodeProperties);
+		propertyChanged(new OffHeapNode(this, node), key, oldValue, value);
+	}
+
+	/**
+	 * Creates an edge between the given nodes with the given relationship.
+	 *
+	 * @param startNode
+	 *            The index of the start node
+	 * @param endNode
+	 *            The index of the end node
+	 * @param relationship
+	 *            The relationship between the nodes
+	 * @return {@code true} if a new edge was created, {@code false} if the edge
+	 *         already existed
+	 * @throws GraphException
+	 *             if one of the nodes was removed, or if an edge validator
+	 *             rejects the edge
+	 */
+	boolean createEdge(int startNode, int endNode, OffHeapRelationship relationship) throws GraphException {
+		verifyAlive(startNode);
+		verifyAlive(endNode);
+		if (findEdge(startNode, endNode, relationship.getId()) != -1) {
+			return false;
+		}
+		if (hasEdgeValidators()) {
+			validateEdge(new OffHeapNode(this, startNode), new OffHeapNode(this, endNode), relationship);
+		}
+		if (++edgeCount > edgeBucketCount) {
+			resizeEdgeBuckets(edgeBucketCount * 2);
+		}
+		int edge = firstUnusedEdge;
+		if (edge != -1) {
+			firstUnusedEdge = edges.get(edge, EDGE_NEXT_OUTGOING);
+		} else {
+			edge = edges.add(-1);
+		}
+		edges.set(edge, EDGE_START_NODE, startNode);
+		edges.set(edge, EDGE_END_NODE, endNode);
+		edges.set(edge, EDGE_RELATIONSHIP, relationship.getId());
+		linkFirst(startNode, edge, NODE_FIRST_OUTGOING, EDGE_NEXT_OUTGOING, EDGE_PREVIOUS_OUTGOING);
+		linkFirst(endNode, edge, NODE_FIRST_INCOMING, EDGE_NEXT_INCOMING, EDGE_PREVIOUS_INCOMING);
+		int bucket = getEdgeBucket(startNode, endNode, relationship.getId());
+		edges.set(edge, EDGE_NEXT_IN_BUCKET, edgeBuckets.get(bucket, 0));
+		edgeBuckets.set(bucket, 0, edge);
+		fireEdgeCreated(new OffHeapEdge(this, new OffHeapNode(this, startNode), new OffHeapNode(this, endNode), relationship));
+		return true;
+	}
+
+	/**
+	 * Removes the edge between the given nodes with the given relationship.
+	 *
+	 * @param startNode
+	 *            The index of the start node
+	 * @param endNode
+	 *            The index of the end node
+	 * @param relationship
+	 *            The relationship between the nodes
+	 * @return {@code true} if an edge was removed, {@code false} if there was
+	 *         no edge to remove
+	 */
+	boolean removeEdge(int startNode, int endNode, OffHeapRelationship relationship) {
+		int edge = findEdge(startNode, endNode, relationship.getId());
+		if (edge == -1) {
+			return false;
+		}
+		removeEdgeRecord(edge);
+		fireEdgeRemoved(new OffHeapEdge(this, new OffHeapNode(this, startNode), new OffHeapNode(this, endNode), relationship));
+		return true;
+	}
+
+	/**
+	 * Returns the outgoing or incoming edges of the given node that have the
+	 * given relationship.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @param relationship
+	 *            The relationship of the edges
+	 * @param outgoing
+	 *            {@code true} to return the outgoing edges, {@code false} to
+	 *            return the incoming edges
+	 * @return The edges
+	 */
+	Set<Edge> getEdges(int node, OffHeapRelationship relationship, boolean outgoing) {
+		Set<Edge> nodeEdges = new HashSet<Edge>();
+		int nextField = outgoing ? EDGE_NEXT_OUTGOING : EDGE_NEXT_INCOMING;
+		for (int edge = nodes.get(node, outgoing ? NODE_FIRST_OUTGOING : NODE_FIRST_INCOMING); edge != -1; edge = edges.get(edge, nextField)) {
+			if (edges.get(edge, EDGE_RELATIONSHIP) != relationship.getId()) {
+				continue;
+			}
+			nodeEdges.add(new OffHeapEdge(this, new OffHeapNode(this, edges.get(edge, EDGE_START_NODE)), new OffHeapNode(this, edges.get(edge, EDGE_END_NODE)), relationship));
+		}
+		return nodeEdges;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns the first node that has not been removed, starting at the given
+	 * index.
+	 *
+	 * @param node
+	 *            The index of the first node to check
+	 * @return The index of the first existing node, or {@code -1} if there is
+	 *         no more node
+	 */
+	private int findNode(int node) {
+		for (int index = node, size = nodes.size(); index < size; ++index) {
+			if (nodes.get(index, NODE_ALIVE) != 0) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Verifies that the given node has not been removed.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @throws GraphException
+	 *             if the node has been removed
+	 */
+	private void verifyAlive(int node) throws GraphException {
+		if (nodes.get(node, NODE_ALIVE) == 0) {
+			throw new GraphException("Node " + node + " has been removed.");
+		}
+	}
+
+	/**
+	 * Returns the edge between the given nodes with the given relationship.
+	 *
+	 * @param startNode
+	 *            The index of the start node
+	 * @param endNode
+	 *            The index of the end node
+	 * @param relationship
+	 *            The ID of the relationship
+	 * @return The index of the edge, or {@code -1} if there is no such edge
+	 */
+	private int findEdge(int startNode, int endNode, int relationship) {
+		for (int edge = edgeBuckets.get(getEdgeBucket(startNode, endNode, relationship), 0); edge != -1; edge = edges.get(edge, EDGE_NEXT_IN_BUCKET)) {
+			if ((edges.get(edge, EDGE_START_NODE) == startNode) && (edges.get(edge, EDGE_END_NODE) == endNode) && (edges.get(edge, EDGE_RELATIONSHIP) == relationship)) {
+				return edge;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the bucket of the edge hash table for the given edge.
+	 *
+	 * @param startNode
+	 *            The index of the start node
+	 * @param endNode
+	 *            The index of the end node
+	 * @param relationship
+	 *            The ID of the relationship
+	 * @return The bucket of the edge
+	 */
+	private int getEdgeBucket(int startNode, int endNode, int relationship) {
+		int hash = (startNode * 0x9e3779b1) ^ (endNode * 0x85ebca6b) ^ (relationship * 0xc2b2ae35);
+		return (hash ^ (hash >>> 16)) & (edgeBucketCount - 1);
+	}
+
+	/**
+	 * Creates the given number of empty buckets for the edge hash table.
+	 *
+	 * @param bucketCount
+	 *            The number of buckets
+	 * @return The buckets
+	 */
+	private static IntTable createEdgeBuckets(int bucketCount) {
+		IntTable buckets = new IntTable(1);
+		for (int bucket = 0; bucket < bucketCount; ++bucket) {
+			buckets.add(-1);
+		}
+		return buckets;
+	}
+
+	/**
+	 * Rehashes all edges into the given number of buckets.
+	 *
+	 * @param bucketCount
+	 *            The new number of buckets (a power of two)
+	 */
+	private void resizeEdgeBuckets(int bucketCount) {
+		edgeBuckets = createEdgeBuckets(bucketCount);
+		edgeBucketCount = bucketCount;
+		for (int edge = 0, size = edges.size(); edge < size; ++edge) {
+			int relationship = edges.get(edge, EDGE_RELATIONSHIP);
+			if (relationship == -1) {
+				continue;
+			}
+			int bucket = getEdgeBucket(edges.get(edge, EDGE_START_NODE), edges.get(edge, EDGE_END_NODE), relationship);
+			edges.set(edge, EDGE_NEXT_IN_BUCKET, edgeBuckets.get(bucket, 0));
+			edgeBuckets.set(bucket, 0, edge);
+		}
+	}
+
+	/**
+	 * Adds the given edge to the front of an edge list of the given node.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @param edge
+	 *            The index of the edge
+	 * @param headField
+	 *            The node field that contains the head of the list
+	 * @param nextField
+	 *            The edge field that contains the next edge of the list
+	 * @param previousField
+	 *            The edge field that contains the previous edge of the list
+	 */
+	private void linkFirst(int node, int edge, int headField, int nextField, int previousField) {
+		int firstEdge = nodes.get(node, headField);
+		edges.set(edge, nextField, firstEdge);
+		edges.set(edge, previousField, -1);
+		if (firstEdge != -1) {
+			edges.set(firstEdge, previousField, edge);
+		}
+		nodes.set(node, headField, edge);
+	}
+
+	/**
+	 * Removes the given edge from an edge list of the given node.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @param edge
+	 *            The index of the edge
+	 * @param headField
+	 *            The node field that contains the head of the list
+	 * @param nextField
+	 *            The edge field that contains the next edge of the list
+	 * @param previousField
+	 *            The edge field that contains the previous edge of the list
+	 */
+	private void unlink(int node, int edge, int headField, int nextField, int previousField) {
+		int nextEdge = edges.get(edge, nextField);
+		int previousEdge = edges.get(edge, previousField);
+		if (previousEdge == -1) {
+			nodes.set(node, headField, nextEdge);
+		} else {
+			edges.set(previousEdge, nextField, nextEdge);
+		}
+		if (nextEdge != -1) {
+			edges.set(nextEdge, previousField, previousEdge);
+		}
+	}
+
+	/**
+	 * Removes the given edge from the edge lists of its nodes and from the
+	 * edge hash table, and marks its record as unused so that it can be
+	 * reused.
+	 *
+	 * @param edge
+	 *            The index of the edge
+	 */
+	private void removeEdgeRecord(int edge) {
+		int startNode = edges.get(edge, EDGE_START_NODE);
+		int endNode = edges.get(edge, EDGE_END_NODE);
+		unlink(startNode, edge, NODE_FIRST_OUTGOING, EDGE_NEXT_OUTGOING, EDGE_PREVIOUS_OUTGOING);
+		unlink(endNode, edge, NODE_FIRST_INCOMING, EDGE_NEXT_INCOMING, EDGE_PREVIOUS_INCOMING);
+		int bucket = getEdgeBucket(startNode, endNode, edges.get(edge, EDGE_RELATIONSHIP));
+		int previousEdge = -1;
+		for (int currentEdge = edgeBuckets.get(bucket, 0); currentEdge != edge; currentEdge = edges.get(currentEdge, EDGE_NEXT_IN_BUCKET)) {
+			previousEdge = currentEdge;
+		}
+		if (previousEdge == -1) {
+			edgeBuckets.set(bucket, 0, edges.get(edge, EDGE_NEXT_IN_BUCKET));
+		} else {
+			edges.set(previousEdge, EDGE_NEXT_IN_BUCKET, edges.get(edge, EDGE_NEXT_IN_BUCKET));
+		}
+		--edgeCount;
+		edges.set(edge, EDGE_RELATIONSHIP, -1);
+		edges.set(edge, EDGE_NEXT_INCOMING, -1);
+		edges.set(edge, EDGE_PREVIOUS_OUTGOING, -1);
+		edges.set(edge, EDGE_PREVIOUS_INCOMING, -1);
+		edges.set(edge, EDGE_NEXT_IN_BUCKET, -1);
+		edges.set(edge, EDGE_NEXT_OUTGOING, firstUnusedEdge);
+		firstUnusedEdge = edge;
+	}
+
+	/**
+	 * Reads the properties of the given node.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @return The properties of the node
+	 * @throws GraphException
+	 *             if the properties can not be read
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> readProperties(int node) throws GraphException {
+		int length = nodes.get(node, NODE_PROPERTIES_LENGTH);
+		if (length == -1) {
+			return new HashMap<String, Object>();
+		}
+		ObjectInputStream objectInputStream = null;
+		try {
+			objectInputStream = new ObjectInputStream(new ByteArrayInputStream(properties.get(getPropertiesOffset(node), length)));
+			return (Map<String, Object>) objectInputStream.readObject();
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not read properties of node " + node + ".", ioe1);
+		} catch (ClassNotFoundException cnfe1) {
+			throw new GraphException("Could not read properties of node " + node + ".", cnfe1);
+		} finally {
+			Closer.close(objectInputStream);
+		}
+	}
+
+	/**
+	 * Writes the properties of the given node.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @param nodeProperties
+	 *            The properties of the node
+	 * @throws GraphException
+	 *             if the properties can not be written
+	 */
+	private void writeProperties(int node, Map<String, Object> nodeProperties) throws GraphException {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		ObjectOutputStream objectOutputStream = null;
+		try {
+			objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
+			objectOutputStream.writeObject(nodeProperties);
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not write properties of node " + node + ".", ioe1);
+		} finally {
+			Closer.close(objectOutputStream);
+		}
+		byte[] block = byteArrayOutputStream.toByteArray();
+		if (nodes.get(node, NODE_PROPERTIES_LENGTH) != -1) {
+			properties.release(nodes.get(node, NODE_PROPERTIES_LENGTH));
+		}
+		setPropertiesOffset(node, properties.add(block), block.length);
+		if ((properties.getGarbage() > MINIMUM_COMPACTION_GARBAGE) && (properties.getGarbage() > (properties.size() / 2))) {
+			compactProperties();
+		}
+	}
+
+	/**
+	 * Copies the properties of all nodes into a new arena, dropping all
+	 * garbage.
+	 */
+	private void compactProperties() {
+		ByteArena compactedProperties = new ByteArena();
+		for (int node = 0, size = nodes.size(); node < size; ++node) {
+			int length = nodes.get(node, NODE_PROPERTIES_LENGTH);
+			if (length == -1) {
+				continue;
+			}
+			setPropertiesOffset(node, compactedProperties.add(properties.get(getPropertiesOffset(node), length)), length);
+		}
+		properties = compactedProperties;
+	}
+
+	/**
+	 * Returns the offset of the properties of the given node.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @return The offset of the node’s properties
+	 */
+	private long getPropertiesOffset(int node) {
+		return ((long) nodes.get(node, NODE_PROPERTIES_HIGH) << 32) | (nodes.get(node, NODE_PROPERTIES_LOW) & 0xffffffffL);
+	}
+
+	/**
+	 * Sets the offset and length of the properties of the given node.
+	 *
+	 * @param node
+	 *            The index of the node
+	 * @param offset
+	 *            The offset of the properties
+	 * @param length
+	 *            The length of the properties
+	 */
+	private void setPropertiesOffset(int node, long offset, int length) {
+		nodes.set(node, NODE_PROPERTIES_HIGH, (int) (offset >>> 32));
+		nodes.set(node, NODE_PROPERTIES_LOW, (int) offset);
+		nodes.set(node, NODE_PROPERTIES_LENGTH, length);
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * utils.graph - OffHeapNode.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.offheap;
+
+import java.util.Set;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * {@link Node} implementation that is used by {@link OffHeapStore}. A node is
+ * only a handle that contains the index of the node’s record in the
+ * {@link OffHeapGraph}; all properties and edges are stored off-heap. Any
+ * number of handles can exist for the same node, they are equal to each
+ * other.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class OffHeapNode implements Node {
+
+	/** The graph this node belongs to. */
+	private final OffHeapGraph graph;
+
+	/** The index of the node’s record. */
+	private final int index;
+
+	/**
+	 * Creates a new node handle.
+	 *
+	 * @param graph
+	 *            The graph the node belongs to
+	 * @param index
+	 *            The index of the node’s record
+	 */
+	OffHeapNode(OffHeapGraph graph, int index) {
+		this.graph = graph;
+		this.index = index;
+	}
+
+	/**
+	 * Returns the index of the node’s record.
+	 *
+	 * @return The index of the node’s record
+	 */
+	int getIndex() {
+		return index;
+	}
+
+	//
+	// INTERFACE Node
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OffHeapGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getId() {
+		return index;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Node set(String key, Object value) throws GraphException {
+		graph.setProperty(index, key, value);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(String key) throws GraphException {
+		return graph.getProperty(index, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<String> getPropertyKeys() throws GraphException {
+		return graph.getPropertyKeys(index);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean link(Node otherNode, Relationship relationship) throws GraphException {
+		Validation.begin().isNotNull("Other Node", otherNode).isNotNull("Relationship", relationship).check().isInstanceOf("Other Node", otherNode, OffHeapNode.class).isInstanceOf("Relationship", relationship, OffHeapRelationship.class).isEqual("Other Node’s Graph", otherNode.getGraph(), graph).check();
+		return graph.createEdge(index, ((OffHeapNode) otherNode).index, (OffHeapRelationship) relationship);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean link(Node otherNode, String relationship) throws GraphException {
+		return link(otherNode, graph.getRelationship(relationship));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean unlink(Node otherNode, Relationship relationship) throws GraphException {
+		Validation.begin().isNotNull("Other Node", otherNode).isNotNull("Relationship", relationship).check().isInstanceOf("Other Node", otherNode, OffHeapNode.class).isInstanceOf("Relationship", relationship, OffHeapRelationship.class).isEqual("Other Node’s Graph", otherNode.getGraph(), graph).check();
+		return graph.removeEdge(index, ((OffHeapNode) otherNode).index, (OffHeapRelationship) relationship);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean unlink(Node otherNode, String relationship) throws GraphException {
+		return unlink(otherNode, graph.getRelationship(relationship));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Edge> getIncomingLinks(Relationship relationship) throws GraphException {
+		Validation.begin().isNotNull("Relationship", relationship).check().isInstanceOf("Relationship", relationship, OffHeapRelationship.class).check();
+		return graph.getEdges(index, (OffHeapRelationship) relationship, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Edge> getIncomingLinks(String relationship) throws GraphException {
+		return getIncomingLinks(graph.getRelationship(relationship));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Edge> getOutgoingLinks(Relationship relationship) throws GraphException {
+		Validation.begin().isNotNull("Relationship", relationship).check().isInstanceOf("Relationship", relationship, OffHeapRelationship.class).check();
+		return graph.getEdges(index, (OffHeapRelationship) relationship, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Edge> getOutgoingLinks(String relationship) throws GraphException {
+		return getOutgoingLinks(graph.getRelationship(relationship));
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return index;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if (!(object instanceof OffHeapNode)) {
+			return false;
+		}
+		OffHeapNode node = (OffHeapNode) object;
+		return (node.graph == graph) && (node.index == index);
+	}
+
+}
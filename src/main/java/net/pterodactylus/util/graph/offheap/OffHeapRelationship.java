@@ -0,0 +1,80 @@
+/*
+ * utils.graph - OffHeapRelationship.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.offheap;
+
+import net.pterodactylus.util.graph.DefaultRelationship;
+import net.pterodactylus.util.graph.Relationship;
+
+/**
+ * {@link Relationship} implementation that is used by {@link OffHeapStore}.
+ * It adds an ID to the relationship that is stored in the edge records and
+ * used when comparing relationships with {@link Object#equals(Object)}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class OffHeapRelationship extends DefaultRelationship {
+
+	/** The ID of the relationship. */
+	private final int id;
+
+	/**
+	 * Creates a new relationship.
+	 *
+	 * @param id
+	 *            The ID of the relationship
+	 * @param name
+	 *            The name of the relationship
+	 */
+	OffHeapRelationship(int id, String name) {
+		super(name);
+		this.id = id;
+	}
+
+	/**
+	 * Returns the ID of the relationship.
+	 *
+	 * @return The ID of the relationship
+	 */
+	int getId() {
+		return id;
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return id;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if (!(object instanceof OffHeapRelationship)) {
+			return false;
+		}
+		return ((OffHeapRelationship) object).id == id;
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * utils.graph - OffHeapStore.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.offheap;
+
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.Store;
+
+/**
+ * {@link Store} implementation that keeps nodes, edges and properties in
+ * direct buffers outside of the Java heap. Nodes and edges are only
+ * represented by small handle objects while they are used, so the heap usage
+ * and the garbage collection time do not grow with the size of the graph.
+ * <p>
+ * This store is not safe for concurrent use.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class OffHeapStore implements Store {
+
+	/** The graph of this store. */
+	private final OffHeapGraph graph = new OffHeapGraph();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Graph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Returns the number of bytes of off-heap memory that are allocated for
+	 * this store.
+	 *
+	 * @return The number of allocated off-heap bytes
+	 */
+	public long getAllocatedBytes() {
+		return graph.getAllocatedBytes();
+	}
+
+}
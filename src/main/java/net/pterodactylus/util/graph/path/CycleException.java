@@ -0,0 +1,75 @@
+/*
+ * utils.graph - CycleException.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.path;
+
+import net.pterodactylus.util.graph.GraphException;
+
+/**
+ * Exception that signals that an edge would create a cycle in a relationship
+ * that has to stay acyclic.
+ *
+ * @see TopologicalOrder
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class CycleException extends GraphException {
+
+	/** The ID of the start node of the rejected edge. */
+	private final long startNodeId;
+
+	/** The ID of the end node of the rejected edge. */
+	private final long endNodeId;
+
+	/**
+	 * Creates a new cycle exception.
+	 *
+	 * @param message
+	 *            The message of the exception
+	 * @param startNodeId
+	 *            The ID of the start node of the rejected edge
+	 * @param endNodeId
+	 *            The ID of the end node of the rejected edge
+	 */
+	public CycleException(String message, long startNodeId, long endNodeId) {
+		super(message);
+		this.startNodeId = startNodeId;
+		this.endNodeId = endNodeId;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the ID of the start node of the rejected edge.
+	 *
+	 * @return The ID of the start node
+	 */
+	public long getStartNodeId() {
+		return startNodeId;
+	}
+
+	/**
+	 * Returns the ID of the end node of the rejected edge.
+	 *
+	 * @return The ID of the end node
+	 */
+	public long getEndNodeId() {
+		return endNodeId;
+	}
+
+}
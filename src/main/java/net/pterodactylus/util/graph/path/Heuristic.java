@@ -0,0 +1,49 @@
+/*
+ * utils.graph - Heuristic.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.path;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+
+/**
+ * Estimates the weight of the cheapest path between two nodes for an A*
+ * search of the {@link ShortestPathFinder}. The estimate must never be
+ * greater than the actual weight of the cheapest path, and the estimate for a
+ * node must not be greater than the weight of an edge to a neighbour plus the
+ * estimate for the neighbour; otherwise the found path might not be the
+ * cheapest one.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public interface Heuristic {
+
+	/**
+	 * Estimates the weight of the cheapest path from the given node to the
+	 * given end node.
+	 *
+	 * @param node
+	 *            The node to estimate the weight for
+	 * @param endNode
+	 *            The end node of the path
+	 * @return The estimated weight of the cheapest path
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public double estimate(Node node, Node endNode) throws GraphException;
+
+}
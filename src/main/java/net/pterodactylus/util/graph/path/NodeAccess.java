@@ -0,0 +1,187 @@
+/*
+ * utils.graph - NodeAccess.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.path;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.RandomAccessGraph;
+import net.pterodactylus.util.graph.Relationship;
+
+/**
+ * Access to nodes and their neighbours by node ID. For a
+ * {@link RandomAccessGraph} all requests are delegated to the graph; for other
+ * graphs the nodes are remembered while their neighbours are requested.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+abstract class NodeAccess {
+
+	/**
+	 * Creates a node access for the given graph.
+	 *
+	 * @param graph
+	 *            The graph to access
+	 * @return The node access
+	 */
+	public static NodeAccess create(Graph graph) {
+		if (graph instanceof RandomAccessGraph) {
+			return new RandomAccessGraphNodeAccess((RandomAccessGraph) graph);
+		}
+		return new EdgeNodeAccess();
+	}
+
+	/**
+	 * Makes the given node known to this node access.
+	 *
+	 * @param node
+	 *            The node
+	 */
+	public void register(Node node) {
+		/* do nothing. */
+	}
+
+	/**
+	 * Returns the node with the given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The node with the given ID
+	 * @throws GraphException
+	 *             if the node can not be loaded
+	 */
+	public abstract Node getNode(long nodeId) throws GraphException;
+
+	/**
+	 * Returns the IDs of the nodes that are linked to the given nodes.
+	 *
+	 * @see RandomAccessGraph#getLinkedNodeIds(long[], Collection, boolean)
+	 * @param nodeIds
+	 *            The IDs of the nodes
+	 * @param relationships
+	 *            The relationships to follow
+	 * @param outgoing
+	 *            {@code true} to follow outgoing edges, {@code false} to
+	 *            follow incoming edges
+	 * @return The IDs of the linked nodes, in the order of the given nodes
+	 * @throws GraphException
+	 *             if the edges can not be loaded
+	 */
+	public abstract long[][] getLinkedNodeIds(long[] nodeIds, Collection<? extends Relationship> relationships, boolean outgoing) throws GraphException;
+
+	/**
+	 * Node access that delegates to a {@link RandomAccessGraph}.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class RandomAccessGraphNodeAccess extends NodeAccess {
+
+		/** The graph. */
+		private final RandomAccessGraph graph;
+
+		/**
+		 * Creates a new node access.
+		 *
+		 * @param graph
+		 *            The graph
+		 */
+		RandomAccessGraphNodeAccess(RandomAccessGraph graph) {
+			this.graph = graph;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Node getNode(long nodeId) throws GraphException {
+			return graph.getNode(nodeId);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long[][] getLinkedNodeIds(long[] nodeIds, Collection<? extends Relationship> relationships, boolean outgoing) throws GraphException {
+			return graph.getLinkedNodeIds(nodeIds, relationships, outgoing);
+		}
+
+	}
+
+	/**
+	 * Node access that follows the edges of the nodes and remembers all nodes
+	 * it has seen.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class EdgeNodeAccess extends NodeAccess {
+
+		/** The known nodes, by ID. */
+		private final Map<Long, Node> nodes = new HashMap<Long, Node>();
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void register(Node node) {
+			nodes.put(node.getId(), node);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Node getNode(long nodeId) {
+			return nodes.get(nodeId);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long[][] getLinkedNodeIds(long[] nodeIds, Collection<? extends Relationship> relationships, boolean outgoing) throws GraphException {
+			long[][] linkedNodeIds = new long[nodeIds.length][];
+			for (int index = 0; index < nodeIds.length; ++index) {
+				Node node = nodes.get(nodeIds[index]);
+				long[] nodeLinkedNodeIds = new long[8];
+				int count = 0;
+				for (Relationship relationship : relationships) {
+					for (Edge edge : outgoing ? node.getOutgoingLinks(relationship) : node.getIncomingLinks(relationship)) {
+						Node linkedNode = outgoing ? edge.getEndNode() : edge.getStartNode();
+						register(linkedNode);
+						if (count == nodeLinkedNodeIds.length) {
+							long[] newNodeLinkedNodeIds = new long[count * 2];
+							System.arraycopy(nodeLinkedNodeIds, 0, newNodeLinkedNodeIds, 0, count);
+							nodeLinkedNodeIds = newNodeLinkedNodeIds;
+						}
+						nodeLinkedNodeIds[count++] = linkedNode.getId();
+					}
+				}
+				linkedNodeIds[index] = new long[count];
+				System.arraycopy(nodeLinkedNodeIds, 0, linkedNodeIds[index], 0, count);
+			}
+			return linkedNodeIds;
+		}
+
+	}
+
+}
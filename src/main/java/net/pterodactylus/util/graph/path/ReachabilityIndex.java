@@ -0,0 +1,867 @@
+/*
+ * utils.graph - ReachabilityIndex.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.path;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.GraphListener;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.graph.analytics.AdjacencySnapshot;
+import net.pterodactylus.util.graph.analytics.Components;
+import net.pterodactylus.util.graph.analytics.ConnectedComponents;
+import net.pterodactylus.util.graph.collection.LongHashSet;
+import net.pterodactylus.util.graph.collection.LongIntHashMap;
+import net.pterodactylus.util.io.Closer;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Index that answers whether a node can reach another node over the outgoing
+ * edges of a set of relationships without traversing the graph.
+ * <p>
+ * The strongly connected components of the graph are condensed into a
+ * directed acyclic graph, and every component gets two labels using pruned
+ * landmark labeling: the landmarks that reach it, and the landmarks it
+ * reaches. All components are used as landmarks, in the order of decreasing
+ * {@code (in-degree + 1) * (out-degree + 1)}; a breadth-first search from a
+ * landmark stops at every component whose reachability from the landmark is
+ * already answered by the labels of earlier landmarks, which keeps the labels
+ * small. A node reaches another node if both are in the same component or if
+ * the “reaches” label of the first and the “reached by” label of the second
+ * have a landmark in common; as labels are sorted, this is a merge of two
+ * short arrays.
+ * <p>
+ * The index registers itself as {@link GraphListener} of its graph. New
+ * nodes get their own component. A new edge between two nodes that can not
+ * reach each other yet is added by resuming the pruned searches of the
+ * affected landmarks; a new edge that closes a cycle, and the removal of an
+ * edge, can not be handled incrementally and cause the index to be rebuilt
+ * on the next query. Use {@link #close()} to unregister the index.
+ * <p>
+ * An index can be {@link #save(File) saved} next to the files of a store and
+ * {@link #load(Graph, File) loaded} again; it is the caller’s responsibility
+ * to only load an index that matches the graph.
+ * <p>
+ * All methods of this index are synchronized; a rebuild reads the graph
+ * while the index is not locked, so that the graph can notify the index from
+ * any thread. If the graph is modified during a rebuild, the query is answered
+ * from the rebuilt index and the index is rebuilt again on the next query.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class ReachabilityIndex implements GraphListener {
+
+	/** The magic number at the start of every saved index (“UGRI”). */
+	private static final int MAGIC = 0x55475249;
+
+	/** The version of the file format. */
+	private static final int VERSION = 1;
+
+	/** The graph. */
+	private final Graph graph;
+
+	/** The names of the indexed relationships. */
+	private final Set<String> relationships;
+
+	/** Whether the index has to be rebuilt before the next query. */
+	private boolean stale = true;
+
+	/** The number of relevant modifications of the graph. */
+	private long modificationCount;
+
+	/** The components, by node ID ({@code -1} for removed nodes). */
+	private LongIntHashMap components;
+
+	/** The IDs of all indexed nodes. */
+	private long[] nodeIds;
+
+	/** The number of indexed nodes. */
+	private int nodeCount;
+
+	/** The number of components. */
+	private int componentCount;
+
+	/**
+	 * Whether all edges point from a component with a higher number to a
+	 * component with a lower number.
+	 */
+	private boolean ordered;
+
+	/**
+	 * The components, by landmark rank. Components that are added after the
+	 * index was built use their own number as rank.
+	 */
+	private int[] landmarks;
+
+	/** The successors of every component. */
+	private int[][] successors;
+
+	/** The number of successors of every component. */
+	private int[] successorCounts;
+
+	/** The predecessors of every component. */
+	private int[][] predecessors;
+
+	/** The number of predecessors of every component. */
+	private int[] predecessorCounts;
+
+	/** The ranks of the landmarks that reach a component, sorted. */
+	private int[][] inLabels;
+
+	/** The number of landmarks that reach a component. */
+	private int[] inLabelSizes;
+
+	/** The ranks of the landmarks that a component reaches, sorted. */
+	private int[][] outLabels;
+
+	/** The number of landmarks that a component reaches. */
+	private int[] outLabelSizes;
+
+	/** The search stamp of every component. */
+	private int[] stamps;
+
+	/** The current search stamp. */
+	private int stamp;
+
+	/** The search queue. */
+	private int[] queue;
+
+	/**
+	 * Creates a new reachability index.
+	 *
+	 * @param graph
+	 *            The graph
+	 * @param relationships
+	 *            The names of the indexed relationships
+	 */
+	private ReachabilityIndex(Graph graph, Set<String> relationships) {
+		this.graph = graph;
+		this.relationships = relationships;
+	}
+
+	/**
+	 * Builds a reachability index for the given relationships of the given
+	 * graph and registers it as listener of the graph.
+	 *
+	 * @param graph
+	 *            The graph to index
+	 * @param relationships
+	 *            The names of the relationships whose edges are followed
+	 * @return The reachability index
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public static ReachabilityIndex create(Graph graph, Collection<String> relationships) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).isNotNull("Relationships", relationships).check();
+		ReachabilityIndex reachabilityIndex = new ReachabilityIndex(graph, Collections.unmodifiableSet(new HashSet<String>(relationships)));
+		graph.addGraphListener(reachabilityIndex);
+		try {
+			reachabilityIndex.rebuildIfStale();
+		} catch (GraphException ge1) {
+			reachabilityIndex.close();
+			throw ge1;
+		}
+		return reachabilityIndex;
+	}
+
+	/**
+	 * Loads a reachability index that was saved with {@link #save(File)} and
+	 * registers it as listener of the given graph.
+	 *
+	 * @param graph
+	 *            The graph the index was built for
+	 * @param file
+	 *            The file to load the index from
+	 * @return The loaded reachability index
+	 * @throws GraphException
+	 *             if the index can not be loaded
+	 */
+	public static ReachabilityIndex load(Graph graph, File file) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).isNotNull("File", file).check();
+		DataInputStream inputStream = null;
+		try {
+			inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if ((inputStream.readInt() != MAGIC) || (inputStream.readInt() != VERSION)) {
+				throw new GraphException("“" + file + "” is not a reachability index!");
+			}
+			Set<String> relationships = new HashSet<String>();
+			for (int relationshipCount = inputStream.readInt(); relationshipCount > 0; --relationshipCount) {
+				relationships.add(inputStream.readUTF());
+			}
+			ReachabilityIndex reachabilityIndex = new ReachabilityIndex(graph, Collections.unmodifiableSet(relationships));
+			synchronized (reachabilityIndex) {
+				reachabilityIndex.read(inputStream);
+				graph.addGraphListener(reachabilityIndex);
+			}
+			return reachabilityIndex;
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not load reachability index from “" + file + "”!", ioe1);
+		} finally {
+			Closer.close(inputStream);
+		}
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the names of the relationships whose edges are followed.
+	 *
+	 * @return The names of the indexed relationships
+	 */
+	public Set<String> getRelationships() {
+		return relationships;
+	}
+
+	/**
+	 * Returns the number of strongly connected components of the indexed
+	 * graph, including components of removed nodes that have not been
+	 * cleaned up by a rebuild.
+	 *
+	 * @return The number of components
+	 * @throws GraphException
+	 *             if the index has to be rebuilt and the graph can not be
+	 *             read
+	 */
+	public int getComponentCount() throws GraphException {
+		rebuildIfStale();
+		synchronized (this) {
+			return componentCount;
+		}
+	}
+
+	/**
+	 * Returns the average number of landmarks per label.
+	 *
+	 * @return The average label size
+	 * @throws GraphException
+	 *             if the index has to be rebuilt and the graph can not be
+	 *             read
+	 */
+	public double getAverageLabelSize() throws GraphException {
+		rebuildIfStale();
+		synchronized (this) {
+			long labelSize = 0;
+			for (int component = 0; component < componentCount; ++component) {
+				labelSize += inLabelSizes[component] + outLabelSizes[component];
+			}
+			return (componentCount == 0) ? 0 : ((double) labelSize / (2 * componentCount));
+		}
+	}
+
+	/**
+	 * Returns whether the given start node can reach the given end node. A
+	 * node can always reach itself.
+	 *
+	 * @param startNode
+	 *            The start node
+	 * @param endNode
+	 *            The end node
+	 * @return {@code true} if there is a path from the start node to the end
+	 *         node, {@code false} otherwise
+	 * @throws GraphException
+	 *             if the index has to be rebuilt and the graph can not be
+	 *             read
+	 */
+	public boolean canReach(Node startNode, Node endNode) throws GraphException {
+		Validation.begin().isNotNull("Start Node", startNode).isNotNull("End Node", endNode).check();
+		return canReach(startNode.getId(), endNode.getId());
+	}
+
+	/**
+	 * Returns whether the node with the given start node ID can reach the
+	 * node with the given end node ID. A node can always reach itself; nodes
+	 * that are not known to the index can not reach any other node.
+	 *
+	 * @param startNodeId
+	 *            The ID of the start node
+	 * @param endNodeId
+	 *            The ID of the end node
+	 * @return {@code true} if there is a path from the start node to the end
+	 *         node, {@code false} otherwise
+	 * @throws GraphException
+	 *             if the index has to be rebuilt and the graph can not be
+	 *             read
+	 */
+	public boolean canReach(long startNodeId, long endNodeId) throws GraphException {
+		if (startNodeId == endNodeId) {
+			return true;
+		}
+		rebuildIfStale();
+		synchronized (this) {
+			int startComponent = components.get(startNodeId);
+			int endComponent = components.get(endNodeId);
+			if ((startComponent == -1) || (endComponent == -1)) {
+				return false;
+			}
+			if (startComponent == endComponent) {
+				return true;
+			}
+			if (ordered && (startComponent < endComponent)) {
+				return false;
+			}
+			return reaches(startComponent, endComponent);
+		}
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Saves this index to the given file.
+	 *
+	 * @param file
+	 *            The file to save the index to
+	 * @throws GraphException
+	 *             if the index has to be rebuilt and the graph can not be
+	 *             read, or if the index can not be written
+	 */
+	public void save(File file) throws GraphException {
+		Validation.begin().isNotNull("File", file).check();
+		rebuildIfStale();
+		synchronized (this) {
+			DataOutputStream outputStream = null;
+			try {
+				outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+				outputStream.writeInt(MAGIC);
+				outputStream.writeInt(VERSION);
+				outputStream.writeInt(relationships.size());
+				for (String relationship : relationships) {
+					outputStream.writeUTF(relationship);
+				}
+				write(outputStream);
+				outputStream.flush();
+			} catch (IOException ioe1) {
+				throw new GraphException("Could not save reachability index to “" + file + "”!", ioe1);
+			} finally {
+				Closer.close(outputStream);
+			}
+		}
+	}
+
+	/**
+	 * Unregisters this index from its graph. The index is not updated
+	 * anymore after it has been closed.
+	 */
+	public void close() {
+		graph.removeGraphListener(this);
+	}
+
+	//
+	// INTERFACE GraphListener
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void nodeCreated(Node node) {
+		++modificationCount;
+		if (stale || (components.get(node.getId()) != -1)) {
+			return;
+		}
+		int component = addComponent();
+		addNode(node.getId(), component);
+		landmarks[component] = component;
+		addLabel(inLabels, inLabelSizes, component, component);
+		addLabel(outLabels, outLabelSizes, component, component);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void nodeRemoved(Node node) {
+		++modificationCount;
+		if (!stale && (components.get(node.getId()) != -1)) {
+			components.put(node.getId(), -1);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeCreated(Edge edge) {
+		if (!relationships.contains(edge.getRelationship().getName())) {
+			return;
+		}
+		++modificationCount;
+		if (stale) {
+			return;
+		}
+		int startComponent = components.get(edge.getStartNode().getId());
+		int endComponent = components.get(edge.getEndNode().getId());
+		if (startComponent == endComponent) {
+			return;
+		}
+		if ((startComponent == -1) || (endComponent == -1) || reaches(endComponent, startComponent)) {
+			stale = true;
+			return;
+		}
+		boolean alreadyReachable = reaches(startComponent, endComponent);
+		addSuccessor(startComponent, endComponent);
+		if (alreadyReachable) {
+			return;
+		}
+		ordered &= startComponent > endComponent;
+		for (int rank : Arrays.copyOf(inLabels[startComponent], inLabelSizes[startComponent])) {
+			search(rank, endComponent, true);
+		}
+		for (int rank : Arrays.copyOf(outLabels[endComponent], outLabelSizes[endComponent])) {
+			search(rank, startComponent, false);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeRemoved(Edge edge) {
+		if (relationships.contains(edge.getRelationship().getName())) {
+			++modificationCount;
+			stale = true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void propertyChanged(Node node, String key, Object oldValue, Object newValue) {
+		/* properties do not affect reachability. */
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Rebuilds this index if it is stale. The graph is read without holding
+	 * the lock of this index; the index stays stale if the graph was modified
+	 * while it was read.
+	 *
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	private void rebuildIfStale() throws GraphException {
+		long buildModificationCount;
+		synchronized (this) {
+			if (!stale) {
+				return;
+			}
+			buildModificationCount = modificationCount;
+		}
+		List<Relationship> indexedRelationships = new ArrayList<Relationship>();
+		for (Relationship relationship : graph.getRelationships()) {
+			if (relationships.contains(relationship.getName())) {
+				indexedRelationships.add(relationship);
+			}
+		}
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph, indexedRelationships);
+		synchronized (this) {
+			if (!stale) {
+				return;
+			}
+			build(snapshot);
+			stale = modificationCount != buildModificationCount;
+		}
+	}
+
+	/**
+	 * Builds this index from the given snapshot of the graph.
+	 *
+	 * @param snapshot
+	 *            The snapshot of the indexed relationships
+	 */
+	private void build(AdjacencySnapshot snapshot) {
+		Components strongComponents = new ConnectedComponents(snapshot).computeStrong();
+		initialize(snapshot.getNodeCount(), strongComponents.getComponentCount());
+		for (int index = 0; index < snapshot.getNodeCount(); ++index) {
+			addNode(snapshot.getNodeId(index), strongComponents.getComponent(index));
+		}
+		LongHashSet componentEdges = new LongHashSet();
+		for (int index = 0; index < snapshot.getNodeCount(); ++index) {
+			int startComponent = strongComponents.getComponent(index);
+			for (int position = 0; position < snapshot.getOutDegree(index); ++position) {
+				int endComponent = strongComponents.getComponent(snapshot.getOutgoingNeighbour(index, position));
+				if ((startComponent != endComponent) && componentEdges.add(((long) startComponent << 32) | endComponent)) {
+					addSuccessor(startComponent, endComponent);
+				}
+			}
+		}
+		long[] priorities = new long[componentCount];
+		for (int component = 0; component < componentCount; ++component) {
+			long priority = Math.min(((long) predecessorCounts[component] + 1) * (successorCounts[component] + 1), Integer.MAX_VALUE);
+			priorities[component] = (priority << 32) | component;
+		}
+		Arrays.sort(priorities);
+		for (int rank = 0; rank < componentCount; ++rank) {
+			landmarks[rank] = (int) priorities[componentCount - 1 - rank];
+		}
+		for (int rank = 0; rank < componentCount; ++rank) {
+			search(rank, landmarks[rank], true);
+			search(rank, landmarks[rank], false);
+		}
+		ordered = true;
+	}
+
+	/**
+	 * Resets all data structures for the given number of nodes and
+	 * components.
+	 *
+	 * @param expectedNodeCount
+	 *            The expected number of nodes
+	 * @param componentCount
+	 *            The number of components
+	 */
+	private void initialize(int expectedNodeCount, int componentCount) {
+		components = new LongIntHashMap(expectedNodeCount, -1);
+		nodeIds = new long[Math.max(expectedNodeCount, 16)];
+		nodeCount = 0;
+		this.componentCount = componentCount;
+		int capacity = Math.max(componentCount, 16);
+		landmarks = new int[capacity];
+		successors = new int[capacity][];
+		successorCounts = new int[capacity];
+		predecessors = new int[capacity][];
+		predecessorCounts = new int[capacity];
+		inLabels = new int[capacity][];
+		inLabelSizes = new int[capacity];
+		outLabels = new int[capacity][];
+		outLabelSizes = new int[capacity];
+		stamps = new int[capacity];
+		stamp = 0;
+		queue = new int[capacity];
+	}
+
+	/**
+	 * Adds a new, empty component.
+	 *
+	 * @return The number of the new component
+	 */
+	private int addComponent() {
+		if (componentCount == successors.length) {
+			int capacity = componentCount * 2;
+			landmarks = Arrays.copyOf(landmarks, capacity);
+			successors = Arrays.copyOf(successors, capacity);
+			successorCounts = Arrays.copyOf(successorCounts, capacity);
+			predecessors = Arrays.copyOf(predecessors, capacity);
+			predecessorCounts = Arrays.copyOf(predecessorCounts, capacity);
+			inLabels = Arrays.copyOf(inLabels, capacity);
+			inLabelSizes = Arrays.copyOf(inLabelSizes, capacity);
+			outLabels = Arrays.copyOf(outLabels, capacity);
+			outLabelSizes = Arrays.copyOf(outLabelSizes, capacity);
+			stamps = Arrays.copyOf(stamps, capacity);
+			queue = Arrays.copyOf(queue, capacity);
+		}
+		return componentCount++;
+	}
+
+	/**
+	 * Adds the node with the given ID to the given component.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param component
+	 *            The component of the node
+	 */
+	private void addNode(long nodeId, int component) {
+		if (nodeCount == nodeIds.length) {
+			nodeIds = Arrays.copyOf(nodeIds, nodeCount * 2);
+		}
+		nodeIds[nodeCount++] = nodeId;
+		components.put(nodeId, component);
+	}
+
+	/**
+	 * Adds an edge between the given components, unless it already exists.
+	 *
+	 * @param startComponent
+	 *            The start component
+	 * @param endComponent
+	 *            The end component
+	 */
+	private void addSuccessor(int startComponent, int endComponent) {
+		for (int index = 0; index < successorCounts[startComponent]; ++index) {
+			if (successors[startComponent][index] == endComponent) {
+				return;
+			}
+		}
+		successors[startComponent] = append(successors[startComponent], successorCounts[startComponent]++, endComponent);
+		predecessors[endComponent] = append(predecessors[endComponent], predecessorCounts[endComponent]++, startComponent);
+	}
+
+	/**
+	 * Runs a pruned breadth-first search for the landmark with the given rank,
+	 * starting at the given component. In a forward search, the landmark is
+	 * added to the “reached by” labels of all components that it reaches and
+	 * whose reachability is not covered by the labels yet; a backward search
+	 * adds the landmark to the “reaches” labels of the components that reach
+	 * it.
+	 *
+	 * @param rank
+	 *            The rank of the landmark
+	 * @param startComponent
+	 *            The component to start the search at
+	 * @param forward
+	 *            {@code true} to follow successors, {@code false} to follow
+	 *            predecessors
+	 */
+	private void search(int rank, int startComponent, boolean forward) {
+		int landmark = landmarks[rank];
+		if (++stamp == 0) {
+			Arrays.fill(stamps, 0);
+			stamp = 1;
+		}
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = startComponent;
+		stamps[startComponent] = stamp;
+		while (head < tail) {
+			int component = queue[head++];
+			if (forward ? reaches(landmark, component) : reaches(component, landmark)) {
+				continue;
+			}
+			if (forward) {
+				addLabel(inLabels, inLabelSizes, component, rank);
+			} else {
+				addLabel(outLabels, outLabelSizes, component, rank);
+			}
+			int[] neighbours = forward ? successors[component] : predecessors[component];
+			int neighbourCount = forward ? successorCounts[component] : predecessorCounts[component];
+			for (int index = 0; index < neighbourCount; ++index) {
+				if (stamps[neighbours[index]] != stamp) {
+					stamps[neighbours[index]] = stamp;
+					queue[tail++] = neighbours[index];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the labels show that the given start component reaches
+	 * the given end component.
+	 *
+	 * @param startComponent
+	 *            The start component
+	 * @param endComponent
+	 *            The end component
+	 * @return {@code true} if the start component reaches the end component,
+	 *         {@code false} otherwise
+	 */
+	private boolean reaches(int startComponent, int endComponent) {
+		int[] outLabel = outLabels[startComponent];
+		int[] inLabel = inLabels[endComponent];
+		int outIndex = 0;
+		int inIndex = 0;
+		int outSize = outLabelSizes[startComponent];
+		int inSize = inLabelSizes[endComponent];
+		while ((outIndex < outSize) && (inIndex < inSize)) {
+			int outRank = outLabel[outIndex];
+			int inRank = inLabel[inIndex];
+			if (outRank == inRank) {
+				return true;
+			}
+			if (outRank < inRank) {
+				++outIndex;
+			} else {
+				++inIndex;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the given rank to a label, keeping the label sorted.
+	 *
+	 * @param labels
+	 *            The labels
+	 * @param labelSizes
+	 *            The sizes of the labels
+	 * @param component
+	 *            The component whose label to extend
+	 * @param rank
+	 *            The rank of the landmark
+	 */
+	private static void addLabel(int[][] labels, int[] labelSizes, int component, int rank) {
+		int size = labelSizes[component];
+		int[] label = append(labels[component], size, rank);
+		int index = size;
+		while ((index > 0) && (label[index - 1] > rank)) {
+			label[index] = label[index - 1];
+			--index;
+		}
+		label[index] = rank;
+		labels[component] = label;
+		labelSizes[component] = size + 1;
+	}
+
+	/**
+	 * Stores the given value at the given index of the given array, growing
+	 * the array if necessary.
+	 *
+	 * @param array
+	 *            The array (may be {@code null})
+	 * @param index
+	 *            The index to store the value at
+	 * @param value
+	 *            The value to store
+	 * @return The array that contains the value
+	 */
+	private static int[] append(int[] array, int index, int value) {
+		int[] grownArray = array;
+		if (grownArray == null) {
+			grownArray = new int[2];
+		} else if (index == grownArray.length) {
+			grownArray = Arrays.copyOf(grownArray, index * 2);
+		}
+		grownArray[index] = value;
+		return grownArray;
+	}
+
+	/**
+	 * Writes the nodes, components, and labels of this index.
+	 *
+	 * @param outputStream
+	 *            The stream to write to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private void write(DataOutputStream outputStream) throws IOException {
+		int liveNodeCount = 0;
+		for (int index = 0; index < nodeCount; ++index) {
+			if (components.get(nodeIds[index]) != -1) {
+				++liveNodeCount;
+			}
+		}
+		outputStream.writeInt(liveNodeCount);
+		for (int index = 0; index < nodeCount; ++index) {
+			int component = components.get(nodeIds[index]);
+			if (component != -1) {
+				outputStream.writeLong(nodeIds[index]);
+				outputStream.writeInt(component);
+			}
+		}
+		outputStream.writeInt(componentCount);
+		outputStream.writeBoolean(ordered);
+		for (int rank = 0; rank < componentCount; ++rank) {
+			outputStream.writeInt(landmarks[rank]);
+		}
+		for (int component = 0; component < componentCount; ++component) {
+			writeArray(outputStream, successors[component], successorCounts[component]);
+			writeArray(outputStream, inLabels[component], inLabelSizes[component]);
+			writeArray(outputStream, outLabels[component], outLabelSizes[component]);
+		}
+	}
+
+	/**
+	 * Reads the nodes, components, and labels of this index.
+	 *
+	 * @param inputStream
+	 *            The stream to read from
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private void read(DataInputStream inputStream) throws IOException {
+		int nodeCount = inputStream.readInt();
+		long[] nodeIds = new long[nodeCount];
+		int[] nodeComponents = new int[nodeCount];
+		for (int index = 0; index < nodeCount; ++index) {
+			nodeIds[index] = inputStream.readLong();
+			nodeComponents[index] = inputStream.readInt();
+		}
+		initialize(nodeCount, inputStream.readInt());
+		for (int index = 0; index < nodeCount; ++index) {
+			addNode(nodeIds[index], nodeComponents[index]);
+		}
+		ordered = inputStream.readBoolean();
+		for (int rank = 0; rank < componentCount; ++rank) {
+			landmarks[rank] = inputStream.readInt();
+		}
+		for (int component = 0; component < componentCount; ++component) {
+			int[] componentSuccessors = readArray(inputStream);
+			for (int successor : componentSuccessors) {
+				addSuccessor(component, successor);
+			}
+			inLabels[component] = readArray(inputStream);
+			inLabelSizes[component] = inLabels[component].length;
+			outLabels[component] = readArray(inputStream);
+			outLabelSizes[component] = outLabels[component].length;
+		}
+		stale = false;
+	}
+
+	/**
+	 * Writes the first elements of the given array.
+	 *
+	 * @param outputStream
+	 *            The stream to write to
+	 * @param array
+	 *            The array to write (may be {@code null} if the size is
+	 *            {@code 0})
+	 * @param size
+	 *            The number of elements to write
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private static void writeArray(DataOutputStream outputStream, int[] array, int size) throws IOException {
+		outputStream.writeInt(size);
+		for (int index = 0; index < size; ++index) {
+			outputStream.writeInt(array[index]);
+		}
+	}
+
+	/**
+	 * Reads an array that was written with
+	 * {@link #writeArray(DataOutputStream, int[], int)}.
+	 *
+	 * @param inputStream
+	 *            The stream to read from
+	 * @return The array
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private static int[] readArray(DataInputStream inputStream) throws IOException {
+		int[] array = new int[inputStream.readInt()];
+		for (int index = 0; index < array.length; ++index) {
+			array[index] = inputStream.readInt();
+		}
+		return array;
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * utils.graph - SearchTree.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.path;
+
+import net.pterodactylus.util.graph.collection.LongIntHashMap;
+
+/**
+ * The nodes that were discovered by a path search, with their distance from
+ * the start of the search and the node they were discovered from. Every node
+ * is assigned a slot; IDs, parents, and distances are stored in primitive
+ * arrays indexed by slot.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class SearchTree {
+
+	/** The slots of the nodes, by node ID. */
+	private final LongIntHashMap slots = new LongIntHashMap();
+
+	/** The IDs of the nodes, by slot. */
+	private long[] nodeIds = new long[64];
+
+	/** The slots of the parents of the nodes, by slot. */
+	private int[] parents = new int[64];
+
+	/** The distances of the nodes, by slot. */
+	private double[] distances = new double[64];
+
+	/** The number of used slots. */
+	private int size;
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the number of nodes in this tree.
+	 *
+	 * @return The number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the slot of the node with the given ID.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The slot of the node, or {@code -1} if the node is not in this
+	 *         tree
+	 */
+	public int getSlot(long nodeId) {
+		return slots.get(nodeId);
+	}
+
+	/**
+	 * Returns the ID of the node in the given slot.
+	 *
+	 * @param slot
+	 *            The slot of the node
+	 * @return The ID of the node
+	 */
+	public long getNodeId(int slot) {
+		return nodeIds[slot];
+	}
+
+	/**
+	 * Returns the distance of the node in the given slot.
+	 *
+	 * @param slot
+	 *            The slot of the node
+	 * @return The distance of the node
+	 */
+	public double getDistance(int slot) {
+		return distances[slot];
+	}
+
+	/**
+	 * Returns the path from the root of this tree to the node in the given
+	 * slot.
+	 *
+	 * @param slot
+	 *            The slot of the node
+	 * @return The IDs of the nodes on the path, starting with the root
+	 */
+	public long[] getPath(int slot) {
+		int length = 0;
+		for (int current = slot; current != -1; current = parents[current]) {
+			++length;
+		}
+		long[] path = new long[length];
+		for (int current = slot; current != -1; current = parents[current]) {
+			path[--length] = nodeIds[current];
+		}
+		return path;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Adds the node with the given ID to this tree.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @param parent
+	 *            The slot of the parent node, or {@code -1} for the root
+	 * @param distance
+	 *            The distance of the node
+	 * @return The slot of the node
+	 */
+	public int add(long nodeId, int parent, double distance) {
+		if (size == nodeIds.length) {
+			long[] newNodeIds = new long[size * 2];
+			System.arraycopy(nodeIds, 0, newNodeIds, 0, size);
+			nodeIds = newNodeIds;
+			int[] newParents = new int[size * 2];
+			System.arraycopy(parents, 0, newParents, 0, size);
+			parents = newParents;
+			double[] newDistances = new double[size * 2];
+			System.arraycopy(distances, 0, newDistances, 0, size);
+			distances = newDistances;
+		}
+		slots.put(nodeId, size);
+		nodeIds[size] = nodeId;
+		parents[size] = parent;
+		distances[size] = distance;
+		return size++;
+	}
+
+	/**
+	 * Changes the parent and the distance of the node in the given slot.
+	 *
+	 * @param slot
+	 *            The slot of the node
+	 * @param parent
+	 *            The slot of the new parent node
+	 * @param distance
+	 *            The new distance of the node
+	 */
+	public void update(int slot, int parent, double distance) {
+		parents[slot] = parent;
+		distances[slot] = distance;
+	}
+
+}
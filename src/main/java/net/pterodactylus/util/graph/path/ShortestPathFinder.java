@@ -0,0 +1,388 @@
+/*
+ * utils.graph - ShortestPathFinder.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.path;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.RandomAccessGraph;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.graph.collection.IntDoubleHeap;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Finds shortest paths between two nodes of a graph, following the outgoing
+ * edges of the configured relationships; if no relationship is configured,
+ * the edges of all relationships of the graph are followed. Paths are
+ * returned as the IDs of the nodes on the path, including the start and the
+ * end node.
+ * <p>
+ * {@link #findShortestPath(Node, Node)} finds a path with the lowest number of
+ * edges using a bidirectional breadth-first search that always expands the
+ * smaller of the two frontiers. The linked nodes of all frontier nodes are
+ * requested at once so that a {@link RandomAccessGraph} can batch its reads.
+ * <p>
+ * {@link #findCheapestPath(Node, Node)} finds a path with the lowest weight
+ * using Dijkstra’s algorithm, or A* if a {@link Heuristic} is set. Edges do
+ * not have properties, so the weight of an edge is the value of the
+ * {@link #weight(String) weight property} of the node it leads to; if the
+ * node does not have the property, the {@link #defaultWeight(double) default
+ * weight} is used.
+ * <p>
+ * Nodes are tracked by ID in primitive arrays and maps. Graphs that implement
+ * {@link RandomAccessGraph} are accessed by node ID; for other graphs the
+ * edges of the {@link Node}s are followed.
+ *
+ * <pre>
+ * long[] path = new ShortestPathFinder(graph).follow(&quot;road&quot;).weight(&quot;length&quot;).findCheapestPath(startNode, endNode);
+ * </pre>
+ *
+ * A path finder is not thread-safe.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class ShortestPathFinder {
+
+	/** The graph to search. */
+	private final Graph graph;
+
+	/** The relationships to follow. */
+	private final List<Relationship> relationships = new ArrayList<Relationship>();
+
+	/** The name of the weight property. */
+	private String weightProperty;
+
+	/** The weight of nodes without the weight property. */
+	private double defaultWeight = 1;
+
+	/** The heuristic for A*. */
+	private Heuristic heuristic;
+
+	/**
+	 * Creates a new path finder.
+	 *
+	 * @param graph
+	 *            The graph to search
+	 */
+	public ShortestPathFinder(Graph graph) {
+		Validation.begin().isNotNull("Graph", graph).check();
+		this.graph = graph;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Adds a relationship that is followed.
+	 *
+	 * @param relationship
+	 *            The relationship to follow
+	 * @return This path finder
+	 */
+	public ShortestPathFinder follow(Relationship relationship) {
+		Validation.begin().isNotNull("Relationship", relationship).check();
+		relationships.add(relationship);
+		return this;
+	}
+
+	/**
+	 * Adds a relationship that is followed.
+	 *
+	 * @param relationship
+	 *            The name of the relationship to follow
+	 * @return This path finder
+	 * @throws GraphException
+	 *             if the relationship can not be created
+	 */
+	public ShortestPathFinder follow(String relationship) throws GraphException {
+		return follow(graph.getRelationship(relationship));
+	}
+
+	/**
+	 * Sets the name of the node property that contains the weight of the
+	 * edges leading to a node. The property value has to be a {@link Number}
+	 * that is not negative.
+	 *
+	 * @param weightProperty
+	 *            The name of the weight property, or {@code null} to use the
+	 *            default weight for all edges
+	 * @return This path finder
+	 */
+	public ShortestPathFinder weight(String weightProperty) {
+		this.weightProperty = weightProperty;
+		return this;
+	}
+
+	/**
+	 * Sets the weight of edges leading to nodes that do not have the weight
+	 * property. The default is {@code 1}.
+	 *
+	 * @param defaultWeight
+	 *            The default weight
+	 * @return This path finder
+	 */
+	public ShortestPathFinder defaultWeight(double defaultWeight) {
+		Validation.begin().isGreaterOrEqual("Default Weight", defaultWeight, 0).check();
+		this.defaultWeight = defaultWeight;
+		return this;
+	}
+
+	/**
+	 * Sets the heuristic that turns the search for the cheapest path into an
+	 * A* search.
+	 *
+	 * @param heuristic
+	 *            The heuristic, or {@code null} to use Dijkstra’s algorithm
+	 * @return This path finder
+	 */
+	public ShortestPathFinder heuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+		return this;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Finds a path from the start node to the end node with the lowest number
+	 * of edges.
+	 *
+	 * @param startNode
+	 *            The start node
+	 * @param endNode
+	 *            The end node
+	 * @return The IDs of the nodes on the path, or {@code null} if there is no
+	 *         path
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public long[] findShortestPath(Node startNode, Node endNode) throws GraphException {
+		verifyNodes(startNode, endNode);
+		if (startNode.getId() == endNode.getId()) {
+			return new long[] { startNode.getId() };
+		}
+		NodeAccess nodeAccess = NodeAccess.create(graph);
+		nodeAccess.register(startNode);
+		nodeAccess.register(endNode);
+		Collection<Relationship> followedRelationships = getFollowedRelationships();
+		SearchTree forwardTree = new SearchTree();
+		SearchTree backwardTree = new SearchTree();
+		forwardTree.add(startNode.getId(), -1, 0);
+		backwardTree.add(endNode.getId(), -1, 0);
+		long[] forwardFrontier = new long[] { startNode.getId() };
+		long[] backwardFrontier = new long[] { endNode.getId() };
+		while ((forwardFrontier.length > 0) && (backwardFrontier.length > 0)) {
+			boolean forward = forwardFrontier.length <= backwardFrontier.length;
+			long[] frontier = forward ? forwardFrontier : backwardFrontier;
+			SearchTree tree = forward ? forwardTree : backwardTree;
+			SearchTree otherTree = forward ? backwardTree : forwardTree;
+			long[][] linkedNodeIds = nodeAccess.getLinkedNodeIds(frontier, followedRelationships, forward);
+			long[] nextFrontier = new long[16];
+			int nextFrontierSize = 0;
+			int meetingSlot = -1;
+			double meetingDistance = Double.MAX_VALUE;
+			for (int index = 0; index < frontier.length; ++index) {
+				int parentSlot = tree.getSlot(frontier[index]);
+				double distance = tree.getDistance(parentSlot) + 1;
+				for (long linkedNodeId : linkedNodeIds[index]) {
+					if (tree.getSlot(linkedNodeId) != -1) {
+						continue;
+					}
+					int slot = tree.add(linkedNodeId, parentSlot, distance);
+					int otherSlot = otherTree.getSlot(linkedNodeId);
+					if ((otherSlot != -1) && ((distance + otherTree.getDistance(otherSlot)) < meetingDistance)) {
+						meetingSlot = slot;
+						meetingDistance = distance + otherTree.getDistance(otherSlot);
+					}
+					if (nextFrontierSize == nextFrontier.length) {
+						long[] newNextFrontier = new long[nextFrontierSize * 2];
+						System.arraycopy(nextFrontier, 0, newNextFrontier, 0, nextFrontierSize);
+						nextFrontier = newNextFrontier;
+					}
+					nextFrontier[nextFrontierSize++] = linkedNodeId;
+				}
+			}
+			if (meetingSlot != -1) {
+				long meetingNodeId = tree.getNodeId(meetingSlot);
+				long[] forwardPath = forwardTree.getPath(forwardTree.getSlot(meetingNodeId));
+				long[] backwardPath = backwardTree.getPath(backwardTree.getSlot(meetingNodeId));
+				long[] path = new long[forwardPath.length + backwardPath.length - 1];
+				System.arraycopy(forwardPath, 0, path, 0, forwardPath.length);
+				for (int index = 0; index < (backwardPath.length - 1); ++index) {
+					path[forwardPath.length + index] = backwardPath[backwardPath.length - 2 - index];
+				}
+				return path;
+			}
+			long[] compactFrontier = new long[nextFrontierSize];
+			System.arraycopy(nextFrontier, 0, compactFrontier, 0, nextFrontierSize);
+			if (forward) {
+				forwardFrontier = compactFrontier;
+			} else {
+				backwardFrontier = compactFrontier;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds a path from the start node to the end node with the lowest
+	 * weight.
+	 *
+	 * @param startNode
+	 *            The start node
+	 * @param endNode
+	 *            The end node
+	 * @return The IDs of the nodes on the path, or {@code null} if there is no
+	 *         path
+	 * @throws GraphException
+	 *             if the graph can not be read, or a node has an invalid
+	 *             weight
+	 */
+	public long[] findCheapestPath(Node startNode, Node endNode) throws GraphException {
+		verifyNodes(startNode, endNode);
+		NodeAccess nodeAccess = NodeAccess.create(graph);
+		nodeAccess.register(startNode);
+		nodeAccess.register(endNode);
+		Collection<Relationship> followedRelationships = getFollowedRelationships();
+		SearchTree tree = new SearchTree();
+		BitSet settled = new BitSet();
+		double[] estimates = new double[64];
+		IntDoubleHeap queue = new IntDoubleHeap();
+		long[] nodeIds = new long[1];
+		estimates[tree.add(startNode.getId(), -1, 0)] = estimate(startNode, endNode);
+		queue.add(0, estimates[0]);
+		while (!queue.isEmpty()) {
+			int slot = queue.remove();
+			if (settled.get(slot)) {
+				continue;
+			}
+			settled.set(slot);
+			nodeIds[0] = tree.getNodeId(slot);
+			if (nodeIds[0] == endNode.getId()) {
+				return tree.getPath(slot);
+			}
+			for (long linkedNodeId : nodeAccess.getLinkedNodeIds(nodeIds, followedRelationships, true)[0]) {
+				int linkedSlot = tree.getSlot(linkedNodeId);
+				if ((linkedSlot != -1) && settled.get(linkedSlot)) {
+					continue;
+				}
+				Node linkedNode = nodeAccess.getNode(linkedNodeId);
+				double distance = tree.getDistance(slot) + getWeight(linkedNode);
+				if (linkedSlot == -1) {
+					linkedSlot = tree.add(linkedNodeId, slot, distance);
+					if (linkedSlot == estimates.length) {
+						double[] newEstimates = new double[estimates.length * 2];
+						System.arraycopy(estimates, 0, newEstimates, 0, estimates.length);
+						estimates = newEstimates;
+					}
+					estimates[linkedSlot] = estimate(linkedNode, endNode);
+				} else if (distance < tree.getDistance(linkedSlot)) {
+					tree.update(linkedSlot, slot, distance);
+				} else {
+					continue;
+				}
+				queue.add(linkedSlot, distance + estimates[linkedSlot]);
+			}
+		}
+		return null;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Verifies that the given nodes are not {@code null} and belong to the
+	 * graph of this path finder.
+	 *
+	 * @param startNode
+	 *            The start node
+	 * @param endNode
+	 *            The end node
+	 */
+	private void verifyNodes(Node startNode, Node endNode) {
+		Validation.begin().isNotNull("Start Node", startNode).isNotNull("End Node", endNode).check().isEqual("Start Node’s Graph", startNode.getGraph(), graph).isEqual("End Node’s Graph", endNode.getGraph(), graph).check();
+	}
+
+	/**
+	 * Returns the relationships to follow.
+	 *
+	 * @return The configured relationships, or all relationships of the graph
+	 *         if no relationships are configured
+	 * @throws GraphException
+	 *             if the relationships of the graph can not be loaded
+	 */
+	private Collection<Relationship> getFollowedRelationships() throws GraphException {
+		if (relationships.isEmpty()) {
+			return graph.getRelationships();
+		}
+		return relationships;
+	}
+
+	/**
+	 * Returns the weight of edges leading to the given node.
+	 *
+	 * @param node
+	 *            The node
+	 * @return The weight of edges leading to the node
+	 * @throws GraphException
+	 *             if the weight can not be read or is not a non-negative
+	 *             number
+	 */
+	private double getWeight(Node node) throws GraphException {
+		if (weightProperty == null) {
+			return defaultWeight;
+		}
+		Object weight = node.get(weightProperty);
+		if (weight == null) {
+			return defaultWeight;
+		}
+		if (!(weight instanceof Number)) {
+			throw new GraphException("Weight of node " + node.getId() + " is not a number: " + weight);
+		}
+		double value = ((Number) weight).doubleValue();
+		if (!(value >= 0)) {
+			throw new GraphException("Weight of node " + node.getId() + " is not a non-negative number: " + weight);
+		}
+		return value;
+	}
+
+	/**
+	 * Estimates the weight of the cheapest path from the given node to the
+	 * end node.
+	 *
+	 * @param node
+	 *            The node
+	 * @param endNode
+	 *            The end node
+	 * @return The estimated weight, or {@code 0} if no heuristic is set
+	 * @throws GraphException
+	 *             if the heuristic can not estimate the weight
+	 */
+	private double estimate(Node node, Node endNode) throws GraphException {
+		return (heuristic == null) ? 0 : heuristic.estimate(node, endNode);
+	}
+
+}
@@ -0,0 +1,809 @@
+/*
+ * utils.graph - TopologicalOrder.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.EdgeValidator;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.GraphListener;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.graph.analytics.AdjacencySnapshot;
+import net.pterodactylus.util.graph.collection.LongIntHashMap;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Keeps a relationship of a graph free of cycles by maintaining a
+ * topological order of its nodes while the graph changes.
+ * <p>
+ * The order registers itself as {@link EdgeValidator} and
+ * {@link GraphListener} of its graph, and uses the dynamic topological sort
+ * algorithm of Pearce and Kelly: an edge whose start node already comes
+ * before its end node is accepted immediately. Otherwise a search forward
+ * from the end node and a search backward from the start node, both limited
+ * to the nodes between the two positions, find the nodes that have to be
+ * reordered; if the forward search reaches the start node, the edge would
+ * close a cycle and is rejected with a {@link CycleException}. The affected
+ * nodes then swap positions among themselves, so the cost of an insert only
+ * depends on the size of the affected region, not on the size of the graph.
+ * Removing edges and nodes never invalidates the order.
+ * <p>
+ * The order keeps its own copy of the edges of the relationship. An edge is
+ * added to the order when it is validated, so two threads can not create a
+ * cycle between them, and it stays reserved until the graph reports that it
+ * was created. If the graph reports that the edge was not created, the
+ * reservation is released and the edge is removed from the order again.
+ * Use {@link #close()} to unregister the order.
+ * <p>
+ * All methods of this order are synchronized. While the order is created,
+ * the graph is read without holding the lock of the order; edges that are
+ * validated and modifications that are reported in the meantime are accepted
+ * and applied once the graph has been read, so an edge that closes a cycle
+ * during the creation makes the creation fail with a {@link CycleException}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class TopologicalOrder implements EdgeValidator, GraphListener {
+
+	/** The graph. */
+	private final Graph graph;
+
+	/** The name of the acyclic relationship. */
+	private final String relationship;
+
+	/** The indexes of all nodes, by node ID. */
+	private final LongIntHashMap indexes = new LongIntHashMap();
+
+	/** The IDs of all nodes, by index. */
+	private long[] nodeIds = new long[16];
+
+	/** The number of node indexes. */
+	private int nodeCount;
+
+	/** The number of nodes that have not been removed. */
+	private int liveNodeCount;
+
+	/** The position of every node index ({@code -1} for removed nodes). */
+	private int[] positions = new int[16];
+
+	/** The node index at every position ({@code -1} for unused positions). */
+	private int[] nodesAtPositions = new int[16];
+
+	/** The number of used positions. */
+	private int positionCount;
+
+	/** The successors of every node index. */
+	private int[][] successors = new int[16][];
+
+	/** The number of successors of every node index. */
+	private int[] successorCounts = new int[16];
+
+	/** The predecessors of every node index. */
+	private int[][] predecessors = new int[16][];
+
+	/** The number of predecessors of every node index. */
+	private int[] predecessorCounts = new int[16];
+
+	/** The search stamp of every node index. */
+	private int[] stamps = new int[16];
+
+	/** The current search stamp. */
+	private int stamp;
+
+	/** The search stack. */
+	private int[] stack = new int[16];
+
+	/**
+	 * The start and end node IDs of the edges that were validated but not yet
+	 * created, once for every validation.
+	 */
+	private final List<long[]> reservations = new ArrayList<long[]>();
+
+	/**
+	 * The modifications that were reported while the order was built, or
+	 * {@code null} once the order has been built.
+	 */
+	private List<Modification> pendingModifications = new ArrayList<Modification>();
+
+	/**
+	 * Creates a new topological order.
+	 *
+	 * @param graph
+	 *            The graph
+	 * @param relationship
+	 *            The name of the acyclic relationship
+	 */
+	private TopologicalOrder(Graph graph, String relationship) {
+		this.graph = graph;
+		this.relationship = relationship;
+	}
+
+	/**
+	 * Creates a topological order of the given relationship of the given
+	 * graph and registers it with the graph, so that edges that would create
+	 * a cycle in the relationship are rejected from now on.
+	 *
+	 * @param graph
+	 *            The graph
+	 * @param relationship
+	 *            The name of the relationship that has to stay acyclic
+	 * @return The topological order
+	 * @throws CycleException
+	 *             if the relationship already contains a cycle
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public static TopologicalOrder create(Graph graph, String relationship) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).isNotNull("Relationship", relationship).check();
+		TopologicalOrder topologicalOrder = new TopologicalOrder(graph, relationship);
+		graph.addEdgeValidator(topologicalOrder);
+		graph.addGraphListener(topologicalOrder);
+		boolean built = false;
+		try {
+			topologicalOrder.build();
+			built = true;
+		} finally {
+			if (!built) {
+				topologicalOrder.close();
+			}
+		}
+		return topologicalOrder;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the name of the acyclic relationship.
+	 *
+	 * @return The name of the relationship
+	 */
+	public String getRelationship() {
+		return relationship;
+	}
+
+	/**
+	 * Returns the number of ordered nodes.
+	 *
+	 * @return The number of nodes
+	 */
+	public synchronized int getNodeCount() {
+		return liveNodeCount;
+	}
+
+	/**
+	 * Returns the IDs of all nodes in topological order: for every edge of
+	 * the relationship, its start node comes before its end node.
+	 *
+	 * @return The IDs of all nodes in topological order
+	 */
+	public synchronized long[] getNodeIds() {
+		long[] orderedNodeIds = new long[liveNodeCount];
+		int nodeIndex = 0;
+		for (int position = 0; position < positionCount; ++position) {
+			if (nodesAtPositions[position] != -1) {
+				orderedNodeIds[nodeIndex++] = nodeIds[nodesAtPositions[position]];
+			}
+		}
+		return orderedNodeIds;
+	}
+
+	/**
+	 * Returns whether the first node comes before the second node in the
+	 * topological order.
+	 *
+	 * @param firstNodeId
+	 *            The ID of the first node
+	 * @param secondNodeId
+	 *            The ID of the second node
+	 * @return {@code true} if the first node comes before the second node,
+	 *         {@code false} otherwise or if one of the nodes is unknown
+	 */
+	public synchronized boolean isBefore(long firstNodeId, long secondNodeId) {
+		int firstIndex = indexes.get(firstNodeId);
+		int secondIndex = indexes.get(secondNodeId);
+		return (firstIndex != -1) && (secondIndex != -1) && (positions[firstIndex] < positions[secondIndex]);
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Unregisters this order from its graph. Edges are not validated anymore
+	 * after the order has been closed.
+	 */
+	public void close() {
+		graph.removeEdgeValidator(this);
+		graph.removeGraphListener(this);
+	}
+
+	//
+	// INTERFACE EdgeValidator
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void validateEdge(Node startNode, Node endNode, Relationship relationship) throws GraphException {
+		if (!this.relationship.equals(relationship.getName())) {
+			return;
+		}
+		if (startNode.getId() == endNode.getId()) {
+			throw new CycleException("Node " + startNode.getId() + " can not be linked to itself with “" + this.relationship + "”!", startNode.getId(), endNode.getId());
+		}
+		if (pendingModifications != null) {
+			pendingModifications.add(new Modification(true, false, startNode.getId(), endNode.getId()));
+			reservations.add(new long[] { startNode.getId(), endNode.getId() });
+			return;
+		}
+		int startIndex = getIndex(startNode.getId());
+		int endIndex = getIndex(endNode.getId());
+		if (hasSuccessor(startIndex, endIndex)) {
+			if (findReservation(startNode.getId(), endNode.getId()) != -1) {
+				reservations.add(new long[] { startNode.getId(), endNode.getId() });
+			}
+			return;
+		}
+		if (positions[startIndex] > positions[endIndex]) {
+			reorder(startIndex, endIndex);
+		}
+		addEdge(startIndex, endIndex);
+		reservations.add(new long[] { startNode.getId(), endNode.getId() });
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeNotCreated(Node startNode, Node endNode, Relationship relationship) {
+		if (!this.relationship.equals(relationship.getName())) {
+			return;
+		}
+		int reservation = findReservation(startNode.getId(), endNode.getId());
+		if (reservation == -1) {
+			return;
+		}
+		reservations.remove(reservation);
+		if (pendingModifications != null) {
+			for (int index = pendingModifications.size() - 1; index >= 0; --index) {
+				Modification modification = pendingModifications.get(index);
+				if (modification.edge && !modification.removed && (modification.startNodeId == startNode.getId()) && (modification.endNodeId == endNode.getId())) {
+					pendingModifications.remove(index);
+					break;
+				}
+			}
+			return;
+		}
+		if (findReservation(startNode.getId(), endNode.getId()) == -1) {
+			unlinkNodes(startNode.getId(), endNode.getId());
+		}
+	}
+
+	//
+	// INTERFACE GraphListener
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void nodeCreated(Node node) {
+		if (pendingModifications != null) {
+			pendingModifications.add(new Modification(false, false, node.getId(), node.getId()));
+			return;
+		}
+		getIndex(node.getId());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void nodeRemoved(Node node) {
+		if (pendingModifications != null) {
+			pendingModifications.add(new Modification(false, true, node.getId(), node.getId()));
+			return;
+		}
+		removeNode(node.getId());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeCreated(Edge edge) {
+		if (!relationship.equals(edge.getRelationship().getName())) {
+			return;
+		}
+		/* the edge has been added during validation and is now confirmed. */
+		int reservation;
+		while ((reservation = findReservation(edge.getStartNode().getId(), edge.getEndNode().getId())) != -1) {
+			reservations.remove(reservation);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeRemoved(Edge edge) {
+		if (!relationship.equals(edge.getRelationship().getName())) {
+			return;
+		}
+		if (pendingModifications != null) {
+			pendingModifications.add(new Modification(true, true, edge.getStartNode().getId(), edge.getEndNode().getId()));
+			return;
+		}
+		unlinkNodes(edge.getStartNode().getId(), edge.getEndNode().getId());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void propertyChanged(Node node, String key, Object oldValue, Object newValue) {
+		/* properties do not affect the order. */
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Reads all nodes and edges of the relationship, applies the modifications
+	 * that were reported in the meantime, and sorts the nodes topologically.
+	 * The graph is read without holding the lock of this order.
+	 *
+	 * @throws CycleException
+	 *             if the relationship contains a cycle
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	private void build() throws GraphException {
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph, relationship);
+		synchronized (this) {
+			for (int index = 0; index < snapshot.getNodeCount(); ++index) {
+				getIndex(snapshot.getNodeId(index));
+			}
+			for (int index = 0; index < snapshot.getNodeCount(); ++index) {
+				for (int position = 0; position < snapshot.getOutDegree(index); ++position) {
+					linkNodes(snapshot.getNodeId(index), snapshot.getNodeId(snapshot.getOutgoingNeighbour(index, position)));
+				}
+			}
+			List<Long> removedNodeIds = new ArrayList<Long>();
+			for (Modification modification : pendingModifications) {
+				if (!modification.edge) {
+					if (modification.removed) {
+						removedNodeIds.add(modification.startNodeId);
+					} else {
+						getIndex(modification.startNodeId);
+					}
+				} else if (modification.removed) {
+					unlinkNodes(modification.startNodeId, modification.endNodeId);
+				} else {
+					linkNodes(modification.startNodeId, modification.endNodeId);
+				}
+			}
+			pendingModifications = null;
+			sort();
+			for (long nodeId : removedNodeIds) {
+				removeNode(nodeId);
+			}
+		}
+	}
+
+	/**
+	 * Sorts all nodes topologically. All nodes have to be live.
+	 *
+	 * @throws CycleException
+	 *             if the relationship contains a cycle
+	 */
+	private void sort() throws CycleException {
+		int[] remainingPredecessors = Arrays.copyOf(predecessorCounts, nodeCount);
+		int[] queue = new int[nodeCount];
+		int queueEnd = 0;
+		for (int index = 0; index < nodeCount; ++index) {
+			if (remainingPredecessors[index] == 0) {
+				queue[queueEnd++] = index;
+			}
+		}
+		for (int queueStart = 0; queueStart < queueEnd; ++queueStart) {
+			int index = queue[queueStart];
+			for (int successor = 0; successor < successorCounts[index]; ++successor) {
+				if (--remainingPredecessors[successors[index][successor]] == 0) {
+					queue[queueEnd++] = successors[index][successor];
+				}
+			}
+		}
+		if (queueEnd < nodeCount) {
+			for (int index = 0; index < nodeCount; ++index) {
+				if (remainingPredecessors[index] > 0) {
+					int predecessor = predecessors[index][0];
+					for (int position = 1; remainingPredecessors[predecessor] == 0; ++position) {
+						predecessor = predecessors[index][position];
+					}
+					throw new CycleException("Relationship “" + relationship + "” contains a cycle!", nodeIds[predecessor], nodeIds[index]);
+				}
+			}
+		}
+		for (int position = 0; position < nodeCount; ++position) {
+			positions[queue[position]] = position;
+			nodesAtPositions[position] = queue[position];
+		}
+	}
+
+	/**
+	 * Moves the nodes between the end node and the start node of a new edge
+	 * so that the start node comes before the end node.
+	 *
+	 * @param startIndex
+	 *            The index of the start node of the new edge
+	 * @param endIndex
+	 *            The index of the end node of the new edge
+	 * @throws CycleException
+	 *             if the edge would create a cycle
+	 */
+	private void reorder(int startIndex, int endIndex) throws CycleException {
+		int lowerBound = positions[endIndex];
+		int upperBound = positions[startIndex];
+		long[] forwardNodes = search(endIndex, successors, successorCounts, lowerBound, upperBound, startIndex);
+		if (forwardNodes == null) {
+			throw new CycleException("Linking node " + nodeIds[startIndex] + " to node " + nodeIds[endIndex] + " with “" + relationship + "” would create a cycle!", nodeIds[startIndex], nodeIds[endIndex]);
+		}
+		long[] backwardNodes = search(startIndex, predecessors, predecessorCounts, lowerBound, upperBound, -1);
+		Arrays.sort(forwardNodes);
+		Arrays.sort(backwardNodes);
+		int[] freePositions = new int[forwardNodes.length + backwardNodes.length];
+		int freePosition = 0;
+		for (long node : backwardNodes) {
+			freePositions[freePosition++] = (int) (node >>> 32);
+		}
+		for (long node : forwardNodes) {
+			freePositions[freePosition++] = (int) (node >>> 32);
+		}
+		Arrays.sort(freePositions);
+		freePosition = 0;
+		for (long node : backwardNodes) {
+			setPosition((int) node, freePositions[freePosition++]);
+		}
+		for (long node : forwardNodes) {
+			setPosition((int) node, freePositions[freePosition++]);
+		}
+	}
+
+	/**
+	 * Searches all nodes that can be reached from the given node and whose
+	 * positions are between the given bounds.
+	 *
+	 * @param rootIndex
+	 *            The index of the node to start at
+	 * @param neighbours
+	 *            The neighbours to follow
+	 * @param neighbourCounts
+	 *            The number of neighbours of every node
+	 * @param lowerBound
+	 *            The lowest position of the visited nodes
+	 * @param upperBound
+	 *            The highest position of the visited nodes
+	 * @param forbiddenIndex
+	 *            The index of the node that must not be reached ({@code -1}
+	 *            if every node may be reached)
+	 * @return The visited nodes, with their position in the upper and their
+	 *         index in the lower 32 bits, or {@code null} if the forbidden
+	 *         node was reached
+	 */
+	private long[] search(int rootIndex, int[][] neighbours, int[] neighbourCounts, int lowerBound, int upperBound, int forbiddenIndex) {
+		++stamp;
+		long[] visitedNodes = new long[16];
+		int visitedNodeCount = 0;
+		int stackSize = 0;
+		stack[stackSize++] = rootIndex;
+		stamps[rootIndex] = stamp;
+		while (stackSize > 0) {
+			int index = stack[--stackSize];
+			if (visitedNodeCount == visitedNodes.length) {
+				visitedNodes = Arrays.copyOf(visitedNodes, visitedNodeCount * 2);
+			}
+			visitedNodes[visitedNodeCount++] = ((long) positions[index] << 32) | index;
+			for (int neighbour = 0; neighbour < neighbourCounts[index]; ++neighbour) {
+				int neighbourIndex = neighbours[index][neighbour];
+				if (neighbourIndex == forbiddenIndex) {
+					return null;
+				}
+				if ((stamps[neighbourIndex] == stamp) || (positions[neighbourIndex] < lowerBound) || (positions[neighbourIndex] > upperBound)) {
+					continue;
+				}
+				stamps[neighbourIndex] = stamp;
+				if (stackSize == stack.length) {
+					stack = Arrays.copyOf(stack, stackSize * 2);
+				}
+				stack[stackSize++] = neighbourIndex;
+			}
+		}
+		return Arrays.copyOf(visitedNodes, visitedNodeCount);
+	}
+
+	/**
+	 * Adds an edge between the nodes with the given IDs, unless it already
+	 * exists, without changing the order.
+	 *
+	 * @param startNodeId
+	 *            The ID of the start node
+	 * @param endNodeId
+	 *            The ID of the end node
+	 */
+	private void linkNodes(long startNodeId, long endNodeId) {
+		int startIndex = getIndex(startNodeId);
+		int endIndex = getIndex(endNodeId);
+		if (!hasSuccessor(startIndex, endIndex)) {
+			addEdge(startIndex, endIndex);
+		}
+	}
+
+	/**
+	 * Removes the edge between the nodes with the given IDs, if it exists.
+	 *
+	 * @param startNodeId
+	 *            The ID of the start node
+	 * @param endNodeId
+	 *            The ID of the end node
+	 */
+	private void unlinkNodes(long startNodeId, long endNodeId) {
+		int startIndex = indexes.get(startNodeId);
+		int endIndex = indexes.get(endNodeId);
+		if ((startIndex == -1) || (endIndex == -1)) {
+			return;
+		}
+		if (removeNeighbour(successors[startIndex], successorCounts[startIndex], endIndex)) {
+			--successorCounts[startIndex];
+			removeNeighbour(predecessors[endIndex], predecessorCounts[endIndex], startIndex);
+			--predecessorCounts[endIndex];
+		}
+	}
+
+	/**
+	 * Returns the index of a reservation of the edge between the nodes with
+	 * the given IDs.
+	 *
+	 * @param startNodeId
+	 *            The ID of the start node
+	 * @param endNodeId
+	 *            The ID of the end node
+	 * @return The index of the reservation, or {@code -1} if the edge is not
+	 *         reserved
+	 */
+	private int findReservation(long startNodeId, long endNodeId) {
+		for (int index = 0; index < reservations.size(); ++index) {
+			long[] reservation = reservations.get(index);
+			if ((reservation[0] == startNodeId) && (reservation[1] == endNodeId)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes the node with the given ID from the order.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 */
+	private void removeNode(long nodeId) {
+		int index = indexes.remove(nodeId);
+		if (index == -1) {
+			return;
+		}
+		nodesAtPositions[positions[index]] = -1;
+		positions[index] = -1;
+		--liveNodeCount;
+		if (positionCount > (2 * liveNodeCount + 16)) {
+			compact();
+		}
+	}
+
+	/**
+	 * Moves the given node to the given position.
+	 *
+	 * @param index
+	 *            The index of the node
+	 * @param position
+	 *            The new position of the node
+	 */
+	private void setPosition(int index, int position) {
+		positions[index] = position;
+		nodesAtPositions[position] = index;
+	}
+
+	/**
+	 * Removes the unused positions.
+	 */
+	private void compact() {
+		int newPosition = 0;
+		for (int position = 0; position < positionCount; ++position) {
+			if (nodesAtPositions[position] != -1) {
+				setPosition(nodesAtPositions[position], newPosition++);
+			}
+		}
+		Arrays.fill(nodesAtPositions, newPosition, positionCount, -1);
+		positionCount = newPosition;
+	}
+
+	/**
+	 * Returns the index of the node with the given ID, adding the node at the
+	 * end of the order if it is not known yet.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return The index of the node
+	 */
+	private int getIndex(long nodeId) {
+		int index = indexes.get(nodeId);
+		if (index != -1) {
+			return index;
+		}
+		if (nodeCount == nodeIds.length) {
+			int capacity = nodeCount * 2;
+			nodeIds = Arrays.copyOf(nodeIds, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+			successors = Arrays.copyOf(successors, capacity);
+			successorCounts = Arrays.copyOf(successorCounts, capacity);
+			predecessors = Arrays.copyOf(predecessors, capacity);
+			predecessorCounts = Arrays.copyOf(predecessorCounts, capacity);
+			stamps = Arrays.copyOf(stamps, capacity);
+		}
+		if (positionCount == nodesAtPositions.length) {
+			nodesAtPositions = Arrays.copyOf(nodesAtPositions, positionCount * 2);
+		}
+		index = nodeCount++;
+		indexes.put(nodeId, index);
+		nodeIds[index] = nodeId;
+		setPosition(index, positionCount++);
+		++liveNodeCount;
+		return index;
+	}
+
+	/**
+	 * Returns whether the given end node is a successor of the given start
+	 * node.
+	 *
+	 * @param startIndex
+	 *            The index of the start node
+	 * @param endIndex
+	 *            The index of the end node
+	 * @return {@code true} if there is an edge between the nodes,
+	 *         {@code false} otherwise
+	 */
+	private boolean hasSuccessor(int startIndex, int endIndex) {
+		for (int successor = 0; successor < successorCounts[startIndex]; ++successor) {
+			if (successors[startIndex][successor] == endIndex) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds an edge between the given nodes.
+	 *
+	 * @param startIndex
+	 *            The index of the start node
+	 * @param endIndex
+	 *            The index of the end node
+	 */
+	private void addEdge(int startIndex, int endIndex) {
+		successors[startIndex] = addNeighbour(successors[startIndex], successorCounts[startIndex]++, endIndex);
+		predecessors[endIndex] = addNeighbour(predecessors[endIndex], predecessorCounts[endIndex]++, startIndex);
+	}
+
+	/**
+	 * Appends a neighbour to the given neighbours, enlarging the array if
+	 * necessary.
+	 *
+	 * @param neighbours
+	 *            The neighbours (may be {@code null})
+	 * @param neighbourCount
+	 *            The number of neighbours
+	 * @param neighbour
+	 *            The neighbour to append
+	 * @return The neighbours
+	 */
+	private static int[] addNeighbour(int[] neighbours, int neighbourCount, int neighbour) {
+		if (neighbours == null) {
+			neighbours = new int[4];
+		} else if (neighbourCount == neighbours.length) {
+			neighbours = Arrays.copyOf(neighbours, neighbourCount * 2);
+		}
+		neighbours[neighbourCount] = neighbour;
+		return neighbours;
+	}
+
+	/**
+	 * Removes a neighbour from the given neighbours by replacing it with the
+	 * last neighbour.
+	 *
+	 * @param neighbours
+	 *            The neighbours
+	 * @param neighbourCount
+	 *            The number of neighbours
+	 * @param neighbour
+	 *            The neighbour to remove
+	 * @return {@code true} if the neighbour was removed, {@code false} if it
+	 *         was not found
+	 */
+	private static boolean removeNeighbour(int[] neighbours, int neighbourCount, int neighbour) {
+		for (int position = 0; position < neighbourCount; ++position) {
+			if (neighbours[position] == neighbour) {
+				neighbours[position] = neighbours[neighbourCount - 1];
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A modification of the graph that was reported while the order was
+	 * built.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Modification {
+
+		/** Whether an edge was modified (otherwise a node was modified). */
+		final boolean edge;
+
+		/** Whether the node or edge was removed (otherwise it was created). */
+		final boolean removed;
+
+		/** The ID of the node, or of the start node of the edge. */
+		final long startNodeId;
+
+		/** The ID of the node, or of the end node of the edge. */
+		final long endNodeId;
+
+		/**
+		 * Creates a new modification.
+		 *
+		 * @param edge
+		 *            {@code true} if an edge was modified, {@code false} if a
+		 *            node was modified
+		 * @param removed
+		 *            {@code true} if the node or edge was removed,
+		 *            {@code false} if it was created
+		 * @param startNodeId
+		 *            The ID of the node, or of the start node of the edge
+		 * @param endNodeId
+		 *            The ID of the node, or of the end node of the edge
+		 */
+		Modification(boolean edge, boolean removed, long startNodeId, long endNodeId) {
+			this.edge = edge;
+			this.removed = removed;
+			this.startNodeId = startNodeId;
+			this.endNodeId = endNodeId;
+		}
+
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * utils.graph - CollectedDegreeStatistics.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * {@link DegreeStatistics} that are collected by visiting every node of a
+ * graph once. The statistics are a snapshot; they are not updated when the
+ * graph changes.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class CollectedDegreeStatistics implements DegreeStatistics {
+
+	/** The number of nodes. */
+	private final long nodeCount;
+
+	/**
+	 * The edge count, start node count, and end node count, by relationship
+	 * name.
+	 */
+	private final Map<String, long[]> relationshipCounts;
+
+	/**
+	 * Creates new degree statistics.
+	 *
+	 * @param nodeCount
+	 *            The number of nodes
+	 * @param relationshipCounts
+	 *            The counts, by relationship name
+	 */
+	private CollectedDegreeStatistics(long nodeCount, Map<String, long[]> relationshipCounts) {
+		this.nodeCount = nodeCount;
+		this.relationshipCounts = relationshipCounts;
+	}
+
+	/**
+	 * Collects the degree statistics of all relationships of the given graph.
+	 *
+	 * @param graph
+	 *            The graph to collect the statistics of
+	 * @return The degree statistics
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public static CollectedDegreeStatistics collect(Graph graph) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).check();
+		Set<Relationship> relationships = graph.getRelationships();
+		Map<String, long[]> relationshipCounts = new HashMap<String, long[]>();
+		for (Relationship relationship : relationships) {
+			relationshipCounts.put(relationship.getName(), new long[3]);
+		}
+		long nodeCount = 0;
+		try {
+			for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+				Node node = nodes.next();
+				++nodeCount;
+				for (Relationship relationship : relationships) {
+					long[] counts = relationshipCounts.get(relationship.getName());
+					Set<Edge> outgoingLinks = node.getOutgoingLinks(relationship);
+					if (!outgoingLinks.isEmpty()) {
+						counts[0] += outgoingLinks.size();
+						++counts[1];
+					}
+					if (!node.getIncomingLinks(relationship).isEmpty()) {
+						++counts[2];
+					}
+				}
+			}
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		}
+		return new CollectedDegreeStatistics(nodeCount, relationshipCounts);
+	}
+
+	//
+	// INTERFACE DegreeStatistics
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEdgeCount(String relationship) {
+		return getCount(relationship, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getStartNodeCount(String relationship) {
+		return getCount(relationship, 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEndNodeCount(String relationship) {
+		return getCount(relationship, 2);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns one of the counts of the given relationship.
+	 *
+	 * @param relationship
+	 *            The name of the relationship
+	 * @param index
+	 *            The index of the count
+	 * @return The count, or {@code 0} if the relationship is unknown
+	 */
+	private long getCount(String relationship, int index) {
+		long[] counts = relationshipCounts.get(relationship);
+		return (counts == null) ? 0 : counts[index];
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder statistics = new StringBuilder(getClass().getSimpleName()).append("[nodes=").append(nodeCount);
+		for (Map.Entry<String, long[]> relationshipCount : relationshipCounts.entrySet()) {
+			long[] counts = relationshipCount.getValue();
+			statistics.append(',').append(relationshipCount.getKey()).append("=(").append(counts[0]).append(',').append(counts[1]).append(',').append(counts[2]).append(')');
+		}
+		return statistics.append(']').toString();
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * utils.graph - DegreeStatistics.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+/**
+ * Statistics about the edges of a graph that the {@link Query} planner uses to
+ * estimate how many nodes a step of a {@link PathPattern} produces. The
+ * average number of nodes reached by following the outgoing edges of a
+ * relationship from a node that has such edges is
+ * {@code getEdgeCount(relationship) / getStartNodeCount(relationship)}; for
+ * incoming edges it is
+ * {@code getEdgeCount(relationship) / getEndNodeCount(relationship)}.
+ * <p>
+ * Statistics do not have to be exact; estimates that are somewhat out of date
+ * only make the planner choose a worse plan, never produce wrong results.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public interface DegreeStatistics {
+
+	/**
+	 * Returns the number of nodes of the graph.
+	 *
+	 * @return The number of nodes
+	 */
+	public long getNodeCount();
+
+	/**
+	 * Returns the number of edges of the given relationship.
+	 *
+	 * @param relationship
+	 *            The name of the relationship
+	 * @return The number of edges of the relationship
+	 */
+	public long getEdgeCount(String relationship);
+
+	/**
+	 * Returns the number of nodes that have at least one outgoing edge of the
+	 * given relationship.
+	 *
+	 * @param relationship
+	 *            The name of the relationship
+	 * @return The number of start nodes of the relationship
+	 */
+	public long getStartNodeCount(String relationship);
+
+	/**
+	 * Returns the number of nodes that have at least one incoming edge of the
+	 * given relationship.
+	 *
+	 * @param relationship
+	 *            The name of the relationship
+	 * @return The number of end nodes of the relationship
+	 */
+	public long getEndNodeCount(String relationship);
+
+}
@@ -0,0 +1,446 @@
+/*
+ * utils.graph - PathPattern.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * A path pattern is a chain of node variables that are connected by edges of
+ * given relationships, plus conditions on the properties of the nodes. The
+ * textual form of a pattern looks like this:
+ *
+ * <pre>
+ * a -follows-&gt; b -likes-&gt; c &lt;-likes- d where c.category = 'books' and a.age = 42
+ * </pre>
+ *
+ * Variables are identifiers (letters, digits, and underscores, not starting
+ * with a digit). An edge is written as {@code -relationship->} or
+ * {@code <-relationship-}; relationship and property names that are not
+ * identifiers can be enclosed in backticks. Conditions compare a property of
+ * a variable with a string (in single or double quotes), an integer, a
+ * decimal number, {@code true}, or {@code false}, and are joined with
+ * {@code and}. Keywords are not case-sensitive. A variable may appear more
+ * than once to express cycles; all occurrences have to be bound to the same
+ * node.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class PathPattern {
+
+	/** The variables, by position. */
+	private final List<String> variables;
+
+	/** The relationships of the edges, by position. */
+	private final List<String> relationships;
+
+	/**
+	 * Whether the edges point from the lower position to the higher position,
+	 * by position.
+	 */
+	private final List<Boolean> directions;
+
+	/** The property predicates. */
+	private final List<PropertyPredicate> predicates;
+
+	/**
+	 * Creates a new path pattern.
+	 *
+	 * @param variables
+	 *            The variables, by position
+	 * @param relationships
+	 *            The relationships of the edges, by position
+	 * @param directions
+	 *            Whether the edges point from the lower position to the
+	 *            higher position
+	 * @param predicates
+	 *            The property predicates
+	 */
+	private PathPattern(List<String> variables, List<String> relationships, List<Boolean> directions, List<PropertyPredicate> predicates) {
+		this.variables = Collections.unmodifiableList(variables);
+		this.relationships = Collections.unmodifiableList(relationships);
+		this.directions = Collections.unmodifiableList(directions);
+		this.predicates = Collections.unmodifiableList(predicates);
+	}
+
+	/**
+	 * Parses the given path pattern.
+	 *
+	 * @param pattern
+	 *            The textual form of the pattern
+	 * @return The parsed pattern
+	 * @throws QueryException
+	 *             if the pattern can not be parsed
+	 */
+	public static PathPattern parse(String pattern) throws QueryException {
+		Validation.begin().isNotNull("Pattern", pattern).check();
+		return new Parser(pattern).parse();
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the number of edges of this pattern. The number of node
+	 * positions is one more than the number of edges.
+	 *
+	 * @return The number of edges
+	 */
+	public int getLength() {
+		return relationships.size();
+	}
+
+	/**
+	 * Returns the variable at the given node position.
+	 *
+	 * @param position
+	 *            The node position (between {@code 0} and
+	 *            {@link #getLength()})
+	 * @return The name of the variable
+	 */
+	public String getVariable(int position) {
+		return variables.get(position);
+	}
+
+	/**
+	 * Returns the names of all variables of this pattern, in the order of
+	 * their first appearance.
+	 *
+	 * @return The names of all variables
+	 */
+	public Set<String> getVariables() {
+		return Collections.unmodifiableSet(new LinkedHashSet<String>(variables));
+	}
+
+	/**
+	 * Returns the relationship of the edge after the given node position.
+	 *
+	 * @param position
+	 *            The edge position (between {@code 0} and
+	 *            {@link #getLength()}, exclusive)
+	 * @return The name of the relationship
+	 */
+	public String getRelationship(int position) {
+		return relationships.get(position);
+	}
+
+	/**
+	 * Returns whether the edge after the given node position points towards
+	 * the next node position.
+	 *
+	 * @param position
+	 *            The edge position (between {@code 0} and
+	 *            {@link #getLength()}, exclusive)
+	 * @return {@code true} if the edge points from node position
+	 *         {@code position} to node position {@code position + 1},
+	 *         {@code false} if it points the other way
+	 */
+	public boolean isForward(int position) {
+		return directions.get(position);
+	}
+
+	/**
+	 * Returns all property predicates of this pattern.
+	 *
+	 * @return All property predicates
+	 */
+	public List<PropertyPredicate> getPredicates() {
+		return predicates;
+	}
+
+	/**
+	 * Returns the property predicates for the given variable.
+	 *
+	 * @param variable
+	 *            The name of the variable
+	 * @return The property predicates for the variable
+	 */
+	public List<PropertyPredicate> getPredicates(String variable) {
+		List<PropertyPredicate> variablePredicates = new ArrayList<PropertyPredicate>();
+		for (PropertyPredicate predicate : predicates) {
+			if (predicate.getVariable().equals(variable)) {
+				variablePredicates.add(predicate);
+			}
+		}
+		return variablePredicates;
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder pattern = new StringBuilder(variables.get(0));
+		for (int position = 0; position < relationships.size(); ++position) {
+			if (directions.get(position)) {
+				pattern.append(" -`").append(relationships.get(position)).append("`-> ");
+			} else {
+				pattern.append(" <-`").append(relationships.get(position)).append("`- ");
+			}
+			pattern.append(variables.get(position + 1));
+		}
+		for (int index = 0; index < predicates.size(); ++index) {
+			pattern.append((index == 0) ? " where " : " and ").append(predicates.get(index));
+		}
+		return pattern.toString();
+	}
+
+	/**
+	 * Recursive-descent parser for path patterns.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Parser {
+
+		/** The pattern to parse. */
+		private final String pattern;
+
+		/** The current position in the pattern. */
+		private int position;
+
+		/**
+		 * Creates a new parser.
+		 *
+		 * @param pattern
+		 *            The pattern to parse
+		 */
+		Parser(String pattern) {
+			this.pattern = pattern;
+		}
+
+		/**
+		 * Parses the pattern.
+		 *
+		 * @return The parsed pattern
+		 * @throws QueryException
+		 *             if the pattern can not be parsed
+		 */
+		PathPattern parse() throws QueryException {
+			List<String> variables = new ArrayList<String>();
+			List<String> relationships = new ArrayList<String>();
+			List<Boolean> directions = new ArrayList<Boolean>();
+			List<PropertyPredicate> predicates = new ArrayList<PropertyPredicate>();
+			variables.add(readIdentifier("variable"));
+			while (true) {
+				skipWhitespace();
+				if (pattern.startsWith("<-", position)) {
+					position += 2;
+					relationships.add(readName("relationship"));
+					expect("-");
+					directions.add(false);
+				} else if (pattern.startsWith("-", position)) {
+					++position;
+					relationships.add(readName("relationship"));
+					expect("->");
+					directions.add(true);
+				} else {
+					break;
+				}
+				variables.add(readIdentifier("variable"));
+			}
+			if (readKeyword("where")) {
+				do {
+					int variablePosition = position;
+					String variable = readIdentifier("variable");
+					if (!variables.contains(variable)) {
+						throw new QueryException("Unknown variable “" + variable + "”", variablePosition);
+					}
+					expect(".");
+					String property = readName("property");
+					expect("=");
+					predicates.add(new PropertyPredicate(variable, property, readLiteral()));
+				} while (readKeyword("and"));
+			}
+			skipWhitespace();
+			if (position < pattern.length()) {
+				throw new QueryException("Unexpected “" + pattern.substring(position) + "”", position);
+			}
+			return new PathPattern(variables, relationships, directions, predicates);
+		}
+
+		//
+		// PRIVATE METHODS
+		//
+
+		/**
+		 * Skips all whitespace at the current position.
+		 */
+		private void skipWhitespace() {
+			while ((position < pattern.length()) && Character.isWhitespace(pattern.charAt(position))) {
+				++position;
+			}
+		}
+
+		/**
+		 * Skips whitespace and verifies that the given text follows.
+		 *
+		 * @param text
+		 *            The expected text
+		 * @throws QueryException
+		 *             if the text does not follow
+		 */
+		private void expect(String text) throws QueryException {
+			skipWhitespace();
+			if (!pattern.startsWith(text, position)) {
+				throw new QueryException("Expected “" + text + "”", position);
+			}
+			position += text.length();
+		}
+
+		/**
+		 * Skips whitespace and reads the given keyword if it follows.
+		 *
+		 * @param keyword
+		 *            The keyword, in lower case
+		 * @return {@code true} if the keyword was read, {@code false} if the
+		 *         keyword does not follow
+		 */
+		private boolean readKeyword(String keyword) {
+			skipWhitespace();
+			int end = position + keyword.length();
+			if ((end > pattern.length()) || !pattern.substring(position, end).equalsIgnoreCase(keyword)) {
+				return false;
+			}
+			if ((end < pattern.length()) && isIdentifierPart(pattern.charAt(end))) {
+				return false;
+			}
+			position = end;
+			return true;
+		}
+
+		/**
+		 * Skips whitespace and reads an identifier.
+		 *
+		 * @param description
+		 *            The description of the identifier, for error messages
+		 * @return The identifier
+		 * @throws QueryException
+		 *             if no identifier follows
+		 */
+		private String readIdentifier(String description) throws QueryException {
+			skipWhitespace();
+			int start = position;
+			if ((position < pattern.length()) && (Character.isLetter(pattern.charAt(position)) || (pattern.charAt(position) == '_'))) {
+				while ((position < pattern.length()) && isIdentifierPart(pattern.charAt(position))) {
+					++position;
+				}
+			}
+			if (start == position) {
+				throw new QueryException("Expected " + description, position);
+			}
+			return pattern.substring(start, position);
+		}
+
+		/**
+		 * Skips whitespace and reads an identifier or a name in backticks.
+		 *
+		 * @param description
+		 *            The description of the name, for error messages
+		 * @return The name
+		 * @throws QueryException
+		 *             if no name follows
+		 */
+		private String readName(String description) throws QueryException {
+			skipWhitespace();
+			if (!pattern.startsWith("`", position)) {
+				return readIdentifier(description);
+			}
+			int end = pattern.indexOf('`', position + 1);
+			if (end == -1) {
+				throw new QueryException("Unterminated " + description, position);
+			}
+			String name = pattern.substring(position + 1, end);
+			position = end + 1;
+			return name;
+		}
+
+		/**
+		 * Skips whitespace and reads a literal.
+		 *
+		 * @return The value of the literal
+		 * @throws QueryException
+		 *             if no literal follows
+		 */
+		private Object readLiteral() throws QueryException {
+			skipWhitespace();
+			int start = position;
+			if (position == pattern.length()) {
+				throw new QueryException("Expected value", position);
+			}
+			char first = pattern.charAt(position);
+			if ((first == '\'') || (first == '"')) {
+				int end = pattern.indexOf(first, position + 1);
+				if (end == -1) {
+					throw new QueryException("Unterminated string", position);
+				}
+				position = end + 1;
+				return pattern.substring(start + 1, end);
+			}
+			if (readKeyword("true")) {
+				return Boolean.TRUE;
+			}
+			if (readKeyword("false")) {
+				return Boolean.FALSE;
+			}
+			if ((first == '-') || Character.isDigit(first)) {
+				++position;
+				while ((position < pattern.length()) && (Character.isDigit(pattern.charAt(position)) || (pattern.charAt(position) == '.'))) {
+					++position;
+				}
+				String number = pattern.substring(start, position);
+				try {
+					if (number.indexOf('.') != -1) {
+						return Double.valueOf(number);
+					}
+					long value = Long.parseLong(number);
+					if ((value >= Integer.MIN_VALUE) && (value <= Integer.MAX_VALUE)) {
+						return (int) value;
+					}
+					return value;
+				} catch (NumberFormatException nfe1) {
+					throw new QueryException("Invalid number “" + number + "”", start);
+				}
+			}
+			throw new QueryException("Expected value", position);
+		}
+
+		/**
+		 * Returns whether the given character can be part of an identifier.
+		 *
+		 * @param character
+		 *            The character
+		 * @return {@code true} if the character is a letter, a digit, or an
+		 *         underscore, {@code false} otherwise
+		 */
+		private static boolean isIdentifierPart(char character) {
+			return Character.isLetterOrDigit(character) || (character == '_');
+		}
+
+	}
+
+}
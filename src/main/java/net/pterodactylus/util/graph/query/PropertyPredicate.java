@@ -0,0 +1,141 @@
+/*
+ * utils.graph - PropertyPredicate.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+
+/**
+ * A condition of a {@link PathPattern} that requires a property of the node
+ * bound to a variable to have a certain value. Numbers are compared by value,
+ * so a property value of {@code 3L} matches the literal {@code 3}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class PropertyPredicate {
+
+	/** The name of the variable. */
+	private final String variable;
+
+	/** The name of the property. */
+	private final String property;
+
+	/** The required value. */
+	private final Object value;
+
+	/**
+	 * Creates a new property predicate.
+	 *
+	 * @param variable
+	 *            The name of the variable
+	 * @param property
+	 *            The name of the property
+	 * @param value
+	 *            The required value
+	 */
+	PropertyPredicate(String variable, String property, Object value) {
+		this.variable = variable;
+		this.property = property;
+		this.value = value;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the name of the variable.
+	 *
+	 * @return The name of the variable
+	 */
+	public String getVariable() {
+		return variable;
+	}
+
+	/**
+	 * Returns the name of the property.
+	 *
+	 * @return The name of the property
+	 */
+	public String getProperty() {
+		return property;
+	}
+
+	/**
+	 * Returns the required value.
+	 *
+	 * @return The required value
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Returns whether the given node has the required property value.
+	 *
+	 * @param node
+	 *            The node to check
+	 * @return {@code true} if the node has the required property value,
+	 *         {@code false} otherwise
+	 * @throws GraphException
+	 *             if the property can not be read
+	 */
+	public boolean matches(Node node) throws GraphException {
+		Object nodeValue = node.get(property);
+		if ((nodeValue instanceof Number) && (value instanceof Number)) {
+			if (isIntegral(nodeValue) && isIntegral(value)) {
+				return ((Number) nodeValue).longValue() == ((Number) value).longValue();
+			}
+			return ((Number) nodeValue).doubleValue() == ((Number) value).doubleValue();
+		}
+		return value.equals(nodeValue);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns whether the given number is an integral number.
+	 *
+	 * @param number
+	 *            The number
+	 * @return {@code true} if the number is a {@link Byte}, {@link Short},
+	 *         {@link Integer}, or {@link Long}, {@code false} otherwise
+	 */
+	private static boolean isIntegral(Object number) {
+		return (number instanceof Byte) || (number instanceof Short) || (number instanceof Integer) || (number instanceof Long);
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return variable + "." + property + " = " + ((value instanceof String) ? ("'" + value + "'") : value);
+	}
+
+}
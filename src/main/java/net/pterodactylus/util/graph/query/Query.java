@@ -0,0 +1,493 @@
+/*
+ * utils.graph - Query.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * A query that finds all matches of a {@link PathPattern} in a graph.
+ * Variables can be bound to nodes before the query is executed; the planner
+ * then usually starts at a bound node instead of scanning all nodes of the
+ * graph. With {@link #setStatistics(DegreeStatistics) degree statistics} the
+ * planner also picks the direction in which the pattern is expanded so that
+ * fewer nodes are visited; see {@link QueryPlanner} for the cost model.
+ *
+ * <pre>
+ * Query query = new Query(graph, &quot;a -follows-&gt; b -likes-&gt; c where c.category = 'books'&quot;).bind(&quot;a&quot;, user).setLimit(10);
+ * for (QueryResult result : query) {
+ * 	Node book = result.get(&quot;c&quot;);
+ * }
+ * </pre>
+ *
+ * Results are produced one at a time by a depth-first expansion of the plan, so
+ * only the current partial match is kept in memory. Every match of the pattern
+ * is returned once per distinct combination of nodes; two variables may be
+ * bound to the same node. If the graph can not be read while results are
+ * iterated, the iterator throws an {@link IllegalStateException} whose cause
+ * is the {@link GraphException}; {@link #execute()} throws the
+ * {@link GraphException} itself.
+ * <p>
+ * A query is not thread-safe, and the graph should not be modified while the
+ * results of a query are iterated.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class Query implements Iterable<QueryResult> {
+
+	/** The graph to query. */
+	private final Graph graph;
+
+	/** The pattern to match. */
+	private final PathPattern pattern;
+
+	/** The bound nodes, by variable name. */
+	private final Map<String, Node> boundNodes = new HashMap<String, Node>();
+
+	/** The maximum number of results. */
+	private int limit = Integer.MAX_VALUE;
+
+	/** The degree statistics. */
+	private DegreeStatistics statistics;
+
+	/** The plan, or {@code null} if it has not been created yet. */
+	private QueryPlan plan;
+
+	/**
+	 * Creates a new query.
+	 *
+	 * @param graph
+	 *            The graph to query
+	 * @param pattern
+	 *            The textual form of the pattern to match
+	 * @throws QueryException
+	 *             if the pattern can not be parsed
+	 */
+	public Query(Graph graph, String pattern) throws QueryException {
+		this(graph, PathPattern.parse(pattern));
+	}
+
+	/**
+	 * Creates a new query.
+	 *
+	 * @param graph
+	 *            The graph to query
+	 * @param pattern
+	 *            The pattern to match
+	 */
+	public Query(Graph graph, PathPattern pattern) {
+		Validation.begin().isNotNull("Graph", graph).isNotNull("Pattern", pattern).check();
+		this.graph = graph;
+		this.pattern = pattern;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the pattern of this query.
+	 *
+	 * @return The pattern of this query
+	 */
+	public PathPattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * Binds the given variable to the given node. Only matches in which the
+	 * variable is bound to this node are returned.
+	 *
+	 * @param variable
+	 *            The name of the variable
+	 * @param node
+	 *            The node to bind the variable to
+	 * @return This query
+	 */
+	public Query bind(String variable, Node node) {
+		Validation.begin().isNotNull("Variable", variable).isNotNull("Node", node).check();
+		if (!pattern.getVariables().contains(variable)) {
+			throw new IllegalArgumentException("Unknown variable: " + variable);
+		}
+		boundNodes.put(variable, node);
+		plan = null;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of results. The default is to return all
+	 * results.
+	 *
+	 * @param limit
+	 *            The maximum number of results
+	 * @return This query
+	 */
+	public Query setLimit(int limit) {
+		Validation.begin().isGreater("Limit", limit, 0).check();
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * Sets the degree statistics the planner uses. Without statistics, the
+	 * planner assumes the same degree for all relationships.
+	 *
+	 * @param statistics
+	 *            The degree statistics, or {@code null} to use default
+	 *            estimates
+	 * @return This query
+	 */
+	public Query setStatistics(DegreeStatistics statistics) {
+		this.statistics = statistics;
+		plan = null;
+		return this;
+	}
+
+	/**
+	 * Returns the plan this query is executed with.
+	 *
+	 * @return The plan of this query
+	 */
+	public QueryPlan getPlan() {
+		if (plan == null) {
+			plan = new QueryPlanner(pattern, boundNodes.keySet(), statistics).plan();
+		}
+		return plan;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Executes this query and returns all results.
+	 *
+	 * @return The results of this query
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public List<QueryResult> execute() throws GraphException {
+		List<QueryResult> results = new ArrayList<QueryResult>();
+		try {
+			for (QueryResult result : this) {
+				results.add(result);
+			}
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		}
+		return results;
+	}
+
+	//
+	// INTERFACE Iterable
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<QueryResult> iterator() {
+		return new ResultIterator(getPlan());
+	}
+
+	/**
+	 * Iterator that expands the steps of a plan depth-first. Level {@code 0}
+	 * binds the anchor position, level {@code n} binds the target position of
+	 * step {@code n - 1}.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private class ResultIterator implements Iterator<QueryResult> {
+
+		/** The plan to execute. */
+		private final QueryPlan plan;
+
+		/** The node position bound by each level. */
+		private final int[] positions;
+
+		/**
+		 * The earlier level that binds the same variable, or {@code -1}, for
+		 * each level.
+		 */
+		private final int[] previousLevels;
+
+		/** The node the variable is bound to, for each level. */
+		private final Node[] requiredNodes;
+
+		/** The predicates to check, for each level. */
+		private final List<List<PropertyPredicate>> predicates = new ArrayList<List<PropertyPredicate>>();
+
+		/** The candidate nodes, for each level. */
+		private final Iterator<?>[] candidates;
+
+		/** The bound nodes, for each level. */
+		private final Node[] nodes;
+
+		/** The current level. */
+		private int level;
+
+		/** The next result, or {@code null}. */
+		private QueryResult nextResult;
+
+		/** The number of returned results. */
+		private int resultCount;
+
+		/**
+		 * Creates a new result iterator.
+		 *
+		 * @param plan
+		 *            The plan to execute
+		 */
+		ResultIterator(QueryPlan plan) {
+			this.plan = plan;
+			int levelCount = plan.getSteps().size() + 1;
+			positions = new int[levelCount];
+			previousLevels = new int[levelCount];
+			requiredNodes = new Node[levelCount];
+			candidates = new Iterator<?>[levelCount];
+			nodes = new Node[levelCount];
+			Map<String, Integer> variableLevels = new HashMap<String, Integer>();
+			for (int level = 0; level < levelCount; ++level) {
+				positions[level] = (level == 0) ? plan.getAnchorPosition() : plan.getSteps().get(level - 1).getToPosition();
+				String variable = pattern.getVariable(positions[level]);
+				Integer previousLevel = variableLevels.get(variable);
+				if (previousLevel != null) {
+					previousLevels[level] = previousLevel;
+					predicates.add(Collections.<PropertyPredicate> emptyList());
+				} else {
+					previousLevels[level] = -1;
+					variableLevels.put(variable, level);
+					requiredNodes[level] = boundNodes.get(variable);
+					predicates.add(pattern.getPredicates(variable));
+				}
+			}
+			level = -1;
+		}
+
+		//
+		// INTERFACE Iterator
+		//
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			if ((nextResult == null) && (resultCount < limit)) {
+				try {
+					nextResult = findNextResult();
+				} catch (GraphException ge1) {
+					throw new IllegalStateException("Could not execute query.", ge1);
+				}
+			}
+			return nextResult != null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public QueryResult next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			QueryResult result = nextResult;
+			nextResult = null;
+			++resultCount;
+			return result;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		//
+		// PRIVATE METHODS
+		//
+
+		/**
+		 * Expands the plan until the next match is found.
+		 *
+		 * @return The next match, or {@code null} if there are no more matches
+		 * @throws GraphException
+		 *             if the graph can not be read
+		 */
+		private QueryResult findNextResult() throws GraphException {
+			if (level == -1) {
+				if (candidates[0] != null) {
+					return null;
+				}
+				level = 0;
+				candidates[0] = (requiredNodes[0] != null) ? Collections.singleton(requiredNodes[0]).iterator() : graph.getNodes();
+			}
+			while (level >= 0) {
+				if (!candidates[level].hasNext()) {
+					--level;
+					continue;
+				}
+				Node node = (Node) candidates[level].next();
+				if (!matches(level, node)) {
+					continue;
+				}
+				nodes[level] = node;
+				if (level == (candidates.length - 1)) {
+					return createResult();
+				}
+				QueryPlan.Step step = plan.getSteps().get(level);
+				Node fromNode = nodes[getLevel(step.getFromPosition())];
+				String relationship = pattern.getRelationship(step.getEdge());
+				candidates[++level] = step.isOutgoing() ? new LinkedNodeIterator(fromNode.getOutgoingLinks(relationship), true) : new LinkedNodeIterator(fromNode.getIncomingLinks(relationship), false);
+			}
+			return null;
+		}
+
+		/**
+		 * Returns whether the given node can be bound at the given level.
+		 *
+		 * @param level
+		 *            The level
+		 * @param node
+		 *            The candidate node
+		 * @return {@code true} if the node satisfies all conditions of the
+		 *         level, {@code false} otherwise
+		 * @throws GraphException
+		 *             if a property of the node can not be read
+		 */
+		private boolean matches(int level, Node node) throws GraphException {
+			if (previousLevels[level] != -1) {
+				return nodes[previousLevels[level]].getId() == node.getId();
+			}
+			if ((requiredNodes[level] != null) && (requiredNodes[level].getId() != node.getId())) {
+				return false;
+			}
+			for (PropertyPredicate predicate : predicates.get(level)) {
+				if (!predicate.matches(node)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the level that binds the given node position.
+		 *
+		 * @param position
+		 *            The node position
+		 * @return The level that binds the node position
+		 */
+		private int getLevel(int position) {
+			for (int level = 0; level < positions.length; ++level) {
+				if (positions[level] == position) {
+					return level;
+				}
+			}
+			throw new IllegalArgumentException("Position not bound: " + position);
+		}
+
+		/**
+		 * Creates a result from the currently bound nodes.
+		 *
+		 * @return The current result
+		 */
+		private QueryResult createResult() {
+			Map<String, Node> resultNodes = new LinkedHashMap<String, Node>();
+			for (String variable : pattern.getVariables()) {
+				resultNodes.put(variable, null);
+			}
+			for (int level = 0; level < nodes.length; ++level) {
+				resultNodes.put(pattern.getVariable(positions[level]), nodes[level]);
+			}
+			return new QueryResult(resultNodes);
+		}
+
+	}
+
+	/**
+	 * Iterator over the nodes at the other end of a set of edges.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class LinkedNodeIterator implements Iterator<Node> {
+
+		/** The edges. */
+		private final Iterator<Edge> edges;
+
+		/** Whether the edges are outgoing edges. */
+		private final boolean outgoing;
+
+		/**
+		 * Creates a new linked node iterator.
+		 *
+		 * @param edges
+		 *            The edges
+		 * @param outgoing
+		 *            {@code true} to return the end nodes of the edges,
+		 *            {@code false} to return the start nodes
+		 */
+		LinkedNodeIterator(Iterable<Edge> edges, boolean outgoing) {
+			this.edges = edges.iterator();
+			this.outgoing = outgoing;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			return edges.hasNext();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Node next() {
+			Edge edge = edges.next();
+			return outgoing ? edge.getEndNode() : edge.getStartNode();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * utils.graph - QueryException.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+import net.pterodactylus.util.graph.GraphException;
+
+/**
+ * Exception that signals that a {@link PathPattern} can not be parsed.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class QueryException extends GraphException {
+
+	/** The position of the error in the query, or {@code -1}. */
+	private final int position;
+
+	/**
+	 * Creates a new query exception.
+	 *
+	 * @param message
+	 *            The message of the exception
+	 * @param position
+	 *            The position of the error in the query, or {@code -1} if the
+	 *            error is not related to a single position
+	 */
+	public QueryException(String message, int position) {
+		super((position == -1) ? message : (message + " (at position " + position + ")"));
+		this.position = position;
+	}
+
+	/**
+	 * Returns the position of the error in the query.
+	 *
+	 * @return The position of the error, or {@code -1} if the error is not
+	 *         related to a single position
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+ * utils.graph - QueryPlan.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The execution plan of a {@link Query}. Execution starts at the anchor node
+ * position, either with the node that is bound to its variable or with all
+ * nodes of the graph, and then follows the edges of the pattern in the order
+ * of the {@link Step}s. Every step binds the node position at the other end of
+ * its edge.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class QueryPlan {
+
+	/** The pattern of the query. */
+	private final PathPattern pattern;
+
+	/** The anchor node position. */
+	private final int anchorPosition;
+
+	/** Whether the variable of the anchor position is bound. */
+	private final boolean anchorBound;
+
+	/** The estimated number of anchor nodes. */
+	private final double anchorRows;
+
+	/** The steps, in execution order. */
+	private final List<Step> steps;
+
+	/** The estimated cost of the plan. */
+	private final double estimatedCost;
+
+	/**
+	 * Creates a new query plan.
+	 *
+	 * @param pattern
+	 *            The pattern of the query
+	 * @param anchorPosition
+	 *            The anchor node position
+	 * @param anchorBound
+	 *            Whether the variable of the anchor position is bound
+	 * @param anchorRows
+	 *            The estimated number of anchor nodes
+	 * @param steps
+	 *            The steps, in execution order
+	 * @param estimatedCost
+	 *            The estimated cost of the plan
+	 */
+	QueryPlan(PathPattern pattern, int anchorPosition, boolean anchorBound, double anchorRows, List<Step> steps, double estimatedCost) {
+		this.pattern = pattern;
+		this.anchorPosition = anchorPosition;
+		this.anchorBound = anchorBound;
+		this.anchorRows = anchorRows;
+		this.steps = Collections.unmodifiableList(steps);
+		this.estimatedCost = estimatedCost;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the node position at which execution starts.
+	 *
+	 * @return The anchor node position
+	 */
+	public int getAnchorPosition() {
+		return anchorPosition;
+	}
+
+	/**
+	 * Returns whether the variable of the anchor position is bound, i.e.
+	 * whether execution starts with a single node instead of scanning all
+	 * nodes.
+	 *
+	 * @return {@code true} if the anchor variable is bound, {@code false}
+	 *         otherwise
+	 */
+	public boolean isAnchorBound() {
+		return anchorBound;
+	}
+
+	/**
+	 * Returns the steps of this plan, in execution order.
+	 *
+	 * @return The steps of this plan
+	 */
+	public List<Step> getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Returns the estimated cost of this plan, i.e. the estimated number of
+	 * nodes that are visited during execution.
+	 *
+	 * @return The estimated cost
+	 */
+	public double getEstimatedCost() {
+		return estimatedCost;
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * Returns a human-readable description of this plan.
+	 *
+	 * @return A description of this plan
+	 */
+	@Override
+	public String toString() {
+		StringBuilder plan = new StringBuilder();
+		plan.append(anchorBound ? "bound " : "scan ").append(pattern.getVariable(anchorPosition)).append(String.format(" (~%.1f rows)", anchorRows));
+		for (Step step : steps) {
+			plan.append("\n").append(pattern.getVariable(step.getFromPosition())).append(step.isOutgoing() ? " -" : " <-").append(pattern.getRelationship(step.getEdge())).append(step.isOutgoing() ? "-> " : "- ").append(pattern.getVariable(step.getToPosition()));
+			plan.append(String.format(" (~%.1f rows)", step.getEstimatedRows()));
+		}
+		return plan.append(String.format("\ncost ~%.1f", estimatedCost)).toString();
+	}
+
+	/**
+	 * A single step of a query plan that follows the edges of one
+	 * relationship from an already bound node position to the adjacent node
+	 * position.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	public static class Step {
+
+		/** The edge position of the pattern. */
+		private final int edge;
+
+		/** The node position the step starts at. */
+		private final int fromPosition;
+
+		/** Whether outgoing edges are followed. */
+		private final boolean outgoing;
+
+		/** The estimated number of rows after this step. */
+		private final double estimatedRows;
+
+		/**
+		 * Creates a new step.
+		 *
+		 * @param edge
+		 *            The edge position of the pattern
+		 * @param fromPosition
+		 *            The node position the step starts at
+		 * @param outgoing
+		 *            Whether outgoing edges are followed
+		 * @param estimatedRows
+		 *            The estimated number of rows after this step
+		 */
+		Step(int edge, int fromPosition, boolean outgoing, double estimatedRows) {
+			this.edge = edge;
+			this.fromPosition = fromPosition;
+			this.outgoing = outgoing;
+			this.estimatedRows = estimatedRows;
+		}
+
+		/**
+		 * Returns the edge position of the pattern this step follows.
+		 *
+		 * @return The edge position
+		 */
+		public int getEdge() {
+			return edge;
+		}
+
+		/**
+		 * Returns the node position this step starts at.
+		 *
+		 * @return The node position this step starts at
+		 */
+		public int getFromPosition() {
+			return fromPosition;
+		}
+
+		/**
+		 * Returns the node position this step binds.
+		 *
+		 * @return The node position this step binds
+		 */
+		public int getToPosition() {
+			return (fromPosition == edge) ? (edge + 1) : edge;
+		}
+
+		/**
+		 * Returns whether this step follows outgoing edges.
+		 *
+		 * @return {@code true} if outgoing edges are followed, {@code false}
+		 *         if incoming edges are followed
+		 */
+		public boolean isOutgoing() {
+			return outgoing;
+		}
+
+		/**
+		 * Returns the estimated number of partial results after this step.
+		 *
+		 * @return The estimated number of rows
+		 */
+		public double getEstimatedRows() {
+			return estimatedRows;
+		}
+
+	}
+
+}
@@ -0,0 +1,193 @@
+/*
+ * utils.graph - QueryPlanner.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates {@link QueryPlan}s for {@link PathPattern}s. Every node position is
+ * tried as anchor; from the anchor, the plan greedily extends the bound part
+ * of the pattern towards the side whose next step is expected to produce fewer
+ * rows. The plan with the lowest estimated cost, i.e. the lowest estimated
+ * number of visited nodes, is chosen.
+ * <p>
+ * The number of nodes reached over an edge is estimated from the average
+ * out-degree or in-degree of the relationship in the {@link DegreeStatistics}.
+ * Each property predicate is assumed to let 10% of the nodes pass; a node that
+ * has to be identical to an already known node passes with a probability of
+ * one divided by the number of nodes.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class QueryPlanner {
+
+	/** The assumed selectivity of a property predicate. */
+	private static final double PREDICATE_SELECTIVITY = 0.1;
+
+	/** The number of nodes that is assumed without statistics. */
+	private static final long DEFAULT_NODE_COUNT = 10000;
+
+	/** The average degree that is assumed without statistics. */
+	private static final double DEFAULT_DEGREE = 10;
+
+	/** The pattern to plan. */
+	private final PathPattern pattern;
+
+	/** The names of the bound variables. */
+	private final Set<String> boundVariables;
+
+	/** The degree statistics, may be {@code null}. */
+	private final DegreeStatistics statistics;
+
+	/**
+	 * Creates a new query planner.
+	 *
+	 * @param pattern
+	 *            The pattern to plan
+	 * @param boundVariables
+	 *            The names of the bound variables
+	 * @param statistics
+	 *            The degree statistics, or {@code null} to use default
+	 *            estimates
+	 */
+	QueryPlanner(PathPattern pattern, Set<String> boundVariables, DegreeStatistics statistics) {
+		this.pattern = pattern;
+		this.boundVariables = boundVariables;
+		this.statistics = statistics;
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Creates the plan with the lowest estimated cost.
+	 *
+	 * @return The cheapest plan
+	 */
+	QueryPlan plan() {
+		QueryPlan bestPlan = null;
+		for (int anchorPosition = 0; anchorPosition <= pattern.getLength(); ++anchorPosition) {
+			QueryPlan plan = plan(anchorPosition);
+			if ((bestPlan == null) || (plan.getEstimatedCost() < bestPlan.getEstimatedCost())) {
+				bestPlan = plan;
+			}
+		}
+		return bestPlan;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Creates the plan that starts at the given node position.
+	 *
+	 * @param anchorPosition
+	 *            The anchor node position
+	 * @return The plan
+	 */
+	private QueryPlan plan(int anchorPosition) {
+		double nodeCount = Math.max(1, getNodeCount());
+		String anchorVariable = pattern.getVariable(anchorPosition);
+		boolean anchorBound = boundVariables.contains(anchorVariable);
+		Set<String> seenVariables = new HashSet<String>();
+		double rows = anchorBound ? 1 : nodeCount;
+		double cost = rows;
+		rows *= Math.pow(PREDICATE_SELECTIVITY, pattern.getPredicates(anchorVariable).size());
+		seenVariables.add(anchorVariable);
+		double anchorRows = rows;
+		List<QueryPlan.Step> steps = new ArrayList<QueryPlan.Step>();
+		int left = anchorPosition;
+		int right = anchorPosition;
+		while ((left > 0) || (right < pattern.getLength())) {
+			double leftRows = (left > 0) ? (rows * getDegree(left - 1, left)) : Double.POSITIVE_INFINITY;
+			double rightRows = (right < pattern.getLength()) ? (rows * getDegree(right, right)) : Double.POSITIVE_INFINITY;
+			double leftFiltered = (left > 0) ? (leftRows * getSelectivity(pattern.getVariable(left - 1), seenVariables, nodeCount)) : Double.POSITIVE_INFINITY;
+			double rightFiltered = (right < pattern.getLength()) ? (rightRows * getSelectivity(pattern.getVariable(right + 1), seenVariables, nodeCount)) : Double.POSITIVE_INFINITY;
+			if (leftFiltered <= rightFiltered) {
+				cost += leftRows;
+				rows = leftFiltered;
+				steps.add(new QueryPlan.Step(left - 1, left, !pattern.isForward(left - 1), rows));
+				seenVariables.add(pattern.getVariable(--left));
+			} else {
+				cost += rightRows;
+				rows = rightFiltered;
+				steps.add(new QueryPlan.Step(right, right, pattern.isForward(right), rows));
+				seenVariables.add(pattern.getVariable(++right));
+			}
+		}
+		return new QueryPlan(pattern, anchorPosition, anchorBound, anchorRows, steps, cost);
+	}
+
+	/**
+	 * Returns the fraction of nodes that pass the conditions on the given
+	 * variable when it is bound.
+	 *
+	 * @param variable
+	 *            The variable that is bound
+	 * @param seenVariables
+	 *            The variables that are already bound by the plan
+	 * @param nodeCount
+	 *            The number of nodes
+	 * @return The estimated selectivity
+	 */
+	private double getSelectivity(String variable, Set<String> seenVariables, double nodeCount) {
+		if (seenVariables.contains(variable)) {
+			return 1 / nodeCount;
+		}
+		double selectivity = Math.pow(PREDICATE_SELECTIVITY, pattern.getPredicates(variable).size());
+		if (boundVariables.contains(variable)) {
+			selectivity /= nodeCount;
+		}
+		return selectivity;
+	}
+
+	/**
+	 * Returns the estimated number of nodes that are reached from one node by
+	 * following the given edge position of the pattern.
+	 *
+	 * @param edge
+	 *            The edge position
+	 * @param fromPosition
+	 *            The node position the edge is followed from
+	 * @return The estimated number of reached nodes
+	 */
+	private double getDegree(int edge, int fromPosition) {
+		if (statistics == null) {
+			return DEFAULT_DEGREE;
+		}
+		boolean outgoing = (fromPosition == edge) == pattern.isForward(edge);
+		String relationship = pattern.getRelationship(edge);
+		long nodes = outgoing ? statistics.getStartNodeCount(relationship) : statistics.getEndNodeCount(relationship);
+		return (nodes == 0) ? 0 : ((double) statistics.getEdgeCount(relationship) / nodes);
+	}
+
+	/**
+	 * Returns the number of nodes of the graph.
+	 *
+	 * @return The number of nodes
+	 */
+	private long getNodeCount() {
+		return (statistics == null) ? DEFAULT_NODE_COUNT : statistics.getNodeCount();
+	}
+
+}
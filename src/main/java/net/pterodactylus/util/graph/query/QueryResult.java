@@ -0,0 +1,91 @@
+/*
+ * utils.graph - QueryResult.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import net.pterodactylus.util.graph.Node;
+
+/**
+ * A single match of a {@link Query}, i.e. the nodes that are bound to the
+ * variables of the pattern.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class QueryResult {
+
+	/** The nodes, by variable name. */
+	private final Map<String, Node> nodes;
+
+	/**
+	 * Creates a new query result.
+	 *
+	 * @param nodes
+	 *            The nodes, by variable name
+	 */
+	QueryResult(Map<String, Node> nodes) {
+		this.nodes = Collections.unmodifiableMap(nodes);
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the names of all variables of this result.
+	 *
+	 * @return The names of all variables
+	 */
+	public Set<String> getVariables() {
+		return nodes.keySet();
+	}
+
+	/**
+	 * Returns the node that is bound to the given variable.
+	 *
+	 * @param variable
+	 *            The name of the variable
+	 * @return The node bound to the variable, or {@code null} if there is no
+	 *         such variable
+	 */
+	public Node get(String variable) {
+		return nodes.get(variable);
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("[");
+		for (Map.Entry<String, Node> node : nodes.entrySet()) {
+			if (result.length() > 1) {
+				result.append(',');
+			}
+			result.append(node.getKey()).append('=').append(node.getValue().getId());
+		}
+		return result.append(']').toString();
+	}
+
+}
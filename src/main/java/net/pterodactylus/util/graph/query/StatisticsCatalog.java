@@ -0,0 +1,610 @@
+/*
+ * utils.graph - StatisticsCatalog.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.GraphListener;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.graph.collection.LongIntHashMap;
+import net.pterodactylus.util.io.Closer;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Catalog of statistics about the shape of a graph: the number of nodes, the
+ * number of edges and the degree histograms of every relationship, and the
+ * number of nodes that have each property key. Unlike
+ * {@link CollectedDegreeStatistics} the catalog is kept up to date while the
+ * graph changes, so it can be handed to a {@link Query} planner or be read
+ * for capacity planning at any time.
+ * <p>
+ * The catalog registers itself as {@link GraphListener} of its graph. It
+ * keeps the outgoing and incoming degree of every node with edges of a
+ * relationship, so that every created or removed edge moves two nodes to the
+ * neighbouring degree in constant time. The degree histograms have one
+ * bucket per power of two: bucket <em>i</em> counts the nodes whose degree
+ * is at least 2<sup><em>i</em></sup> and less than
+ * 2<sup><em>i</em>+1</sup>; nodes without edges of a relationship are not
+ * counted.
+ * <p>
+ * The catalog is initialized by scanning the graph, which should not be
+ * modified while the catalog is created: the graph is read before the
+ * catalog registers itself, so modifications made in the meantime are
+ * missed. A catalog can be {@link #save(File, long) saved} next to the files
+ * of a store together with a modification stamp of the graph (e.g.
+ * {@link net.pterodactylus.util.graph.disk.DiskStore#getModificationStamp()})
+ * and {@link #load(Graph, File, long) loaded} again instead of scanning the
+ * graph, as long as the graph has not been modified since, i.e. as long as
+ * the stamp of the graph still matches the saved stamp. Use
+ * {@link #close()} to unregister the catalog.
+ * <p>
+ * All methods of this catalog are synchronized.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class StatisticsCatalog implements DegreeStatistics, GraphListener {
+
+	/** The magic number at the start of every saved catalog (“UGSC”). */
+	private static final int MAGIC = 0x55475343;
+
+	/** The version of the file format. */
+	private static final int VERSION = 2;
+
+	/** The number of buckets of a degree histogram. */
+	private static final int BUCKETS = 32;
+
+	/** The graph. */
+	private final Graph graph;
+
+	/** The number of nodes. */
+	private long nodeCount;
+
+	/** The statistics of the relationships, by relationship name. */
+	private final Map<String, RelationshipStatistics> relationshipStatistics = new HashMap<String, RelationshipStatistics>();
+
+	/** The number of nodes that have a property, by property key. */
+	private final Map<String, long[]> propertyCounts = new HashMap<String, long[]>();
+
+	/**
+	 * Creates a new, empty statistics catalog.
+	 *
+	 * @param graph
+	 *            The graph
+	 */
+	private StatisticsCatalog(Graph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Creates a statistics catalog for the given graph and registers it as
+	 * listener of the graph.
+	 *
+	 * @param graph
+	 *            The graph to collect the statistics of
+	 * @return The statistics catalog
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	public static StatisticsCatalog create(Graph graph) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).check();
+		StatisticsCatalog statisticsCatalog = new StatisticsCatalog(graph);
+		statisticsCatalog.build();
+		graph.addGraphListener(statisticsCatalog);
+		return statisticsCatalog;
+	}
+
+	/**
+	 * Loads a statistics catalog that was saved with
+	 * {@link #save(File, long)} and registers it as listener of the given
+	 * graph. If the catalog was saved with a different modification stamp,
+	 * the graph has been modified since, and the catalog is
+	 * {@link #create(Graph) created} from the graph instead.
+	 *
+	 * @param graph
+	 *            The graph the catalog was created for
+	 * @param file
+	 *            The file to load the catalog from
+	 * @param modificationStamp
+	 *            The current modification stamp of the graph
+	 * @return The loaded statistics catalog
+	 * @throws GraphException
+	 *             if the catalog can not be loaded
+	 */
+	public static StatisticsCatalog load(Graph graph, File file, long modificationStamp) throws GraphException {
+		Validation.begin().isNotNull("Graph", graph).isNotNull("File", file).check();
+		DataInputStream inputStream = null;
+		try {
+			inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if ((inputStream.readInt() != MAGIC) || (inputStream.readInt() != VERSION)) {
+				throw new GraphException("“" + file + "” is not a statistics catalog!");
+			}
+			if (inputStream.readLong() != modificationStamp) {
+				return create(graph);
+			}
+			StatisticsCatalog statisticsCatalog = new StatisticsCatalog(graph);
+			synchronized (statisticsCatalog) {
+				statisticsCatalog.read(inputStream);
+				graph.addGraphListener(statisticsCatalog);
+			}
+			return statisticsCatalog;
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not load statistics catalog from “" + file + "”!", ioe1);
+		} finally {
+			Closer.close(inputStream);
+		}
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the names of all relationships that have or had edges.
+	 *
+	 * @return The names of the relationships
+	 */
+	public synchronized Set<String> getRelationships() {
+		return new HashSet<String>(relationshipStatistics.keySet());
+	}
+
+	/**
+	 * Returns the histogram of the outgoing degrees of the given relationship.
+	 *
+	 * @param relationship
+	 *            The name of the relationship
+	 * @return The number of start nodes per power-of-two degree bucket
+	 */
+	public synchronized long[] getOutDegreeHistogram(String relationship) {
+		RelationshipStatistics statistics = relationshipStatistics.get(relationship);
+		return (statistics == null) ? new long[BUCKETS] : statistics.outDegrees.histogram.clone();
+	}
+
+	/**
+	 * Returns the histogram of the incoming degrees of the given relationship.
+	 *
+	 * @param relationship
+	 *            The name of the relationship
+	 * @return The number of end nodes per power-of-two degree bucket
+	 */
+	public synchronized long[] getInDegreeHistogram(String relationship) {
+		RelationshipStatistics statistics = relationshipStatistics.get(relationship);
+		return (statistics == null) ? new long[BUCKETS] : statistics.inDegrees.histogram.clone();
+	}
+
+	/**
+	 * Returns all property keys that are used by at least one node.
+	 *
+	 * @return The used property keys
+	 */
+	public synchronized Set<String> getPropertyKeys() {
+		return new HashSet<String>(propertyCounts.keySet());
+	}
+
+	/**
+	 * Returns the number of nodes that have the given property.
+	 *
+	 * @param key
+	 *            The property key
+	 * @return The number of nodes with the property
+	 */
+	public synchronized long getPropertyCount(String key) {
+		long[] propertyCount = propertyCounts.get(key);
+		return (propertyCount == null) ? 0 : propertyCount[0];
+	}
+
+	/**
+	 * Saves this catalog and the given modification stamp to the given file.
+	 * The stamp has to be requested after all modifications of the graph have
+	 * been delivered to this catalog, and the graph must not be modified
+	 * while the catalog is saved.
+	 *
+	 * @param file
+	 *            The file to save the catalog to
+	 * @param modificationStamp
+	 *            The current modification stamp of the graph
+	 * @throws GraphException
+	 *             if the catalog can not be written
+	 */
+	public synchronized void save(File file, long modificationStamp) throws GraphException {
+		Validation.begin().isNotNull("File", file).check();
+		DataOutputStream outputStream = null;
+		try {
+			outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			outputStream.writeInt(MAGIC);
+			outputStream.writeInt(VERSION);
+			outputStream.writeLong(modificationStamp);
+			write(outputStream);
+			outputStream.flush();
+		} catch (IOException ioe1) {
+			throw new GraphException("Could not save statistics catalog to “" + file + "”!", ioe1);
+		} finally {
+			Closer.close(outputStream);
+		}
+	}
+
+	//
+	// ACTIONS
+	//
+
+	/**
+	 * Unregisters this catalog from its graph. The catalog is not updated
+	 * anymore after it has been closed.
+	 */
+	public void close() {
+		graph.removeGraphListener(this);
+	}
+
+	//
+	// INTERFACE DegreeStatistics
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized long getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized long getEdgeCount(String relationship) {
+		RelationshipStatistics statistics = relationshipStatistics.get(relationship);
+		return (statistics == null) ? 0 : statistics.edgeCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized long getStartNodeCount(String relationship) {
+		RelationshipStatistics statistics = relationshipStatistics.get(relationship);
+		return (statistics == null) ? 0 : statistics.outDegrees.degrees.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized long getEndNodeCount(String relationship) {
+		RelationshipStatistics statistics = relationshipStatistics.get(relationship);
+		return (statistics == null) ? 0 : statistics.inDegrees.degrees.size();
+	}
+
+	//
+	// INTERFACE GraphListener
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void nodeCreated(Node node) {
+		++nodeCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void nodeRemoved(Node node) {
+		--nodeCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeCreated(Edge edge) {
+		RelationshipStatistics statistics = getRelationshipStatistics(edge.getRelationship().getName());
+		++statistics.edgeCount;
+		statistics.outDegrees.change(edge.getStartNode().getId(), 1);
+		statistics.inDegrees.change(edge.getEndNode().getId(), 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void edgeRemoved(Edge edge) {
+		RelationshipStatistics statistics = relationshipStatistics.get(edge.getRelationship().getName());
+		if (statistics == null) {
+			return;
+		}
+		--statistics.edgeCount;
+		statistics.outDegrees.change(edge.getStartNode().getId(), -1);
+		statistics.inDegrees.change(edge.getEndNode().getId(), -1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void propertyChanged(Node node, String key, Object oldValue, Object newValue) {
+		if ((oldValue == null) && (newValue != null)) {
+			countProperty(key, 1);
+		} else if ((oldValue != null) && (newValue == null)) {
+			countProperty(key, -1);
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Collects the statistics by scanning all nodes of the graph.
+	 *
+	 * @throws GraphException
+	 *             if the graph can not be read
+	 */
+	private void build() throws GraphException {
+		Set<Relationship> relationships = graph.getRelationships();
+		try {
+			for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+				Node node = nodes.next();
+				++nodeCount;
+				for (String key : node.getPropertyKeys()) {
+					if (node.get(key) != null) {
+						countProperty(key, 1);
+					}
+				}
+				for (Relationship relationship : relationships) {
+					int outDegree = node.getOutgoingLinks(relationship).size();
+					int inDegree = node.getIncomingLinks(relationship).size();
+					if ((outDegree == 0) && (inDegree == 0)) {
+						continue;
+					}
+					RelationshipStatistics statistics = getRelationshipStatistics(relationship.getName());
+					statistics.edgeCount += outDegree;
+					statistics.outDegrees.change(node.getId(), outDegree);
+					statistics.inDegrees.change(node.getId(), inDegree);
+				}
+			}
+		} catch (IllegalStateException ise1) {
+			if (ise1.getCause() instanceof GraphException) {
+				throw (GraphException) ise1.getCause();
+			}
+			throw ise1;
+		}
+	}
+
+	/**
+	 * Returns the statistics of the given relationship, creating them if
+	 * necessary.
+	 *
+	 * @param relationship
+	 *            The name of the relationship
+	 * @return The statistics of the relationship
+	 */
+	private RelationshipStatistics getRelationshipStatistics(String relationship) {
+		RelationshipStatistics statistics = relationshipStatistics.get(relationship);
+		if (statistics == null) {
+			statistics = new RelationshipStatistics();
+			relationshipStatistics.put(relationship, statistics);
+		}
+		return statistics;
+	}
+
+	/**
+	 * Changes the number of nodes that have the given property.
+	 *
+	 * @param key
+	 *            The property key
+	 * @param delta
+	 *            The change of the number of nodes
+	 */
+	private void countProperty(String key, int delta) {
+		long[] propertyCount = propertyCounts.get(key);
+		if (propertyCount == null) {
+			propertyCount = new long[1];
+			propertyCounts.put(key, propertyCount);
+		}
+		propertyCount[0] += delta;
+		if (propertyCount[0] <= 0) {
+			propertyCounts.remove(key);
+		}
+	}
+
+	/**
+	 * Writes the statistics to the given stream.
+	 *
+	 * @param outputStream
+	 *            The stream to write to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private void write(DataOutputStream outputStream) throws IOException {
+		outputStream.writeLong(nodeCount);
+		outputStream.writeInt(propertyCounts.size());
+		for (Map.Entry<String, long[]> propertyCount : propertyCounts.entrySet()) {
+			outputStream.writeUTF(propertyCount.getKey());
+			outputStream.writeLong(propertyCount.getValue()[0]);
+		}
+		outputStream.writeInt(relationshipStatistics.size());
+		for (Map.Entry<String, RelationshipStatistics> statistics : relationshipStatistics.entrySet()) {
+			outputStream.writeUTF(statistics.getKey());
+			outputStream.writeLong(statistics.getValue().edgeCount);
+			statistics.getValue().outDegrees.write(outputStream);
+			statistics.getValue().inDegrees.write(outputStream);
+		}
+	}
+
+	/**
+	 * Reads the statistics from the given stream.
+	 *
+	 * @param inputStream
+	 *            The stream to read from
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private void read(DataInputStream inputStream) throws IOException {
+		nodeCount = inputStream.readLong();
+		for (int propertyCount = inputStream.readInt(); propertyCount > 0; --propertyCount) {
+			String key = inputStream.readUTF();
+			propertyCounts.put(key, new long[] { inputStream.readLong() });
+		}
+		for (int relationshipCount = inputStream.readInt(); relationshipCount > 0; --relationshipCount) {
+			RelationshipStatistics statistics = getRelationshipStatistics(inputStream.readUTF());
+			statistics.edgeCount = inputStream.readLong();
+			statistics.outDegrees.read(inputStream);
+			statistics.inDegrees.read(inputStream);
+		}
+	}
+
+	//
+	// OBJECT METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder statistics = new StringBuilder(getClass().getSimpleName()).append("[nodes=").append(nodeCount);
+		for (Map.Entry<String, RelationshipStatistics> relationship : relationshipStatistics.entrySet()) {
+			RelationshipStatistics counts = relationship.getValue();
+			statistics.append(',').append(relationship.getKey()).append("=(").append(counts.edgeCount).append(',').append(counts.outDegrees.degrees.size()).append(',').append(counts.inDegrees.degrees.size()).append(')');
+		}
+		for (Map.Entry<String, long[]> propertyCount : propertyCounts.entrySet()) {
+			statistics.append(',').append(propertyCount.getKey()).append('=').append(propertyCount.getValue()[0]);
+		}
+		return statistics.append(']').toString();
+	}
+
+	/**
+	 * The statistics of a single relationship.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class RelationshipStatistics {
+
+		/** The number of edges. */
+		long edgeCount;
+
+		/** The outgoing degrees. */
+		final Degrees outDegrees = new Degrees();
+
+		/** The incoming degrees. */
+		final Degrees inDegrees = new Degrees();
+
+	}
+
+	/**
+	 * The degrees of all nodes with at least one edge in one direction of a
+	 * relationship, together with their histogram.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class Degrees {
+
+		/** The degrees, by node ID. */
+		final LongIntHashMap degrees = new LongIntHashMap(16, 0);
+
+		/** The number of nodes per power-of-two degree bucket. */
+		final long[] histogram = new long[BUCKETS];
+
+		/**
+		 * Changes the degree of the given node.
+		 *
+		 * @param nodeId
+		 *            The ID of the node
+		 * @param delta
+		 *            The change of the degree
+		 */
+		void change(long nodeId, int delta) {
+			int degree = degrees.get(nodeId);
+			int newDegree = Math.max(degree + delta, 0);
+			if (newDegree == degree) {
+				return;
+			}
+			if (degree > 0) {
+				--histogram[getBucket(degree)];
+			}
+			if (newDegree > 0) {
+				degrees.put(nodeId, newDegree);
+				++histogram[getBucket(newDegree)];
+			} else {
+				degrees.remove(nodeId);
+			}
+		}
+
+		/**
+		 * Writes the degrees to the given stream.
+		 *
+		 * @param outputStream
+		 *            The stream to write to
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		void write(DataOutputStream outputStream) throws IOException {
+			long[] nodeIds = degrees.keys();
+			outputStream.writeInt(nodeIds.length);
+			for (long nodeId : nodeIds) {
+				outputStream.writeLong(nodeId);
+				outputStream.writeInt(degrees.get(nodeId));
+			}
+		}
+
+		/**
+		 * Reads the degrees from the given stream and rebuilds the histogram.
+		 *
+		 * @param inputStream
+		 *            The stream to read from
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		void read(DataInputStream inputStream) throws IOException {
+			for (int nodeCount = inputStream.readInt(); nodeCount > 0; --nodeCount) {
+				long nodeId = inputStream.readLong();
+				change(nodeId, inputStream.readInt());
+			}
+		}
+
+		/**
+		 * Returns the histogram bucket of the given degree.
+		 *
+		 * @param degree
+		 *            The degree, greater than zero
+		 * @return The bucket of the degree
+		 */
+		private static int getBucket(int degree) {
+			return 31 - Integer.numberOfLeadingZeros(degree);
+		}
+
+	}
+
+}
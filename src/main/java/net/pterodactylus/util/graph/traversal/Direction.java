@@ -0,0 +1,72 @@
+/*
+ * utils.graph - Direction.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.traversal;
+
+/**
+ * The direction in which the edges of a node are followed.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public enum Direction {
+
+	/** Follow outgoing edges from their start node to their end node. */
+	OUTGOING,
+
+	/** Follow incoming edges from their end node to their start node. */
+	INCOMING,
+
+	/** Follow edges in both directions. */
+	BOTH;
+
+	/**
+	 * Returns whether outgoing edges are followed in this direction.
+	 *
+	 * @return {@code true} if outgoing edges are followed, {@code false}
+	 *         otherwise
+	 */
+	public boolean followsOutgoing() {
+		return this != INCOMING;
+	}
+
+	/**
+	 * Returns whether incoming edges are followed in this direction.
+	 *
+	 * @return {@code true} if incoming edges are followed, {@code false}
+	 *         otherwise
+	 */
+	public boolean followsIncoming() {
+		return this != OUTGOING;
+	}
+
+	/**
+	 * Returns the reverse of this direction.
+	 *
+	 * @return The reverse direction
+	 */
+	public Direction reverse() {
+		switch (this) {
+		case OUTGOING:
+			return INCOMING;
+		case INCOMING:
+			return OUTGOING;
+		default:
+			return BOTH;
+		}
+	}
+
+}
@@ -0,0 +1,379 @@
+/*
+ * utils.graph - Traversal.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.traversal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import net.pterodactylus.util.filter.Filter;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.validation.Validation;
+
+/**
+ * Description of a breadth-first or depth-first traversal of a graph,
+ * starting at a single node. A traversal follows the edges of the configured
+ * relationships in the configured directions; if no relationship is
+ * configured, the outgoing edges of all relationships of the graph are
+ * followed. Every reachable node is returned exactly once, starting with the
+ * start node.
+ * <p>
+ * Nodes are produced lazily by the {@link TraversalIterator} returned from
+ * {@link #iterator()}: a breadth-first traversal only holds the current and
+ * the next level of nodes, a depth-first traversal only holds the nodes along
+ * the current path and their unvisited siblings, and visited nodes are only
+ * tracked by ID. No recursion is used, so deep graphs can be traversed.
+ * <p>
+ * A traversal is created with {@link #breadthFirst(Node)} or
+ * {@link #depthFirst(Node)} and then configured:
+ *
+ * <pre>
+ * for (Node node : Traversal.breadthFirst(rootNode).follow(&quot;friend&quot;, Direction.BOTH).maxDepth(3)) {
+ * 	…
+ * }
+ * </pre>
+ *
+ * Because {@link Iterator} can not throw checked exceptions, a
+ * {@link GraphException} that occurs while traversing is thrown as the cause
+ * of an {@link IllegalStateException}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class Traversal implements Iterable<Node> {
+
+	/** The start node. */
+	private final Node startNode;
+
+	/** Whether the traversal is breadth-first. */
+	private final boolean breadthFirst;
+
+	/** The relationships to follow. */
+	private final List<Relationship> relationships = new ArrayList<Relationship>();
+
+	/** The directions of the relationships to follow. */
+	private final List<Direction> directions = new ArrayList<Direction>();
+
+	/** The maximum depth of returned nodes. */
+	private int maxDepth = Integer.MAX_VALUE;
+
+	/** The filter for nodes. */
+	private Filter<Node> nodeFilter;
+
+	/**
+	 * Creates a new traversal.
+	 *
+	 * @param startNode
+	 *            The start node
+	 * @param breadthFirst
+	 *            {@code true} for a breadth-first traversal, {@code false}
+	 *            for a depth-first traversal
+	 */
+	private Traversal(Node startNode, boolean breadthFirst) {
+		Validation.begin().isNotNull("Start Node", startNode).check();
+		this.startNode = startNode;
+		this.breadthFirst = breadthFirst;
+	}
+
+	/**
+	 * Creates a new breadth-first traversal that starts at the given node.
+	 *
+	 * @param startNode
+	 *            The start node
+	 * @return The new traversal
+	 */
+	public static Traversal breadthFirst(Node startNode) {
+		return new Traversal(startNode, true);
+	}
+
+	/**
+	 * Creates a new depth-first traversal that starts at the given node.
+	 *
+	 * @param startNode
+	 *            The start node
+	 * @return The new traversal
+	 */
+	public static Traversal depthFirst(Node startNode) {
+		return new Traversal(startNode, false);
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Adds a relationship that is followed in the given direction.
+	 *
+	 * @param relationship
+	 *            The relationship to follow
+	 * @param direction
+	 *            The direction to follow the relationship in
+	 * @return This traversal
+	 */
+	public Traversal follow(Relationship relationship, Direction direction) {
+		Validation.begin().isNotNull("Relationship", relationship).isNotNull("Direction", direction).check();
+		relationships.add(relationship);
+		directions.add(direction);
+		return this;
+	}
+
+	/**
+	 * Adds a relationship that is followed in the given direction.
+	 *
+	 * @param relationship
+	 *            The name of the relationship to follow
+	 * @param direction
+	 *            The direction to follow the relationship in
+	 * @return This traversal
+	 * @throws GraphException
+	 *             if the relationship can not be created
+	 */
+	public Traversal follow(String relationship, Direction direction) throws GraphException {
+		return follow(startNode.getGraph().getRelationship(relationship), direction);
+	}
+
+	/**
+	 * Sets the maximum depth of returned nodes. The start node has a depth of
+	 * {@code 0}.
+	 *
+	 * @param maxDepth
+	 *            The maximum depth
+	 * @return This traversal
+	 */
+	public Traversal maxDepth(int maxDepth) {
+		Validation.begin().isGreaterOrEqual("Maximum Depth", maxDepth, 0).check();
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * Sets a filter for nodes. Nodes that are not accepted by the filter are
+	 * neither returned nor are their edges followed. The start node is always
+	 * returned.
+	 *
+	 * @param nodeFilter
+	 *            The node filter, or {@code null} to accept all nodes
+	 * @return This traversal
+	 */
+	public Traversal filter(Filter<Node> nodeFilter) {
+		this.nodeFilter = nodeFilter;
+		return this;
+	}
+
+	//
+	// INTERFACE Iterable
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public TraversalIterator iterator() {
+		List<Relationship> followedRelationships = new ArrayList<Relationship>(relationships);
+		List<Direction> followedDirections = new ArrayList<Direction>(directions);
+		if (followedRelationships.isEmpty()) {
+			try {
+				followedRelationships.addAll(startNode.getGraph().getRelationships());
+			} catch (GraphException ge1) {
+				throw new IllegalStateException("Could not load relationships.", ge1);
+			}
+			followedDirections.addAll(Collections.nCopies(followedRelationships.size(), Direction.OUTGOING));
+		}
+		if (breadthFirst) {
+			return new BreadthFirstIterator(startNode, followedRelationships, followedDirections, maxDepth, nodeFilter);
+		}
+		return new DepthFirstIterator(startNode, followedRelationships, followedDirections, maxDepth, nodeFilter);
+	}
+
+	/**
+	 * Breadth-first traversal iterator that keeps the current and the next
+	 * level of nodes.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class BreadthFirstIterator extends TraversalIterator {
+
+		/** The nodes of the current level that have not been returned. */
+		private Deque<Node> currentLevel = new ArrayDeque<Node>();
+
+		/** The nodes of the next level. */
+		private Deque<Node> nextLevel = new ArrayDeque<Node>();
+
+		/** The depth of the current level. */
+		private int currentDepth;
+
+		/** The depth of the last returned node. */
+		private int depth;
+
+		/**
+		 * Creates a new breadth-first iterator.
+		 *
+		 * @param startNode
+		 *            The start node
+		 * @param relationships
+		 *            The relationships to follow
+		 * @param directions
+		 *            The directions of the relationships
+		 * @param maxDepth
+		 *            The maximum depth of returned nodes
+		 * @param nodeFilter
+		 *            The node filter (may be {@code null})
+		 */
+		BreadthFirstIterator(Node startNode, List<Relationship> relationships, List<Direction> directions, int maxDepth, Filter<Node> nodeFilter) {
+			super(relationships, directions, maxDepth, nodeFilter);
+			markVisited(startNode);
+			currentLevel.add(startNode);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			if (currentLevel.isEmpty() && !nextLevel.isEmpty()) {
+				Deque<Node> emptyLevel = currentLevel;
+				currentLevel = nextLevel;
+				nextLevel = emptyLevel;
+				++currentDepth;
+			}
+			return !currentLevel.isEmpty();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Node next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Node node = currentLevel.removeFirst();
+			depth = currentDepth;
+			if (currentDepth < getMaxDepth()) {
+				for (Node neighbour : getNeighbours(node)) {
+					if (markVisited(neighbour)) {
+						nextLevel.addLast(neighbour);
+					}
+				}
+			}
+			return node;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int getDepth() {
+			return depth;
+		}
+
+	}
+
+	/**
+	 * Depth-first traversal iterator that keeps the unvisited neighbours of
+	 * all nodes along the current path on a stack.
+	 *
+	 * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+	 */
+	private static class DepthFirstIterator extends TraversalIterator {
+
+		/** The neighbours of the nodes along the current path. */
+		private final Deque<Iterator<Node>> neighbourStack = new ArrayDeque<Iterator<Node>>();
+
+		/** The next node to return. */
+		private Node nextNode;
+
+		/** The depth of the next node. */
+		private int nextDepth;
+
+		/** The depth of the last returned node. */
+		private int depth;
+
+		/**
+		 * Creates a new depth-first iterator.
+		 *
+		 * @param startNode
+		 *            The start node
+		 * @param relationships
+		 *            The relationships to follow
+		 * @param directions
+		 *            The directions of the relationships
+		 * @param maxDepth
+		 *            The maximum depth of returned nodes
+		 * @param nodeFilter
+		 *            The node filter (may be {@code null})
+		 */
+		DepthFirstIterator(Node startNode, List<Relationship> relationships, List<Direction> directions, int maxDepth, Filter<Node> nodeFilter) {
+			super(relationships, directions, maxDepth, nodeFilter);
+			markVisited(startNode);
+			nextNode = startNode;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			while ((nextNode == null) && !neighbourStack.isEmpty()) {
+				Iterator<Node> neighbours = neighbourStack.peek();
+				if (!neighbours.hasNext()) {
+					neighbourStack.pop();
+					continue;
+				}
+				Node neighbour = neighbours.next();
+				if (markVisited(neighbour)) {
+					nextNode = neighbour;
+					nextDepth = neighbourStack.size();
+				}
+			}
+			return nextNode != null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Node next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Node node = nextNode;
+			depth = nextDepth;
+			nextNode = null;
+			if (depth < getMaxDepth()) {
+				neighbourStack.push(getNeighbours(node).iterator());
+			}
+			return node;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int getDepth() {
+			return depth;
+		}
+
+	}
+
+}
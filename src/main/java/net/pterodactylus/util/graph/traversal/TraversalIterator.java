@@ -0,0 +1,158 @@
+/*
+ * utils.graph - TraversalIterator.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.traversal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import net.pterodactylus.util.filter.Filter;
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+
+/**
+ * {@link Iterator} over the nodes of a {@link Traversal}. In addition to the
+ * nodes it also exposes the depth of the last returned node.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public abstract class TraversalIterator implements Iterator<Node> {
+
+	/** The relationships to follow. */
+	private final List<Relationship> relationships;
+
+	/** The directions of the relationships. */
+	private final List<Direction> directions;
+
+	/** The maximum depth of returned nodes. */
+	private final int maxDepth;
+
+	/** The node filter (may be {@code null}). */
+	private final Filter<Node> nodeFilter;
+
+	/** The IDs of all visited nodes. */
+	private final VisitedNodes visitedNodes = new VisitedNodes();
+
+	/**
+	 * Creates a new traversal iterator.
+	 *
+	 * @param relationships
+	 *            The relationships to follow
+	 * @param directions
+	 *            The directions of the relationships
+	 * @param maxDepth
+	 *            The maximum depth of returned nodes
+	 * @param nodeFilter
+	 *            The node filter (may be {@code null})
+	 */
+	TraversalIterator(List<Relationship> relationships, List<Direction> directions, int maxDepth, Filter<Node> nodeFilter) {
+		this.relationships = relationships;
+		this.directions = directions;
+		this.maxDepth = maxDepth;
+		this.nodeFilter = nodeFilter;
+	}
+
+	//
+	// ACCESSORS
+	//
+
+	/**
+	 * Returns the depth of the node that was returned by the last call to
+	 * {@link #next()}. The start node has a depth of {@code 0}.
+	 *
+	 * @return The depth of the last returned node
+	 */
+	public abstract int getDepth();
+
+	//
+	// INTERFACE Iterator
+	//
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Traversal iterators do not support removing nodes.
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	//
+	// PACKAGE-PROTECTED METHODS
+	//
+
+	/**
+	 * Returns the maximum depth of returned nodes.
+	 *
+	 * @return The maximum depth
+	 */
+	int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Marks the given node as visited, unless it is rejected by the node
+	 * filter.
+	 *
+	 * @param node
+	 *            The node to visit
+	 * @return {@code true} if the node has not been visited before and is
+	 *         accepted by the node filter, {@code false} otherwise
+	 */
+	boolean markVisited(Node node) {
+		if (!visitedNodes.add(node.getId())) {
+			return false;
+		}
+		return (nodeFilter == null) || nodeFilter.filterObject(node);
+	}
+
+	/**
+	 * Returns the nodes that can be reached from the given node by following a
+	 * single edge.
+	 *
+	 * @param node
+	 *            The node
+	 * @return The neighbours of the node
+	 */
+	List<Node> getNeighbours(Node node) {
+		List<Node> neighbours = new ArrayList<Node>();
+		try {
+			for (int index = 0, size = relationships.size(); index < size; ++index) {
+				Relationship relationship = relationships.get(index);
+				Direction direction = directions.get(index);
+				if (direction.followsOutgoing()) {
+					for (Edge edge : node.getOutgoingLinks(relationship)) {
+						neighbours.add(edge.getEndNode());
+					}
+				}
+				if (direction.followsIncoming()) {
+					for (Edge edge : node.getIncomingLinks(relationship)) {
+						neighbours.add(edge.getStartNode());
+					}
+				}
+			}
+		} catch (GraphException ge1) {
+			throw new IllegalStateException("Could not load edges of " + node + ".", ge1);
+		}
+		return neighbours;
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * utils.graph - VisitedNodes.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.traversal;
+
+import java.util.BitSet;
+
+import net.pterodactylus.util.graph.collection.LongHashSet;
+
+/**
+ * Set of the IDs of visited nodes. Small, non-negative IDs are stored in a
+ * {@link BitSet}, all other IDs in a {@link LongHashSet}, so that tracking the
+ * visited nodes needs neither node objects nor boxed IDs.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+class VisitedNodes {
+
+	/** The maximum ID that is stored in the bit set. */
+	private static final long MAXIMUM_DENSE_ID = 1 << 26;
+
+	/** The visited nodes with small IDs. */
+	private final BitSet denseIds = new BitSet();
+
+	/** The visited nodes with large or negative IDs. */
+	private final LongHashSet sparseIds = new LongHashSet();
+
+	/**
+	 * Marks the node with the given ID as visited.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return {@code true} if the node had not been visited before,
+	 *         {@code false} otherwise
+	 */
+	boolean add(long nodeId) {
+		if ((nodeId >= 0) && (nodeId < MAXIMUM_DENSE_ID)) {
+			if (denseIds.get((int) nodeId)) {
+				return false;
+			}
+			denseIds.set((int) nodeId);
+			return true;
+		}
+		return sparseIds.add(nodeId);
+	}
+
+	/**
+	 * Returns whether the node with the given ID has been visited.
+	 *
+	 * @param nodeId
+	 *            The ID of the node
+	 * @return {@code true} if the node has been visited, {@code false}
+	 *         otherwise
+	 */
+	boolean contains(long nodeId) {
+		if ((nodeId >= 0) && (nodeId < MAXIMUM_DENSE_ID)) {
+			return denseIds.get((int) nodeId);
+		}
+		return sparseIds.contains(nodeId);
+	}
+
+}
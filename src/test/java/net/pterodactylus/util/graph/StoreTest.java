@@ -17,11 +17,31 @@
 
 package net.pterodactylus.util.graph;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import junit.framework.TestCase;
+import net.pterodactylus.util.graph.analytics.AdjacencySnapshot;
+import net.pterodactylus.util.graph.analytics.ComponentTracker;
+import net.pterodactylus.util.graph.analytics.Components;
+import net.pterodactylus.util.graph.analytics.ConnectedComponents;
+import net.pterodactylus.util.graph.analytics.DegreeCount;
+import net.pterodactylus.util.graph.analytics.DegreeTracker;
+import net.pterodactylus.util.graph.path.CycleException;
+import net.pterodactylus.util.graph.path.Heuristic;
+import net.pterodactylus.util.graph.path.ReachabilityIndex;
+import net.pterodactylus.util.graph.path.ShortestPathFinder;
+import net.pterodactylus.util.graph.path.TopologicalOrder;
+import net.pterodactylus.util.graph.query.CollectedDegreeStatistics;
+import net.pterodactylus.util.graph.query.StatisticsCatalog;
 
 /**
  * Common test base for tests all {@link Store} implementations have to endure.
@@ -158,6 +178,593 @@ public class StoreTest extends TestCase {
 		}
 	}
 
+	/**
+	 * Tests that {@link Graph#getNodes()} returns every node that was not
+	 * removed exactly once, and that node IDs are unique.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testGetNodes() throws GraphException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			Set<Long> expectedNodeIds = new HashSet<Long>();
+			expectedNodeIds.add(graph.getRootNode().getId());
+			Node removedNode = null;
+			for (int index = 0; index < 10; ++index) {
+				Node node = graph.createNode();
+				node.set("index", index);
+				assertTrue("Unique ID", expectedNodeIds.add(node.getId()));
+				removedNode = node;
+			}
+			graph.removeNode(removedNode);
+			expectedNodeIds.remove(removedNode.getId());
+			Set<Long> nodeIds = new HashSet<Long>();
+			for (Iterator<Node> nodes = graph.getNodes(); nodes.hasNext();) {
+				assertTrue("Single Node", nodeIds.add(nodes.next().getId()));
+			}
+			assertEquals("Node IDs", expectedNodeIds, nodeIds);
+		}
+	}
+
+	/**
+	 * Tests that the property keys and the relationships of a graph can be
+	 * enumerated.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testPropertyKeysAndRelationships() throws GraphException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			Node node = graph.createNode();
+			assertTrue("No Property Keys", node.getPropertyKeys().isEmpty());
+			node.set("first", 1).set("second", "2");
+			assertEquals("Property Keys", new HashSet<String>(Arrays.asList("first", "second")), node.getPropertyKeys());
+			graph.getRootNode().link(node, "first");
+			graph.getRootNode().link(node, "second");
+			Set<String> relationshipNames = new HashSet<String>();
+			for (Relationship relationship : graph.getRelationships()) {
+				relationshipNames.add(relationship.getName());
+			}
+			assertTrue("Relationships", relationshipNames.containsAll(Arrays.asList("first", "second")));
+		}
+	}
+
+	/**
+	 * Tests that the shortest path finder finds the path with the fewest
+	 * edges and the path with the lowest weight, with and without heuristic.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testShortestPaths() throws GraphException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			Node rootNode = graph.getRootNode().set("remaining", 4);
+			Node firstNode = graph.createNode().set("weight", 1).set("remaining", 3);
+			Node secondNode = graph.createNode().set("weight", 1).set("remaining", 2);
+			Node thirdNode = graph.createNode().set("weight", 1).set("remaining", 1);
+			Node endNode = graph.createNode().set("weight", 1).set("remaining", 0);
+			Node shortcutNode = graph.createNode().set("weight", 10).set("remaining", 1);
+			Node unlinkedNode = graph.createNode();
+			rootNode.link(firstNode, "road");
+			firstNode.link(secondNode, "road");
+			secondNode.link(thirdNode, "road");
+			thirdNode.link(endNode, "road");
+			rootNode.link(shortcutNode, "road");
+			shortcutNode.link(endNode, "road");
+			ShortestPathFinder shortestPathFinder = new ShortestPathFinder(graph).follow("road").weight("weight");
+			assertTrue("Shortest Path", Arrays.equals(new long[] { rootNode.getId(), shortcutNode.getId(), endNode.getId() }, shortestPathFinder.findShortestPath(rootNode, endNode)));
+			assertTrue("Single-Node Path", Arrays.equals(new long[] { rootNode.getId() }, shortestPathFinder.findShortestPath(rootNode, rootNode)));
+			assertNull("No Reverse Path", shortestPathFinder.findShortestPath(endNode, rootNode));
+			assertNull("No Path", shortestPathFinder.findShortestPath(rootNode, unlinkedNode));
+			long[] cheapestPath = new long[] { rootNode.getId(), firstNode.getId(), secondNode.getId(), thirdNode.getId(), endNode.getId() };
+			assertTrue("Cheapest Path", Arrays.equals(cheapestPath, shortestPathFinder.findCheapestPath(rootNode, endNode)));
+			assertNull("No Cheapest Path", shortestPathFinder.findCheapestPath(rootNode, unlinkedNode));
+			shortestPathFinder.heuristic(new Heuristic() {
+
+				@Override
+				public double estimate(Node node, Node endNode) throws GraphException {
+					return ((Number) node.get("remaining")).doubleValue() - ((Number) endNode.get("remaining")).doubleValue();
+				}
+			});
+			assertTrue("A* Path", Arrays.equals(cheapestPath, shortestPathFinder.findCheapestPath(rootNode, endNode)));
+			shortcutNode.set("weight", 2);
+			assertTrue("Changed Cheapest Path", Arrays.equals(new long[] { rootNode.getId(), shortcutNode.getId(), endNode.getId() }, shortestPathFinder.findCheapestPath(rootNode, endNode)));
+		}
+	}
+
+	/**
+	 * Tests that graph listeners are notified about created and removed nodes
+	 * and edges.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testGraphListener() throws GraphException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			final List<String> events = new ArrayList<String>();
+			GraphListener graphListener = new GraphAdapter() {
+
+				@Override
+				public void nodeCreated(Node node) {
+					events.add("+" + node.getId());
+				}
+
+				@Override
+				public void nodeRemoved(Node node) {
+					events.add("-" + node.getId());
+				}
+
+				@Override
+				public void edgeCreated(Edge edge) {
+					events.add("+" + edge.getStartNode().getId() + edge.getRelationship().getName() + edge.getEndNode().getId());
+				}
+
+				@Override
+				public void edgeRemoved(Edge edge) {
+					events.add("-" + edge.getStartNode().getId() + edge.getRelationship().getName() + edge.getEndNode().getId());
+				}
+
+			};
+			graph.addGraphListener(graphListener);
+			Node rootNode = graph.getRootNode();
+			Node node = graph.createNode();
+			long rootId = rootNode.getId();
+			long id = node.getId();
+			assertTrue("Link", rootNode.link(node, "a"));
+			assertFalse("Duplicate Link", rootNode.link(node, "a"));
+			node.link(node, "a");
+			node.link(rootNode, "b");
+			assertTrue("Unlink", rootNode.unlink(node, "a"));
+			assertFalse("Duplicate Unlink", rootNode.unlink(node, "a"));
+			assertEquals("Events", Arrays.asList("+" + id, "+" + rootId + "a" + id, "+" + id + "a" + id, "+" + id + "b" + rootId, "-" + rootId + "a" + id), events);
+			events.clear();
+			graph.removeNode(node);
+			assertEquals("Removal Events", 3, events.size());
+			assertTrue("Self-Loop Removed", events.contains("-" + id + "a" + id));
+			assertTrue("Incoming Edge Removed", events.contains("-" + id + "b" + rootId));
+			assertEquals("Node Removed", "-" + id, events.get(2));
+			graph.removeGraphListener(graphListener);
+			graph.createNode();
+			assertEquals("Events after Removal", 3, events.size());
+		}
+	}
+
+	/**
+	 * Tests that a reachability index answers like a breadth-first search
+	 * while the graph changes, and after it was saved and loaded.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 * @throws IOException
+	 *             if the temporary file can not be created
+	 */
+	public void testReachabilityIndex() throws GraphException, IOException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			Random random = new Random(42);
+			List<Node> nodes = new ArrayList<Node>();
+			nodes.add(graph.getRootNode());
+			for (int index = 1; index < 30; ++index) {
+				nodes.add(graph.createNode());
+			}
+			for (int index = 0; index < 25; ++index) {
+				nodes.get(random.nextInt(nodes.size())).link(nodes.get(random.nextInt(nodes.size())), "grants");
+			}
+			nodes.get(3).link(nodes.get(4), "other");
+			ReachabilityIndex reachabilityIndex = ReachabilityIndex.create(graph, Arrays.asList("grants"));
+			ShortestPathFinder shortestPathFinder = new ShortestPathFinder(graph).follow("grants");
+			for (int round = 0; round < 20; ++round) {
+				for (Node startNode : nodes) {
+					for (Node endNode : nodes) {
+						assertEquals("Reachable", shortestPathFinder.findShortestPath(startNode, endNode) != null, reachabilityIndex.canReach(startNode, endNode));
+					}
+				}
+				int operation = random.nextInt(10);
+				if (operation < 6) {
+					nodes.get(random.nextInt(nodes.size())).link(nodes.get(random.nextInt(nodes.size())), "grants");
+				} else if (operation < 8) {
+					nodes.add(graph.createNode());
+					nodes.get(random.nextInt(nodes.size())).link(nodes.get(nodes.size() - 1), "grants");
+				} else if (operation < 9) {
+					Node startNode = nodes.get(random.nextInt(nodes.size()));
+					Set<Edge> edges = startNode.getOutgoingLinks("grants");
+					if (!edges.isEmpty()) {
+						startNode.unlink(edges.iterator().next().getEndNode(), "grants");
+					}
+				} else {
+					graph.removeNode(nodes.remove(1 + random.nextInt(nodes.size() - 1)));
+				}
+			}
+			File indexFile = File.createTempFile("reachability-", ".idx");
+			try {
+				reachabilityIndex.save(indexFile);
+				reachabilityIndex.close();
+				ReachabilityIndex loadedIndex = ReachabilityIndex.load(graph, indexFile);
+				nodes.get(0).link(nodes.get(nodes.size() - 1), "grants");
+				for (Node startNode : nodes) {
+					for (Node endNode : nodes) {
+						assertEquals("Reachable after Loading", shortestPathFinder.findShortestPath(startNode, endNode) != null, loadedIndex.canReach(startNode, endNode));
+					}
+				}
+				loadedIndex.close();
+			} finally {
+				indexFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Tests that a degree tracker follows the in-degrees of the nodes while
+	 * the graph changes.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testDegreeTracker() throws GraphException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			Random random = new Random(17);
+			List<Node> nodes = new ArrayList<Node>();
+			nodes.add(graph.getRootNode());
+			for (int index = 1; index < 40; ++index) {
+				nodes.add(graph.createNode());
+			}
+			for (int index = 0; index < 100; ++index) {
+				nodes.get(random.nextInt(nodes.size())).link(nodes.get(random.nextInt(1 + random.nextInt(nodes.size()))), "follows");
+			}
+			DegreeTracker exactTracker = DegreeTracker.create(graph);
+			for (int round = 0; round < 200; ++round) {
+				int operation = random.nextInt(10);
+				if (operation < 7) {
+					nodes.get(random.nextInt(nodes.size())).link(nodes.get(random.nextInt(1 + random.nextInt(nodes.size()))), "follows");
+				} else if (operation < 9) {
+					Node startNode = nodes.get(random.nextInt(nodes.size()));
+					Set<Edge> edges = startNode.getOutgoingLinks("follows");
+					if (!edges.isEmpty()) {
+						startNode.unlink(edges.iterator().next().getEndNode(), "follows");
+					}
+				} else {
+					graph.removeNode(nodes.remove(1 + random.nextInt(nodes.size() - 1)));
+				}
+			}
+			DegreeTracker limitedTracker = DegreeTracker.create(graph, 10);
+			for (int index = 0; index < 100; ++index) {
+				nodes.get(random.nextInt(nodes.size())).link(nodes.get(random.nextInt(1 + random.nextInt(nodes.size()))), "follows");
+			}
+			int previousDegree = Integer.MAX_VALUE;
+			List<DegreeCount> topNodes = exactTracker.getTopNodes("follows", nodes.size());
+			for (DegreeCount degreeCount : topNodes) {
+				assertTrue("Sorted", degreeCount.getDegree() <= previousDegree);
+				assertEquals("Error", 0, degreeCount.getError());
+				previousDegree = degreeCount.getDegree();
+			}
+			int nodesWithIncomingLinks = 0;
+			for (Node node : nodes) {
+				int degree = node.getIncomingLinks("follows").size();
+				assertEquals("Degree", degree, exactTracker.getDegree("follows", node.getId()));
+				if (degree > 0) {
+					++nodesWithIncomingLinks;
+				}
+			}
+			assertEquals("Tracked Nodes", nodesWithIncomingLinks, topNodes.size());
+			assertEquals("Relationships", Collections.singleton("follows"), exactTracker.getRelationships());
+			List<DegreeCount> limitedTopNodes = limitedTracker.getTopNodes("follows", 3);
+			assertEquals("Limited Top Nodes", 3, limitedTopNodes.size());
+			assertEquals("Highest Degree", topNodes.get(0).getDegree(), limitedTopNodes.get(0).getDegree());
+			for (DegreeCount degreeCount : limitedTopNodes) {
+				int degree = exactTracker.getDegree("follows", degreeCount.getNodeId());
+				assertTrue("Limited Degree", (degreeCount.getDegree() >= degree) && ((degreeCount.getDegree() - degreeCount.getError()) <= degree));
+			}
+			exactTracker.close();
+			limitedTracker.close();
+		}
+	}
+
+	/**
+	 * Tests that a component tracker agrees with the weakly connected
+	 * components of the graph while the graph changes.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testComponentTracker() throws GraphException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			Random random = new Random(23);
+			List<Node> nodes = new ArrayList<Node>();
+			nodes.add(graph.getRootNode());
+			for (int index = 1; index < 30; ++index) {
+				nodes.add(graph.createNode());
+			}
+			for (int index = 0; index < 15; ++index) {
+				nodes.get(random.nextInt(nodes.size())).link(nodes.get(random.nextInt(nodes.size())), "connects");
+			}
+			nodes.get(1).link(nodes.get(2), "other");
+			ComponentTracker componentTracker = ComponentTracker.create(graph, Arrays.asList("connects"));
+			for (int round = 0; round < 60; ++round) {
+				Components components = new ConnectedComponents(AdjacencySnapshot.create(graph, "connects")).computeWeak();
+				assertEquals("Component Count", components.getComponentCount(), componentTracker.getComponentCount());
+				for (Node firstNode : nodes) {
+					for (Node secondNode : nodes) {
+						assertEquals("Connected", components.getComponentById(firstNode.getId()) == components.getComponentById(secondNode.getId()), componentTracker.isConnected(firstNode, secondNode));
+					}
+					assertEquals("Component Size", components.getComponentSizes()[components.getComponentById(firstNode.getId())], componentTracker.getComponentSize(firstNode.getId()));
+				}
+				int operation = random.nextInt(10);
+				if (operation < 5) {
+					nodes.get(random.nextInt(nodes.size())).link(nodes.get(random.nextInt(nodes.size())), "connects");
+				} else if (operation < 6) {
+					nodes.add(graph.createNode());
+				} else if (operation < 9) {
+					Node startNode = nodes.get(random.nextInt(nodes.size()));
+					Set<Edge> edges = startNode.getOutgoingLinks("connects");
+					if (!edges.isEmpty()) {
+						startNode.unlink(edges.iterator().next().getEndNode(), "connects");
+					}
+				} else {
+					graph.removeNode(nodes.remove(1 + random.nextInt(nodes.size() - 1)));
+				}
+			}
+			assertTrue("Rebuilt", componentTracker.getRebuildCount() > 0);
+			componentTracker.close();
+		}
+	}
+
+	/**
+	 * Tests that a topological order rejects exactly the edges that would
+	 * create a cycle, and that it stays valid while the graph changes.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testTopologicalOrder() throws GraphException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			Random random = new Random(5);
+			List<Node> nodes = new ArrayList<Node>();
+			nodes.add(graph.getRootNode());
+			for (int index = 1; index < 25; ++index) {
+				nodes.add(graph.createNode());
+			}
+			for (int index = 0; index < nodes.size() - 1; ++index) {
+				nodes.get(index).link(nodes.get(index + 1), "depends_on");
+			}
+			nodes.get(5).link(nodes.get(2), "other");
+			TopologicalOrder topologicalOrder = TopologicalOrder.create(graph, "depends_on");
+			ShortestPathFinder shortestPathFinder = new ShortestPathFinder(graph).follow("depends_on");
+			int rejectedEdges = 0;
+			for (int round = 0; round < 150; ++round) {
+				int operation = random.nextInt(10);
+				if (operation < 6) {
+					Node startNode = nodes.get(random.nextInt(nodes.size()));
+					Node endNode = nodes.get(random.nextInt(nodes.size()));
+					boolean createsCycle = shortestPathFinder.findShortestPath(endNode, startNode) != null;
+					try {
+						startNode.link(endNode, "depends_on");
+						assertFalse("Cycle", createsCycle);
+					} catch (CycleException ce1) {
+						assertTrue("No Cycle", createsCycle);
+						assertEquals("Start Node", startNode.getId(), ce1.getStartNodeId());
+						++rejectedEdges;
+					}
+				} else if (operation < 7) {
+					nodes.add(graph.createNode());
+				} else if (operation < 9) {
+					Node startNode = nodes.get(random.nextInt(nodes.size()));
+					Set<Edge> edges = startNode.getOutgoingLinks("depends_on");
+					if (!edges.isEmpty()) {
+						startNode.unlink(edges.iterator().next().getEndNode(), "depends_on");
+					}
+				} else {
+					graph.removeNode(nodes.remove(1 + random.nextInt(nodes.size() - 1)));
+				}
+				long[] nodeIds = topologicalOrder.getNodeIds();
+				assertEquals("Node Count", nodes.size(), nodeIds.length);
+				List<Long> orderedNodeIds = new ArrayList<Long>();
+				for (long nodeId : nodeIds) {
+					orderedNodeIds.add(nodeId);
+				}
+				for (Node node : nodes) {
+					for (Edge edge : node.getOutgoingLinks("depends_on")) {
+						assertTrue("Ordered", orderedNodeIds.indexOf(node.getId()) < orderedNodeIds.indexOf(edge.getEndNode().getId()));
+						assertTrue("Before", topologicalOrder.isBefore(node.getId(), edge.getEndNode().getId()));
+					}
+				}
+			}
+			assertTrue("Rejected Edges", rejectedEdges > 0);
+			topologicalOrder.close();
+			Node firstNode = graph.createNode();
+			Node secondNode = graph.createNode();
+			firstNode.link(secondNode, "depends_on");
+			secondNode.link(firstNode, "depends_on");
+			try {
+				TopologicalOrder.create(graph, "depends_on");
+				fail("Cycle not detected");
+			} catch (CycleException ce1) {
+				/* expected. */
+			}
+		}
+	}
+
+	/**
+	 * Tests that a topological order forgets an edge that is rejected by a
+	 * later validator, and that it keeps an edge that is linked again.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testTopologicalOrderReleasesRejectedEdges() throws GraphException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			Node firstNode = graph.createNode();
+			final Node secondNode = graph.createNode();
+			TopologicalOrder topologicalOrder = TopologicalOrder.create(graph, "depends_on");
+			EdgeValidator edgeValidator = new EdgeValidator() {
+
+				@Override
+				public void validateEdge(Node startNode, Node endNode, Relationship relationship) throws GraphException {
+					if (endNode.getId() == secondNode.getId()) {
+						throw new GraphException("Rejected.");
+					}
+				}
+
+				@Override
+				public void edgeNotCreated(Node startNode, Node endNode, Relationship relationship) {
+					/* nothing to release. */
+				}
+
+			};
+			graph.addEdgeValidator(edgeValidator);
+			try {
+				firstNode.link(secondNode, "depends_on");
+				fail("Edge not rejected");
+			} catch (GraphException ge1) {
+				/* expected. */
+			}
+			graph.removeEdgeValidator(edgeValidator);
+			secondNode.link(firstNode, "depends_on");
+			assertTrue("Before", topologicalOrder.isBefore(secondNode.getId(), firstNode.getId()));
+			assertFalse("Linked Again", secondNode.link(firstNode, "depends_on"));
+			try {
+				firstNode.link(secondNode, "depends_on");
+				fail("Cycle not detected");
+			} catch (CycleException ce1) {
+				/* expected. */
+			}
+			topologicalOrder.close();
+		}
+	}
+
+	/**
+	 * Tests that {@link Graph#findNodes(String, Object)} returns the same
+	 * nodes with and without an index, and that an index follows property
+	 * changes and node removals.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testPropertyIndex() throws GraphException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			final List<String> events = new ArrayList<String>();
+			graph.addGraphListener(new GraphAdapter() {
+
+				@Override
+				public void propertyChanged(Node node, String key, Object oldValue, Object newValue) {
+					events.add(node.getId() + key + oldValue + "=" + newValue);
+				}
+
+			});
+			Random random = new Random(7);
+			List<Node> nodes = new ArrayList<Node>();
+			for (int index = 0; index < 30; ++index) {
+				Node node = graph.createNode();
+				node.set("colour", "c" + random.nextInt(4));
+				nodes.add(node);
+			}
+			Set<Node> scannedNodes = graph.findNodes("colour", "c1");
+			graph.createIndex("colour");
+			assertEquals("Indexed Keys", Collections.singleton("colour"), graph.getIndexedKeys());
+			assertEquals("Indexed Nodes", scannedNodes, graph.findNodes("colour", "c1"));
+			for (int round = 0; round < 60; ++round) {
+				Node node = nodes.get(random.nextInt(nodes.size()));
+				int operation = random.nextInt(6);
+				if (operation < 4) {
+					node.set("colour", "c" + random.nextInt(4));
+				} else if (operation < 5) {
+					node.set("colour", null);
+				} else {
+					graph.removeNode(node);
+					nodes.remove(node);
+				}
+				for (int colour = 0; colour < 4; ++colour) {
+					Set<Node> expectedNodes = new HashSet<Node>();
+					for (Node existingNode : nodes) {
+						if (("c" + colour).equals(existingNode.get("colour"))) {
+							expectedNodes.add(existingNode);
+						}
+					}
+					assertEquals("Nodes", expectedNodes, graph.findNodes("colour", "c" + colour));
+				}
+			}
+			Node node = nodes.get(0);
+			Object oldColour = node.get("colour");
+			events.clear();
+			node.set("colour", "red");
+			assertEquals("Events", Arrays.asList(node.getId() + "colour" + oldColour + "=red"), events);
+			assertEquals("Red Nodes", Collections.singleton(node), graph.findNodes("colour", "red"));
+			graph.dropIndex("colour");
+			assertTrue("No Indexed Keys", graph.getIndexedKeys().isEmpty());
+			assertEquals("Scanned Red Nodes", Collections.singleton(node), graph.findNodes("colour", "red"));
+		}
+	}
+
+	/**
+	 * Tests that a statistics catalog that follows changes of the graph has
+	 * the same statistics as a catalog that is created from scratch, that it
+	 * survives saving and loading, and that it is rebuilt when it is loaded
+	 * with a different modification stamp.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 * @throws IOException
+	 *             if the catalog can not be saved
+	 */
+	public void testStatisticsCatalog() throws GraphException, IOException {
+		for (Store store : getStores()) {
+			Graph graph = store.getGraph();
+			Random random = new Random(11);
+			List<Node> nodes = new ArrayList<Node>();
+			for (int index = 0; index < 20; ++index) {
+				nodes.add(graph.createNode().set("name", "n" + index));
+			}
+			for (int index = 0; index < 30; ++index) {
+				nodes.get(random.nextInt(nodes.size())).link(nodes.get(random.nextInt(nodes.size())), "knows");
+			}
+			StatisticsCatalog statisticsCatalog = StatisticsCatalog.create(graph);
+			for (int round = 0; round < 80; ++round) {
+				Node node = nodes.get(random.nextInt(nodes.size()));
+				String relationship = random.nextBoolean() ? "knows" : "likes";
+				int operation = random.nextInt(10);
+				if (operation < 4) {
+					node.link(nodes.get(random.nextInt(nodes.size())), relationship);
+				} else if (operation < 6) {
+					Set<Edge> edges = node.getOutgoingLinks(relationship);
+					if (!edges.isEmpty()) {
+						node.unlink(edges.iterator().next().getEndNode(), relationship);
+					}
+				} else if (operation < 8) {
+					node.set("age", random.nextBoolean() ? Integer.valueOf(random.nextInt(50)) : null);
+				} else if (operation < 9) {
+					nodes.add(graph.createNode());
+				} else if (node != graph.getRootNode()) {
+					graph.removeNode(node);
+					nodes.remove(node);
+				}
+				verifyStatisticsCatalog(statisticsCatalog, StatisticsCatalog.create(graph), graph);
+			}
+			File catalogFile = File.createTempFile("statistics-", ".cat");
+			try {
+				statisticsCatalog.save(catalogFile, 0);
+				statisticsCatalog.close();
+				StatisticsCatalog loadedCatalog = StatisticsCatalog.load(graph, catalogFile, 0);
+				nodes.get(0).link(nodes.get(nodes.size() - 1), "likes");
+				verifyStatisticsCatalog(loadedCatalog, StatisticsCatalog.create(graph), graph);
+				loadedCatalog.close();
+				nodes.get(nodes.size() - 1).link(nodes.get(0), "likes");
+				StatisticsCatalog rebuiltCatalog = StatisticsCatalog.load(graph, catalogFile, 1);
+				verifyStatisticsCatalog(rebuiltCatalog, StatisticsCatalog.create(graph), graph);
+				rebuiltCatalog.close();
+			} finally {
+				catalogFile.delete();
+			}
+		}
+	}
+
 	//
 	// PROTECTED
 	//
@@ -173,4 +780,38 @@ public class StoreTest extends TestCase {
 		return Collections.emptyList();
 	}
 
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Verifies that the given statistics catalog has the same statistics as
+	 * the expected catalog and as freshly collected degree statistics.
+	 *
+	 * @param statisticsCatalog
+	 *            The catalog to verify
+	 * @param expectedCatalog
+	 *            The expected catalog, which is closed afterwards
+	 * @param graph
+	 *            The graph of the catalogs
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	private static void verifyStatisticsCatalog(StatisticsCatalog statisticsCatalog, StatisticsCatalog expectedCatalog, Graph graph) throws GraphException {
+		expectedCatalog.close();
+		CollectedDegreeStatistics degreeStatistics = CollectedDegreeStatistics.collect(graph);
+		assertEquals("Node Count", degreeStatistics.getNodeCount(), statisticsCatalog.getNodeCount());
+		for (String relationship : Arrays.asList("knows", "likes")) {
+			assertEquals("Edge Count", degreeStatistics.getEdgeCount(relationship), statisticsCatalog.getEdgeCount(relationship));
+			assertEquals("Start Node Count", degreeStatistics.getStartNodeCount(relationship), statisticsCatalog.getStartNodeCount(relationship));
+			assertEquals("End Node Count", degreeStatistics.getEndNodeCount(relationship), statisticsCatalog.getEndNodeCount(relationship));
+			assertTrue("Out-Degree Histogram", Arrays.equals(expectedCatalog.getOutDegreeHistogram(relationship), statisticsCatalog.getOutDegreeHistogram(relationship)));
+			assertTrue("In-Degree Histogram", Arrays.equals(expectedCatalog.getInDegreeHistogram(relationship), statisticsCatalog.getInDegreeHistogram(relationship)));
+		}
+		assertEquals("Property Keys", expectedCatalog.getPropertyKeys(), statisticsCatalog.getPropertyKeys());
+		for (String key : expectedCatalog.getPropertyKeys()) {
+			assertEquals("Property Count", expectedCatalog.getPropertyCount(key), statisticsCatalog.getPropertyCount(key));
+		}
+	}
+
 }
@@ -0,0 +1,133 @@
+/*
+ * utils.graph - ConnectedComponentsTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+
+/**
+ * Tests {@link ConnectedComponents}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class ConnectedComponentsTest extends TestCase {
+
+	/**
+	 * Tests the weakly connected components of a graph with a known number of
+	 * components, and that the result does not depend on the number of
+	 * threads.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testWeakComponents() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node[] nodes = new Node[20000];
+		nodes[0] = graph.getRootNode();
+		for (int index = 1; index < nodes.length; ++index) {
+			nodes[index] = graph.createNode();
+		}
+		/* 100 chains of 200 nodes, with alternating directions. */
+		Random random = new Random(39);
+		for (int index = 0; index < nodes.length; ++index) {
+			if ((index % 200) == 199) {
+				continue;
+			}
+			if (random.nextBoolean()) {
+				nodes[index].link(nodes[index + 1], "link");
+			} else {
+				nodes[index + 1].link(nodes[index], "link");
+			}
+		}
+		nodes[0].link(nodes[0], "link");
+		nodes[5].link(nodes[0], "other");
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph, "link");
+		Components singleThreadedComponents = new ConnectedComponents(snapshot).setThreadCount(1).computeWeak();
+		Components multiThreadedComponents = new ConnectedComponents(snapshot).setThreadCount(4).computeWeak();
+		assertEquals("Component Count", 100, singleThreadedComponents.getComponentCount());
+		assertTrue("Same Components", Arrays.equals(singleThreadedComponents.getComponents(), multiThreadedComponents.getComponents()));
+		for (int index = 0; index < nodes.length; ++index) {
+			assertEquals("Component of " + index, singleThreadedComponents.getComponentById(nodes[index - (index % 200)].getId()), singleThreadedComponents.getComponentById(nodes[index].getId()));
+		}
+		int[] componentSizes = singleThreadedComponents.getComponentSizes();
+		for (int componentSize : componentSizes) {
+			assertEquals("Component Size", 200, componentSize);
+		}
+	}
+
+	/**
+	 * Tests the strongly connected components of a small graph.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testStrongComponents() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node[] nodes = new Node[6];
+		nodes[0] = graph.getRootNode();
+		for (int index = 1; index < nodes.length; ++index) {
+			nodes[index] = graph.createNode();
+		}
+		/* cycle 0-1-2, cycle 3-4, and 5 alone. */
+		nodes[0].link(nodes[1], "link");
+		nodes[1].link(nodes[2], "link");
+		nodes[2].link(nodes[0], "link");
+		nodes[2].link(nodes[3], "link");
+		nodes[3].link(nodes[4], "link");
+		nodes[4].link(nodes[3], "link");
+		nodes[4].link(nodes[5], "link");
+		Components components = new ConnectedComponents(AdjacencySnapshot.create(graph)).computeStrong();
+		assertEquals("Component Count", 3, components.getComponentCount());
+		int firstComponent = components.getComponentById(nodes[0].getId());
+		assertEquals("Component of 1", firstComponent, components.getComponentById(nodes[1].getId()));
+		assertEquals("Component of 2", firstComponent, components.getComponentById(nodes[2].getId()));
+		int secondComponent = components.getComponentById(nodes[3].getId());
+		assertEquals("Component of 4", secondComponent, components.getComponentById(nodes[4].getId()));
+		int thirdComponent = components.getComponentById(nodes[5].getId());
+		/* reverse topological order. */
+		assertTrue("Order", (thirdComponent < secondComponent) && (secondComponent < firstComponent));
+	}
+
+	/**
+	 * Tests that a long chain does not overflow the stack when computing
+	 * strongly connected components.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testStrongComponentsOfLongCycle() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node firstNode = graph.getRootNode();
+		Node node = firstNode;
+		for (int index = 1; index < 100000; ++index) {
+			Node nextNode = graph.createNode();
+			node.link(nextNode, "next");
+			node = nextNode;
+		}
+		node.link(firstNode, "next");
+		Components components = new ConnectedComponents(AdjacencySnapshot.create(graph)).computeStrong();
+		assertEquals("Component Count", 1, components.getComponentCount());
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * utils.graph - NeighbourhoodFunctionTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+
+/**
+ * Tests {@link NeighbourhoodFunction}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class NeighbourhoodFunctionTest extends TestCase {
+
+	/**
+	 * Tests the estimates for a star whose leaves form a chain: the center
+	 * reaches all nodes within one hop, the first leaf of the chain reaches
+	 * one more node with every hop.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testStarAndChain() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node center = graph.getRootNode();
+		Node[] leaves = new Node[2000];
+		for (int index = 0; index < leaves.length; ++index) {
+			leaves[index] = graph.createNode();
+			center.link(leaves[index], "link");
+			if (index > 0) {
+				leaves[index - 1].link(leaves[index], "link");
+			}
+		}
+		for (int precision = 6; precision <= 10; precision += 4) {
+			NeighbourhoodSizes neighbourhoodSizes = new NeighbourhoodFunction(AdjacencySnapshot.create(graph)).setThreadCount(3).setPrecision(precision).compute(50);
+			double tolerance = 4 * neighbourhoodSizes.getRelativeStandardError();
+			assertEquals("Maximum Hops", 50, neighbourhoodSizes.getMaxHops());
+			assertEquals("Center, 0 Hops", 1, neighbourhoodSizes.getNeighbourhoodSizeById(center.getId(), 0), 0);
+			assertEquals("Center, 1 Hop", 2001, neighbourhoodSizes.getNeighbourhoodSizeById(center.getId(), 1), 2001 * tolerance);
+			assertEquals("Center, 50 Hops", 2001, neighbourhoodSizes.getNeighbourhoodSizeById(center.getId(), 50), 2001 * tolerance);
+			for (int hops = 0; hops <= 50; hops += 10) {
+				assertEquals("Leaf, " + hops + " Hops", hops + 1, neighbourhoodSizes.getNeighbourhoodSizeById(leaves[0].getId(), hops), (hops + 1) * tolerance);
+			}
+			assertEquals("Last Leaf, 50 Hops", 1, neighbourhoodSizes.getNeighbourhoodSizeById(leaves[leaves.length - 1].getId(), 50), 0.1);
+		}
+	}
+
+	/**
+	 * Tests that the estimates for more hops than the diameter of the graph
+	 * are the same as for the diameter.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testConvergence() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node firstNode = graph.getRootNode();
+		Node node = firstNode;
+		for (int index = 1; index < 10; ++index) {
+			Node nextNode = graph.createNode();
+			node.link(nextNode, "next");
+			node = nextNode;
+		}
+		node.link(firstNode, "next");
+		NeighbourhoodSizes neighbourhoodSizes = new NeighbourhoodFunction(AdjacencySnapshot.create(graph)).compute(100);
+		assertEquals("Reachable Pairs", neighbourhoodSizes.getReachablePairs(9), neighbourhoodSizes.getReachablePairs(100), 0);
+		assertEquals("Cycle Size", 10, neighbourhoodSizes.getNeighbourhoodSize(0, 100), 10 * 4 * neighbourhoodSizes.getRelativeStandardError());
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * utils.graph - PageRankTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+
+/**
+ * Tests {@link PageRank} and {@link Hits}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class PageRankTest extends TestCase {
+
+	/**
+	 * Tests that all nodes of a cycle have the same rank, and that the scores
+	 * can be written back to the graph.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testCycle() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node firstNode = graph.getRootNode();
+		Node secondNode = graph.createNode();
+		Node thirdNode = graph.createNode();
+		firstNode.link(secondNode, "link");
+		secondNode.link(thirdNode, "link");
+		thirdNode.link(firstNode, "link");
+		NodeScores scores = new PageRank(AdjacencySnapshot.create(graph, "link")).compute();
+		for (int index = 0; index < 3; ++index) {
+			assertEquals("Rank", 1.0 / 3, scores.getScore(index), 1e-9);
+		}
+		scores.writeTo(graph, "rank");
+		assertEquals("Written Rank", 1.0 / 3, ((Double) secondNode.get("rank")).doubleValue(), 1e-9);
+	}
+
+	/**
+	 * Tests that the ranks add up to 1, that a node with many incoming edges
+	 * has the highest rank, and that the result does not depend on the
+	 * number of threads.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testRandomGraph() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node[] nodes = new Node[3000];
+		nodes[0] = graph.getRootNode();
+		for (int index = 1; index < nodes.length; ++index) {
+			nodes[index] = graph.createNode();
+		}
+		Random random = new Random(38);
+		for (int edge = 0; edge < 10000; ++edge) {
+			nodes[random.nextInt(nodes.length)].link(nodes[random.nextInt(nodes.length)], "link");
+		}
+		for (int index = 1; index < 500; ++index) {
+			nodes[index].link(nodes[0], "link");
+		}
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph);
+		NodeScores singleThreadedScores = new PageRank(snapshot).setThreadCount(1).compute();
+		NodeScores multiThreadedScores = new PageRank(snapshot).setThreadCount(4).compute();
+		double sum = 0;
+		double maximum = 0;
+		for (int index = 0; index < snapshot.getNodeCount(); ++index) {
+			sum += singleThreadedScores.getScore(index);
+			maximum = Math.max(maximum, singleThreadedScores.getScore(index));
+			assertEquals("Rank of " + index, singleThreadedScores.getScore(index), multiThreadedScores.getScore(index), 1e-12);
+		}
+		assertEquals("Sum of Ranks", 1, sum, 1e-9);
+		assertEquals("Highest Rank", maximum, singleThreadedScores.getScoreById(nodes[0].getId()));
+		assertTrue("Iterations", singleThreadedScores.getIterations() < 100);
+	}
+
+	/**
+	 * Tests that personalized PageRank only ranks nodes that can be reached
+	 * from the source node.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testPersonalized() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node sourceNode = graph.getRootNode();
+		Node reachableNode = graph.createNode();
+		Node unreachableNode = graph.createNode();
+		sourceNode.link(reachableNode, "link");
+		unreachableNode.link(sourceNode, "link");
+		NodeScores scores = new PageRank(AdjacencySnapshot.create(graph)).computePersonalized(Arrays.asList(sourceNode));
+		assertEquals("Unreachable Rank", 0, scores.getScoreById(unreachableNode.getId()), 1e-12);
+		assertTrue("Source Rank", scores.getScoreById(sourceNode.getId()) > scores.getScoreById(reachableNode.getId()));
+		assertEquals("Sum of Ranks", 1, scores.getScoreById(sourceNode.getId()) + scores.getScoreById(reachableNode.getId()), 1e-9);
+	}
+
+	/**
+	 * Tests the hub and authority scores of a small bipartite graph.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testHits() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node firstHub = graph.getRootNode();
+		Node secondHub = graph.createNode();
+		Node firstAuthority = graph.createNode();
+		Node secondAuthority = graph.createNode();
+		firstHub.link(firstAuthority, "link");
+		firstHub.link(secondAuthority, "link");
+		secondHub.link(firstAuthority, "link");
+		HitsResult result = new Hits(AdjacencySnapshot.create(graph)).setThreadCount(2).compute();
+		NodeScores hubScores = result.getHubScores();
+		NodeScores authorityScores = result.getAuthorityScores();
+		assertTrue("Hubs", hubScores.getScoreById(firstHub.getId()) > hubScores.getScoreById(secondHub.getId()));
+		assertEquals("Authority Hub Score", 0, hubScores.getScoreById(firstAuthority.getId()), 1e-12);
+		assertTrue("Authorities", authorityScores.getScoreById(firstAuthority.getId()) > authorityScores.getScoreById(secondAuthority.getId()));
+		assertEquals("Hub Authority Score", 0, authorityScores.getScoreById(firstHub.getId()), 1e-12);
+		double squares = 0;
+		for (double score : authorityScores.getScores()) {
+			squares += score * score;
+		}
+		assertEquals("Authority Norm", 1, squares, 1e-9);
+	}
+
+}
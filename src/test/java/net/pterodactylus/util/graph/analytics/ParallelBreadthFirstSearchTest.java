@@ -0,0 +1,143 @@
+/*
+ * utils.graph - ParallelBreadthFirstSearchTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+import net.pterodactylus.util.graph.traversal.Direction;
+import net.pterodactylus.util.graph.traversal.Traversal;
+import net.pterodactylus.util.graph.traversal.TraversalIterator;
+
+/**
+ * Tests the {@link AdjacencySnapshot} and the
+ * {@link ParallelBreadthFirstSearch}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class ParallelBreadthFirstSearchTest extends TestCase {
+
+	/** The graph. */
+	private Graph graph;
+
+	/** The nodes of the graph. */
+	private final List<Node> nodes = new ArrayList<Node>();
+
+	/**
+	 * Creates a random graph with 5000 nodes and 20000 edges.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		graph = new MemoryStore().getGraph();
+		nodes.add(graph.getRootNode());
+		for (int index = 1; index < 5000; ++index) {
+			nodes.add(graph.createNode());
+		}
+		Random random = new Random(36);
+		for (int edge = 0; edge < 20000; ++edge) {
+			nodes.get(random.nextInt(nodes.size())).link(nodes.get(random.nextInt(nodes.size())), (edge % 2 == 0) ? "even" : "odd");
+		}
+	}
+
+	/**
+	 * Tests that the snapshot contains all nodes and edges with the correct
+	 * degrees.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testSnapshot() throws GraphException {
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph);
+		assertEquals("Node Count", 5000, snapshot.getNodeCount());
+		long edgeCount = 0;
+		for (Node node : nodes) {
+			int index = snapshot.getIndex(node.getId());
+			assertEquals("Node ID", node.getId(), snapshot.getNodeId(index));
+			int outDegree = node.getOutgoingLinks("even").size() + node.getOutgoingLinks("odd").size();
+			int inDegree = node.getIncomingLinks("even").size() + node.getIncomingLinks("odd").size();
+			assertEquals("Out-Degree", outDegree, snapshot.getOutDegree(index));
+			assertEquals("In-Degree", inDegree, snapshot.getInDegree(index));
+			edgeCount += outDegree;
+		}
+		assertEquals("Edge Count", edgeCount, snapshot.getEdgeCount());
+		assertEquals("Unknown Node", -1, snapshot.getIndex(-1));
+		AdjacencySnapshot evenSnapshot = AdjacencySnapshot.create(graph, Collections.singleton(graph.getRelationship("even")));
+		assertTrue("Even Edge Count", evenSnapshot.getEdgeCount() < snapshot.getEdgeCount());
+	}
+
+	/**
+	 * Tests that the parallel search finds the same distances as a sequential
+	 * breadth-first traversal, and that it uses bottom-up steps.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testDistances() throws GraphException {
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph);
+		TraversalIterator traversalIterator = Traversal.breadthFirst(graph.getRootNode()).follow("even", Direction.OUTGOING).follow("odd", Direction.OUTGOING).iterator();
+		int[] expectedDistances = new int[snapshot.getNodeCount()];
+		Arrays.fill(expectedDistances, -1);
+		int reachedNodes = 0;
+		while (traversalIterator.hasNext()) {
+			Node node = traversalIterator.next();
+			expectedDistances[snapshot.getIndex(node.getId())] = traversalIterator.getDepth();
+			++reachedNodes;
+		}
+		for (int threadCount = 1; threadCount <= 4; threadCount += 3) {
+			BreadthFirstSearchResult result = new ParallelBreadthFirstSearch(snapshot).setThreadCount(threadCount).search(graph.getRootNode());
+			for (int index = 0; index < snapshot.getNodeCount(); ++index) {
+				assertEquals("Distance of " + index, expectedDistances[index], result.getDistance(index));
+			}
+			assertEquals("Reached Nodes", reachedNodes, result.getReachedNodeCount());
+			assertEquals("Root Distance", 0, result.getDistanceById(graph.getRootNode().getId()));
+			assertTrue("Bottom-Up Levels", result.getBottomUpLevelCount() > 0);
+		}
+	}
+
+	/**
+	 * Tests the level sizes of a search on a long chain.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testChain() throws GraphException {
+		Graph chainGraph = new MemoryStore().getGraph();
+		Node node = chainGraph.getRootNode();
+		for (int index = 0; index < 199; ++index) {
+			Node nextNode = chainGraph.createNode();
+			node.link(nextNode, "next");
+			node = nextNode;
+		}
+		BreadthFirstSearchResult result = new ParallelBreadthFirstSearch(AdjacencySnapshot.create(chainGraph)).setThreadCount(2).search(chainGraph.getRootNode());
+		assertEquals("Level Count", 200, result.getLevelCount());
+		assertEquals("Last Level Size", 1, result.getLevelSize(199));
+		assertEquals("Last Distance", 199, result.getDistanceById(node.getId()));
+	}
+
+}
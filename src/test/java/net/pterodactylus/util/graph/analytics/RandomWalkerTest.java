@@ -0,0 +1,229 @@
+/*
+ * utils.graph - RandomWalkerTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+
+/**
+ * Tests {@link RandomWalker}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class RandomWalkerTest extends TestCase {
+
+	/**
+	 * Tests that walks follow outgoing edges, stop at nodes without outgoing
+	 * edges, and do not depend on the number of threads.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testUniformWalks() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node[] nodes = new Node[2000];
+		nodes[0] = graph.getRootNode();
+		for (int index = 1; index < nodes.length; ++index) {
+			nodes[index] = graph.createNode();
+			nodes[index].link(nodes[index / 2], "link");
+			nodes[index / 2].link(nodes[index], "link");
+		}
+		Node deadEnd = graph.createNode();
+		nodes[1].link(deadEnd, "link");
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph);
+		WalkBuffer singleThreaded = new WalkBuffer(snapshot.getNodeCount() * 3, 20);
+		assertEquals("Walks", snapshot.getNodeCount() * 3, new RandomWalker(snapshot).setThreadCount(1).setSeed(7).generate(3, 20, singleThreaded));
+		WalkBuffer multiThreaded = new WalkBuffer(snapshot.getNodeCount() * 3, 20);
+		new RandomWalker(snapshot).setThreadCount(4).setSeed(7).generate(3, 20, multiThreaded);
+		assertTrue("Same Walks", Arrays.equals(singleThreaded.getSteps(), multiThreaded.getSteps()));
+		int deadEndIndex = snapshot.getIndex(deadEnd.getId());
+		for (int walk = 0; walk < singleThreaded.getWalkCount(); ++walk) {
+			assertEquals("Start Node", walk % snapshot.getNodeCount(), singleThreaded.getStep(walk, 0));
+			for (int step = 1; step < singleThreaded.getWalkLength(); ++step) {
+				int previousNode = singleThreaded.getStep(walk, step - 1);
+				int node = singleThreaded.getStep(walk, step);
+				if ((previousNode == deadEndIndex) || (previousNode == -1)) {
+					assertEquals("Padding", -1, node);
+				} else {
+					assertTrue("Edge", isNeighbour(snapshot, previousNode, node));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that weighted walks choose neighbours in proportion to their
+	 * weights.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testWeightedWalks() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node center = graph.getRootNode();
+		Node[] leaves = new Node[4];
+		for (int index = 0; index < leaves.length; ++index) {
+			leaves[index] = graph.createNode().set("weight", index);
+			center.link(leaves[index], "link");
+			leaves[index].link(center, "link");
+		}
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph);
+		WalkBuffer walks = new WalkBuffer(snapshot.getNodeCount() * 2000, 3);
+		new RandomWalker(snapshot).setNodeWeights(graph, "weight", 1).generate(2000, 3, walks);
+		int[] counts = new int[snapshot.getNodeCount()];
+		int centerIndex = snapshot.getIndex(center.getId());
+		for (int walk = 0; walk < walks.getWalkCount(); ++walk) {
+			for (int step = 1; step < walks.getWalkLength(); ++step) {
+				if (walks.getStep(walk, step - 1) == centerIndex) {
+					++counts[walks.getStep(walk, step)];
+				}
+			}
+		}
+		int total = 0;
+		for (int count : counts) {
+			total += count;
+		}
+		assertEquals("Zero Weight", 0, counts[snapshot.getIndex(leaves[0].getId())]);
+		for (int index = 1; index < leaves.length; ++index) {
+			assertEquals("Leaf " + index, index / 6.0, (double) counts[snapshot.getIndex(leaves[index].getId())] / total, 0.02);
+		}
+	}
+
+	/**
+	 * Tests that the node2vec parameters change how often a walk returns to
+	 * the previous node.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testNode2VecWalks() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node[] nodes = new Node[100];
+		nodes[0] = graph.getRootNode();
+		for (int index = 1; index < nodes.length; ++index) {
+			nodes[index] = graph.createNode();
+		}
+		for (int index = 0; index < nodes.length; ++index) {
+			nodes[index].link(nodes[(index + 1) % nodes.length], "link");
+			nodes[(index + 1) % nodes.length].link(nodes[index], "link");
+		}
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph);
+		double uniformReturns = getReturnRate(new RandomWalker(snapshot), snapshot);
+		double frequentReturns = getReturnRate(new RandomWalker(snapshot).setReturnParameter(0.25), snapshot);
+		double rareReturns = getReturnRate(new RandomWalker(snapshot).setReturnParameter(4).setInOutParameter(0.5), snapshot);
+		assertEquals("Uniform Returns", 0.5, uniformReturns, 0.03);
+		assertEquals("Frequent Returns", 0.8, frequentReturns, 0.03);
+		assertEquals("Rare Returns", 1 / 9.0, rareReturns, 0.03);
+	}
+
+	/**
+	 * Tests that walks are written to a stream.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 * @throws IOException
+	 *             if the walks can not be read
+	 */
+	public void testWalkWriter() throws GraphException, IOException {
+		Graph graph = new MemoryStore().getGraph();
+		Node first = graph.getRootNode();
+		Node second = graph.createNode();
+		first.link(second, "link");
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		WalkWriter walkWriter = new WalkWriter(snapshot, outputStream);
+		new RandomWalker(snapshot).generate(1, 5, walkWriter);
+		walkWriter.flush();
+		assertEquals("Walks", 2, walkWriter.getWalkCount());
+		DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+		for (int walk = 0; walk < 2; ++walk) {
+			long startNodeId = snapshot.getNodeId(walk);
+			if (startNodeId == first.getId()) {
+				assertEquals("Length", 2, inputStream.readInt());
+				assertEquals("First Step", first.getId(), inputStream.readLong());
+				assertEquals("Second Step", second.getId(), inputStream.readLong());
+			} else {
+				assertEquals("Length", 1, inputStream.readInt());
+				assertEquals("First Step", second.getId(), inputStream.readLong());
+			}
+		}
+		assertEquals("End", -1, inputStream.read());
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns the fraction of steps that return to the node before the
+	 * previous node.
+	 *
+	 * @param randomWalker
+	 *            The random walker
+	 * @param snapshot
+	 *            The snapshot
+	 * @return The fraction of returning steps
+	 * @throws GraphException
+	 *             if the walks can not be generated
+	 */
+	private static double getReturnRate(RandomWalker randomWalker, AdjacencySnapshot snapshot) throws GraphException {
+		WalkBuffer walks = new WalkBuffer(snapshot.getNodeCount() * 20, 50);
+		randomWalker.generate(20, 50, walks);
+		int returns = 0;
+		int steps = 0;
+		for (int walk = 0; walk < walks.getWalkCount(); ++walk) {
+			for (int step = 2; step < walks.getWalkLength(); ++step) {
+				if (walks.getStep(walk, step) == walks.getStep(walk, step - 2)) {
+					++returns;
+				}
+				++steps;
+			}
+		}
+		return (double) returns / steps;
+	}
+
+	/**
+	 * Returns whether there is an edge between the given nodes.
+	 *
+	 * @param snapshot
+	 *            The snapshot
+	 * @param node
+	 *            The start node index
+	 * @param neighbour
+	 *            The end node index
+	 * @return {@code true} if there is an edge, {@code false} otherwise
+	 */
+	private static boolean isNeighbour(AdjacencySnapshot snapshot, int node, int neighbour) {
+		for (int position = 0; position < snapshot.getOutDegree(node); ++position) {
+			if (snapshot.getOutgoingNeighbour(node, position) == neighbour) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
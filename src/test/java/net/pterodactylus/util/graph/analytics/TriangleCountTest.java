@@ -0,0 +1,117 @@
+/*
+ * utils.graph - TriangleCountTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.analytics;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+
+/**
+ * Tests {@link TriangleCount}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class TriangleCountTest extends TestCase {
+
+	/**
+	 * Tests the triangles of a complete graph with four nodes that has edges
+	 * in both directions, a duplicate edge, and a self-loop, plus one node
+	 * that is only linked to one node of the complete graph.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testCompleteGraph() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node[] nodes = new Node[5];
+		nodes[0] = graph.getRootNode();
+		for (int index = 1; index < nodes.length; ++index) {
+			nodes[index] = graph.createNode();
+		}
+		for (int first = 0; first < 4; ++first) {
+			for (int second = 0; second < 4; ++second) {
+				if (first != second) {
+					nodes[first].link(nodes[second], "link");
+				}
+			}
+		}
+		nodes[0].link(nodes[1], "other");
+		nodes[2].link(nodes[2], "link");
+		nodes[4].link(nodes[0], "link");
+		TriangleCounts triangleCounts = new TriangleCount(AdjacencySnapshot.create(graph)).compute();
+		assertEquals("Triangles", 4, triangleCounts.getTriangleCount());
+		assertEquals("Triangles of 0", 3, triangleCounts.getTriangleCountById(nodes[0].getId()));
+		assertEquals("Triangles of 2", 3, triangleCounts.getTriangleCountById(nodes[2].getId()));
+		assertEquals("Triangles of 4", 0, triangleCounts.getTriangleCountById(nodes[4].getId()));
+		assertEquals("Clustering of 0", 0.5, triangleCounts.getClusteringCoefficientById(nodes[0].getId()), 1e-12);
+		assertEquals("Clustering of 1", 1, triangleCounts.getClusteringCoefficientById(nodes[1].getId()), 1e-12);
+		assertEquals("Clustering of 4", 0, triangleCounts.getClusteringCoefficientById(nodes[4].getId()), 1e-12);
+		assertEquals("Average Clustering", 3.5 / 5, triangleCounts.getAverageClusteringCoefficient(), 1e-12);
+	}
+
+	/**
+	 * Compares the triangle counts of a random graph with a hub to counts
+	 * computed by checking all triples of nodes.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testRandomGraph() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node[] nodes = new Node[300];
+		nodes[0] = graph.getRootNode();
+		for (int index = 1; index < nodes.length; ++index) {
+			nodes[index] = graph.createNode();
+		}
+		boolean[][] linked = new boolean[nodes.length][nodes.length];
+		Random random = new Random(40);
+		for (int edge = 0; edge < 3000; ++edge) {
+			int first = random.nextInt(nodes.length);
+			int second = (edge < 250) ? 0 : random.nextInt(nodes.length);
+			nodes[first].link(nodes[second], "link");
+			linked[first][second] = linked[second][first] = (first != second);
+		}
+		long expectedTriangles = 0;
+		long[] expectedNodeTriangles = new long[nodes.length];
+		for (int first = 0; first < nodes.length; ++first) {
+			for (int second = first + 1; second < nodes.length; ++second) {
+				for (int third = second + 1; linked[first][second] && (third < nodes.length); ++third) {
+					if (linked[first][third] && linked[second][third]) {
+						++expectedTriangles;
+						++expectedNodeTriangles[first];
+						++expectedNodeTriangles[second];
+						++expectedNodeTriangles[third];
+					}
+				}
+			}
+		}
+		AdjacencySnapshot snapshot = AdjacencySnapshot.create(graph);
+		for (int threadCount = 1; threadCount <= 4; threadCount += 3) {
+			TriangleCounts triangleCounts = new TriangleCount(snapshot).setThreadCount(threadCount).compute();
+			assertEquals("Triangles", expectedTriangles, triangleCounts.getTriangleCount());
+			for (int index = 0; index < nodes.length; ++index) {
+				assertEquals("Triangles of " + index, expectedNodeTriangles[index], triangleCounts.getTriangleCountById(nodes[index].getId()));
+			}
+		}
+	}
+
+}
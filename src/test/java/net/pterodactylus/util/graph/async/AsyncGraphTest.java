@@ -0,0 +1,326 @@
+/*
+ * utils.graph - AsyncGraphTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+
+/**
+ * Tests the {@link AsyncGraph}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class AsyncGraphTest extends TestCase {
+
+	/**
+	 * Creates and links nodes asynchronously and verifies the links, both
+	 * through the returned futures and through a callback.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted
+	 * @throws ExecutionException
+	 *             if an operation fails
+	 */
+	public void testLinkingNodes() throws InterruptedException, ExecutionException {
+		MemoryStore store = new MemoryStore();
+		AsyncGraph asyncGraph = new AsyncGraph(store);
+		try {
+			Node rootNode = store.getGraph().getRootNode();
+			Node node = asyncGraph.createNodeAsync(null).get();
+			Future<Boolean> linked = asyncGraph.linkAsync(rootNode, node, "tests", null);
+			final AtomicReference<Set<Edge>> edges = new AtomicReference<Set<Edge>>();
+			final CountDownLatch callbackLatch = new CountDownLatch(1);
+			asyncGraph.getOutgoingLinksAsync(rootNode, "tests", new Callback<Set<Edge>>() {
+
+				@Override
+				public void completed(Set<Edge> result) {
+					edges.set(result);
+					callbackLatch.countDown();
+				}
+
+				@Override
+				public void failed(Throwable throwable) {
+					callbackLatch.countDown();
+				}
+
+			});
+			assertEquals("Linked", Boolean.TRUE, linked.get());
+			assertTrue("Callback", callbackLatch.await(10, TimeUnit.SECONDS));
+			assertNotNull("Edges", edges.get());
+			assertEquals("Edge Count", 1, edges.get().size());
+			assertEquals("End Node", node, edges.get().iterator().next().getEndNode());
+		} finally {
+			asyncGraph.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that an operation is rejected when the queue of its lane is full,
+	 * and that the queued operation is still executed.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void testFullQueueRejectsOperations() throws Exception {
+		MemoryStore store = new MemoryStore();
+		AsyncGraph asyncGraph = new AsyncGraph(store, 1, 1);
+		CountDownLatch releaseLatch = new CountDownLatch(1);
+		try {
+			Future<Node> blockingNode = blockLane(asyncGraph, releaseLatch);
+			Future<Node> queuedNode = asyncGraph.createNodeAsync(null);
+			Future<Node> rejectedNode = asyncGraph.createNodeAsync(null);
+			verifyRejected(rejectedNode);
+			releaseLatch.countDown();
+			assertNotNull("Blocking Node", blockingNode.get(10, TimeUnit.SECONDS));
+			assertNotNull("Queued Node", queuedNode.get(10, TimeUnit.SECONDS));
+		} finally {
+			releaseLatch.countDown();
+			asyncGraph.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that operations that are submitted after the facade has been shut
+	 * down are rejected, both through the future and through the callback.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void testSubmitAfterShutdown() throws Exception {
+		AsyncGraph asyncGraph = new AsyncGraph(new MemoryStore(), 2, 16);
+		asyncGraph.shutdown();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Future<Node> node = asyncGraph.createNodeAsync(new Callback<Node>() {
+
+			@Override
+			public void completed(Node result) {
+				/* not expected. */
+			}
+
+			@Override
+			public void failed(Throwable throwable) {
+				failure.set(throwable);
+			}
+
+		});
+		verifyRejected(node);
+		assertTrue("Callback Failure", failure.get() instanceof RejectedExecutionException);
+		asyncGraph.shutdown();
+	}
+
+	/**
+	 * Tests that operations that were queued before the facade was shut down
+	 * are still executed.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void testQueuedOperationsCompleteAfterShutdown() throws Exception {
+		MemoryStore store = new MemoryStore();
+		AsyncGraph asyncGraph = new AsyncGraph(store, 1, 64);
+		CountDownLatch releaseLatch = new CountDownLatch(1);
+		try {
+			blockLane(asyncGraph, releaseLatch);
+			Node rootNode = store.getGraph().getRootNode();
+			List<Future<Boolean>> links = new ArrayList<Future<Boolean>>();
+			for (int index = 0; index < 20; ++index) {
+				links.add(asyncGraph.linkAsync(rootNode, store.getGraph().createNode(), "tests", null));
+			}
+			asyncGraph.shutdown();
+			verifyRejected(asyncGraph.createNodeAsync(null));
+			releaseLatch.countDown();
+			for (Future<Boolean> link : links) {
+				assertEquals("Linked", Boolean.TRUE, link.get(10, TimeUnit.SECONDS));
+			}
+			assertEquals("Outgoing Links", 20, rootNode.getOutgoingLinks("tests").size());
+		} finally {
+			releaseLatch.countDown();
+		}
+	}
+
+	/**
+	 * Tests that a callback that throws an exception neither stops the lane
+	 * nor affects later operations on the same lane.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void testThrowingCallback() throws Exception {
+		MemoryStore store = new MemoryStore();
+		AsyncGraph asyncGraph = new AsyncGraph(store, 1, 16);
+		try {
+			Future<Node> completedNode = asyncGraph.createNodeAsync(new Callback<Node>() {
+
+				@Override
+				public void completed(Node result) {
+					throw new RuntimeException("callback bug");
+				}
+
+				@Override
+				public void failed(Throwable throwable) {
+					throw new RuntimeException("callback bug");
+				}
+
+			});
+			Future<Boolean> failedLink = asyncGraph.linkAsync(store.getGraph().getRootNode(), store.getGraph().createNode(), null, new Callback<Boolean>() {
+
+				@Override
+				public void completed(Boolean result) {
+					throw new RuntimeException("callback bug");
+				}
+
+				@Override
+				public void failed(Throwable throwable) {
+					throw new RuntimeException("callback bug");
+				}
+
+			});
+			assertNotNull("Completed Node", completedNode.get(10, TimeUnit.SECONDS));
+			try {
+				failedLink.get(10, TimeUnit.SECONDS);
+				fail("Link without relationship succeeded.");
+			} catch (ExecutionException ee1) {
+				/* expected. */
+			}
+			assertNotNull("Later Node", asyncGraph.createNodeAsync(null).get(10, TimeUnit.SECONDS));
+		} finally {
+			asyncGraph.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that a link is ordered against later operations on its end node,
+	 * even if the end node uses a different lane than the start node.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void testLinkIsOrderedForEndNode() throws Exception {
+		MemoryStore store = new MemoryStore();
+		AsyncGraph asyncGraph = new AsyncGraph(store, 2, 16);
+		final CountDownLatch releaseLatch = new CountDownLatch(1);
+		try {
+			Node startNode = store.getGraph().createNode();
+			Node endNode = store.getGraph().createNode();
+			while (((startNode.hashCode() & 0x7fffffff) % 2) == ((endNode.hashCode() & 0x7fffffff) % 2)) {
+				endNode = store.getGraph().createNode();
+			}
+			final CountDownLatch blockedLatch = new CountDownLatch(1);
+			asyncGraph.getAsync(startNode, "name", new Callback<Object>() {
+
+				@Override
+				public void completed(Object result) {
+					blockedLatch.countDown();
+					try {
+						releaseLatch.await();
+					} catch (InterruptedException ie1) {
+						Thread.currentThread().interrupt();
+					}
+				}
+
+				@Override
+				public void failed(Throwable throwable) {
+					blockedLatch.countDown();
+				}
+
+			});
+			assertTrue("Lane Blocked", blockedLatch.await(10, TimeUnit.SECONDS));
+			Future<Boolean> linked = asyncGraph.linkAsync(startNode, endNode, "tests", null);
+			Future<Set<Edge>> incomingLinks = asyncGraph.getIncomingLinksAsync(endNode, "tests", null);
+			releaseLatch.countDown();
+			assertEquals("Linked", Boolean.TRUE, linked.get(10, TimeUnit.SECONDS));
+			assertEquals("Incoming Links", 1, incomingLinks.get(10, TimeUnit.SECONDS).size());
+		} finally {
+			releaseLatch.countDown();
+			asyncGraph.shutdown();
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Submits an operation whose callback blocks the lane until the given
+	 * latch is released, and waits until the lane is blocked.
+	 *
+	 * @param asyncGraph
+	 *            The asynchronous graph with a single lane
+	 * @param releaseLatch
+	 *            The latch that releases the lane
+	 * @return The future of the blocking operation
+	 * @throws InterruptedException
+	 *             if the test is interrupted
+	 */
+	private static Future<Node> blockLane(AsyncGraph asyncGraph, final CountDownLatch releaseLatch) throws InterruptedException {
+		final CountDownLatch blockedLatch = new CountDownLatch(1);
+		Future<Node> node = asyncGraph.createNodeAsync(new Callback<Node>() {
+
+			@Override
+			public void completed(Node result) {
+				blockedLatch.countDown();
+				try {
+					releaseLatch.await();
+				} catch (InterruptedException ie1) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			@Override
+			public void failed(Throwable throwable) {
+				blockedLatch.countDown();
+			}
+
+		});
+		assertTrue("Lane Blocked", blockedLatch.await(10, TimeUnit.SECONDS));
+		return node;
+	}
+
+	/**
+	 * Verifies that the given operation was rejected.
+	 *
+	 * @param future
+	 *            The future of the operation
+	 * @throws InterruptedException
+	 *             if the test is interrupted
+	 * @throws TimeoutException
+	 *             if the operation does not finish in time
+	 */
+	private static void verifyRejected(Future<?> future) throws InterruptedException, TimeoutException {
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			fail("Operation was not rejected.");
+		} catch (ExecutionException ee1) {
+			assertTrue("Rejected", ee1.getCause() instanceof RejectedExecutionException);
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * utils.graph - LongIntHashMapTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.collection;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link LongIntHashMap}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class LongIntHashMapTest extends TestCase {
+
+	/**
+	 * Tests that the map returns the same values as a {@link HashMap} for
+	 * random keys, across several resizes.
+	 */
+	public void testRandomKeys() {
+		LongIntHashMap longIntHashMap = new LongIntHashMap();
+		Map<Long, Integer> hashMap = new HashMap<Long, Integer>();
+		Random random = new Random(1);
+		for (int index = 0; index < 10000; ++index) {
+			long key = random.nextInt(5000) - 2500;
+			Integer oldValue = hashMap.put(key, index);
+			assertEquals("Old Value", (oldValue == null) ? -1 : oldValue.intValue(), longIntHashMap.put(key, index));
+		}
+		assertEquals("Size", hashMap.size(), longIntHashMap.size());
+		for (long key = -3000; key < 3000; ++key) {
+			Integer value = hashMap.get(key);
+			assertEquals("Value", (value == null) ? -1 : value.intValue(), longIntHashMap.get(key));
+			assertEquals("Contains Key", value != null, longIntHashMap.containsKey(key));
+		}
+	}
+
+	/**
+	 * Tests that removing random keys leaves the map equal to a
+	 * {@link HashMap}, and that {@link LongIntHashMap#keys()} returns all
+	 * remaining keys.
+	 */
+	public void testRemove() {
+		LongIntHashMap longIntHashMap = new LongIntHashMap();
+		Map<Long, Integer> hashMap = new HashMap<Long, Integer>();
+		Random random = new Random(2);
+		for (int index = 0; index < 20000; ++index) {
+			long key = random.nextInt(3000);
+			if (random.nextBoolean()) {
+				Integer oldValue = hashMap.put(key, index);
+				assertEquals("Old Value", (oldValue == null) ? -1 : oldValue.intValue(), longIntHashMap.put(key, index));
+			} else {
+				Integer oldValue = hashMap.remove(key);
+				assertEquals("Removed Value", (oldValue == null) ? -1 : oldValue.intValue(), longIntHashMap.remove(key));
+			}
+		}
+		assertEquals("Size", hashMap.size(), longIntHashMap.size());
+		for (long key = 0; key < 3000; ++key) {
+			Integer value = hashMap.get(key);
+			assertEquals("Value", (value == null) ? -1 : value.intValue(), longIntHashMap.get(key));
+		}
+		long[] keys = longIntHashMap.keys();
+		Arrays.sort(keys);
+		long[] expectedKeys = new long[hashMap.size()];
+		int index = 0;
+		for (long key : hashMap.keySet()) {
+			expectedKeys[index++] = key;
+		}
+		Arrays.sort(expectedKeys);
+		assertTrue("Keys", Arrays.equals(expectedKeys, keys));
+	}
+
+	/**
+	 * Tests that a cleared map is empty.
+	 */
+	public void testClear() {
+		LongIntHashMap longIntHashMap = new LongIntHashMap(4, 0);
+		longIntHashMap.put(Long.MIN_VALUE, 1);
+		longIntHashMap.put(Long.MAX_VALUE, 2);
+		assertEquals("Value", 1, longIntHashMap.get(Long.MIN_VALUE));
+		longIntHashMap.clear();
+		assertTrue("Empty", longIntHashMap.isEmpty());
+		assertEquals("Missing Value", 0, longIntHashMap.get(Long.MAX_VALUE));
+	}
+
+}
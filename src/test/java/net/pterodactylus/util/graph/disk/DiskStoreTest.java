@@ -0,0 +1,571 @@
+/*
+ * utils.graph - DiskStoreTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Store;
+import net.pterodactylus.util.graph.StoreTest;
+import net.pterodactylus.util.graph.query.StatisticsCatalog;
+
+/**
+ * Extends {@link StoreTest} to test the {@link DiskStore} implementation.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class DiskStoreTest extends StoreTest {
+
+	/** The directories created by this test. */
+	private final List<File> directories = new ArrayList<File>();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		for (File directory : directories) {
+			delete(directory);
+		}
+		directories.clear();
+	}
+
+	/**
+	 * Tests that a read-only store can read a graph written by another store
+	 * and rejects all modifications.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testReadOnlyStore() throws GraphException {
+		File directory = createDirectory();
+		Graph graph = new DiskStore(directory).getGraph();
+		Node node = graph.createNode();
+		node.set("name", "node");
+		graph.getRootNode().link(node, "tests");
+
+		DiskStore readOnlyStore = new DiskStore(directory, DiskStore.DEFAULT_CACHE_SIZE, true);
+		assertTrue("Read-Only", readOnlyStore.isReadOnly());
+		Graph readOnlyGraph = readOnlyStore.getGraph();
+		Node readOnlyRootNode = readOnlyGraph.getRootNode();
+		assertEquals("Outgoing Edges Count", 1, readOnlyRootNode.getOutgoingLinks("tests").size());
+		Node readOnlyNode = readOnlyRootNode.getOutgoingLinks("tests").iterator().next().getEndNode();
+		assertEquals("Property", "node", readOnlyNode.get("name"));
+		try {
+			readOnlyGraph.createNode();
+			fail("Node was created in read-only store.");
+		} catch (GraphException ge1) {
+			/* expected. */
+		}
+		try {
+			readOnlyNode.set("name", "changed");
+			fail("Property was changed in read-only store.");
+		} catch (GraphException ge1) {
+			/* expected. */
+		}
+		assertEquals("Property", "node", readOnlyNode.get("name"));
+		try {
+			readOnlyRootNode.unlink(readOnlyNode, "tests");
+			fail("Edge was removed in read-only store.");
+		} catch (GraphException ge1) {
+			/* expected. */
+		}
+	}
+
+	/**
+	 * Tests that a read-only store can be opened in a directory that is not
+	 * writable and does not create the index storages that a store written by
+	 * an older version does not have.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testReadOnlyStoreDoesNotCreateFiles() throws GraphException {
+		File directory = createDirectory();
+		Graph graph = new DiskStore(directory).getGraph();
+		graph.getRootNode().link(graph.createNode().set("name", "node"), "tests");
+		for (File file : directory.listFiles()) {
+			if (file.getName().startsWith("index") || file.getName().startsWith("range-index")) {
+				assertTrue("Index Storage Deleted", file.delete());
+			}
+		}
+		Set<String> fileNames = new HashSet<String>(Arrays.asList(directory.list()));
+		assertTrue("Directory Not Writable", directory.setWritable(false));
+		try {
+			DiskStore readOnlyStore = new DiskStore(directory, DiskStore.DEFAULT_CACHE_SIZE, true);
+			Graph readOnlyGraph = readOnlyStore.getGraph();
+			Node readOnlyNode = readOnlyGraph.getRootNode().getOutgoingLinks("tests").iterator().next().getEndNode();
+			assertEquals("Property", "node", readOnlyNode.get("name"));
+			assertTrue("No Property Indexes", readOnlyGraph.getIndexedKeys().isEmpty());
+			assertTrue("No Range Indexes", readOnlyStore.getRangeIndexKeys().isEmpty());
+			assertEquals("Scanned Nodes", Collections.singleton(readOnlyNode), readOnlyGraph.findNodes("name", "node"));
+			assertEquals("Files", fileNames, new HashSet<String>(Arrays.asList(directory.list())));
+		} finally {
+			directory.setWritable(true);
+		}
+	}
+
+	/**
+	 * Tests that a property index is loaded again when a store is reopened.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testPropertyIndexIsPersisted() throws GraphException {
+		File directory = createDirectory();
+		Graph graph = new DiskStore(directory).getGraph();
+		Node firstNode = graph.createNode();
+		firstNode.set("name", "first");
+		graph.createIndex("name");
+		Node secondNode = graph.createNode();
+		secondNode.set("name", "second");
+		firstNode.set("name", "second");
+		graph.createNode().set("name", "third");
+		graph.removeNode(graph.findNodes("name", "third").iterator().next());
+
+		Graph reopenedGraph = new DiskStore(directory).getGraph();
+		assertEquals("Indexed Keys", Collections.singleton("name"), reopenedGraph.getIndexedKeys());
+		assertTrue("First Nodes", reopenedGraph.findNodes("name", "first").isEmpty());
+		assertTrue("Third Nodes", reopenedGraph.findNodes("name", "third").isEmpty());
+		Set<Long> nodeIds = new HashSet<Long>();
+		for (Node node : reopenedGraph.findNodes("name", "second")) {
+			nodeIds.add(node.getId());
+		}
+		assertEquals("Second Nodes", new HashSet<Long>(Arrays.asList(firstNode.getId(), secondNode.getId())), nodeIds);
+		reopenedGraph.dropIndex("name");
+		assertTrue("Dropped Index", new DiskStore(directory).getGraph().getIndexedKeys().isEmpty());
+	}
+
+	/**
+	 * Tests that the modification stamp only changes when the graph is
+	 * modified, that it survives reopening the store, and that a statistics
+	 * catalog saved with it is rebuilt when the graph was modified by a store
+	 * that was not shut down cleanly.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void testModificationStamp() throws Exception {
+		File directory = createDirectory();
+		DiskStore store = new DiskStore(directory);
+		Graph graph = store.getGraph();
+		StatisticsCatalog statisticsCatalog = StatisticsCatalog.create(graph);
+		Node node = graph.createNode();
+		long modificationStamp = store.getModificationStamp();
+		assertEquals("Unmodified Stamp", modificationStamp, store.getModificationStamp());
+		node.set("name", "node");
+		assertFalse("Modified Stamp", modificationStamp == store.getModificationStamp());
+		File catalogFile = new File(directory, "statistics.cat");
+		statisticsCatalog.save(catalogFile, store.getModificationStamp());
+		statisticsCatalog.close();
+
+		DiskStore reopenedStore = new DiskStore(directory);
+		Graph reopenedGraph = reopenedStore.getGraph();
+		StatisticsCatalog loadedCatalog = StatisticsCatalog.load(reopenedGraph, catalogFile, reopenedStore.getModificationStamp());
+		assertEquals("Property Count", 1, loadedCatalog.getPropertyCount("name"));
+		loadedCatalog.close();
+		reopenedGraph.createNode().set("name", "other");
+
+		DiskStore recoveredStore = new DiskStore(directory);
+		StatisticsCatalog rebuiltCatalog = StatisticsCatalog.load(recoveredStore.getGraph(), catalogFile, recoveredStore.getModificationStamp());
+		assertEquals("Node Count", 3, rebuiltCatalog.getNodeCount());
+		assertEquals("Property Count", 2, rebuiltCatalog.getPropertyCount("name"));
+		rebuiltCatalog.close();
+	}
+
+	/**
+	 * Tests that a range index returns the same nodes as a scan of all nodes,
+	 * after a bulk build, while properties are changed and nodes are removed,
+	 * and after the store was reopened.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testRangeIndex() throws GraphException {
+		File directory = createDirectory();
+		DiskStore store = new DiskStore(directory);
+		Graph graph = store.getGraph();
+		Random random = new Random(11);
+		List<Node> nodes = new ArrayList<Node>();
+		for (int index = 0; index < 1000; ++index) {
+			Node node = graph.createNode();
+			node.set("time", (long) random.nextInt(500));
+			nodes.add(node);
+		}
+		RangeIndex rangeIndex = store.createRangeIndex("time");
+		assertSame("Existing Index", rangeIndex, store.createRangeIndex("time"));
+		verifyRangeIndex(rangeIndex, nodes, random);
+		for (int index = 0; index < 3000; ++index) {
+			Node node = graph.createNode();
+			node.set("time", (long) random.nextInt(500));
+			nodes.add(node);
+		}
+		verifyRangeIndex(rangeIndex, nodes, random);
+		for (int round = 0; round < 2500; ++round) {
+			Node node = nodes.get(random.nextInt(nodes.size()));
+			int operation = random.nextInt(4);
+			if (operation < 2) {
+				node.set("time", (long) random.nextInt(500));
+			} else if (operation < 3) {
+				node.set("time", null);
+			} else {
+				graph.removeNode(node);
+				nodes.remove(node);
+			}
+		}
+		verifyRangeIndex(rangeIndex, nodes, random);
+
+		DiskStore reopenedStore = new DiskStore(directory);
+		assertEquals("Range Index Keys", Collections.singleton("time"), reopenedStore.getRangeIndexKeys());
+		verifyRangeIndex(reopenedStore.getRangeIndex("time"), nodes, random);
+		List<Node> reopenedNodes = new ArrayList<Node>();
+		for (Iterator<Node> nodeIterator = reopenedStore.getGraph().getNodes(); nodeIterator.hasNext();) {
+			reopenedNodes.add(nodeIterator.next());
+		}
+		for (Node node : reopenedNodes) {
+			reopenedStore.getGraph().removeNode(node);
+		}
+		assertFalse("Empty Index", reopenedStore.getRangeIndex("time").find(null, null, false).next());
+		reopenedStore.dropRangeIndex("time");
+		assertNull("Dropped Index", new DiskStore(directory).getRangeIndex("time"));
+	}
+
+	/**
+	 * Tests that a range index orders integral and floating-point numbers by
+	 * their exact values.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testRangeIndexWithMixedNumbers() throws GraphException {
+		DiskStore store = new DiskStore(createDirectory());
+		RangeIndex rangeIndex = store.createRangeIndex("value");
+		List<Object> values = Arrays.<Object> asList(Double.NEGATIVE_INFINITY, Long.MIN_VALUE, -0.0, 0L, 0.0, 1L, 1.5, 2, 9007199254740992.0, 9007199254740992L, 9007199254740993L, Long.MAX_VALUE, 9223372036854775808.0, Double.POSITIVE_INFINITY, Double.NaN);
+		List<Node> nodes = new ArrayList<Node>();
+		List<Long> nodeIds = new ArrayList<Long>();
+		for (int index = 0; index < values.size(); ++index) {
+			nodes.add(store.getGraph().createNode());
+			nodeIds.add(nodes.get(index).getId());
+		}
+		for (int index = values.size() - 1; index >= 0; --index) {
+			nodes.get(index).set("value", values.get(index));
+		}
+		assertEquals("All Nodes", nodeIds, findNodeIds(rangeIndex, null, null));
+		assertEquals("Nodes up to Zero", nodeIds.subList(0, 5), findNodeIds(rangeIndex, null, 0L));
+		assertEquals("Nodes from 2^53", nodeIds.subList(8, 15), findNodeIds(rangeIndex, 9007199254740992L, null));
+		assertEquals("Nodes from 2^53 + 1", nodeIds.subList(10, 15), findNodeIds(rangeIndex, 9007199254740993L, null));
+		assertEquals("Nodes up to 2^63", nodeIds.subList(0, 13), findNodeIds(rangeIndex, null, 9223372036854775808.0));
+		assertEquals("Nodes up to Long.MAX_VALUE", nodeIds.subList(0, 12), findNodeIds(rangeIndex, null, Long.MAX_VALUE));
+	}
+
+	/**
+	 * Tests that concurrent threads can link the same node to different nodes
+	 * without losing edges.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void testConcurrentLinking() throws Exception {
+		final Graph graph = new DiskStore(createDirectory()).getGraph();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int threadIndex = 0; threadIndex < 4; ++threadIndex) {
+			threads.add(new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						for (int linkIndex = 0; linkIndex < 50; ++linkIndex) {
+							Node node = graph.createNode();
+							graph.getRootNode().link(node, "tests");
+							graph.getRootNode().getOutgoingLinks("tests");
+							node.getIncomingLinks("tests");
+						}
+					} catch (Throwable throwable) {
+						failure.compareAndSet(null, throwable);
+					}
+				}
+
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull("Failure", failure.get());
+		assertEquals("Outgoing Edges Count", 200, graph.getRootNode().getOutgoingLinks("tests").size());
+	}
+
+	/**
+	 * Tests that removing a node while other threads link nodes to it does
+	 * not leave any edges to the removed node behind.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void testConcurrentRemovingAndLinking() throws Exception {
+		final Graph graph = new DiskStore(createDirectory()).getGraph();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		for (int round = 0; round < 50; ++round) {
+			final Node removedNode = graph.createNode();
+			final AtomicBoolean removed = new AtomicBoolean();
+			List<Node> nodes = new ArrayList<Node>();
+			List<Thread> threads = new ArrayList<Thread>();
+			for (int threadIndex = 0; threadIndex < 4; ++threadIndex) {
+				final Node node = graph.createNode();
+				nodes.add(node);
+				threads.add(new Thread() {
+
+					@Override
+					public void run() {
+						try {
+							while (!removed.get()) {
+								node.unlink(removedNode, "tests");
+								node.link(removedNode, "tests");
+							}
+						} catch (GraphException ge1) {
+							/* removed node can not be linked anymore. */
+						} catch (Throwable throwable) {
+							failure.compareAndSet(null, throwable);
+						}
+					}
+
+				});
+			}
+			for (Thread thread : threads) {
+				thread.start();
+			}
+			Thread.yield();
+			graph.removeNode(removedNode);
+			removed.set(true);
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertNull("Failure", failure.get());
+			for (Node node : nodes) {
+				assertEquals("Outgoing Edges", Collections.<Edge> emptySet(), node.getOutgoingLinks("tests"));
+			}
+		}
+	}
+
+	/**
+	 * Tests that concurrent threads that change the same property of the
+	 * same node leave the property index and the range index consistent with
+	 * the node.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void testConcurrentPropertyChanges() throws Exception {
+		DiskStore store = new DiskStore(createDirectory());
+		Graph graph = store.getGraph();
+		graph.createIndex("colour");
+		RangeIndex rangeIndex = store.createRangeIndex("colour");
+		final Node node = graph.createNode();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int threadIndex = 0; threadIndex < 4; ++threadIndex) {
+			final Random random = new Random(threadIndex);
+			threads.add(new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						for (int changeIndex = 0; changeIndex < 200; ++changeIndex) {
+							node.set("colour", "c" + random.nextInt(4));
+						}
+					} catch (Throwable throwable) {
+						failure.compareAndSet(null, throwable);
+					}
+				}
+
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull("Failure", failure.get());
+		for (int colour = 0; colour < 4; ++colour) {
+			assertEquals("Indexed Nodes", ("c" + colour).equals(node.get("colour")), graph.findNodes("colour", "c" + colour).contains(node));
+		}
+		assertEquals("Range Indexed Nodes", Collections.singletonList(node.getId()), findNodeIds(rangeIndex, null, null));
+	}
+
+	/**
+	 * Tests that a read-only store can not be opened in an empty directory.
+	 */
+	public void testReadOnlyStoreRequiresGraph() {
+		try {
+			new DiskStore(createDirectory(), DiskStore.DEFAULT_CACHE_SIZE, true);
+			fail("Read-only store was opened in empty directory.");
+		} catch (GraphException ge1) {
+			/* expected. */
+		}
+	}
+
+	//
+	// STORETEST METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected List<Store> getStores() {
+		try {
+			return Arrays.asList((Store) new DiskStore(createDirectory()), new DiskStore(createDirectory(), 0));
+		} catch (GraphException ge1) {
+			throw new RuntimeException("Could not create store.", ge1);
+		}
+	}
+
+	//
+	// PROTECTED METHODS
+	//
+
+	/**
+	 * Creates a new, empty directory that is removed when the test is
+	 * finished.
+	 *
+	 * @return The new directory
+	 */
+	protected File createDirectory() {
+		try {
+			File directory = File.createTempFile("utils.graph-", ".store");
+			if (!directory.delete() || !directory.mkdir()) {
+				throw new IOException("Could not create directory “" + directory + "”.");
+			}
+			directories.add(directory);
+			return directory;
+		} catch (IOException ioe1) {
+			throw new RuntimeException("Could not create directory.", ioe1);
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns the IDs of the nodes the given range index returns for the given
+	 * range, in ascending order.
+	 *
+	 * @param rangeIndex
+	 *            The range index
+	 * @param lowerBound
+	 *            The smallest value to return, or {@code null}
+	 * @param upperBound
+	 *            The largest value to return, or {@code null}
+	 * @return The IDs of the found nodes
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	private static List<Long> findNodeIds(RangeIndex rangeIndex, Object lowerBound, Object upperBound) throws GraphException {
+		List<Long> nodeIds = new ArrayList<Long>();
+		RangeCursor rangeCursor = rangeIndex.find(lowerBound, upperBound, false);
+		while (rangeCursor.next()) {
+			nodeIds.add(rangeCursor.getNodeId());
+		}
+		return nodeIds;
+	}
+
+	/**
+	 * Verifies that the given range index returns the expected nodes for
+	 * random ranges, in both directions.
+	 *
+	 * @param rangeIndex
+	 *            The range index to verify
+	 * @param nodes
+	 *            All nodes of the graph
+	 * @param random
+	 *            The random number generator for the ranges
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	private static void verifyRangeIndex(RangeIndex rangeIndex, List<Node> nodes, Random random) throws GraphException {
+		for (int round = 0; round < 20; ++round) {
+			Long lowerBound = (round % 5 == 0) ? null : Long.valueOf(random.nextInt(550) - 25);
+			Long upperBound = (round % 7 == 0) ? null : Long.valueOf(random.nextInt(550) - 25);
+			final boolean descending = random.nextBoolean();
+			List<long[]> expectedEntries = new ArrayList<long[]>();
+			for (Node node : nodes) {
+				Long time = (Long) node.get("time");
+				if ((time != null) && ((lowerBound == null) || (time >= lowerBound)) && ((upperBound == null) || (time <= upperBound))) {
+					expectedEntries.add(new long[] { time, node.getId() });
+				}
+			}
+			Collections.sort(expectedEntries, new Comparator<long[]>() {
+
+				@Override
+				public int compare(long[] firstEntry, long[] secondEntry) {
+					int comparison = (firstEntry[0] != secondEntry[0]) ? Long.valueOf(firstEntry[0]).compareTo(secondEntry[0]) : Long.valueOf(firstEntry[1]).compareTo(secondEntry[1]);
+					return descending ? -comparison : comparison;
+				}
+
+			});
+			List<Long> expectedNodeIds = new ArrayList<Long>();
+			for (long[] expectedEntry : expectedEntries) {
+				expectedNodeIds.add(expectedEntry[1]);
+			}
+			List<Long> nodeIds = new ArrayList<Long>();
+			RangeCursor rangeCursor = rangeIndex.find(lowerBound, upperBound, descending);
+			while (rangeCursor.next()) {
+				nodeIds.add(rangeCursor.getNodeId());
+				assertEquals("Value", rangeCursor.getNode().get("time"), rangeCursor.getValue());
+			}
+			assertEquals("Node IDs", expectedNodeIds, nodeIds);
+		}
+	}
+
+	/**
+	 * Deletes the given file, recursing into directories.
+	 *
+	 * @param file
+	 *            The file to delete
+	 */
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+}
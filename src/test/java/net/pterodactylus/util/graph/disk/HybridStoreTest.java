@@ -0,0 +1,229 @@
+/*
+ * utils.graph - HybridStoreTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.EdgeValidator;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphAdapter;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Relationship;
+import net.pterodactylus.util.graph.Store;
+
+/**
+ * Extends {@link DiskStoreTest} to test the {@link HybridStore} implementation.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class HybridStoreTest extends DiskStoreTest {
+
+	/**
+	 * Tests that nodes are evicted from memory when the memory budget is
+	 * exceeded and are loaded again when they are accessed.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testEviction() throws GraphException {
+		HybridStore hybridStore = new HybridStore(createDirectory(), 4096);
+		Graph graph = hybridStore.getGraph();
+		Node rootNode = graph.getRootNode();
+		for (int index = 0; index < 100; ++index) {
+			Node node = graph.createNode();
+			node.set("index", index);
+			rootNode.link(node, "tests");
+		}
+		assertTrue("Resident Bytes", hybridStore.getResidentBytes() <= hybridStore.getMemoryBudget());
+		assertTrue("Resident Nodes", hybridStore.getResidentNodeCount() < 101);
+		assertTrue("Evictions", hybridStore.getStatistics().getEvictions() > 0);
+		int indexSum = 0;
+		for (Edge edge : rootNode.getOutgoingLinks("tests")) {
+			indexSum += (Integer) edge.getEndNode().get("index");
+		}
+		assertEquals("Index Sum", 4950, indexSum);
+		assertTrue("Misses", hybridStore.getStatistics().getMisses() > 0);
+	}
+
+	/**
+	 * Tests that all modifications are written through to the backing disk
+	 * store.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testWriteThrough() throws GraphException {
+		File directory = createDirectory();
+		Graph graph = new HybridStore(directory).getGraph();
+		Node node = graph.createNode();
+		node.set("name", "node");
+		graph.getRootNode().link(node, "tests");
+
+		Graph diskGraph = new DiskStore(directory).getGraph();
+		assertEquals("Outgoing Edges Count", 1, diskGraph.getRootNode().getOutgoingLinks("tests").size());
+		Node diskNode = diskGraph.getRootNode().getOutgoingLinks("tests").iterator().next().getEndNode();
+		assertEquals("Property", "node", diskNode.get("name"));
+	}
+
+	/**
+	 * Tests that removing a node removes the links to it from the nodes that
+	 * are in memory and have their links loaded.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testRemoveNode() throws GraphException {
+		Graph graph = new HybridStore(createDirectory()).getGraph();
+		Node removedNode = graph.createNode();
+		Node[] neighbours = new Node[5];
+		for (int index = 0; index < neighbours.length; ++index) {
+			neighbours[index] = graph.createNode();
+			neighbours[index].link(removedNode, "tests");
+			removedNode.link(neighbours[index], "tests");
+			assertEquals("Outgoing Links", 1, neighbours[index].getOutgoingLinks("tests").size());
+			assertEquals("Incoming Links", 1, neighbours[index].getIncomingLinks("tests").size());
+		}
+		graph.removeNode(removedNode);
+		for (Node neighbour : neighbours) {
+			assertTrue("No Outgoing Links", neighbour.getOutgoingLinks("tests").isEmpty());
+			assertTrue("No Incoming Links", neighbour.getIncomingLinks("tests").isEmpty());
+		}
+	}
+
+	/**
+	 * Tests that listeners and edge validators are called while the graph is
+	 * not locked, so that other threads can read the graph.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testListenersAreCalledWithoutLock() throws GraphException {
+		final Graph graph = new HybridStore(createDirectory()).getGraph();
+		final List<String> readers = Collections.synchronizedList(new ArrayList<String>());
+		graph.addEdgeValidator(new EdgeValidator() {
+
+			@Override
+			public void validateEdge(Node startNode, Node endNode, Relationship relationship) {
+				readInOtherThread(startNode, "validateEdge", readers);
+			}
+
+			@Override
+			public void edgeNotCreated(Node startNode, Node endNode, Relationship relationship) {
+				/* nothing to release. */
+			}
+
+		});
+		graph.addGraphListener(new GraphAdapter() {
+
+			@Override
+			public void nodeCreated(Node node) {
+				readInOtherThread(node, "nodeCreated", readers);
+			}
+
+			@Override
+			public void nodeRemoved(Node node) {
+				readInOtherThread(graph.getRootNode(), "nodeRemoved", readers);
+			}
+
+			@Override
+			public void edgeCreated(Edge edge) {
+				readInOtherThread(edge.getStartNode(), "edgeCreated", readers);
+			}
+
+			@Override
+			public void edgeRemoved(Edge edge) {
+				readInOtherThread(edge.getStartNode(), "edgeRemoved", readers);
+			}
+
+			@Override
+			public void propertyChanged(Node node, String key, Object oldValue, Object newValue) {
+				readInOtherThread(graph.getRootNode(), "propertyChanged", readers);
+			}
+
+		});
+		Node node = graph.createNode();
+		node.set("name", "node");
+		graph.getRootNode().link(node, "tests");
+		graph.getRootNode().unlink(node, "tests");
+		graph.getRootNode().link(node, "tests");
+		graph.removeNode(node);
+		assertTrue("Readers", readers.containsAll(Arrays.asList("validateEdge", "nodeCreated", "nodeRemoved", "edgeCreated", "edgeRemoved", "propertyChanged")));
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Reads the outgoing links of the given node in another thread and adds
+	 * the given name to the given readers if the thread finishes within a
+	 * second.
+	 *
+	 * @param node
+	 *            The node to read
+	 * @param name
+	 *            The name of the reader
+	 * @param readers
+	 *            The names of the finished readers
+	 */
+	private static void readInOtherThread(final Node node, final String name, final List<String> readers) {
+		Thread reader = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					node.getOutgoingLinks("tests");
+					readers.add(name);
+				} catch (GraphException ge1) {
+					/* the node has been removed. */
+				}
+			}
+
+		});
+		reader.setDaemon(true);
+		reader.start();
+		try {
+			reader.join(1000);
+		} catch (InterruptedException ie1) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	//
+	// STORETEST METHODS
+	//
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected List<Store> getStores() {
+		try {
+			return Arrays.asList((Store) new HybridStore(createDirectory()), new HybridStore(createDirectory(), 0));
+		} catch (GraphException ge1) {
+			throw new RuntimeException("Could not create store.", ge1);
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * utils.graph - ObjectCacheTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.disk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link ObjectCache}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class ObjectCacheTest extends TestCase {
+
+	/**
+	 * Tests that cached objects are returned and that hits and misses are
+	 * counted.
+	 */
+	public void testHitsAndMisses() {
+		ObjectCache<String> cache = new ObjectCache<String>(100);
+		assertNull("Uncached Object", cache.get(1));
+		cache.put(1, "one");
+		assertEquals("Cached Object", "one", cache.get(1));
+		CacheStatistics statistics = cache.getStatistics();
+		assertEquals("Hits", 1, statistics.getHits());
+		assertEquals("Misses", 1, statistics.getMisses());
+		assertEquals("Size", 1, statistics.getSize());
+	}
+
+	/**
+	 * Tests that invalidated objects are no longer returned.
+	 */
+	public void testInvalidation() {
+		ObjectCache<String> cache = new ObjectCache<String>(100);
+		cache.put(1, "one");
+		cache.invalidate(1);
+		assertNull("Invalidated Object", cache.get(1));
+		assertEquals("Size", 0, cache.getStatistics().getSize());
+	}
+
+	/**
+	 * Tests that the cache never holds more objects than its capacity.
+	 */
+	public void testCapacity() {
+		ObjectCache<Long> cache = new ObjectCache<Long>(100);
+		for (long id = 0; id < 1000; ++id) {
+			cache.get(id);
+			cache.put(id, id);
+		}
+		CacheStatistics statistics = cache.getStatistics();
+		assertEquals("Size", 100, statistics.getSize());
+		assertEquals("Evictions", 900, statistics.getEvictions());
+	}
+
+	/**
+	 * Tests that a frequently requested object survives a scan over many
+	 * objects that are requested only once.
+	 */
+	public void testFrequentObjectSurvivesScan() {
+		ObjectCache<Long> cache = new ObjectCache<Long>(100);
+		for (int request = 0; request < 10; ++request) {
+			if (cache.get(0) == null) {
+				cache.put(0, 0L);
+			}
+		}
+		for (long id = 1; id < 1000; ++id) {
+			cache.get(id);
+			cache.put(id, id);
+		}
+		assertEquals("Frequent Object", Long.valueOf(0), cache.get(0));
+	}
+
+	/**
+	 * Tests that concurrent threads always get the cached object for an ID,
+	 * that all requests are counted, and that the capacity is kept.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public void testConcurrentAccess() throws Exception {
+		final ObjectCache<Long> cache = new ObjectCache<Long>(100);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int threadIndex = 0; threadIndex < 4; ++threadIndex) {
+			final Random random = new Random(threadIndex);
+			threads.add(new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						for (int request = 0; request < 10000; ++request) {
+							long id = random.nextBoolean() ? random.nextInt(10) : random.nextInt(1000);
+							Long value = cache.get(id);
+							if (value == null) {
+								cache.put(id, id);
+							} else {
+								assertEquals("Cached Object", id, value.longValue());
+							}
+						}
+					} catch (Throwable throwable) {
+						failure.compareAndSet(null, throwable);
+					}
+				}
+
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull("Failure", failure.get());
+		CacheStatistics statistics = cache.getStatistics();
+		assertEquals("Requests", 40000, statistics.getHits() + statistics.getMisses());
+		assertEquals("Size", 100, statistics.getSize());
+		for (long id = 0; id < 10; ++id) {
+			assertEquals("Frequent Object", Long.valueOf(id), cache.get(id));
+		}
+	}
+
+	/**
+	 * Tests that a cache with a capacity of zero does not cache anything.
+	 */
+	public void testDisabledCache() {
+		ObjectCache<String> cache = new ObjectCache<String>(0);
+		cache.put(1, "one");
+		assertNull("Object", cache.get(1));
+		assertEquals("Size", 0, cache.getStatistics().getSize());
+	}
+
+}
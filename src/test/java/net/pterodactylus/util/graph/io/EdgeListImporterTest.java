@@ -0,0 +1,201 @@
+/*
+ * utils.graph - EdgeListImporterTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.disk.DiskStore;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+import net.pterodactylus.util.io.Closer;
+
+/**
+ * Tests the {@link EdgeListImporter}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class EdgeListImporterTest extends TestCase {
+
+	/** The file to import. */
+	private File file;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("utils.graph-", ".edges");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	/**
+	 * Tests importing a file that is split into many small chunks.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void testImport() throws GraphException, IOException {
+		StringBuilder edges = new StringBuilder("# comment\n\n");
+		for (int index = 1; index < 100; ++index) {
+			edges.append("0\t").append(index).append("\r\n");
+			edges.append(index).append(", 0 ,parent\n");
+		}
+		edges.append("0 1\n");
+		write(edges.toString());
+		Graph graph = new MemoryStore().getGraph();
+		final List<ImportStatistics> progress = new ArrayList<ImportStatistics>();
+		EdgeListImporter edgeListImporter = new EdgeListImporter(graph).setKeyProperty("key").setChunkSize(16).setThreadCount(3);
+		edgeListImporter.addImportListener(new ImportListener() {
+
+			@Override
+			public void importProgressed(ImportStatistics importStatistics) {
+				progress.add(importStatistics);
+			}
+
+		});
+		ImportStatistics importStatistics = edgeListImporter.importFile(file);
+		assertEquals("Edges", 199, importStatistics.getEdges());
+		assertEquals("Created Edges", 198, importStatistics.getCreatedEdges());
+		assertEquals("Created Nodes", 100, importStatistics.getCreatedNodes());
+		assertEquals("Processed Bytes", file.length(), importStatistics.getProcessedBytes());
+		assertTrue("Progress Events", progress.size() > 1);
+		assertEquals("Final Progress", 1.0, progress.get(progress.size() - 1).getProgress());
+		assertEquals("Outgoing Edges Count", 99, edgeListImporter.getNode(0).getOutgoingLinks("edge").size());
+		assertEquals("Incoming Edges Count", 99, edgeListImporter.getNode(0).getIncomingLinks("parent").size());
+	}
+
+	/**
+	 * Tests that several threads create the edges of every chunk in a graph
+	 * that can be modified concurrently.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void testParallelLinking() throws GraphException, IOException {
+		StringBuilder edges = new StringBuilder();
+		for (int index = 1; index <= 210; ++index) {
+			edges.append(index % 7).append(' ').append(index).append('\n');
+			edges.append(index).append(' ').append(index % 7).append(" parent\n");
+		}
+		edges.append("0 7\n7 0 parent\n");
+		write(edges.toString());
+		File directory = File.createTempFile("utils.graph-", ".store");
+		directory.delete();
+		directory.mkdir();
+		try {
+			Graph graph = new DiskStore(directory).getGraph();
+			EdgeListImporter edgeListImporter = new EdgeListImporter(graph).setChunkSize(1024).setLinkThreadCount(4);
+			ImportStatistics importStatistics = edgeListImporter.importFile(file);
+			assertEquals("Edges", 422, importStatistics.getEdges());
+			assertEquals("Created Edges", 420, importStatistics.getCreatedEdges());
+			assertEquals("Created Nodes", 211, importStatistics.getCreatedNodes());
+			for (long key = 0; key < 7; ++key) {
+				assertEquals("Outgoing Edges Count", 30, edgeListImporter.getNode(key).getOutgoingLinks("edge").size());
+				assertEquals("Incoming Edges Count", 30, edgeListImporter.getNode(key).getIncomingLinks("parent").size());
+			}
+		} finally {
+			for (File storeFile : directory.listFiles()) {
+				storeFile.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Tests that the imported nodes are linked correctly.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void testImportedStructure() throws GraphException, IOException {
+		write("1 2\n1 3\n3 1 parent\n-4 1");
+		Graph graph = new MemoryStore().getGraph();
+		EdgeListImporter edgeListImporter = new EdgeListImporter(graph).setKeyProperty("key").setChunkSize(3).addNode(-4, graph.getRootNode());
+		ImportStatistics importStatistics = edgeListImporter.importFile(file);
+		assertEquals("Created Nodes", 3, importStatistics.getCreatedNodes());
+		Set<Edge> rootEdges = graph.getRootNode().getOutgoingLinks("edge");
+		assertEquals("Root Edges Count", 1, rootEdges.size());
+		Node keyOne = rootEdges.iterator().next().getEndNode();
+		assertSame("Node 1", edgeListImporter.getNode(1), keyOne);
+		assertEquals("Key", 1L, keyOne.get("key"));
+		assertEquals("Outgoing Edges Count", 2, keyOne.getOutgoingLinks("edge").size());
+		assertEquals("Incoming Parent Edges Count", 1, keyOne.getIncomingLinks("parent").size());
+		assertEquals("Parent Key", 3L, keyOne.getIncomingLinks("parent").iterator().next().getStartNode().get("key"));
+	}
+
+	/**
+	 * Tests that an invalid line is rejected.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void testInvalidLine() throws IOException {
+		write("1 2\n1 x\n");
+		try {
+			new EdgeListImporter(new MemoryStore().getGraph()).importFile(file);
+			fail("Invalid line was imported.");
+		} catch (GraphException ge1) {
+			/* expected. */
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Writes the given text to the file to import.
+	 *
+	 * @param text
+	 *            The text to write
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	private void write(String text) throws IOException {
+		FileOutputStream fileOutputStream = null;
+		try {
+			fileOutputStream = new FileOutputStream(file);
+			fileOutputStream.write(text.getBytes("UTF-8"));
+		} finally {
+			Closer.close(fileOutputStream);
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * utils.graph - GraphExporterTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.io.GraphExporter.Format;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+
+/**
+ * Tests the {@link GraphExporter}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class GraphExporterTest extends TestCase {
+
+	/** The graph to export. */
+	private Graph graph;
+
+	/** The node that is linked from the root node. */
+	private Node node;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		graph = new MemoryStore().getGraph();
+		node = graph.createNode().set("name", "<node>").set("index", 1);
+		graph.getRootNode().link(node, "children");
+		node.link(graph.getRootNode(), "parent");
+	}
+
+	/**
+	 * Tests that an exported edge list can be imported again.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void testEdgeList() throws GraphException, IOException {
+		File file = File.createTempFile("utils.graph-", ".edges");
+		try {
+			new GraphExporter(graph).export(file, Format.EDGE_LIST);
+			Graph importedGraph = new MemoryStore().getGraph();
+			EdgeListImporter edgeListImporter = new EdgeListImporter(importedGraph).addNode(graph.getRootNode().getId(), importedGraph.getRootNode());
+			ImportStatistics importStatistics = edgeListImporter.importFile(file);
+			assertEquals("Created Edges", 2, importStatistics.getCreatedEdges());
+			assertEquals("Children", 1, importedGraph.getRootNode().getOutgoingLinks("children").size());
+			assertEquals("Parents", 1, importedGraph.getRootNode().getIncomingLinks("parent").size());
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Tests that the GraphML export contains nodes, escaped properties and
+	 * edges.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void testGraphML() throws GraphException, IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		new GraphExporter(graph).export(outputStream, Format.GRAPHML);
+		String graphML = new String(outputStream.toByteArray(), "UTF-8");
+		assertTrue("Node", graphML.contains("<node id=\"n" + node.getId() + "\">"));
+		assertTrue("Escaped Property", graphML.contains("&lt;node&gt;</data>"));
+		assertTrue("Property Type", graphML.contains("attr.name=\"index\" attr.type=\"int\""));
+		assertTrue("Edge", graphML.contains("<edge source=\"n" + graph.getRootNode().getId() + "\" target=\"n" + node.getId() + "\">"));
+		assertTrue("End", graphML.endsWith("</graphml>\n"));
+	}
+
+	/**
+	 * Tests the header of the binary export.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void testBinary() throws GraphException, IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		new GraphExporter(graph).export(outputStream, Format.BINARY);
+		byte[] export = outputStream.toByteArray();
+		DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(export));
+		assertEquals("Magic", GraphExporter.BINARY_MAGIC, dataInputStream.readInt());
+		assertEquals("Version", GraphExporter.BINARY_VERSION, dataInputStream.readInt());
+		assertEquals("Relationships", 2, dataInputStream.readInt());
+		assertEquals("End", 0, export[export.length - 1]);
+	}
+
+}
@@ -17,9 +17,14 @@
 
 package net.pterodactylus.util.graph.memory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
+import net.pterodactylus.util.graph.Edge;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
 import net.pterodactylus.util.graph.Store;
 import net.pterodactylus.util.graph.StoreTest;
 
@@ -30,6 +35,47 @@ import net.pterodactylus.util.graph.StoreTest;
  */
 public class MemoryStoreTest extends StoreTest {
 
+	/**
+	 * Tests that a snapshot restores nodes, properties and edges, and that
+	 * nodes created after restoring do not clash with restored nodes.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void testSnapshotAndRestore() throws GraphException, IOException {
+		MemoryStore memoryStore = new MemoryStore();
+		Node rootNode = memoryStore.getGraph().getRootNode();
+		rootNode.set("name", "root");
+		for (int index = 0; index < 10; ++index) {
+			Node node = memoryStore.getGraph().createNode();
+			node.set("index", index);
+			rootNode.link(node, "children");
+			node.link(rootNode, "parent");
+		}
+		File snapshotFile = File.createTempFile("utils.graph-", ".snapshot");
+		try {
+			memoryStore.snapshot(snapshotFile);
+			MemoryStore restoredStore = MemoryStore.restore(snapshotFile);
+			Node restoredRootNode = restoredStore.getGraph().getRootNode();
+			assertEquals("Root Property", "root", restoredRootNode.get("name"));
+			assertEquals("Outgoing Edges Count", 10, restoredRootNode.getOutgoingLinks("children").size());
+			assertEquals("Incoming Edges Count", 10, restoredRootNode.getIncomingLinks("parent").size());
+			int indexSum = 0;
+			for (Edge edge : restoredRootNode.getOutgoingLinks("children")) {
+				indexSum += (Integer) edge.getEndNode().get("index");
+				assertEquals("Parent Edges Count", 1, edge.getEndNode().getOutgoingLinks("parent").size());
+			}
+			assertEquals("Index Sum", 45, indexSum);
+			Node newNode = restoredStore.getGraph().createNode();
+			assertTrue("New Node Linked", restoredRootNode.link(newNode, "children"));
+			assertEquals("Outgoing Edges Count", 11, restoredRootNode.getOutgoingLinks("children").size());
+		} finally {
+			snapshotFile.delete();
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
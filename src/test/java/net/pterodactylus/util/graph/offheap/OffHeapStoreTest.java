@@ -0,0 +1,232 @@
+/*
+ * utils.graph - OffHeapStoreTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.offheap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.Store;
+import net.pterodactylus.util.graph.StoreTest;
+
+/**
+ * Extends {@link StoreTest} to test the {@link OffHeapStore} implementation.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class OffHeapStoreTest extends StoreTest {
+
+	/**
+	 * Tests that blocks that cross the boundary between two chunks of a byte
+	 * arena are stored and read correctly.
+	 */
+	public void testByteArenaChunkBoundary() {
+		ByteArena byteArena = new ByteArena();
+		byte[] firstBlock = createBlock((1 << 24) - 100, 1);
+		byte[] secondBlock = createBlock(1000, 2);
+		assertEquals("First Offset", 0, byteArena.add(firstBlock));
+		assertEquals("Second Offset", firstBlock.length, byteArena.add(secondBlock));
+		assertEquals("Size", firstBlock.length + secondBlock.length, byteArena.size());
+		assertEquals("Allocated Bytes", 2L << 24, byteArena.getAllocatedBytes());
+		assertTrue("Second Block", Arrays.equals(secondBlock, byteArena.get(firstBlock.length, secondBlock.length)));
+		assertTrue("Part of First Block", Arrays.equals(Arrays.copyOfRange(firstBlock, 1000, 2000), byteArena.get(1000, 1000)));
+	}
+
+	/**
+	 * Tests that the properties are compacted once enough garbage has
+	 * accumulated, and that compaction keeps the properties of all nodes.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testPropertyCompaction() throws GraphException {
+		OffHeapStore store = new OffHeapStore();
+		Graph graph = store.getGraph();
+		List<Node> nodes = new ArrayList<Node>();
+		for (int index = 0; index < 10; ++index) {
+			nodes.add(graph.createNode().set("index", index));
+		}
+		Node node = nodes.get(5);
+		for (int round = 0; round < 100; ++round) {
+			node.set("data", createBlock(512 * 1024, round));
+		}
+		assertTrue("Allocated Bytes", store.getAllocatedBytes() < (64L << 20));
+		assertTrue("Data", Arrays.equals(createBlock(512 * 1024, 99), (byte[]) node.get("data")));
+		for (int index = 0; index < nodes.size(); ++index) {
+			assertEquals("Index", index, nodes.get(index).get("index"));
+		}
+	}
+
+	/**
+	 * Tests that the records of removed edges are reused for new edges, both
+	 * after unlinking nodes and after removing a node.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testEdgeRecordReuse() throws GraphException {
+		OffHeapGraph graph = (OffHeapGraph) new OffHeapStore().getGraph();
+		Node rootNode = graph.getRootNode();
+		List<Node> nodes = new ArrayList<Node>();
+		for (int index = 0; index < 100; ++index) {
+			Node node = graph.createNode();
+			rootNode.link(node, "tests");
+			nodes.add(node);
+		}
+		assertEquals("Edge Records", 100, graph.getEdgeRecordCount());
+		for (int index = 0; index < 50; ++index) {
+			assertTrue("Unlinked", rootNode.unlink(nodes.get(index), "tests"));
+		}
+		for (int index = 0; index < 50; ++index) {
+			assertTrue("Linked", nodes.get(index).link(rootNode, "tests"));
+		}
+		assertEquals("Edge Records after Unlinking", 100, graph.getEdgeRecordCount());
+		Node hub = graph.createNode();
+		for (Node node : nodes.subList(0, 20)) {
+			hub.link(node, "others");
+			node.link(hub, "others");
+		}
+		assertEquals("Edge Records with Hub", 140, graph.getEdgeRecordCount());
+		graph.removeNode(hub);
+		for (Node node : nodes.subList(20, 60)) {
+			node.link(node, "others");
+		}
+		assertEquals("Edge Records after Removal", 140, graph.getEdgeRecordCount());
+		assertEquals("Outgoing Links", 50, rootNode.getOutgoingLinks("tests").size());
+		assertEquals("Incoming Links", 50, rootNode.getIncomingLinks("tests").size());
+		for (Node node : nodes.subList(20, 60)) {
+			assertEquals("Self-Loop", node, node.getOutgoingLinks("others").iterator().next().getEndNode());
+		}
+	}
+
+	/**
+	 * Tests that a node with many edges can be linked and unlinked in random
+	 * order without losing or duplicating edges.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testHubLinking() throws GraphException {
+		Graph graph = new OffHeapStore().getGraph();
+		Node hub = graph.getRootNode();
+		List<Node> nodes = new ArrayList<Node>();
+		for (int index = 0; index < 20000; ++index) {
+			Node node = graph.createNode();
+			assertTrue("Linked", hub.link(node, "tests"));
+			nodes.add(node);
+		}
+		for (Node node : nodes) {
+			assertFalse("Linked Again", hub.link(node, "tests"));
+		}
+		Collections.shuffle(nodes, new Random(17));
+		for (Node node : nodes.subList(0, 10000)) {
+			assertTrue("Unlinked", hub.unlink(node, "tests"));
+			assertTrue("No Incoming Links", node.getIncomingLinks("tests").isEmpty());
+		}
+		assertEquals("Outgoing Links", 10000, hub.getOutgoingLinks("tests").size());
+		for (Node node : nodes.subList(10000, 20000)) {
+			assertEquals("Incoming Links", 1, node.getIncomingLinks("tests").size());
+		}
+	}
+
+	/**
+	 * Tests that the properties of a removed node can not be accessed.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testPropertiesOfRemovedNode() throws GraphException {
+		Graph graph = new OffHeapStore().getGraph();
+		Node node = graph.createNode().set("name", "node");
+		graph.removeNode(node);
+		try {
+			node.get("name");
+			fail("Property of removed node was read.");
+		} catch (GraphException ge1) {
+			/* expected. */
+		}
+		try {
+			node.set("name", "changed");
+			fail("Property of removed node was set.");
+		} catch (GraphException ge1) {
+			/* expected. */
+		}
+		try {
+			node.getPropertyKeys();
+			fail("Property keys of removed node were read.");
+		} catch (GraphException ge1) {
+			/* expected. */
+		}
+		Node newNode = graph.createNode();
+		assertTrue("New Node Has No Properties", newNode.getPropertyKeys().isEmpty());
+	}
+
+	/**
+	 * Tests that only live nodes can be looked up by their ID.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testGetNode() throws GraphException {
+		OffHeapGraph graph = (OffHeapGraph) new OffHeapStore().getGraph();
+		Node node = graph.createNode();
+		Node removedNode = graph.createNode();
+		graph.removeNode(removedNode);
+		assertEquals("Node", node.getId(), graph.getNode(node.getId()).getId());
+		assertNull("Removed Node", graph.getNode(removedNode.getId()));
+		assertNull("Negative ID", graph.getNode(-1));
+		assertNull("Unknown ID", graph.getNode(removedNode.getId() + 1));
+		assertNull("Large ID", graph.getNode((1L << 32) + node.getId()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected List<Store> getStores() {
+		return Arrays.asList((Store) new OffHeapStore());
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Creates a block of the given length with a pattern that depends on the
+	 * given seed.
+	 *
+	 * @param length
+	 *            The length of the block
+	 * @param seed
+	 *            The seed of the pattern
+	 * @return The block
+	 */
+	private static byte[] createBlock(int length, int seed) {
+		byte[] block = new byte[length];
+		for (int index = 0; index < length; ++index) {
+			block[index] = (byte) (index * 31 + seed);
+		}
+		return block;
+	}
+
+}
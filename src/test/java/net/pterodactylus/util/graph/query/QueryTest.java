@@ -0,0 +1,169 @@
+/*
+ * utils.graph - QueryTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.query;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+
+/**
+ * Tests {@link PathPattern} and {@link Query}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class QueryTest extends TestCase {
+
+	/**
+	 * Tests parsing of patterns.
+	 *
+	 * @throws QueryException
+	 *             if a pattern can not be parsed
+	 */
+	public void testParse() throws QueryException {
+		PathPattern pattern = PathPattern.parse("a -follows-> b <-`is liked by`- c WHERE c.category = 'books' and a.age=42 And b.score = -1.5 and b.active = TRUE");
+		assertEquals("Length", 2, pattern.getLength());
+		assertEquals("Variable 2", "c", pattern.getVariable(2));
+		assertEquals("Relationship 1", "is liked by", pattern.getRelationship(1));
+		assertTrue("Forward 0", pattern.isForward(0));
+		assertFalse("Forward 1", pattern.isForward(1));
+		assertEquals("Predicates", 4, pattern.getPredicates().size());
+		assertEquals("Integer", 42, pattern.getPredicates("a").get(0).getValue());
+		assertEquals("Double", -1.5, pattern.getPredicates("b").get(0).getValue());
+		assertEquals("Boolean", Boolean.TRUE, pattern.getPredicates("b").get(1).getValue());
+		assertEquals("Reparsed", pattern.toString(), PathPattern.parse(pattern.toString()).toString());
+		for (String invalidPattern : new String[] { "", "a -", "a -x b", "a -x-> b where", "a where b.c = 1", "a where a.b = 'c", "a b" }) {
+			try {
+				PathPattern.parse(invalidPattern);
+				fail("Parsed “" + invalidPattern + "”");
+			} catch (QueryException qe1) {
+				/* expected. */
+			}
+		}
+	}
+
+	/**
+	 * Tests matching of patterns with bound variables, predicates, cycles,
+	 * and limits.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testMatches() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node alice = graph.getRootNode().set("name", "alice");
+		Node bob = graph.createNode().set("name", "bob");
+		Node carol = graph.createNode().set("name", "carol");
+		Node book = graph.createNode().set("category", "books").set("pages", 300L);
+		Node film = graph.createNode().set("category", "films");
+		alice.link(bob, "follows");
+		alice.link(carol, "follows");
+		bob.link(alice, "follows");
+		bob.link(book, "likes");
+		carol.link(book, "likes");
+		carol.link(film, "likes");
+
+		Query query = new Query(graph, "a -follows-> b -likes-> c where c.category = 'books'").bind("a", alice);
+		assertEquals("Books", setOf("bob", "carol"), getNames(query.execute(), "b"));
+		assertTrue("Anchor bound", query.getPlan().isAnchorBound());
+		assertEquals("Number", 2, new Query(graph, "a -likes-> c where c.pages = 300").execute().size());
+		assertEquals("Incoming", setOf("bob", "carol"), getNames(new Query(graph, "c <-likes- b where c.category = \"books\"").execute(), "b"));
+		List<QueryResult> cycles = new Query(graph, "a -follows-> b -follows-> a").execute();
+		assertEquals("Cycles", 2, cycles.size());
+		assertEquals("Cycle Variables", setOf("a", "b"), cycles.get(0).getVariables());
+		assertEquals("Empty", 0, new Query(graph, "a -likes-> b -likes-> c").execute().size());
+		assertEquals("Limit", 1, new Query(graph, "a -likes-> b").setLimit(1).execute().size());
+		assertEquals("Unknown Relationship", 0, new Query(graph, "a -unknown-> b").execute().size());
+	}
+
+	/**
+	 * Tests that the planner starts at the end of a pattern that has the lower
+	 * fan-out and returns the same results for all plans.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testPlanning() throws GraphException {
+		Graph graph = new MemoryStore().getGraph();
+		Node celebrity = graph.getRootNode().set("name", "celebrity");
+		Node[] fans = new Node[200];
+		for (int index = 0; index < fans.length; ++index) {
+			fans[index] = graph.createNode();
+			fans[index].link(celebrity, "follows");
+		}
+		Node topic = graph.createNode().set("topic", "graphs");
+		fans[7].link(topic, "likes");
+		fans[8].link(topic, "likes");
+
+		Query query = new Query(graph, "c <-follows- f -likes-> t where t.topic = 'graphs'").bind("c", celebrity);
+		assertEquals("Default Plan Anchor", 0, query.getPlan().getAnchorPosition());
+		List<QueryResult> defaultResults = query.execute();
+		query.setStatistics(CollectedDegreeStatistics.collect(graph));
+		assertEquals("Statistics Plan Anchor", 2, query.getPlan().getAnchorPosition());
+		assertTrue("Steps", query.getPlan().toString().contains("t <-likes- f"));
+		List<QueryResult> statisticsResults = query.execute();
+		assertEquals("Results", 2, statisticsResults.size());
+		assertEquals("Same Results", getNames(defaultResults, "c"), getNames(statisticsResults, "c"));
+		Set<Long> fanIds = new HashSet<Long>();
+		for (QueryResult result : statisticsResults) {
+			fanIds.add(result.get("f").getId());
+		}
+		assertEquals("Fans", new HashSet<Long>(Arrays.asList(fans[7].getId(), fans[8].getId())), fanIds);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Returns the names of the nodes bound to the given variable.
+	 *
+	 * @param results
+	 *            The query results
+	 * @param variable
+	 *            The variable
+	 * @return The names of the nodes
+	 * @throws GraphException
+	 *             if a name can not be read
+	 */
+	private static Set<Object> getNames(List<QueryResult> results, String variable) throws GraphException {
+		Set<Object> names = new HashSet<Object>();
+		for (QueryResult result : results) {
+			names.add(result.get(variable).get("name"));
+		}
+		return names;
+	}
+
+	/**
+	 * Returns a set with the given elements.
+	 *
+	 * @param elements
+	 *            The elements
+	 * @return A set with the elements
+	 */
+	private static Set<Object> setOf(Object... elements) {
+		return new HashSet<Object>(Arrays.asList(elements));
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * utils.graph - TraversalTest.java - Copyright © 2011 David Roden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.pterodactylus.util.graph.traversal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.pterodactylus.util.filter.Filter;
+import net.pterodactylus.util.graph.Graph;
+import net.pterodactylus.util.graph.GraphException;
+import net.pterodactylus.util.graph.Node;
+import net.pterodactylus.util.graph.memory.MemoryStore;
+
+/**
+ * Tests the {@link Traversal}.
+ *
+ * @author <a href="mailto:bombe@pterodactylus.net">David ‘Bombe’ Roden</a>
+ */
+public class TraversalTest extends TestCase {
+
+	/** The graph. */
+	private Graph graph;
+
+	/** The nodes of the tree, in breadth-first order. */
+	private final List<Node> nodes = new ArrayList<Node>();
+
+	/**
+	 * Creates a binary tree with 15 nodes, the root node of the graph being
+	 * the root of the tree, where every node has a “name” property.
+	 *
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		graph = new MemoryStore().getGraph();
+		nodes.add(graph.getRootNode().set("name", 0));
+		for (int index = 1; index < 15; ++index) {
+			Node node = graph.createNode().set("name", index);
+			nodes.get((index - 1) / 2).link(node, "child");
+			nodes.add(node);
+		}
+	}
+
+	/**
+	 * Tests that a breadth-first traversal returns the nodes level by level,
+	 * with the correct depth.
+	 */
+	public void testBreadthFirst() {
+		TraversalIterator traversalIterator = Traversal.breadthFirst(graph.getRootNode()).iterator();
+		List<Integer> depths = new ArrayList<Integer>();
+		List<Node> visitedNodes = new ArrayList<Node>();
+		while (traversalIterator.hasNext()) {
+			visitedNodes.add(traversalIterator.next());
+			depths.add(traversalIterator.getDepth());
+		}
+		assertEquals("Nodes Count", 15, visitedNodes.size());
+		assertEquals("Depths", Arrays.asList(0, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 3, 3), depths);
+		assertEquals("Root Node", nodes.get(0), visitedNodes.get(0));
+	}
+
+	/**
+	 * Tests that a depth-first traversal descends into the first child before
+	 * returning its sibling.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testDepthFirst() throws GraphException {
+		TraversalIterator traversalIterator = Traversal.depthFirst(graph.getRootNode()).follow("child", Direction.OUTGOING).iterator();
+		List<Integer> depths = new ArrayList<Integer>();
+		while (traversalIterator.hasNext()) {
+			traversalIterator.next();
+			depths.add(traversalIterator.getDepth());
+		}
+		assertEquals("Nodes Count", 15, depths.size());
+		assertEquals("Depths", Arrays.asList(0, 1, 2, 3, 3, 2, 3, 3, 1, 2, 3, 3, 2, 3, 3), depths);
+	}
+
+	/**
+	 * Tests direction, depth limit and filter. The filter only accepts nodes
+	 * with odd names so that only the leftmost path of the tree remains.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testDirectionDepthAndFilter() throws GraphException {
+		int count = 0;
+		for (Node node : Traversal.breadthFirst(nodes.get(14)).follow("child", Direction.INCOMING)) {
+			assertNotNull("Node", node);
+			++count;
+		}
+		assertEquals("Ancestors", 4, count);
+		count = 0;
+		for (Node node : Traversal.breadthFirst(nodes.get(1)).follow("child", Direction.BOTH).maxDepth(1)) {
+			assertNotNull("Node", node);
+			++count;
+		}
+		assertEquals("Neighbours", 4, count);
+		count = 0;
+		for (Node node : Traversal.depthFirst(graph.getRootNode()).filter(new Filter<Node>() {
+
+			@Override
+			public boolean filterObject(Node node) {
+				try {
+					return ((Integer) node.get("name") % 2) == 1;
+				} catch (GraphException ge1) {
+					throw new RuntimeException(ge1);
+				}
+			}
+
+		})) {
+			assertNotNull("Node", node);
+			++count;
+		}
+		assertEquals("Filtered Nodes", 4, count);
+	}
+
+	/**
+	 * Tests that a very long chain can be traversed depth-first without
+	 * recursion.
+	 *
+	 * @throws GraphException
+	 *             if a graph error occurs
+	 */
+	public void testDeepChain() throws GraphException {
+		Node node = graph.getRootNode();
+		for (int index = 0; index < 100000; ++index) {
+			Node nextNode = graph.createNode();
+			node.link(nextNode, "next");
+			node = nextNode;
+		}
+		TraversalIterator traversalIterator = Traversal.depthFirst(graph.getRootNode()).follow("next", Direction.OUTGOING).iterator();
+		int count = 0;
+		while (traversalIterator.hasNext()) {
+			traversalIterator.next();
+			++count;
+		}
+		assertEquals("Nodes Count", 100001, count);
+		assertEquals("Depth", 100000, traversalIterator.getDepth());
+	}
+
+}